@@ -1,6 +1,7 @@
 import {Component, EventEmitter, Input, OnInit, Output} from '@angular/core';
 import {BookResponse} from "../../../../services/models/book-response";
 import { Router } from '@angular/router';
+import {ApiConfiguration} from "../../../../services/api-configuration";
 
 @Component({
   selector: 'app-book-card',
@@ -14,14 +15,15 @@ export class BookCardComponent implements OnInit {
 
   isWaitingListPage = false;
 
-  constructor(private router: Router) {}
+  constructor(private router: Router,
+              private apiConfiguration: ApiConfiguration) {}
 
   ngOnInit(): void {
     this.isWaitingListPage = this.router.url.includes('/books/my-waiting-list');
   }
   get bookCover(): string | undefined {
-    if (this._book.cover) {
-      return 'data:image/jpg;base64,' + this._book.cover
+    if (this._book.coverUrl) {
+      return this.apiConfiguration.rootUrl + this._book.coverUrl + '&size=256';
     }
     return 'https://picsum.photos/1900/800';
   }
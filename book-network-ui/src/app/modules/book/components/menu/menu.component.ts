@@ -18,6 +18,7 @@ export class MenuComponent implements OnInit {
   fullName: string | null = null;
   socketClient: any = null;
   private notificationSubscription: any;
+  private unreadCountSubscription: any;
   unreadNotificationCount = 0;
   notifications: Array<NotificationResponse> = [];
   searchQuery: string = '';
@@ -33,9 +34,12 @@ export class MenuComponent implements OnInit {
     this.fullName = this.tokenService.fullName;
 
     // 1️⃣ Charger notifications existantes depuis la DB
-    this.notificationService.getUserNotifications().subscribe(data => {
-      this.notifications = data;
-      this.unreadNotificationCount = data.filter(n => !n.read).length;
+    // La liste ne contient que la première page, le badge vient du compteur serveur
+    this.notificationService.getUserNotifications({ size: 20 }).subscribe(page => {
+      this.notifications = page.content ?? [];
+    });
+    this.notificationService.countUnreadNotifications().subscribe(result => {
+      this.unreadNotificationCount = result['count'] ?? 0;
     });
 
     // 2️⃣ Connecter WebSocket pour nouvelles notifications
@@ -51,12 +55,23 @@ export class MenuComponent implements OnInit {
             this.notificationSubscription = this.socketClient.subscribe(
               `/user/${uid}/notifications`,
               (message: any) => {
-                const notification: Notification = JSON.parse(message.body);
-                this.notifications.unshift(notification);
-                this.unreadNotificationCount++;
-
-                // 🔔 Afficher le toaster pour la nouvelle notification
-                this.showNotificationToast(notification);
+                // Une trame porte une notification, ou un tableau quand plusieurs arrivent ensemble
+                const body: Notification | Notification[] = JSON.parse(message.body);
+                const received = Array.isArray(body) ? body : [body];
+                received.forEach(notification => {
+                  this.notifications.unshift(notification);
+
+                  // 🔔 Afficher le toaster pour la nouvelle notification
+                  this.showNotificationToast(notification);
+                });
+                this.unreadNotificationCount += received.length;
+              }
+            );
+            // Le serveur pousse le compteur exact après chaque changement
+            this.unreadCountSubscription = this.socketClient.subscribe(
+              `/user/${uid}/notifications/count`,
+              (message: any) => {
+                this.unreadNotificationCount = JSON.parse(message.body).count ?? 0;
               }
             );
           }
@@ -117,6 +132,9 @@ export class MenuComponent implements OnInit {
       if (this.notificationSubscription) {
         this.notificationSubscription.unsubscribe();
       }
+      if (this.unreadCountSubscription) {
+        this.unreadCountSubscription.unsubscribe();
+      }
       this.socketClient.disconnect();
     }
 
@@ -137,7 +155,7 @@ export class MenuComponent implements OnInit {
     if (!notification.read && notification.id != null) {
       this.notificationService.markAsRead({ id: notification.id }).subscribe(updated => {
         notification.read = true;
-        this.updateUnreadCount();
+        this.unreadNotificationCount = Math.max(0, this.unreadNotificationCount - 1);
       });
     }
   }
@@ -145,21 +163,20 @@ export class MenuComponent implements OnInit {
   markAllNotificationsAsRead() {
     this.notificationService.markAllAsRead().subscribe(() => {
       this.notifications.forEach(n => n.read = true);
-      this.updateUnreadCount();
+      this.unreadNotificationCount = 0;
       this.toastService.success('All notifications marked as read', 'Success');
     });
   }
 
-  private updateUnreadCount() {
-    this.unreadNotificationCount = this.notifications.filter(n => !n.read).length;
-  }
-
   ngOnDestroy(): void {
     // Nettoyer la connexion WebSocket
     if (this.socketClient && this.socketClient.connected) {
       if (this.notificationSubscription) {
         this.notificationSubscription.unsubscribe();
       }
+      if (this.unreadCountSubscription) {
+        this.unreadCountSubscription.unsubscribe();
+      }
       this.socketClient.disconnect();
     }
   }
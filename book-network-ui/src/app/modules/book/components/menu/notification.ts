@@ -1,5 +1,9 @@
 export interface Notification {
-  status?: 'BORROWED' | 'RETURNED' | 'RETURN_APPROVED';
+  id?: number;
+  status?: 'BORROWED' | 'RETURNED' | 'RETURN_APPROVED' | 'RESERVED' | 'CANCELLED';
   message?: string;
+  bookId?: number;
   bookTitle?: string;
+  read?: boolean;
+  createdAt?: string;
 }
@@ -4,6 +4,7 @@ import {PageResponseFeedbackResponse} from "../../../../services/models/page-res
 import {BookService} from "../../../../services/services/book.service";
 import {ActivatedRoute} from "@angular/router";
 import {FeedBackService} from "../../../../services/services/feed-back.service";
+import {ApiConfiguration} from "../../../../services/api-configuration";
 
 @Component({
   selector: 'app-book-details',
@@ -21,7 +22,8 @@ export class BookDetailsComponent implements OnInit {
   constructor(
     private bookService: BookService,
     private feedbackService: FeedBackService,
-    private activatedRoute: ActivatedRoute
+    private activatedRoute: ActivatedRoute,
+    private apiConfiguration: ApiConfiguration
   ) {
   }
   ngOnInit(): void {
@@ -39,8 +41,8 @@ export class BookDetailsComponent implements OnInit {
   }
 
   get bookCover(): string | undefined {
-    if (this.book.cover) {
-      return 'data:image/jpg;base64,' + this.book.cover
+    if (this.book.coverUrl) {
+      return this.apiConfiguration.rootUrl + this.book.coverUrl + '&size=1024';
     }
     return 'https://picsum.photos/1900/800';
   }
@@ -3,6 +3,7 @@ import {BookRequest} from "../../../../services/models/book-request";
 import {BookService} from "../../../../services/services/book.service";
 import {ActivatedRoute, Router} from "@angular/router";
 import {ToastrService} from "ngx-toastr";
+import {ApiConfiguration} from "../../../../services/api-configuration";
 
 @Component({
   selector: 'app-manage-book',
@@ -25,7 +26,8 @@ export class ManageBookComponent implements OnInit {
     private bookService: BookService,
     private router: Router,
     private activatedRoute: ActivatedRoute,
-    private toastService: ToastrService
+    private toastService: ToastrService,
+    private apiConfiguration: ApiConfiguration
   ) {
   }
 
@@ -44,7 +46,9 @@ export class ManageBookComponent implements OnInit {
             synopsis: book.synopsis as string,
             shareable: book.shareable
           };
-          this.selectedPicture='data:image/jpg;base64,' + book.cover;
+          if (book.coverUrl) {
+            this.selectedPicture = this.apiConfiguration.rootUrl + book.coverUrl + '&size=256';
+          }
         }
       });
     }
@@ -8,14 +8,20 @@ import { filter, map } from 'rxjs/operators';
 import { StrictHttpResponse } from '../../strict-http-response';
 import { RequestBuilder } from '../../request-builder';
 
-import { NotificationResponse } from '../../models/notification-response';
+import { CursorPageResponseNotificationResponse } from '../../models/cursor-page-response-notification-response';
 
 export interface GetUserNotifications$Params {
+  after?: string;
+  size?: number;
+  unread?: boolean;
 }
 
-export function getUserNotifications(http: HttpClient, rootUrl: string, params?: GetUserNotifications$Params, context?: HttpContext): Observable<StrictHttpResponse<Array<NotificationResponse>>> {
+export function getUserNotifications(http: HttpClient, rootUrl: string, params?: GetUserNotifications$Params, context?: HttpContext): Observable<StrictHttpResponse<CursorPageResponseNotificationResponse>> {
   const rb = new RequestBuilder(rootUrl, getUserNotifications.PATH, 'get');
   if (params) {
+    rb.query('after', params.after, {});
+    rb.query('size', params.size, {});
+    rb.query('unread', params.unread, {});
   }
 
   return http.request(
@@ -23,7 +29,7 @@ export function getUserNotifications(http: HttpClient, rootUrl: string, params?:
   ).pipe(
     filter((r: any): r is HttpResponse<any> => r instanceof HttpResponse),
     map((r: HttpResponse<any>) => {
-      return r as StrictHttpResponse<Array<NotificationResponse>>;
+      return r as StrictHttpResponse<CursorPageResponseNotificationResponse>;
     })
   );
 }
@@ -9,6 +9,7 @@ export type { BookResponse } from './models/book-response';
 export type { BorrowedBookResponse } from './models/borrowed-book-response';
 export type { ChangePasswordRequest } from './models/change-password-request';
 export type { CodeVerificationRequest } from './models/code-verification-request';
+export type { CursorPageResponseNotificationResponse } from './models/cursor-page-response-notification-response';
 export type { FeedbackRequest } from './models/feedback-request';
 export type { FeedbackResponse } from './models/feedback-response';
 export type { NotificationResponse } from './models/notification-response';
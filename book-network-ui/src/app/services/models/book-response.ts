@@ -5,7 +5,7 @@
 export interface BookResponse {
   archived?: boolean;
   authorName?: string;
-  cover?: string;
+  coverUrl?: string;
   id?: number;
   isbn?: string;
   owner?: string;
@@ -0,0 +1,11 @@
+/* tslint:disable */
+/* eslint-disable */
+/* Code generated by ng-openapi-gen DO NOT EDIT. */
+
+import { NotificationResponse } from '../models/notification-response';
+export interface CursorPageResponseNotificationResponse {
+  content?: Array<NotificationResponse>;
+  last?: boolean;
+  nextCursor?: string;
+  size?: number;
+}
@@ -3,6 +3,7 @@
 /* Code generated by ng-openapi-gen DO NOT EDIT. */
 
 export interface NotificationResponse {
+  bookId?: number;
   bookTitle?: string;
   createdAt?: string;
   id?: number;
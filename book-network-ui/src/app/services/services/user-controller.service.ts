@@ -13,6 +13,8 @@ import { StrictHttpResponse } from '../strict-http-response';
 
 import { changePassword } from '../fn/user-controller/change-password';
 import { ChangePassword$Params } from '../fn/user-controller/change-password';
+import { countUnreadNotifications } from '../fn/user-controller/count-unread-notifications';
+import { CountUnreadNotifications$Params } from '../fn/user-controller/count-unread-notifications';
 import { createUser } from '../fn/user-controller/create-user';
 import { CreateUser$Params } from '../fn/user-controller/create-user';
 import { getUserNotifications } from '../fn/user-controller/get-user-notifications';
@@ -21,6 +23,7 @@ import { markAllAsRead } from '../fn/user-controller/mark-all-as-read';
 import { MarkAllAsRead$Params } from '../fn/user-controller/mark-all-as-read';
 import { markAsRead } from '../fn/user-controller/mark-as-read';
 import { MarkAsRead$Params } from '../fn/user-controller/mark-as-read';
+import { CursorPageResponseNotificationResponse } from '../models/cursor-page-response-notification-response';
 import { NotificationResponse } from '../models/notification-response';
 
 @Injectable({ providedIn: 'root' })
@@ -142,7 +145,7 @@ export class UserControllerService extends BaseService {
    *
    * This method doesn't expect any request body.
    */
-  getUserNotifications$Response(params?: GetUserNotifications$Params, context?: HttpContext): Observable<StrictHttpResponse<Array<NotificationResponse>>> {
+  getUserNotifications$Response(params?: GetUserNotifications$Params, context?: HttpContext): Observable<StrictHttpResponse<CursorPageResponseNotificationResponse>> {
     return getUserNotifications(this.http, this.rootUrl, params, context);
   }
 
@@ -152,9 +155,42 @@ export class UserControllerService extends BaseService {
    *
    * This method doesn't expect any request body.
    */
-  getUserNotifications(params?: GetUserNotifications$Params, context?: HttpContext): Observable<Array<NotificationResponse>> {
+  getUserNotifications(params?: GetUserNotifications$Params, context?: HttpContext): Observable<CursorPageResponseNotificationResponse> {
     return this.getUserNotifications$Response(params, context).pipe(
-      map((r: StrictHttpResponse<Array<NotificationResponse>>): Array<NotificationResponse> => r.body)
+      map((r: StrictHttpResponse<CursorPageResponseNotificationResponse>): CursorPageResponseNotificationResponse => r.body)
+    );
+  }
+
+  /** Path part for operation `countUnreadNotifications()` */
+  static readonly CountUnreadNotificationsPath = '/users/me/notifications/unread-count';
+
+  /**
+   * This method provides access to the full `HttpResponse`, allowing access to response headers.
+   * To access only the response body, use `countUnreadNotifications()` instead.
+   *
+   * This method doesn't expect any request body.
+   */
+  countUnreadNotifications$Response(params?: CountUnreadNotifications$Params, context?: HttpContext): Observable<StrictHttpResponse<{
+[key: string]: number;
+}>> {
+    return countUnreadNotifications(this.http, this.rootUrl, params, context);
+  }
+
+  /**
+   * This method provides access only to the response body.
+   * To access the full response (for headers, for example), `countUnreadNotifications$Response()` instead.
+   *
+   * This method doesn't expect any request body.
+   */
+  countUnreadNotifications(params?: CountUnreadNotifications$Params, context?: HttpContext): Observable<{
+[key: string]: number;
+}> {
+    return this.countUnreadNotifications$Response(params, context).pipe(
+      map((r: StrictHttpResponse<{
+[key: string]: number;
+}>): {
+[key: string]: number;
+} => r.body)
     );
   }
 
@@ -0,0 +1,39 @@
+package com.ichaabane.book_network.application.dto.request;
+
+import com.ichaabane.book_network.domain.exception.InvalidCursorException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page, ordered by (createdDate, id) descending
+ */
+public record PageCursor(LocalDateTime createdDate, Integer id) {
+
+    // Sorts after every real row so the first page runs the same index range scan as the next ones
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Integer.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = createdDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String createdDate = StringUtils.substringBefore(raw, SEPARATOR);
+            String id = StringUtils.substringAfter(raw, SEPARATOR);
+            return new PageCursor(LocalDateTime.parse(createdDate), Integer.valueOf(id));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid page cursor : " + cursor);
+        }
+    }
+}
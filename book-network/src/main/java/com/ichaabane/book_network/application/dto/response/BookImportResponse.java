@@ -0,0 +1,29 @@
+package com.ichaabane.book_network.application.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookImportResponse {
+
+    private long received;
+    private long imported;
+    private long failed;
+    private List<RowError> errors;
+    // True when more rows failed than the report keeps
+    private boolean errorsTruncated;
+    private long durationMillis;
+    private double rowsPerSecond;
+
+    /**
+     * @param row    1-based index of the data row, the CSV header excluded
+     * @param errors what made the row rejected
+     */
+    public record RowError(long row, List<String> errors) {
+    }
+}
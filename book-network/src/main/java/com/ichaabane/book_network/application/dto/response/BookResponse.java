@@ -14,7 +14,7 @@ public class BookResponse {
     private String isbn;
     private String synopsis;
     private String owner;
-    private byte[] cover;
+    private String coverUrl;
     private double rate;
     private boolean archived;
     private boolean shareable;
@@ -0,0 +1,35 @@
+package com.ichaabane.book_network.application.dto.response;
+
+import com.ichaabane.book_network.application.dto.request.PageCursor;
+import lombok.*;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean last;
+
+    /**
+     * Build a page from rows fetched with a limit of size + 1, the extra row only tells whether a next page exists
+     */
+    public static <S, T> CursorPageResponse<T> of(List<S> rows, int size, Function<S, PageCursor> cursor, Function<S, T> mapper) {
+        boolean last = rows.size() <= size;
+        List<S> pageRows = last ? rows : rows.subList(0, size);
+        String nextCursor = last || pageRows.isEmpty() ? null : cursor.apply(pageRows.get(pageRows.size() - 1)).encode();
+        return new CursorPageResponse<>(
+                pageRows.stream().map(mapper).toList(),
+                size,
+                nextCursor,
+                last
+        );
+    }
+}
@@ -1,7 +1,6 @@
 package com.ichaabane.book_network.application.dto.response;
 
 import com.ichaabane.book_network.domain.enums.NotificationStatus;
-import com.ichaabane.book_network.domain.model.Notification;
 import lombok.Builder;
 
 @Builder
@@ -9,18 +8,9 @@ public record NotificationResponse(
         Integer id,
         NotificationStatus status,
         String message,
+        Integer bookId,
         String bookTitle,
         boolean read,
         String createdAt
 ) {
-    public static NotificationResponse fromEntity(Notification entity) {
-        return NotificationResponse.builder()
-                .id(entity.getId())
-                .status(entity.getStatus())
-                .message(entity.getMessage())
-                .bookTitle(entity.getBookTitle())
-                .read(entity.isRead())
-                .createdAt(entity.getCreatedAt().toString())
-                .build();
-    }
 }
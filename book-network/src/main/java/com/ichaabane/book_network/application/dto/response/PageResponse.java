@@ -1,8 +1,10 @@
 package com.ichaabane.book_network.application.dto.response;
 
 import lombok.*;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Getter
 @Setter
@@ -14,8 +16,27 @@ public class PageResponse<T> {
     private List<T> content;
     private int number;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    // Null when the listing was requested without a total
+    private Long totalElements;
+    private Integer totalPages;
     private boolean first;
     private boolean last;
+
+    /**
+     * Build a page from a slice, which only knows whether a next page exists, and an optional total
+     */
+    public static <S, T> PageResponse<T> of(Slice<S> slice, Long totalElements, Function<S, T> mapper) {
+        Integer totalPages = totalElements == null || slice.getSize() == 0
+                ? null
+                : (int) Math.ceil((double) totalElements / slice.getSize());
+        return new PageResponse<>(
+                slice.stream().map(mapper).toList(),
+                slice.getNumber(),
+                slice.getSize(),
+                totalElements,
+                totalPages,
+                slice.isFirst(),
+                slice.isLast()
+        );
+    }
 }
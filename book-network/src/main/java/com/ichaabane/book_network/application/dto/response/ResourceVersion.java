@@ -0,0 +1,16 @@
+package com.ichaabane.book_network.application.dto.response;
+
+import java.time.Instant;
+
+/**
+ * Validators of a representation, used to answer conditional GETs before the body is built
+ *
+ * @param eTag         strong entity tag, without quotes
+ * @param lastModified may be null when unknown
+ */
+public record ResourceVersion(String eTag, Instant lastModified) {
+
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+}
@@ -7,6 +7,9 @@ import com.ichaabane.book_network.domain.model.Book;
 import com.ichaabane.book_network.infrastructure.file.FileUtils;
 import com.ichaabane.book_network.domain.model.BookTransactionHistory;
 import com.ichaabane.book_network.domain.model.BookReservation;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import com.ichaabane.book_network.domain.projection.BorrowedBookSummary;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -35,10 +38,36 @@ public class BookMapper {
                 .shareable(book.isShareable())
                 .rate(book.getRate())
                 .owner(book.getOwner().getFullName())
-                .cover(FileUtils.readFileFromLocation(book.getBookCover()))
+                .coverUrl(toCoverUrl(book))
                 .build();
     }
 
+    public BookResponse toBookResponse(BookSummary summary) {
+        return BookResponse.builder()
+                .id(summary.getId())
+                .title(summary.getTitle())
+                .authorName(summary.getAuthorName())
+                .isbn(summary.getIsbn())
+                .synopsis(summary.getSynopsis())
+                .archived(summary.isArchived())
+                .shareable(summary.isShareable())
+                .rate(Book.computeRate(summary.getRatingSum(), summary.getRatingCount()))
+                .owner(summary.getOwner())
+                .coverUrl(toCoverUrl(summary.getId(), summary.getBookCover()))
+                .build();
+    }
+
+    public String toCoverUrl(Book book) {
+        return toCoverUrl(book.getId(), book.getBookCover());
+    }
+
+    private String toCoverUrl(Integer bookId, String bookCover) {
+        if (StringUtils.isBlank(bookCover)) {
+            return null;
+        }
+        return "/books/" + bookId + "/cover?v=" + FileUtils.getFileVersion(bookCover);
+    }
+
     public BorrowedBookResponse toBorrowedBookResponse(BookTransactionHistory history) {
         return BorrowedBookResponse.builder()
                 .id(history.getBook().getId())
@@ -46,8 +75,20 @@ public class BookMapper {
                 .authorName(history.getBook().getAuthorName())
                 .isbn(history.getBook().getIsbn())
                 .rate(history.getBook().getRate())
-                .returnedApproved(history.isReturnedApproved())
-                .returned(history.isReturned())
+                .returnedApproved(history.getStatus().isApproved())
+                .returned(history.getStatus().isReturned())
+                .build();
+    }
+
+    public BorrowedBookResponse toBorrowedBookResponse(BorrowedBookSummary summary) {
+        return BorrowedBookResponse.builder()
+                .id(summary.getId())
+                .title(summary.getTitle())
+                .authorName(summary.getAuthorName())
+                .isbn(summary.getIsbn())
+                .rate(Book.computeRate(summary.getRatingSum(), summary.getRatingCount()))
+                .returnedApproved(summary.getStatus().isApproved())
+                .returned(summary.getStatus().isReturned())
                 .build();
     }
 
@@ -0,0 +1,49 @@
+package com.ichaabane.book_network.application.mapper;
+
+import com.ichaabane.book_network.application.dto.response.NotificationResponse;
+import com.ichaabane.book_network.domain.model.Notification;
+import com.ichaabane.book_network.infrastructure.cache.NotificationLabelCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+@Service
+@RequiredArgsConstructor
+public class NotificationMapper {
+
+    private final NotificationLabelCache labelCache;
+
+    /**
+     * Resolve the book titles and usernames of a batch up front, then render each of its notifications
+     *
+     * @param read the read state of a notification, resolved against the user's read mark
+     */
+    public Function<Notification, NotificationResponse> renderer(Collection<Notification> notifications,
+                                                                 Predicate<Notification> read) {
+        Map<Integer, String> bookTitles = labelCache.bookTitles(notifications.stream()
+                .map(Notification::getBookId)
+                .toList());
+        Map<Integer, String> actors = labelCache.usernames(notifications.stream()
+                .filter(notification -> notification.getTemplate().mentionsActor())
+                .map(Notification::getCreatedBy)
+                .toList());
+        return notification -> NotificationResponse.builder()
+                .id(notification.getId())
+                .status(notification.getTemplate().getStatus())
+                .message(notification.getTemplate().render(actors.get(notification.getCreatedBy())))
+                .bookId(notification.getBookId())
+                .bookTitle(notification.getBookId() == null ? null : bookTitles.get(notification.getBookId()))
+                .read(read.test(notification))
+                .createdAt(notification.getCreatedAt().toString())
+                .build();
+    }
+
+    public NotificationResponse toNotificationResponse(Notification notification, boolean read) {
+        return renderer(List.of(notification), ignored -> read).apply(notification);
+    }
+}
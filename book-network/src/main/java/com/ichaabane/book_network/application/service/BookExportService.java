@@ -0,0 +1,97 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.enums.DataFormat;
+import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.BookExportRow;
+import com.ichaabane.book_network.domain.projection.HistoryExportRow;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.domain.repository.BookTransactionHistoryRepository;
+import com.ichaabane.book_network.infrastructure.export.ExportWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookExportService {
+
+    private static final List<String> BOOK_COLUMNS = List.of(
+            "id", "title", "authorName", "isbn", "synopsis", "shareable", "archived",
+            "rate", "ratingCount", "createdDate", "lastModifiedDate");
+    private static final List<String> HISTORY_COLUMNS = List.of(
+            "id", "bookId", "title", "isbn", "ownerId", "borrowerId",
+            "borrowedDate", "status", "lastModifiedDate");
+
+    private final BookRepository bookRepository;
+    private final BookTransactionHistoryRepository transactionHistoryRepository;
+
+    /**
+     * Exporter le catalogue de l'utilisateur connecté, ligne par ligne, depuis un curseur JDBC
+     */
+    @Transactional(readOnly = true)
+    public long exportOwnerCatalog(DataFormat format, Authentication connectedUser, OutputStream output) throws IOException {
+        User user = (User) connectedUser.getPrincipal();
+        long start = System.currentTimeMillis();
+        try (Stream<BookExportRow> rows = bookRepository.streamExportRowsByOwner(user.getId());
+             ExportWriter writer = ExportWriter.open(format, output, BOOK_COLUMNS)) {
+            Iterator<BookExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                BookExportRow row = iterator.next();
+                writer.write(
+                        row.getId(),
+                        row.getTitle(),
+                        row.getAuthorName(),
+                        row.getIsbn(),
+                        row.getSynopsis(),
+                        row.isShareable(),
+                        row.isArchived(),
+                        Book.computeRate(row.getRatingSum(), row.getRatingCount()),
+                        row.getRatingCount(),
+                        row.getCreatedDate(),
+                        row.getLastModifiedDate()
+                );
+            }
+            log.info("Exported {} books of user {} in {} ms", writer.getRows(), user.getId(), System.currentTimeMillis() - start);
+            return writer.getRows();
+        }
+    }
+
+    /**
+     * Exporter l'historique des emprunts de l'utilisateur connecté, comme emprunteur ou comme propriétaire
+     */
+    @Transactional(readOnly = true)
+    public long exportHistory(DataFormat format, Authentication connectedUser, OutputStream output) throws IOException {
+        User user = (User) connectedUser.getPrincipal();
+        long start = System.currentTimeMillis();
+        try (Stream<HistoryExportRow> rows = transactionHistoryRepository.streamExportRowsByUser(user.getId());
+             ExportWriter writer = ExportWriter.open(format, output, HISTORY_COLUMNS)) {
+            Iterator<HistoryExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                HistoryExportRow row = iterator.next();
+                writer.write(
+                        row.getId(),
+                        row.getBookId(),
+                        row.getTitle(),
+                        row.getIsbn(),
+                        row.getOwnerId(),
+                        row.getBorrowerId(),
+                        row.getBorrowedDate(),
+                        row.getStatus(),
+                        row.getLastModifiedDate()
+                );
+            }
+            log.info("Exported {} history rows of user {} in {} ms", writer.getRows(), user.getId(), System.currentTimeMillis() - start);
+            return writer.getRows();
+        }
+    }
+}
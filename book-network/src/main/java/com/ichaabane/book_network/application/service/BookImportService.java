@@ -0,0 +1,222 @@
+package com.ichaabane.book_network.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.ichaabane.book_network.application.dto.request.BookRequest;
+import com.ichaabane.book_network.application.dto.response.BookImportResponse;
+import com.ichaabane.book_network.application.mapper.BookMapper;
+import com.ichaabane.book_network.domain.enums.DataFormat;
+import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookImportService {
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+            .build();
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.emptySchema().withHeader();
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final BookSearchService bookSearchService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${application.import.chunk-size:500}")
+    private int chunkSize;
+    @Value("${application.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    /**
+     * Importer des livres depuis un flux CSV (avec en-tête) ou NDJSON, ligne par ligne.
+     * Les lignes valides sont enregistrées par lots, chacun dans sa propre transaction ; un lot refusé
+     * par la base est réessayé par moitiés pour n'écarter que les lignes fautives.
+     * Les lignes rejetées sont listées dans le rapport.
+     */
+    public BookImportResponse importBooks(InputStream input, DataFormat format, Authentication connectedUser) {
+        User user = (User) connectedUser.getPrincipal();
+        ImportRun run = new ImportRun(user);
+        long start = System.nanoTime();
+        try {
+            if (format == DataFormat.CSV) {
+                readCsv(input, run);
+            } else {
+                readNdjson(input, run);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the import stream", e);
+        } finally {
+            run.flush();
+        }
+        long durationNanos = System.nanoTime() - start;
+        double rowsPerSecond = durationNanos == 0 ? 0 : run.received * 1_000_000_000.0 / durationNanos;
+        log.info("Imported {}/{} books for user {} in {} ms ({} rows/s)",
+                run.imported, run.received, user.getId(), durationNanos / 1_000_000, Math.round(rowsPerSecond));
+        run.errors.sort(Comparator.comparingLong(BookImportResponse.RowError::row));
+        return BookImportResponse.builder()
+                .received(run.received)
+                .imported(run.imported)
+                .failed(run.failed)
+                .errors(run.errors)
+                .errorsTruncated(run.failed > run.errors.size())
+                .durationMillis(durationNanos / 1_000_000)
+                .rowsPerSecond(rowsPerSecond)
+                .build();
+    }
+
+    private void readCsv(InputStream input, ImportRun run) throws IOException {
+        try (MappingIterator<Map<String, String>> rows = CSV_MAPPER.readerFor(Map.class).with(CSV_SCHEMA).readValues(input)) {
+            while (true) {
+                Map<String, String> row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        return;
+                    }
+                    row = rows.nextValue();
+                } catch (JsonProcessingException e) {
+                    // A broken quote makes the rest of the file unreadable, stop at the first one
+                    run.reject(List.of("Malformed CSV: " + e.getOriginalMessage()));
+                    return;
+                }
+                run.accept(new BookRequest(
+                        null,
+                        row.get("title"),
+                        row.get("authorName"),
+                        row.get("isbn"),
+                        row.get("synopsis"),
+                        Boolean.parseBoolean(row.get("shareable"))
+                ));
+            }
+        }
+    }
+
+    private void readNdjson(InputStream input, ImportRun run) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            BookRequest request;
+            try {
+                request = objectMapper.readValue(line, BookRequest.class);
+            } catch (JsonProcessingException e) {
+                run.reject(List.of("Malformed JSON: " + e.getOriginalMessage()));
+                continue;
+            }
+            // An import only creates books, an id in the payload is ignored
+            run.accept(new BookRequest(null, request.title(), request.authorName(), request.isbn(), request.synopsis(), request.shareable()));
+        }
+    }
+
+    private final class ImportRun {
+
+        private final User owner;
+        private final List<BookImportResponse.RowError> errors = new ArrayList<>();
+        private final List<Book> chunk = new ArrayList<>();
+        private final List<Long> chunkRows = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long failed;
+
+        private ImportRun(User owner) {
+            this.owner = owner;
+        }
+
+        void accept(BookRequest request) {
+            received++;
+            List<String> violations = validator.validate(request).stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .distinct()
+                    .toList();
+            if (!violations.isEmpty()) {
+                addError(received, violations);
+                return;
+            }
+            Book book = bookMapper.toBook(request);
+            book.setOwner(owner);
+            chunk.add(book);
+            chunkRows.add(received);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(List<String> reasons) {
+            received++;
+            addError(received, reasons);
+        }
+
+        // One transaction per chunk: Hibernate sends the inserts as JDBC batches at commit
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                save(List.copyOf(chunk), List.copyOf(chunkRows));
+            } finally {
+                chunk.clear();
+                chunkRows.clear();
+            }
+        }
+
+        // A failed chunk is saved again in halves, down to the rows the database rejects, so the valid rows still import
+        private void save(List<Book> books, List<Long> rows) {
+            try {
+                List<Book> saved = bookRepository.saveAll(books);
+                saved.forEach(bookSearchService::index);
+                imported += saved.size();
+            } catch (DataAccessException e) {
+                String reason = "Could not be saved: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                if (books.size() == 1) {
+                    log.warn("Import row {} failed {}", rows.get(0), reason);
+                    addError(rows.get(0), List.of(reason));
+                    return;
+                }
+                log.debug("Import chunk of {} books failed {}, saving it again in halves", books.size(), reason);
+                // The rolled back inserts left their generated ids behind, the books must be persisted as new again
+                books.forEach(book -> book.setId(null));
+                int half = books.size() / 2;
+                save(books.subList(0, half), rows.subList(0, half));
+                save(books.subList(half, books.size()), rows.subList(half, rows.size()));
+            }
+        }
+
+        private void addError(long row, List<String> reasons) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BookImportResponse.RowError(row, reasons));
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.application.dto.response.BookResponse;
+import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.mapper.BookMapper;
+import com.ichaabane.book_network.domain.exception.InvalidPageRequestException;
+import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.BookIndexEntry;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import com.ichaabane.book_network.infrastructure.search.BookSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class BookSearchService {
+
+    static final String CHANNEL = "book_search_update";
+
+    private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final BookMapper bookMapper;
+    private final ClusterMessageBus bus;
+
+    public BookSearchService(BookRepository bookRepository,
+                             BookSearchIndex searchIndex,
+                             BookMapper bookMapper,
+                             ClusterMessageBus bus) {
+        this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.bookMapper = bookMapper;
+        this.bus = bus;
+        bus.subscribe(CHANNEL, message -> reindex(message.asInt()));
+    }
+
+    /**
+     * Construire l'index de recherche à partir d'un parcours en flux du catalogue.
+     * Le nouvel index remplace l'ancien d'un coup, les recherches utilisent l'ancien en attendant.
+     */
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        try (Stream<BookIndexEntry> entries = bookRepository.streamAllIndexEntries()) {
+            searchIndex.rebuild(entries.map(BookSearchService::toDocument));
+        }
+        log.info("Indexed {} books for search in {} ms", searchIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Mettre à jour un livre dans l'index après une modification, une fois la transaction validée,
+     * puis prévenir les autres instances
+     */
+    public void index(Book book) {
+        BookSearchIndex.Document document = new BookSearchIndex.Document(
+                book.getId(),
+                book.getOwner() == null ? null : book.getOwner().getId(),
+                book.isArchived(),
+                book.isShareable(),
+                book.getTitle(),
+                book.getAuthorName(),
+                book.getIsbn(),
+                book.getSynopsis()
+        );
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            indexAndRelay(document);
+            return;
+        }
+        // A rolled back change must not show up in the results
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indexAndRelay(document);
+            }
+        });
+    }
+
+    /**
+     * Relire un livre modifié sur une autre instance, un livre supprimé sort de l'index
+     */
+    void reindex(Integer bookId) {
+        bookRepository.findIndexEntryById(bookId).ifPresentOrElse(
+                entry -> searchIndex.index(toDocument(entry)),
+                () -> searchIndex.remove(bookId));
+    }
+
+    private void indexAndRelay(BookSearchIndex.Document document) {
+        searchIndex.index(document);
+        bus.publish(CHANNEL, document.id());
+    }
+
+    private static BookSearchIndex.Document toDocument(BookIndexEntry entry) {
+        return new BookSearchIndex.Document(
+                entry.getId(),
+                entry.getOwnerId(),
+                entry.isArchived(),
+                entry.isShareable(),
+                entry.getTitle(),
+                entry.getAuthorName(),
+                entry.getIsbn(),
+                entry.getSynopsis()
+        );
+    }
+
+    /**
+     * Rechercher parmi les livres affichables, classés par pertinence
+     */
+    public PageResponse<BookResponse> search(String query, int page, int size, Authentication connectedUser) {
+        if (page < 0 || size < 1) {
+            throw new InvalidPageRequestException("Invalid page request : page " + page + ", size " + size);
+        }
+        User user = (User) connectedUser.getPrincipal();
+        List<Integer> matches = searchIndex.search(query, book ->
+                !book.archived() && book.shareable() && !Objects.equals(book.ownerId(), user.getId()));
+
+        int from = (int) Math.min((long) page * size, matches.size());
+        int to = (int) Math.min((long) from + size, matches.size());
+        List<Integer> pageIds = matches.subList(from, to);
+
+        List<BookResponse> content = List.of();
+        if (!pageIds.isEmpty()) {
+            Map<Integer, BookSummary> summaries = bookRepository.findBookSummariesByIds(pageIds).stream()
+                    .collect(Collectors.toMap(BookSummary::getId, Function.identity()));
+            content = pageIds.stream()
+                    .map(summaries::get)
+                    .filter(Objects::nonNull)
+                    .map(bookMapper::toBookResponse)
+                    .toList();
+        }
+        int totalPages = (int) Math.ceil((double) matches.size() / size);
+        return new PageResponse<>(
+                content,
+                page,
+                size,
+                (long) matches.size(),
+                totalPages,
+                page == 0,
+                to >= matches.size()
+        );
+    }
+}
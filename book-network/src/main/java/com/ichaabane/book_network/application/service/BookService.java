@@ -1,10 +1,14 @@
 package com.ichaabane.book_network.application.service;
 
 import com.ichaabane.book_network.application.dto.request.BookRequest;
+import com.ichaabane.book_network.application.dto.request.PageCursor;
 import com.ichaabane.book_network.application.dto.response.BookResponse;
 import com.ichaabane.book_network.application.dto.response.BorrowedBookResponse;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.dto.response.ResourceVersion;
 import com.ichaabane.book_network.application.mapper.BookMapper;
+import com.ichaabane.book_network.domain.enums.LoanStatus;
 import com.ichaabane.book_network.domain.exception.OperationNotPermittedException;
 import com.ichaabane.book_network.application.service.FileStorageService;
 import com.ichaabane.book_network.domain.model.Book;
@@ -15,23 +19,41 @@ import com.ichaabane.book_network.application.service.NotificationService;
 import com.ichaabane.book_network.domain.model.BookReservation;
 import com.ichaabane.book_network.domain.repository.BookReservationRepository;
 import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.BookCover;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import com.ichaabane.book_network.domain.projection.BookVersion;
+import com.ichaabane.book_network.domain.projection.BorrowedBookSummary;
+import com.ichaabane.book_network.domain.enums.CountMode;
+import com.ichaabane.book_network.infrastructure.cache.ApproximateCountCache;
+import com.ichaabane.book_network.infrastructure.cache.BookResponseCache;
+import com.ichaabane.book_network.infrastructure.cache.NotificationLabelCache;
+import com.ichaabane.book_network.infrastructure.file.CoverRendition;
+import com.ichaabane.book_network.infrastructure.file.FileUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
-import static com.ichaabane.book_network.application.specification.BookSpecification.withOwnerId;
-import static com.ichaabane.book_network.domain.enums.NotificationStatus.*;
+import static com.ichaabane.book_network.domain.enums.NotificationTemplate.*;
 
 
 @Service
@@ -40,6 +62,7 @@ import static com.ichaabane.book_network.domain.enums.NotificationStatus.*;
 public class BookService {
 
     private static final String NO_BOOK_FOUND_PREFIX = "No book found with the ID : ";
+    private static final String NO_COVER_FOUND_PREFIX = "No cover found for the book with the ID : ";
     private static final String CREATED_DATE = "createdDate";
 
     private final BookRepository bookRepository;
@@ -49,6 +72,11 @@ public class BookService {
     private final FileStorageService fileStorageService;
     private final NotificationService notificationService;
     private final BookReservationRepository reservationRepository;
+    private final ApproximateCountCache countCache;
+    private final BookSearchService bookSearchService;
+    private final BookResponseCache bookResponseCache;
+    private final NotificationLabelCache notificationLabelCache;
+    private final CoverRenditionService coverRenditionService;
 
     public Integer save(BookRequest request, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
@@ -67,19 +95,40 @@ public class BookService {
             book.setOwner(user);
         }
 
-        return bookRepository.save(book).getId();
+        Book saved = bookRepository.save(book);
+        bookResponseCache.evict(saved.getId());
+        notificationLabelCache.evictBook(saved.getId());
+        bookSearchService.index(saved);
+        return saved.getId();
     }
 
     public BookResponse findBookById(Integer bookId) {
-        return bookRepository.findById(bookId)
+        return bookResponseCache.get(bookId, id -> bookRepository.findById(id)
                 .map(bookMapper::toBookResponse)
+                .orElseThrow(() -> new EntityNotFoundException(NO_BOOK_FOUND_PREFIX + id)));
+    }
+
+    /**
+     * Version de la représentation d'un livre, lue sans charger l'entité
+     */
+    public ResourceVersion findBookVersion(Integer bookId) {
+        BookVersion version = bookRepository.findVersionById(bookId)
                 .orElseThrow(() -> new EntityNotFoundException(NO_BOOK_FOUND_PREFIX + bookId));
+        LocalDateTime modified = version.getLastModifiedDate() != null
+                ? version.getLastModifiedDate()
+                : version.getCreatedDate();
+        Instant lastModified = modified == null ? null : modified.atZone(ZoneId.systemDefault()).toInstant();
+        String eTag = "book-" + version.getId()
+                + "-" + (lastModified == null ? 0 : lastModified.toEpochMilli())
+                + "-" + version.getRatingCount()
+                + "-" + version.getRatingSum();
+        return new ResourceVersion(eTag, lastModified);
     }
 
     public PageResponse<BookResponse> findAllBooks(int page, int size, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
         Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
-        Page<Book> books = bookRepository.findAllDisplayableBooks(pageable, user.getId());
+        Page<BookSummary> books = bookRepository.findAllDisplayableBookSummaries(pageable, user.getId());
         List<BookResponse> bookResponses = books.stream()
                 .map(bookMapper::toBookResponse)
                 .toList();
@@ -94,10 +143,31 @@ public class BookService {
         );
     }
 
+    public PageResponse<BookResponse> findAllBooks(int page, int size, CountMode countMode, Authentication connectedUser) {
+        if (countMode == CountMode.EXACT) {
+            return findAllBooks(page, size, connectedUser);
+        }
+        User user = ((User) connectedUser.getPrincipal());
+        Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
+        Slice<BookSummary> slice = bookRepository.findDisplayableBookSummarySlice(pageable, user.getId());
+        Long total = countMode == CountMode.APPROXIMATE
+                ? countCache.get("displayable-books", user.getId(), () -> bookRepository.countDisplayableBooks(user.getId()))
+                : null;
+        return PageResponse.of(slice, total, bookMapper::toBookResponse);
+    }
+
+    public CursorPageResponse<BookResponse> findAllBooks(String after, int size, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        PageCursor cursor = PageCursor.decode(after);
+        List<BookSummary> books = bookRepository.findDisplayableBookSummariesBefore(
+                user.getId(), cursor.createdDate(), cursor.id(), Limit.of(size + 1));
+        return CursorPageResponse.of(books, size, BookService::toCursor, bookMapper::toBookResponse);
+    }
+
     public PageResponse<BookResponse> findAllBooksByOwner(int page, int size, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
         Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
-        Page<Book> books = bookRepository.findAll(withOwnerId(user.getId()), pageable);
+        Page<BookSummary> books = bookRepository.findAllBookSummariesByOwner(pageable, user.getId());
         List<BookResponse> bookResponses = books.stream()
                 .map(bookMapper::toBookResponse)
                 .toList();
@@ -112,6 +182,27 @@ public class BookService {
         );
     }
 
+    public PageResponse<BookResponse> findAllBooksByOwner(int page, int size, CountMode countMode, Authentication connectedUser) {
+        if (countMode == CountMode.EXACT) {
+            return findAllBooksByOwner(page, size, connectedUser);
+        }
+        User user = ((User) connectedUser.getPrincipal());
+        Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
+        Slice<BookSummary> slice = bookRepository.findBookSummarySliceByOwner(pageable, user.getId());
+        Long total = countMode == CountMode.APPROXIMATE
+                ? countCache.get("owner-books", user.getId(), () -> bookRepository.countBooksByOwner(user.getId()))
+                : null;
+        return PageResponse.of(slice, total, bookMapper::toBookResponse);
+    }
+
+    public CursorPageResponse<BookResponse> findAllBooksByOwner(String after, int size, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        PageCursor cursor = PageCursor.decode(after);
+        List<BookSummary> books = bookRepository.findBookSummariesByOwnerBefore(
+                user.getId(), cursor.createdDate(), cursor.id(), Limit.of(size + 1));
+        return CursorPageResponse.of(books, size, BookService::toCursor, bookMapper::toBookResponse);
+    }
+
     public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int size, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
         Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
@@ -130,6 +221,27 @@ public class BookService {
         );
     }
 
+    public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int size, CountMode countMode, Authentication connectedUser) {
+        if (countMode == CountMode.EXACT) {
+            return findAllBorrowedBooks(page, size, connectedUser);
+        }
+        User user = ((User) connectedUser.getPrincipal());
+        Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
+        Slice<BookTransactionHistory> slice = transactionHistoryRepository.findBorrowedBookSlice(pageable, user.getId());
+        Long total = countMode == CountMode.APPROXIMATE
+                ? countCache.get("borrowed-books", user.getId(), () -> transactionHistoryRepository.countBorrowedBooks(user.getId()))
+                : null;
+        return PageResponse.of(slice, total, bookMapper::toBorrowedBookResponse);
+    }
+
+    public CursorPageResponse<BorrowedBookResponse> findAllBorrowedBooks(String after, int size, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        PageCursor cursor = PageCursor.decode(after);
+        List<BorrowedBookSummary> histories = transactionHistoryRepository.findBorrowedBookSummariesBefore(
+                user.getId(), cursor.createdDate(), cursor.id(), Limit.of(size + 1));
+        return CursorPageResponse.of(histories, size, BookService::toCursor, bookMapper::toBorrowedBookResponse);
+    }
+
     public PageResponse<BorrowedBookResponse> findAllReturnedBooks(int page, int size, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
         Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
@@ -148,6 +260,27 @@ public class BookService {
         );
     }
 
+    public PageResponse<BorrowedBookResponse> findAllReturnedBooks(int page, int size, CountMode countMode, Authentication connectedUser) {
+        if (countMode == CountMode.EXACT) {
+            return findAllReturnedBooks(page, size, connectedUser);
+        }
+        User user = ((User) connectedUser.getPrincipal());
+        Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
+        Slice<BookTransactionHistory> slice = transactionHistoryRepository.findReturnedBookSlice(pageable, user.getId());
+        Long total = countMode == CountMode.APPROXIMATE
+                ? countCache.get("returned-books", user.getId(), () -> transactionHistoryRepository.countReturnedBooks(user.getId()))
+                : null;
+        return PageResponse.of(slice, total, bookMapper::toBorrowedBookResponse);
+    }
+
+    public CursorPageResponse<BorrowedBookResponse> findAllReturnedBooks(String after, int size, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        PageCursor cursor = PageCursor.decode(after);
+        List<BorrowedBookSummary> histories = transactionHistoryRepository.findReturnedBookSummariesBefore(
+                user.getId(), cursor.createdDate(), cursor.id(), Limit.of(size + 1));
+        return CursorPageResponse.of(histories, size, BookService::toCursor, bookMapper::toBorrowedBookResponse);
+    }
+
     public Integer updateShareableStatus(Integer bookId, Authentication connectedUser) {
         Book book = bookRepository.findById(bookId)
             .orElseThrow(() -> new EntityNotFoundException(NO_BOOK_FOUND_PREFIX + bookId));
@@ -157,6 +290,8 @@ public class BookService {
         }
         book.setShareable(!book.isShareable());
         bookRepository.save(book);
+        bookResponseCache.evict(bookId);
+        bookSearchService.index(book);
         return bookId;
     }
 
@@ -169,9 +304,12 @@ public class BookService {
         }
         book.setArchived(!book.isArchived());
         bookRepository.save(book);
+        bookResponseCache.evict(bookId);
+        bookSearchService.index(book);
         return bookId;
     }
 
+    @Transactional
     public Integer borrowBook(Integer bookId, Authentication connectedUser) {
         Book book = getBookOrThrow(bookId);
 
@@ -183,39 +321,28 @@ public class BookService {
             throw new OperationNotPermittedException("You cannot borrow your own book");
         }
 
-        final boolean isAlreadyBorrowed = bookTransactionHistoryRepository.isAlreadyBorrowedByUser(bookId, user.getId());
-
-        if (isAlreadyBorrowed) {
-            throw new OperationNotPermittedException("The requested book is already borrowed");
-        }
-
-        boolean isBorrowedBySomeone =
-                bookTransactionHistoryRepository.existsByBookIdAndReturnedFalse(bookId);
-
-        if (isBorrowedBySomeone) {
+        // The database decides between concurrent borrowers, the loser hits the active loan index
+        Integer loanId;
+        try {
+            loanId = transactionHistoryRepository.insertActiveLoan(bookId, user.getId())
+                    .orElseThrow(() -> new OperationNotPermittedException("The requested book is already borrowed"));
+        } catch (DataIntegrityViolationException e) {
+            if (!isActiveLoanConflict(e)) {
+                throw e;
+            }
             throw new OperationNotPermittedException("This book is already borrowed by another user");
         }
 
-        BookTransactionHistory bookTransactionHistory =
-                BookTransactionHistory.builder()
-                        .user(user)
-                        .book(book)
-                        .returned(false)
-                        .returnedApproved(false)
-                        .build();
-
-        var saved = transactionHistoryRepository.save(bookTransactionHistory);
-
         notificationService.sendNotification(
                 book.getOwner(),
-                BORROWED,
-                "Your book has been borrowed",
-                book.getTitle());
+                BOOK_BORROWED,
+                book.getId());
 
         log.info("Book {} creted by {} has been borrowed", book.getTitle(), book.getCreatedBy());
-        return saved.getId();
+        return loanId;
     }
 
+    @Transactional
     public Integer returnBorrowBook(Integer bookId, Authentication connectedUser) {
         Book book = getBookOrThrow(bookId);
 
@@ -231,19 +358,19 @@ public class BookService {
                 .findByBookIdAndUserId(bookId, user.getId())
                 .orElseThrow(() -> new OperationNotPermittedException("You did not borrow this book"));
 
-        bookTransactionHistory.setReturned(true);
+        bookTransactionHistory.moveTo(LoanStatus.RETURNED);
 
         var saved = transactionHistoryRepository.save(bookTransactionHistory);
 
         notificationService.sendNotification(
                 book.getOwner(),
-                RETURNED,
-                "Your book has been returned",
-                book.getTitle());
+                BOOK_RETURNED,
+                book.getId());
 
         return saved.getId();
     }
 
+    @Transactional
     public Integer approveReturnBorrowBook(Integer bookId, Authentication connectedUser) {
         Book book = getBookOrThrow(bookId);
 
@@ -259,29 +386,102 @@ public class BookService {
                 .findByBookIdAndOwnerId(bookId, user.getId())
                 .orElseThrow(() -> new OperationNotPermittedException("You book is not returned yet. You cannot approve its return"));
 
-        bookTransactionHistory.setReturnedApproved(true);
+        bookTransactionHistory.moveTo(LoanStatus.APPROVED);
 
         var saved =  transactionHistoryRepository.save(bookTransactionHistory);
 
         notificationService.sendNotification(
                 bookTransactionHistory.getUser(),
                 RETURN_APPROVED,
-               "You book return has been approved",
-                book.getTitle());
+                book.getId());
+
+        handOffToNextReader(book);
 
         return saved.getId();
     }
 
+    /**
+     * Position (à partir de 1) de l'utilisateur dans la file d'attente du livre
+     */
+    public long getReservationPosition(Integer bookId, Authentication connectedUser) {
+        User user = getUser(connectedUser);
+        return reservationRepository.countReadersAhead(bookId, user.getId())
+                .map(ahead -> ahead + 1)
+                .orElseThrow(() -> new EntityNotFoundException("No reservation found for this user and book"));
+    }
+
+    // The head of the waitlist gets the book as soon as its return is approved, in the same transaction
+    private void handOffToNextReader(Book book) {
+        Optional<BookReservation> head = reservationRepository.findFirstByBookIdOrderByQueueSequenceAsc(book.getId());
+        if (head.isEmpty()) {
+            return;
+        }
+        BookReservation reservation = head.get();
+        User reader = reservation.getUser();
+        Optional<Integer> loanId = transactionHistoryRepository.insertHandOffLoan(
+                book.getId(), reader.getId(), book.getOwner().getId());
+        if (loanId.isEmpty()) {
+            // Borrowed directly between the return and its approval, the waitlist keeps its order for the next return
+            log.info("Book {} is borrowed again, hand-off to user {} postponed", book.getId(), reader.getId());
+            return;
+        }
+        reservationRepository.delete(reservation);
+
+        notificationService.sendNotification(
+                reader,
+                RESERVATION_FULFILLED,
+                book.getId());
+        notificationService.sendNotification(
+                book.getOwner(),
+                HANDED_TO_NEXT_READER,
+                book.getId());
+        log.info("Book {} handed off to user {} (loan {})", book.getId(), reader.getId(), loanId.get());
+    }
+
     public void uploadCover(MultipartFile file, Authentication connectedUser, Integer bookId) {
         if (file == null || file.isEmpty()) return;
 
         Book book = bookRepository.findById(bookId)
             .orElseThrow(() -> new EntityNotFoundException(NO_BOOK_FOUND_PREFIX + bookId));
-        User user = ((User) connectedUser.getPrincipal());
-        var bookCover = fileStorageService.saveFile(file, user.getId());
+        String previousCover = book.getBookCover();
+        var bookCover = fileStorageService.saveFile(file);
         log.info(bookCover);
         book.setBookCover(bookCover);
         bookRepository.save(book);
+        bookResponseCache.evict(bookId);
+        coverRenditionService.generateRenditions(bookCover);
+        if (previousCover != null && !previousCover.equals(bookCover)) {
+            fileStorageService.releaseFile(previousCover);
+        }
+    }
+
+    /**
+     * Lire la couverture d'un livre, sans authentification pour que les balises img puissent la charger.
+     * Celle d'un livre partagé et non archivé est publique ; sinon il faut la version de la couverture
+     * (le hash de son contenu), que seuls ceux qui ont pu lire le livre ont reçue dans son coverUrl.
+     */
+    public Resource findBookCover(Integer bookId, String version, Integer size) {
+        BookCover book = bookRepository.findCoverById(bookId)
+                .orElseThrow(() -> new EntityNotFoundException(NO_BOOK_FOUND_PREFIX + bookId));
+        String bookCover = book.getPath();
+        boolean isPublic = book.isShareable() && !book.isArchived();
+        if (bookCover == null || !isPublic && !Objects.equals(version, FileUtils.getFileVersion(bookCover))) {
+            throw new EntityNotFoundException(NO_COVER_FOUND_PREFIX + bookId);
+        }
+        if (size != null) {
+            // Renditions are generated asynchronously, the original is served until they exist
+            Resource rendition = fileStorageService.loadFile(
+                    FileUtils.getRenditionPath(bookCover, CoverRendition.forSize(size)));
+            if (rendition != null) {
+                return rendition;
+            }
+            coverRenditionService.generateRenditions(bookCover);
+        }
+        Resource cover = fileStorageService.loadFile(bookCover);
+        if (cover == null) {
+            throw new EntityNotFoundException(NO_COVER_FOUND_PREFIX + bookId);
+        }
+        return cover;
     }
 
     @Transactional
@@ -308,7 +508,7 @@ public class BookService {
             throw new OperationNotPermittedException("You already reserved this book");
         }
 
-        boolean isBorrowed = transactionHistoryRepository.existsByBookIdAndReturnedFalse(bookId);
+        boolean isBorrowed = transactionHistoryRepository.existsByBookIdAndStatus(bookId, LoanStatus.ACTIVE);
         if (!isBorrowed) {
             throw new OperationNotPermittedException("This book is currently available, you can borrow it directly");
         }
@@ -316,15 +516,15 @@ public class BookService {
         BookReservation reservation = BookReservation.builder()
                 .book(book)
                 .user(user)
+                .queueSequence(reservationRepository.nextQueueSequence())
                 .build();
 
         reservationRepository.save(reservation);
 
         notificationService.sendNotification(
                 book.getOwner(),
-                RESERVED,
-                user.getUsername() + " has reserved your book",
-                book.getTitle());
+                BOOK_RESERVED,
+                book.getId());
     }
 
     @Transactional
@@ -340,21 +540,19 @@ public class BookService {
 
         notificationService.sendNotification(
                 book.getOwner(),
-                CANCELLED,
-                user.getUsername() + " has cancelled the reservation for your book",
-                book.getTitle()
-        );
+                RESERVATION_CANCELLED,
+                book.getId());
     }
 
     public PageResponse<BookResponse> getUserReservations(int page, int size, Authentication connectedUser) {
         User user = (User) connectedUser.getPrincipal();
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
-        Page<BookReservation> reservationsPage =
-                reservationRepository.findAllByUserId(user.getId(), pageable);
+        Page<BookSummary> reservationsPage =
+                reservationRepository.findAllReservedBookSummaries(user.getId(), pageable);
 
         List<BookResponse> responses = reservationsPage.stream()
-                .map(bookMapper::toReservationBookResponse)
+                .map(bookMapper::toBookResponse)
                 .toList();
 
         return new PageResponse<>(
@@ -368,6 +566,35 @@ public class BookService {
         );
     }
 
+    public PageResponse<BookResponse> getUserReservations(int page, int size, CountMode countMode, Authentication connectedUser) {
+        if (countMode == CountMode.EXACT) {
+            return getUserReservations(page, size, connectedUser);
+        }
+        User user = ((User) connectedUser.getPrincipal());
+        Pageable pageable = PageRequest.of(page, size, Sort.by(CREATED_DATE).descending());
+        Slice<BookSummary> slice = reservationRepository.findReservedBookSummarySlice(user.getId(), pageable);
+        Long total = countMode == CountMode.APPROXIMATE
+                ? countCache.get("reserved-books", user.getId(), () -> reservationRepository.countByUserId(user.getId()))
+                : null;
+        return PageResponse.of(slice, total, bookMapper::toBookResponse);
+    }
+
+    public CursorPageResponse<BookResponse> getUserReservations(String after, int size, Authentication connectedUser) {
+        User user = (User) connectedUser.getPrincipal();
+        PageCursor cursor = PageCursor.decode(after);
+        List<BookSummary> reservations = reservationRepository.findReservedBookSummariesBefore(
+                user.getId(), cursor.createdDate(), cursor.id(), Limit.of(size + 1));
+        return CursorPageResponse.of(reservations, size, BookService::toCursor, bookMapper::toBookResponse);
+    }
+
+    private static PageCursor toCursor(BookSummary summary) {
+        return new PageCursor(summary.getCreatedDate(), summary.getId());
+    }
+
+    private static PageCursor toCursor(BorrowedBookSummary summary) {
+        return new PageCursor(summary.getCreatedDate(), summary.getHistoryId());
+    }
+
     private Book getBookOrThrow(Integer bookId) {
         return bookRepository.findById(bookId)
                 .orElseThrow(() -> new EntityNotFoundException("No book found with the ID: " + bookId));
@@ -379,6 +606,11 @@ public class BookService {
         }
     }
 
+    private static boolean isActiveLoanConflict(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && BookTransactionHistory.ACTIVE_LOAN_INDEX.equals(violation.getConstraintName());
+    }
+
     private User getUser(Authentication auth) {
         return (User) auth.getPrincipal();
     }
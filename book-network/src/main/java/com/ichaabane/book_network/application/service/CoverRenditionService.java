@@ -0,0 +1,164 @@
+package com.ichaabane.book_network.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ichaabane.book_network.domain.projection.BookCover;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.file.CoverRendition;
+import com.ichaabane.book_network.infrastructure.file.FileUtils;
+import com.ichaabane.book_network.infrastructure.file.ImageRenditions;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class CoverRenditionService {
+
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    private final FileStorageService fileStorageService;
+    private final BookRepository bookRepository;
+    private final ThreadPoolExecutor executor;
+    // Covers queued or attempted recently: a cover served before its renditions exist is queued once per retry-after
+    private final Cache<String, Boolean> attempted;
+
+    public CoverRenditionService(
+            FileStorageService fileStorageService,
+            BookRepository bookRepository,
+            @Value("${application.file.renditions.threads:2}") int threads,
+            @Value("${application.file.renditions.queue-capacity:100}") int queueCapacity,
+            @Value("${application.file.renditions.retry-after:10m}") Duration retryAfter) {
+        this.fileStorageService = fileStorageService;
+        this.bookRepository = bookRepository;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cover-rendition-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.attempted = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(retryAfter)
+                .build();
+    }
+
+    /**
+     * Générer les miniatures d'une couverture hors du thread de la requête.
+     * Tant qu'elles n'existent pas, l'original est servi à la place ; chaque lecture de la couverture
+     * la remet en file, au plus une fois par retry-after, si la file était pleine ou la génération a échoué.
+     */
+    public void generateRenditions(String coverPath) {
+        if (coverPath == null || attempted.asMap().putIfAbsent(coverPath, Boolean.TRUE) != null
+                || hasRenditions(coverPath)) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(coverPath));
+        } catch (RejectedExecutionException e) {
+            attempted.invalidate(coverPath);
+            log.warn("Rendition queue is full, {} will be served at its original size", coverPath);
+        }
+    }
+
+    /**
+     * Générer au démarrage les miniatures manquantes des couvertures existantes, une par une
+     * sur un seul thread du pool : les autres restent libres pour les nouvelles couvertures.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillRenditions() {
+        try {
+            executor.execute(this::backfill);
+        } catch (RejectedExecutionException e) {
+            log.warn("Rendition queue is full, covers without renditions are generated when they are served");
+        }
+    }
+
+    void backfill() {
+        int generated = 0;
+        Integer afterId = 0;
+        List<BookCover> covers;
+        do {
+            covers = bookRepository.findCoversAfter(afterId, Limit.of(BACKFILL_PAGE_SIZE));
+            for (BookCover cover : covers) {
+                String coverPath = cover.getPath();
+                if (attempted.asMap().putIfAbsent(coverPath, Boolean.TRUE) == null && !hasRenditions(coverPath)) {
+                    generate(coverPath);
+                    generated++;
+                }
+            }
+            if (!covers.isEmpty()) {
+                afterId = covers.get(covers.size() - 1).getId();
+            }
+        } while (covers.size() == BACKFILL_PAGE_SIZE);
+        if (generated > 0) {
+            log.info("Backfilled renditions of {} covers", generated);
+        }
+    }
+
+    private void generate(String coverPath) {
+        try {
+            writeRenditions(coverPath);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not generate renditions for {}", coverPath, e);
+        }
+    }
+
+    private void writeRenditions(String coverPath) throws IOException {
+        Resource original = fileStorageService.loadFile(coverPath);
+        if (original == null) {
+            log.warn("Cover {} no longer exists, no rendition generated", coverPath);
+            return;
+        }
+        Map<CoverRendition, Path> renditions;
+        try (InputStream input = original.getInputStream()) {
+            renditions = ImageRenditions.writeRenditions(input, fileStorageService.getTempDirectory());
+        }
+        if (renditions.isEmpty()) {
+            log.warn("Cover {} is not a readable image, no rendition generated", coverPath);
+            return;
+        }
+        try {
+            for (Map.Entry<CoverRendition, Path> rendition : renditions.entrySet()) {
+                fileStorageService.storeFile(FileUtils.getRenditionPath(coverPath, rendition.getKey()), rendition.getValue());
+            }
+        } finally {
+            for (Path leftover : renditions.values()) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        log.info("Generated {} renditions for {}", renditions.size(), coverPath);
+    }
+
+    // Covers are stored by content hash, a deduplicated upload already has its renditions
+    private boolean hasRenditions(String coverPath) {
+        return Arrays.stream(CoverRendition.values())
+                .allMatch(rendition -> fileStorageService.exists(FileUtils.getRenditionPath(coverPath, rendition)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,269 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.model.EmailJob;
+import com.ichaabane.book_network.domain.repository.EmailJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class EmailDispatcher {
+
+    private final EmailJobRepository emailJobRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+    private final Duration retention;
+    private final Timer sendLatency;
+    private final Timer sendFailureLatency;
+    private final Timer lag;
+    private final Counter sent;
+    private final Counter failures;
+    private final Counter abandoned;
+
+    public EmailDispatcher(
+            EmailJobRepository emailJobRepository,
+            EmailService emailService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${application.mailing.queue.batch-size:20}") int batchSize,
+            @Value("${application.mailing.queue.threads:4}") int threads,
+            @Value("${application.mailing.queue.max-attempts:8}") int maxAttempts,
+            @Value("${application.mailing.queue.lease:2m}") Duration lease,
+            @Value("${application.mailing.queue.retry-delay:30s}") Duration retryDelay,
+            @Value("${application.mailing.queue.max-retry-delay:1h}") Duration maxRetryDelay,
+            @Value("${application.mailing.queue.retention:7d}") Duration retention) {
+        this.emailJobRepository = emailJobRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.retention = retention;
+        // Room for a whole batch: the dispatcher waits for a batch before claiming the next one
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "email-sender-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.sendLatency = Timer.builder("email.send.latency")
+                .description("Time Brevo takes to accept an email")
+                .tag("outcome", "sent")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.sendFailureLatency = Timer.builder("email.send.latency")
+                .tag("outcome", "failed")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.lag = Timer.builder("email.queue.lag")
+                .description("Time from queuing an email to Brevo accepting it, retries included")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.sent = Counter.builder("email.queue.sent")
+                .register(meterRegistry);
+        this.failures = Counter.builder("email.queue.failures")
+                .description("Attempts that failed, retried later unless given up")
+                .register(meterRegistry);
+        this.abandoned = Counter.builder("email.queue.abandoned")
+                .description("Emails given up after the last attempt or refused by Brevo")
+                .register(meterRegistry);
+        Gauge.builder("email.queue.pending", emailJobRepository, EmailJobRepository::countByNextAttemptAtIsNotNull)
+                .description("Emails waiting to be sent, retries included")
+                .register(meterRegistry);
+        Gauge.builder("email.queue.oldest.age", emailJobRepository, EmailDispatcher::oldestAgeSeconds)
+                .description("Age of the oldest email waiting to be sent")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Vider la file des emails par lots tant que des envois sont dus
+     */
+    @Scheduled(fixedDelayString = "${application.mailing.queue.poll-interval:1s}")
+    public void dispatch() {
+        int claimed;
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize);
+    }
+
+    int dispatchBatch() {
+        List<EmailJob> jobs;
+        try {
+            jobs = transactionTemplate.execute(status -> claimBatch(LocalDateTime.now()));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Could not claim queued emails, retrying on the next poll", e);
+            return 0;
+        }
+        if (jobs == null || jobs.isEmpty()) {
+            return 0;
+        }
+
+        // The pool bounds how many posts to Brevo run at once, whatever the size of the backlog
+        List<Future<RuntimeException>> results = new ArrayList<>(jobs.size());
+        for (EmailJob job : jobs) {
+            results.add(executor.submit(() -> send(job)));
+        }
+        List<Integer> delivered = new ArrayList<>();
+        Map<Integer, RuntimeException> failed = new HashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            RuntimeException error = await(results.get(i));
+            if (error == null) {
+                delivered.add(jobs.get(i).getId());
+            } else {
+                failed.put(jobs.get(i).getId(), error);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> complete(delivered, failed, LocalDateTime.now()));
+        } catch (DataAccessException | TransactionException e) {
+            // The jobs come back when their lease ends, Brevo drops the second copy by its idempotency key
+            log.warn("Could not complete {} email jobs", jobs.size(), e);
+        }
+        return jobs.size();
+    }
+
+    /**
+     * Supprimer les emails envoyés ou abandonnés depuis plus longtemps que la rétention
+     */
+    @Scheduled(cron = "${application.mailing.queue.purge-cron:0 30 4 * * *}")
+    public void purgeFinished() {
+        int purged = emailJobRepository.deleteFinishedBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} finished email jobs", purged);
+        }
+    }
+
+    // Leases the due jobs, so that no other dispatcher picks them while they are being sent
+    private List<EmailJob> claimBatch(LocalDateTime now) {
+        List<EmailJob> due = emailJobRepository.findDueForUpdate(now, Limit.of(batchSize));
+        due.forEach(job -> job.setNextAttemptAt(now.plus(lease)));
+        return due;
+    }
+
+    private RuntimeException send(EmailJob job) {
+        long start = System.nanoTime();
+        try {
+            emailService.deliver(job);
+            sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            lag.record(Duration.between(job.getCreatedAt(), LocalDateTime.now()));
+            return null;
+        } catch (RuntimeException e) {
+            sendFailureLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return e;
+        }
+    }
+
+    private static RuntimeException await(Future<RuntimeException> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new IllegalStateException("Interrupted while waiting for the email to be sent", e);
+        } catch (ExecutionException e) {
+            return new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void complete(List<Integer> delivered, Map<Integer, RuntimeException> failed, LocalDateTime now) {
+        for (EmailJob job : emailJobRepository.findAllById(delivered)) {
+            job.setAttempts(job.getAttempts() + 1);
+            job.setSentAt(now);
+            job.setNextAttemptAt(null);
+            job.setLastError(null);
+        }
+        sent.increment(delivered.size());
+        for (EmailJob job : emailJobRepository.findAllById(failed.keySet())) {
+            RuntimeException error = failed.get(job.getId());
+            int attempts = job.getAttempts() + 1;
+            failures.increment();
+            job.setAttempts(attempts);
+            job.setLastError(StringUtils.abbreviate(error.getMessage(), 500));
+            if (isRefused(error) || (attempts >= maxAttempts && !isUnauthorized(error))) {
+                abandoned.increment();
+                log.error("Giving up {} email {} to {} after {} attempts", job.getTemplate(), job.getId(),
+                        job.getRecipient(), attempts, error);
+                job.setNextAttemptAt(null);
+                continue;
+            }
+            if (isUnauthorized(error)) {
+                log.error("Brevo refused the API key while sending {} email {}, attempt {}: {}", job.getTemplate(),
+                        job.getId(), attempts, error.getMessage());
+            } else {
+                log.warn("Could not send {} email {}, attempt {}: {}", job.getTemplate(), job.getId(), attempts,
+                        error.getMessage());
+            }
+            job.setNextAttemptAt(now.plus(retryDelay(attempts)));
+        }
+    }
+
+    // Brevo refused the email itself (bad address, bad request): sending it again fails the same way
+    private static boolean isRefused(RuntimeException error) {
+        return error instanceof HttpClientErrorException clientError
+                && (clientError.getStatusCode().isSameCodeAs(HttpStatus.BAD_REQUEST)
+                || clientError.getStatusCode().isSameCodeAs(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    // A revoked or misconfigured API key says nothing about the email: it is retried until the key is fixed
+    private static boolean isUnauthorized(RuntimeException error) {
+        return error instanceof HttpClientErrorException clientError
+                && (clientError.getStatusCode().isSameCodeAs(HttpStatus.UNAUTHORIZED)
+                || clientError.getStatusCode().isSameCodeAs(HttpStatus.FORBIDDEN));
+    }
+
+    // Exponential backoff: retry-delay, then twice as long after each failure, up to max-retry-delay
+    Duration retryDelay(int attempts) {
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxRetryDelay) > 0 ? maxRetryDelay : delay;
+    }
+
+    private static double oldestAgeSeconds(EmailJobRepository repository) {
+        return repository.findOldestPendingCreatedAt()
+                .map(oldest -> Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0)
+                .orElse(0.0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,37 +1,64 @@
 package com.ichaabane.book_network.application.service;
 
+import com.ichaabane.book_network.domain.model.EmailJob;
+import com.ichaabane.book_network.domain.repository.EmailJobRepository;
 import com.ichaabane.book_network.infrastructure.email.EmailTemplateName;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class EmailService {
 
     private final SpringTemplateEngine templateEngine;
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    @Value("${brevo.api-key}")
-    private String brevoApiKey;
-
-    @Value("${brevo.sender-email}")
-    private String senderEmail;
-
-    @Value("${brevo.sender-name}")
-    private String senderName;
+    private final EmailJobRepository emailJobRepository;
+    private final RestTemplate restTemplate;
+    private final String brevoUrl;
+    private final String brevoApiKey;
+    private final String senderEmail;
+    private final String senderName;
+
+    public EmailService(
+            SpringTemplateEngine templateEngine,
+            EmailJobRepository emailJobRepository,
+            @Value("${brevo.api-url:https://api.brevo.com/v3/smtp/email}") String brevoUrl,
+            @Value("${brevo.api-key}") String brevoApiKey,
+            @Value("${brevo.sender-email}") String senderEmail,
+            @Value("${brevo.sender-name}") String senderName,
+            @Value("${brevo.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${brevo.read-timeout:10s}") Duration readTimeout) {
+        this.templateEngine = templateEngine;
+        this.emailJobRepository = emailJobRepository;
+        this.brevoUrl = brevoUrl;
+        this.brevoApiKey = brevoApiKey;
+        this.senderEmail = senderEmail;
+        this.senderName = senderName;
+        // A worker blocked on a silent Brevo would hold its thread for good
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
 
-    @Async
+    /**
+     * Mettre l'email dans la file, dans la transaction de l'appelant.
+     * Il est envoyé plus tard par l'EmailDispatcher, avec des nouvelles tentatives si Brevo échoue.
+     * Le même email (modèle, destinataire, code) n'est mis en file qu'une fois.
+     */
+    @Transactional
     public void sendEmail(
             String to,
             String username,
@@ -39,47 +66,57 @@ public class EmailService {
             String confirmationUrl,
             String activationCode,
             String subject) {
-        String templateName;
-        if (emailTemplateName == null) {
-            templateName = "confirm-email";
-        } else {
-            templateName = emailTemplateName.getName();
-        }
+        EmailTemplateName template = emailTemplateName == null ? EmailTemplateName.ACTIVATE_ACCOUNT : emailTemplateName;
+        String idempotencyKey = idempotencyKey(template, to, activationCode);
+        emailJobRepository.enqueue(idempotencyKey, to, username, template.name(), confirmationUrl, activationCode, subject)
+                .ifPresentOrElse(
+                        id -> log.debug("Queued {} email {} for {}", template, id, to),
+                        () -> log.info("{} email for {} is already queued, duplicate ignored", template, to));
+    }
 
+    /**
+     * Render the job's template and post it to Brevo, on the calling worker thread
+     *
+     * @throws org.springframework.web.client.RestClientException when Brevo cannot be reached or refuses the email
+     */
+    public void deliver(EmailJob job) {
         Map<String, Object> model = new HashMap<>();
-        model.put("username", username);
-        model.put("confirmationUrl", confirmationUrl);
-        model.put("activationCode", activationCode);
+        model.put("username", job.getRecipientName());
+        model.put("confirmationUrl", job.getConfirmationUrl());
+        model.put("activationCode", job.getActivationCode());
 
         Context context = new Context();
         context.setVariables(model);
 
-        String htmlContent = templateEngine.process(templateName, context);
-
-        // Prepare Brevo API request
-        String brevoUrl = "https://api.brevo.com/v3/smtp/email";
+        String htmlContent = templateEngine.process(job.getTemplate().getName(), context);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("api-key", brevoApiKey);
 
         Map<String, Object> emailRequest = new HashMap<>();
-        
+
         Map<String, String> sender = new HashMap<>();
         sender.put("email", senderEmail);
         sender.put("name", senderName);
         emailRequest.put("sender", sender);
 
         Map<String, String> recipient = new HashMap<>();
-        recipient.put("email", to);
-        recipient.put("name", username);
+        recipient.put("email", job.getRecipient());
+        recipient.put("name", job.getRecipientName());
         emailRequest.put("to", new Map[]{recipient});
 
-        emailRequest.put("subject", subject);
+        emailRequest.put("subject", job.getSubject());
         emailRequest.put("htmlContent", htmlContent);
+        // Brevo drops a second email with the same key, a retry after a lost response does not send it twice
+        emailRequest.put("headers", Map.of("idempotencyKey", job.getIdempotencyKey()));
 
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(emailRequest, headers);
 
         restTemplate.postForEntity(brevoUrl, request, String.class);
     }
-}
\ No newline at end of file
+
+    static String idempotencyKey(EmailTemplateName template, String to, String activationCode) {
+        return template.name() + ":" + to + ":" + activationCode;
+    }
+}
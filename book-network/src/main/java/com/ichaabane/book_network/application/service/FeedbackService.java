@@ -1,36 +1,56 @@
 package com.ichaabane.book_network.application.service;
 
 import com.ichaabane.book_network.application.dto.request.FeedbackRequest;
+import com.ichaabane.book_network.application.dto.request.PageCursor;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.FeedbackResponse;
 import com.ichaabane.book_network.application.mapper.FeedbackMapper;
+import com.ichaabane.book_network.domain.enums.CountMode;
 import com.ichaabane.book_network.domain.model.Book;
 import com.ichaabane.book_network.domain.model.Feedback;
 import com.ichaabane.book_network.domain.repository.BookRepository;
 import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.dto.response.ResourceVersion;
 import com.ichaabane.book_network.domain.exception.OperationNotPermittedException;
 import com.ichaabane.book_network.domain.model.User;
 import com.ichaabane.book_network.domain.repository.FeedbackRepository;
+import com.ichaabane.book_network.domain.projection.FeedbackListVersion;
+import com.ichaabane.book_network.infrastructure.cache.ApproximateCountCache;
+import com.ichaabane.book_network.infrastructure.cache.BookResponseCache;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class FeedbackService {
 
     private final BookRepository bookRepository;
     private final FeedbackRepository feedbackRepository;
     private final FeedbackMapper mapper;
     private final FeedbackMapper feedbackMapper;
+    private final ApproximateCountCache countCache;
+    private final BookResponseCache bookResponseCache;
 
+    @Transactional
     public Integer saveFeedback(FeedbackRequest request, Authentication connectedUser) {
         Book book = bookRepository.findById(request.bookId())
                 .orElseThrow(() -> new EntityNotFoundException("No book found with the ID : " + request.bookId()));
@@ -42,7 +62,12 @@ public class FeedbackService {
             throw new OperationNotPermittedException("You cannot give a feedback to your own book");
         }
         Feedback feedback = mapper.toFeedback(request);
-        return feedbackRepository.save(feedback).getId();
+        Integer feedbackId = feedbackRepository.save(feedback).getId();
+        if (request.note() != null) {
+            bookRepository.addRating(book.getId(), request.note());
+            bookResponseCache.evict(book.getId());
+        }
+        return feedbackId;
     }
 
     public PageResponse<FeedbackResponse> findAllFeedbackByBook(Integer bookId, int page, int size, Authentication connectedUser) {
@@ -62,4 +87,61 @@ public class FeedbackService {
                 feedbacks.isLast()
         );
     }
+
+    public PageResponse<FeedbackResponse> findAllFeedbackByBook(Integer bookId, int page, int size, CountMode countMode, Authentication connectedUser) {
+        if (countMode == CountMode.EXACT) {
+            return findAllFeedbackByBook(bookId, page, size, connectedUser);
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
+        User user = (User) connectedUser.getPrincipal();
+        Slice<Feedback> feedbacks = feedbackRepository.findSliceByBookId(bookId, pageable);
+        Long total = countMode == CountMode.APPROXIMATE
+                ? countCache.get("book-feedbacks", bookId, () -> feedbackRepository.countByBookId(bookId))
+                : null;
+        return PageResponse.of(feedbacks, total, f -> feedbackMapper.toFeedbackResponse(f, user.getId()));
+    }
+
+    public CursorPageResponse<FeedbackResponse> findAllFeedbackByBook(Integer bookId, String after, int size, Authentication connectedUser) {
+        User user = (User) connectedUser.getPrincipal();
+        PageCursor cursor = PageCursor.decode(after);
+        List<Feedback> feedbacks = feedbackRepository.findAllByBookIdBefore(
+                bookId, cursor.createdDate(), cursor.id(), Limit.of(size + 1));
+        return CursorPageResponse.of(
+                feedbacks,
+                size,
+                f -> new PageCursor(f.getCreatedDate(), f.getId()),
+                f -> feedbackMapper.toFeedbackResponse(f, user.getId())
+        );
+    }
+
+    /**
+     * Version de la liste des avis d'un livre pour l'utilisateur connecté, sans charger les avis
+     */
+    public ResourceVersion findFeedbackVersion(Integer bookId, Authentication connectedUser) {
+        User user = (User) connectedUser.getPrincipal();
+        FeedbackListVersion version = feedbackRepository.findListVersionByBookId(bookId);
+        // ownFeedback depends on the reader, so the tag does too
+        String eTag = "feedbacks-" + bookId
+                + "-" + version.getCount()
+                + "-" + version.getMaxId()
+                + "-" + user.getId();
+        Instant lastModified = version.getLastCreatedDate() == null
+                ? null
+                : version.getLastCreatedDate().atZone(ZoneId.systemDefault()).toInstant();
+        return new ResourceVersion(eTag, lastModified);
+    }
+
+    /**
+     * Backfill and repair the rating aggregate stored on each book
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${application.rating.reconcile-cron:0 0 3 * * *}")
+    public void reconcileRatings() {
+        int reconciled = bookRepository.reconcileRatings();
+        if (reconciled > 0) {
+            bookResponseCache.evictAll();
+            log.info("Reconciled rating aggregate of {} books", reconciled);
+        }
+    }
 }
@@ -1,62 +1,185 @@
 package com.ichaabane.book_network.application.service;
 
-import com.ichaabane.book_network.domain.model.Book;
-
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.file.BlobStore;
+import com.ichaabane.book_network.infrastructure.file.CoverRendition;
+import com.ichaabane.book_network.infrastructure.file.FileUtils;
 import jakarta.validation.constraints.NotNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
 
 import static java.io.File.separator;
-import static java.lang.System.currentTimeMillis;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class FileStorageService {
 
+    private static final String COVERS_FOLDER = "covers";
+    // Same file system as the covers so the final move of the local store can be atomic
+    private static final String TEMP_FOLDER = ".tmp";
+    // A file reused by an upload is kept this long even if no book references it yet
+    private static final Duration RELEASE_GRACE = Duration.ofMinutes(1);
+    private static final Object[] LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private final BookRepository bookRepository;
+    private final BlobStore blobStore;
+    private final TaskScheduler taskScheduler;
+
     @Value("${application.file.upload.photos-output-path}")
     private String fileUploadPath;
 
-    public String saveFile(
-            @NotNull MultipartFile sourceFile,
-            @NotNull Integer userId) {
-        final String fileUploadSubPath = "users" + separator + userId;
-        return uploadFile(sourceFile, fileUploadSubPath);
+    public FileStorageService(BookRepository bookRepository,
+                              BlobStore blobStore,
+                              @Qualifier("taskScheduler") TaskScheduler taskScheduler) {
+        this.bookRepository = bookRepository;
+        this.blobStore = blobStore;
+        this.taskScheduler = taskScheduler;
     }
 
-    private String uploadFile(
-            @NotNull MultipartFile sourceFile,
-            @NotNull String fileUploadSubPath) {
-        final String finalUploadPath = fileUploadPath + separator + fileUploadSubPath;
-        File file = new File(finalUploadPath);
-        if (!file.exists()) {
-            boolean folderCreated = file.mkdirs();
-            if (!folderCreated) {
-                log.warn("Could not create folder");
-                return null;
+    /**
+     * Stocker un fichier sous le hash SHA-256 de son contenu : des octets identiques ne sont écrits qu'une fois.
+     * Le contenu est copié en flux vers un fichier temporaire, jamais chargé entièrement en mémoire.
+     *
+     * @throws UncheckedIOException si le fichier n'a pas pu être lu ou stocké
+     */
+    public String saveFile(@NotNull MultipartFile sourceFile) {
+        Path tempPath = null;
+        try {
+            String extension = getFileExtension(sourceFile.getOriginalFilename());
+            tempPath = Files.createTempFile(getTempDirectory(), "upload", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(sourceFile.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(tempPath)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String targetPath = getContentPath(hash, extension);
+            synchronized (lockFor(hash)) {
+                if (blobStore.exists(targetPath)) {
+                    blobStore.touch(targetPath);
+                    log.info("File already stored at {}", targetPath);
+                    return targetPath;
+                }
+                blobStore.put(targetPath, tempPath);
+            }
+            log.info("File saved to {}", targetPath);
+            return targetPath;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store " + sourceFile.getOriginalFilename(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    /**
+     * Supprimer un fichier et ses miniatures quand plus aucun livre n'y fait référence.
+     * Un fichier tout juste réutilisé par un envoi est réexaminé à la fin du délai de grâce.
+     */
+    public void releaseFile(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return;
+        }
+        synchronized (lockFor(FileUtils.getFileVersion(fileUrl))) {
+            if (bookRepository.countByBookCover(fileUrl) > 0) {
+                return;
+            }
+            Instant lastModified = blobStore.lastModified(fileUrl);
+            if (lastModified == null) {
+                return;
+            }
+            Instant releasableAt = lastModified.plus(RELEASE_GRACE);
+            if (releasableAt.isAfter(Instant.now())) {
+                // The upload that reused it may not be saved on its book yet, look again once the grace is over
+                taskScheduler.schedule(() -> releaseFile(fileUrl), releasableAt.plusSeconds(1));
+                return;
+            }
+            try {
+                blobStore.delete(fileUrl);
+                for (CoverRendition rendition : CoverRendition.values()) {
+                    blobStore.delete(FileUtils.getRenditionPath(fileUrl, rendition));
+                }
+                log.info("Deleted unreferenced file {}", fileUrl);
+            } catch (IOException e) {
+                log.warn("Could not delete unreferenced file {} {}", fileUrl, String.valueOf(e));
             }
         }
-        final String fileExtension = getFileExtension(sourceFile.getOriginalFilename());
-        String targetFilePath = finalUploadPath + separator + currentTimeMillis() + "." + fileExtension;
-        Path targetPath =  Paths.get(targetFilePath);
+    }
+
+    public Resource loadFile(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+        return blobStore.load(fileUrl);
+    }
+
+    public boolean exists(String fileUrl) {
+        return StringUtils.isNotBlank(fileUrl) && blobStore.exists(fileUrl);
+    }
+
+    /**
+     * Stocker un fichier temporaire local (par exemple une miniature) à l'emplacement donné
+     */
+    public void storeFile(String fileUrl, Path source) throws IOException {
+        blobStore.put(fileUrl, source);
+    }
+
+    /**
+     * Dossier des fichiers temporaires, sur le même système de fichiers que les fichiers stockés
+     */
+    public Path getTempDirectory() throws IOException {
+        return Files.createDirectories(Paths.get(fileUploadPath, COVERS_FOLDER, TEMP_FOLDER));
+    }
+
+    // covers/ab/cd/abcd...: two levels of 256 folders keep every directory small
+    private String getContentPath(String hash, String extension) {
+        String fileName = extension.isEmpty() ? hash : hash + "." + extension;
+        return fileUploadPath + separator + COVERS_FOLDER
+                + separator + hash.substring(0, 2)
+                + separator + hash.substring(2, 4)
+                + separator + fileName;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
         try {
-            Files.write(targetPath, sourceFile.getBytes());
-            log.info("File saved to {}", targetFilePath);
-            return targetFilePath;
+            Files.deleteIfExists(path);
         } catch (IOException e) {
-            log.error("File was not saved {}", String.valueOf(e));
+            log.warn("Could not delete temporary file {} {}", path, String.valueOf(e));
         }
-        return null;
+    }
+
+    private static Object lockFor(String hash) {
+        return LOCKS[Math.floorMod(String.valueOf(hash).hashCode(), LOCKS.length)];
     }
 
     private String getFileExtension(String filename) {
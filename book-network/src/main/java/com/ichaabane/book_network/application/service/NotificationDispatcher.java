@@ -0,0 +1,263 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.application.dto.response.NotificationResponse;
+import com.ichaabane.book_network.application.mapper.NotificationMapper;
+import com.ichaabane.book_network.domain.model.Notification;
+import com.ichaabane.book_network.domain.model.NotificationOutbox;
+import com.ichaabane.book_network.domain.repository.NotificationOutboxRepository;
+import com.ichaabane.book_network.domain.repository.NotificationRepository;
+import com.ichaabane.book_network.infrastructure.cache.UnreadNotificationCounter;
+import com.ichaabane.book_network.infrastructure.messaging.UserMessageFanout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    // A frame carries one notification, or an array of them when a user got several in the same batch
+    static final String DESTINATION = "/notifications";
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationRepository notificationRepository;
+    private final UserMessageFanout messagingFanout;
+    private final UnreadNotificationCounter unreadCounter;
+    private final NotificationMapper notificationMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+    private final Timer lag;
+    private final Counter dispatched;
+    private final Counter pushFailures;
+    private final Counter storeFailures;
+    private final Counter abandoned;
+
+    public NotificationDispatcher(
+            NotificationOutboxRepository outboxRepository,
+            NotificationRepository notificationRepository,
+            UserMessageFanout messagingFanout,
+            UnreadNotificationCounter unreadCounter,
+            NotificationMapper notificationMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${application.notification.outbox.batch-size:100}") int batchSize,
+            @Value("${application.notification.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${application.notification.outbox.lease:30s}") Duration lease,
+            @Value("${application.notification.outbox.retry-delay:1s}") Duration retryDelay,
+            @Value("${application.notification.outbox.max-retry-delay:5m}") Duration maxRetryDelay) {
+        this.outboxRepository = outboxRepository;
+        this.notificationRepository = notificationRepository;
+        this.messagingFanout = messagingFanout;
+        this.unreadCounter = unreadCounter;
+        this.notificationMapper = notificationMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.lag = Timer.builder("notifications.outbox.lag")
+                .description("Time from the business change to the WebSocket push")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.dispatched = Counter.builder("notifications.outbox.dispatched")
+                .description("Notifications stored and pushed")
+                .register(meterRegistry);
+        this.pushFailures = Counter.builder("notifications.outbox.failures")
+                .tag("stage", "push")
+                .register(meterRegistry);
+        this.storeFailures = Counter.builder("notifications.outbox.failures")
+                .tag("stage", "store")
+                .register(meterRegistry);
+        this.abandoned = Counter.builder("notifications.outbox.abandoned")
+                .description("Pushes given up after the last attempt, the notification stays in the inbox")
+                .register(meterRegistry);
+        Gauge.builder("notifications.outbox.pending", outboxRepository, NotificationOutboxRepository::count)
+                .description("Rows waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("notifications.outbox.oldest.age", outboxRepository, NotificationDispatcher::oldestAgeSeconds)
+                .description("Age of the oldest row waiting in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Vider l'outbox par lots tant que des notifs sont dues
+     */
+    @Scheduled(fixedDelayString = "${application.notification.outbox.poll-interval:500ms}")
+    public void dispatch() {
+        int claimed;
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize);
+    }
+
+    int dispatchBatch() {
+        List<Delivery> deliveries;
+        try {
+            deliveries = transactionTemplate.execute(status -> claimBatch(LocalDateTime.now()));
+        } catch (DataAccessException | TransactionException e) {
+            // The whole batch rolls back and stays due, the next poll tries again
+            storeFailures.increment();
+            log.warn("Could not store outbox notifications, retrying on the next poll", e);
+            return 0;
+        }
+        if (deliveries == null || deliveries.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> delivered = new ArrayList<>();
+        Map<Integer, String> failed = new HashMap<>();
+        // One frame per user and batch, a burst of events for the same reader goes out together
+        Map<Integer, List<Delivery>> byUser = deliveries.stream()
+                .collect(Collectors.groupingBy(Delivery::userId, LinkedHashMap::new, Collectors.toList()));
+        byUser.forEach((userId, frame) -> {
+            try {
+                messagingFanout.convertAndSendToUser(userId.toString(), DESTINATION, payload(frame));
+                LocalDateTime sentAt = LocalDateTime.now();
+                for (Delivery delivery : frame) {
+                    delivered.add(delivery.outboxId());
+                    lag.record(Duration.between(delivery.queuedAt(), sentAt));
+                }
+            } catch (MessagingException e) {
+                pushFailures.increment();
+                frame.forEach(delivery -> failed.put(delivery.outboxId(), e.getMessage()));
+            }
+        });
+        dispatched.increment(delivered.size());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> complete(delivered, failed, LocalDateTime.now()));
+        } catch (DataAccessException | TransactionException e) {
+            // The rows come back when their lease ends, a push may then be sent twice
+            log.warn("Could not complete {} outbox rows", deliveries.size(), e);
+        }
+        return deliveries.size();
+    }
+
+    /*
+     * Locks the due rows, stores the notifications not stored yet and leases the rows,
+     * so that no other dispatcher picks them while they are being pushed.
+     */
+    private List<Delivery> claimBatch(LocalDateTime now) {
+        List<NotificationOutbox> due = outboxRepository.findDueForUpdate(now, Limit.of(batchSize));
+        if (due.isEmpty()) {
+            return List.of();
+        }
+
+        List<NotificationOutbox> toStore = due.stream().filter(row -> row.getNotificationId() == null).toList();
+        List<Notification> stored = notificationRepository.saveAll(toStore.stream().map(NotificationDispatcher::toNotification).toList());
+        Map<Integer, Notification> notifications = new HashMap<>();
+        for (int i = 0; i < toStore.size(); i++) {
+            Notification notification = stored.get(i);
+            toStore.get(i).setNotificationId(notification.getId());
+            notifications.put(notification.getId(), notification);
+        }
+        // One counter update per user and batch, the badge moves when the notification reaches the inbox
+        toStore.stream()
+                .collect(Collectors.groupingBy(row -> row.getUser().getId(), Collectors.counting()))
+                .forEach((userId, count) -> unreadCounter.add(userId, Math.toIntExact(count)));
+        List<Integer> retried = due.stream()
+                .map(NotificationOutbox::getNotificationId)
+                .filter(id -> !notifications.containsKey(id))
+                .toList();
+        if (!retried.isEmpty()) {
+            notifications.putAll(notificationRepository.findAllById(retried).stream()
+                    .collect(Collectors.toMap(Notification::getId, Function.identity())));
+        }
+
+        Function<Notification, NotificationResponse> render = notificationMapper.renderer(notifications.values(), Notification::isRead);
+        List<Delivery> deliveries = new ArrayList<>(due.size());
+        for (NotificationOutbox row : due) {
+            Notification notification = notifications.get(row.getNotificationId());
+            if (notification == null) {
+                // Deleted while waiting for a retry, nothing left to push
+                outboxRepository.delete(row);
+                continue;
+            }
+            row.setNextAttemptAt(now.plus(lease));
+            deliveries.add(new Delivery(row.getId(), row.getUser().getId(),
+                    render.apply(notification), row.getCreatedDate()));
+        }
+        return deliveries;
+    }
+
+    private void complete(List<Integer> delivered, Map<Integer, String> failed, LocalDateTime now) {
+        if (!delivered.isEmpty()) {
+            outboxRepository.deleteAllByIdInBatch(delivered);
+        }
+        for (NotificationOutbox row : outboxRepository.findAllById(failed.keySet())) {
+            int attempts = row.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                abandoned.increment();
+                log.warn("Giving up pushing notification {} after {} attempts", row.getNotificationId(), attempts);
+                outboxRepository.delete(row);
+                continue;
+            }
+            row.setAttempts(attempts);
+            row.setLastError(StringUtils.abbreviate(failed.get(row.getId()), 500));
+            row.setNextAttemptAt(now.plus(retryDelay(attempts)));
+        }
+    }
+
+    // A single notification is sent as is, several as a JSON array in the order they were queued
+    private static Object payload(List<Delivery> frame) {
+        if (frame.size() == 1) {
+            return frame.get(0).notification();
+        }
+        return frame.stream().map(Delivery::notification).toList();
+    }
+
+    // Exponential backoff: retry-delay, then twice as long after each failure, up to max-retry-delay
+    Duration retryDelay(int attempts) {
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxRetryDelay) > 0 ? maxRetryDelay : delay;
+    }
+
+    private static Notification toNotification(NotificationOutbox row) {
+        return Notification.builder()
+                .user(row.getUser())
+                .template(row.getTemplate())
+                .bookId(row.getBookId())
+                .read(false)
+                .createdAt(row.getCreatedDate())
+                // The dispatcher runs without a security context, the author comes from the outbox row
+                .createdBy(row.getCreatedBy())
+                .build();
+    }
+
+    private static double oldestAgeSeconds(NotificationOutboxRepository repository) {
+        return repository.findOldestCreatedDate()
+                .map(oldest -> Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0)
+                .orElse(0.0);
+    }
+
+    private record Delivery(Integer outboxId, Integer userId, NotificationResponse notification, LocalDateTime queuedAt) {
+    }
+}
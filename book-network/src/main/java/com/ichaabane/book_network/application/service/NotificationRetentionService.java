@@ -0,0 +1,117 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.repository.NotificationRepository;
+import com.ichaabane.book_network.infrastructure.cache.UnreadNotificationCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the notification table bounded: it is partitioned by month on created_at (see db/schema.sql),
+ * months past the retention go away by dropping their partition, and the current month is compacted
+ * down to the latest notifications of each user.
+ */
+@Service
+@Slf4j
+public class NotificationRetentionService {
+
+    private final NotificationRepository notificationRepository;
+    private final UnreadNotificationCounter unreadCounter;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionMonths;
+    private final int partitionsAhead;
+    private final int keepPerUser;
+    private final int batchSize;
+    private final Counter droppedPartitions;
+    private final Counter compacted;
+
+    public NotificationRetentionService(
+            NotificationRepository notificationRepository,
+            UnreadNotificationCounter unreadCounter,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${application.notification.retention.months:12}") int retentionMonths,
+            @Value("${application.notification.retention.partitions-ahead:2}") int partitionsAhead,
+            @Value("${application.notification.retention.compaction.keep:500}") int keepPerUser,
+            @Value("${application.notification.retention.compaction.batch-size:5000}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounter = unreadCounter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionMonths = retentionMonths;
+        this.partitionsAhead = partitionsAhead;
+        this.keepPerUser = keepPerUser;
+        this.batchSize = batchSize;
+        this.droppedPartitions = Counter.builder("notifications.retention.dropped.partitions")
+                .description("Monthly notification partitions dropped past the retention")
+                .register(meterRegistry);
+        this.compacted = Counter.builder("notifications.retention.compacted")
+                .description("Notifications deleted beyond the latest ones kept per user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Créer les partitions des prochains mois et supprimer celles au-delà de la rétention
+     */
+    @Scheduled(cron = "${application.notification.retention.cron:0 15 3 * * *}")
+    public void maintainPartitions() {
+        int created = notificationRepository.ensurePartitions(partitionsAhead);
+        if (created > 0) {
+            log.info("Created {} notification partitions", created);
+        }
+
+        LocalDateTime cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths).atStartOfDay();
+        List<String> dropped = transactionTemplate.execute(status -> {
+            List<String> partitions = notificationRepository.dropPartitionsBefore(cutoff);
+            if (!partitions.isEmpty()) {
+                // The dropped rows took unread notifications with them, without going through the counter
+                unreadCounter.recountAll();
+            }
+            return partitions;
+        });
+        if (dropped != null && !dropped.isEmpty()) {
+            droppedPartitions.increment(dropped.size());
+            log.info("Dropped notification partitions {} older than {}", dropped, cutoff);
+        }
+    }
+
+    /**
+     * Ne garder que les dernières notifs de chaque utilisateur dans la partition du mois en cours
+     */
+    @Scheduled(cron = "${application.notification.retention.compaction.cron:0 45 * * * *}")
+    public void compact() {
+        LocalDateTime hotSince = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        Set<Integer> users = new HashSet<>();
+        int deleted;
+        do {
+            deleted = compactBatch(hotSince, users);
+        } while (deleted == batchSize);
+        if (!users.isEmpty()) {
+            log.info("Compacted the notifications of {} users", users.size());
+        }
+    }
+
+    // One short transaction per batch, the recount of its users commits with the deletion
+    private int compactBatch(LocalDateTime hotSince, Set<Integer> users) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<Integer> owners = notificationRepository.compactSince(hotSince, keepPerUser, batchSize);
+            Set<Integer> batchUsers = new HashSet<>(owners);
+            unreadCounter.recount(batchUsers);
+            users.addAll(batchUsers);
+            return owners.size();
+        });
+        int count = deleted == null ? 0 : deleted;
+        compacted.increment(count);
+        return count;
+    }
+}
@@ -1,16 +1,23 @@
 package com.ichaabane.book_network.application.service;
 
+import com.ichaabane.book_network.application.dto.request.PageCursor;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.NotificationResponse;
-import com.ichaabane.book_network.domain.enums.NotificationStatus;
+import com.ichaabane.book_network.application.mapper.NotificationMapper;
+import com.ichaabane.book_network.domain.enums.NotificationTemplate;
 import com.ichaabane.book_network.domain.model.Notification;
+import com.ichaabane.book_network.domain.model.NotificationOutbox;
 import com.ichaabane.book_network.domain.model.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ichaabane.book_network.domain.repository.NotificationOutboxRepository;
 import com.ichaabane.book_network.domain.repository.NotificationRepository;
+import com.ichaabane.book_network.domain.repository.UserRepository;
+import com.ichaabane.book_network.infrastructure.cache.UnreadNotificationCounter;
 import com.ichaabane.book_network.domain.exception.OperationNotPermittedException;
 import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDateTime;
@@ -21,46 +28,60 @@ import java.util.List;
 @Slf4j
 public class NotificationService {
 
+    // Read mark of a user who never used "read all", below every notification
+    static final PageCursor NOTHING_READ = new PageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
     private final NotificationRepository notificationRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationOutboxRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final UnreadNotificationCounter unreadCounter;
+    private final NotificationMapper notificationMapper;
 
     /**
-     * Créer une notif + l'envoyer en WebSocket
+     * Écrire la notif dans l'outbox, dans la transaction de l'appelant.
+     * Elle est enregistrée et envoyée en WebSocket plus tard par le NotificationDispatcher.
+     * Seuls le modèle et le livre sont stockés, l'auteur est l'utilisateur connecté (created_by).
      */
-    public void sendNotification(User user, NotificationStatus status, String message, String bookTitle) {
-        Notification notif = Notification.builder()
+    @Transactional
+    public void sendNotification(User user, NotificationTemplate template, Integer bookId) {
+        outboxRepository.save(NotificationOutbox.builder()
                 .user(user)
-                .status(status)
-                .message(message)
-                .bookTitle(bookTitle)
-                .read(false)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        notificationRepository.save(notif);
-
-        log.info("Sending WS notification to user {}: {}", user.getId(), notif);
+                .template(template)
+                .bookId(bookId)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+        log.debug("Queued {} notification for user {}", template, user.getId());
+    }
 
-        messagingTemplate.convertAndSendToUser(
-                user.getId().toString(),
-                "/notifications",
-                NotificationResponse.fromEntity(notif) // on envoie un DTO au front
-        );
+    /**
+     * Récupérer les notifs d'un user, les plus récentes d'abord, une page à la fois
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<NotificationResponse> getUserNotifications(User user, String after, int size, boolean unreadOnly) {
+        PageCursor cursor = PageCursor.decode(after);
+        PageCursor mark = readMark(user);
+        Limit limit = Limit.of(size + 1);
+        List<Notification> notifications = unreadOnly
+                ? notificationRepository.findUnreadPageBefore(user.getId(), cursor.createdDate(), cursor.id(),
+                        mark.createdDate(), mark.id(), limit)
+                : notificationRepository.findPageBefore(user.getId(), cursor.createdDate(), cursor.id(), limit);
+        return CursorPageResponse.of(notifications, size,
+                notification -> new PageCursor(notification.getCreatedAt(), notification.getId()),
+                notificationMapper.renderer(notifications, notification -> isRead(notification, mark)));
     }
 
     /**
-     * Récupérer toutes les notifs d'un user
+     * Nombre de notifs non lues d'un user, servi par le compteur en mémoire
      */
-    public List<NotificationResponse> getUserNotifications(User user) {
-        return notificationRepository.findAllByUserOrderByCreatedAtDesc(user)
-                .stream()
-                .map(NotificationResponse::fromEntity)
-                .toList();
+    public long countUnread(User user) {
+        return unreadCounter.get(user);
     }
 
     /**
-     * Marquer une notification comme lue
+     * Marquer une notification comme lue.
+     * Seule une notif au-dessus du marqueur de lecture est écrite, les autres sont déjà lues.
      */
+    @Transactional
     public NotificationResponse markAsRead(Integer notificationId, User user) {
         Notification notif = notificationRepository.findById(notificationId)
             .orElseThrow(() -> new EntityNotFoundException("Notification not found"));
@@ -69,19 +90,49 @@ public class NotificationService {
             throw new OperationNotPermittedException("Not allowed to update this notification");
         }
 
-        notif.setRead(true);
-        Notification updated = notificationRepository.save(notif);
-        return NotificationResponse.fromEntity(updated);
+        if (!isRead(notif, readMark(user))) {
+            notif.setRead(true);
+            notif = notificationRepository.save(notif);
+            unreadCounter.add(user.getId(), -1);
+        }
+        return notificationMapper.toNotificationResponse(notif, true);
     }
 
     /**
-     * Marquer toutes les notifications d'un utilisateur comme lues
+     * Marquer toutes les notifications d'un utilisateur comme lues :
+     * le marqueur de lecture avance jusqu'à la plus récente, une seule ligne est mise à jour
      */
     @Transactional
     public void markAllAsRead(User user) {
-        notificationRepository.findAllByUserOrderByCreatedAtDesc(user)
-                .stream()
-                .filter(notif -> !notif.isRead())
-                .forEach(notif -> notif.setRead(true));
+        List<Notification> newest = notificationRepository.findPageBefore(
+                user.getId(), PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(), Limit.of(1));
+        if (newest.isEmpty()) {
+            return;
+        }
+        Notification latest = newest.get(0);
+        if (userRepository.advanceNotificationReadMark(user.getId(), latest.getCreatedAt(), latest.getId()) == 1) {
+            user.setLastReadNotificationAt(latest.getCreatedAt());
+            user.setLastReadNotificationId(latest.getId());
+            // Usually zero, unless notifications were stored between the lookup and the update
+            long remaining = notificationRepository.countUnreadAfter(user.getId(), latest.getCreatedAt(), latest.getId());
+            unreadCounter.set(user.getId(), Math.toIntExact(remaining));
+        }
+        log.debug("Moved the read mark of user {} to notification {}", user.getId(), latest.getId());
+    }
+
+    private static PageCursor readMark(User user) {
+        if (user.getLastReadNotificationAt() == null) {
+            return NOTHING_READ;
+        }
+        return new PageCursor(user.getLastReadNotificationAt(), user.getLastReadNotificationId());
+    }
+
+    // Read when at or below the mark, or read on its own above it
+    private static boolean isRead(Notification notification, PageCursor mark) {
+        if (notification.isRead()) {
+            return true;
+        }
+        int byDate = notification.getCreatedAt().compareTo(mark.createdDate());
+        return byDate < 0 || (byDate == 0 && notification.getId() <= mark.id());
     }
 }
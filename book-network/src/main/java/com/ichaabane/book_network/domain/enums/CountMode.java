@@ -0,0 +1,7 @@
+package com.ichaabane.book_network.domain.enums;
+
+public enum CountMode {
+    EXACT,
+    APPROXIMATE,
+    NONE
+}
@@ -0,0 +1,34 @@
+package com.ichaabane.book_network.domain.enums;
+
+import lombok.Getter;
+
+/**
+ * Line-oriented formats accepted by bulk imports and produced by exports
+ */
+@Getter
+public enum DataFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    DataFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return the format of a Content-Type header, parameters such as the charset being ignored, or null if unsupported
+     */
+    public static DataFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim();
+        for (DataFormat format : values()) {
+            if (format.mediaType.equalsIgnoreCase(mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ichaabane.book_network.domain.enums;
+
+/**
+ * Lifecycle of a loan: a book is borrowed (ACTIVE), handed back by the borrower (RETURNED)
+ * and the return is confirmed by its owner (APPROVED). Only forward moves are allowed.
+ */
+public enum LoanStatus {
+    ACTIVE,
+    RETURNED,
+    APPROVED;
+
+    public boolean isReturned() {
+        return this != ACTIVE;
+    }
+
+    public boolean isApproved() {
+        return this == APPROVED;
+    }
+
+    public boolean canMoveTo(LoanStatus next) {
+        return next.ordinal() == ordinal() + 1;
+    }
+}
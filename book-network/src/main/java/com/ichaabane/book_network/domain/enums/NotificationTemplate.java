@@ -0,0 +1,55 @@
+package com.ichaabane.book_network.domain.enums;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+import static com.ichaabane.book_network.domain.enums.NotificationStatus.*;
+
+/**
+ * Text of every notification the application sends, stored as its code instead of the rendered message.
+ * "{actor}" is replaced with the user who caused the notification, the created_by of the row.
+ * Codes are persisted: never renumber or reuse one, only add new ones.
+ */
+@Getter
+public enum NotificationTemplate {
+    BOOK_BORROWED(1, BORROWED, "Your book has been borrowed"),
+    BOOK_RETURNED(2, RETURNED, "Your book has been returned"),
+    RETURN_APPROVED(3, NotificationStatus.RETURN_APPROVED, "You book return has been approved"),
+    RESERVATION_FULFILLED(4, BORROWED, "The book you reserved is now yours"),
+    HANDED_TO_NEXT_READER(5, BORROWED, "Your book has been handed to the next reader on the waiting list"),
+    BOOK_RESERVED(6, RESERVED, "{actor} has reserved your book"),
+    RESERVATION_CANCELLED(7, CANCELLED, "{actor} has cancelled the reservation for your book");
+
+    private static final String ACTOR = "{actor}";
+    private static final NotificationTemplate[] BY_CODE = new NotificationTemplate[values().length + 1];
+
+    static {
+        Arrays.stream(values()).forEach(template -> BY_CODE[template.code] = template);
+    }
+
+    private final short code;
+    private final NotificationStatus status;
+    private final String text;
+
+    NotificationTemplate(int code, NotificationStatus status, String text) {
+        this.code = (short) code;
+        this.status = status;
+        this.text = text;
+    }
+
+    public static NotificationTemplate fromCode(short code) {
+        if (code <= 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Unknown notification template code " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    public boolean mentionsActor() {
+        return text.contains(ACTOR);
+    }
+
+    public String render(String actor) {
+        return mentionsActor() ? text.replace(ACTOR, actor == null ? "Someone" : actor) : text;
+    }
+}
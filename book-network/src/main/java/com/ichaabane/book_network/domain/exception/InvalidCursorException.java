@@ -0,0 +1,7 @@
+package com.ichaabane.book_network.domain.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ichaabane.book_network.domain.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -8,6 +8,7 @@ import com.ichaabane.book_network.domain.model.User;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 
@@ -17,6 +18,12 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_book_created_date_id", columnList = "created_date, id"),
+        @Index(name = "idx_book_owner_created_date_id", columnList = "owner_id, created_date, id"),
+        // Reference count of a stored cover, run on every cover change
+        @Index(name = "idx_book_book_cover", columnList = "book_cover")
+})
 public class Book extends BaseEntity {
 
     private String title;
@@ -26,6 +33,13 @@ public class Book extends BaseEntity {
     private String bookCover;
     private boolean archived;
     private boolean shareable;
+    // Only written by the BookRepository updates: saving a book loaded earlier must not undo ratings added since
+    @ColumnDefault("0")
+    @Column(updatable = false)
+    private double ratingSum;
+    @ColumnDefault("0")
+    @Column(updatable = false)
+    private int ratingCount;
 
     @ManyToOne
     @JoinColumn(name = "owner_id")
@@ -42,13 +56,14 @@ public class Book extends BaseEntity {
 
     @Transient
     public double getRate() {
-        if (feedbacks == null || feedbacks.isEmpty()) {
+        return computeRate(ratingSum, ratingCount);
+    }
+
+    public static double computeRate(double ratingSum, int ratingCount) {
+        if (ratingCount == 0) {
             return 0.0;
         }
-        var rate = this.feedbacks.stream()
-                .mapToDouble(Feedback::getNote)
-                .average()
-                .orElse(0.0);
+        var rate = ratingSum / ratingCount;
 
         return Math.round(rate * 10.0) / 10.0;
     }
@@ -3,13 +3,20 @@ package com.ichaabane.book_network.domain.model;
 import com.ichaabane.book_network.domain.model.Book;
 import com.ichaabane.book_network.domain.model.common.BaseEntity;
 import com.ichaabane.book_network.domain.model.User;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_reservation_user_created_date_book", columnList = "user_id, created_date, book_id"),
+        @Index(name = "uk_reservation_book_queue_sequence", columnList = "book_id, queue_sequence", unique = true)
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -24,4 +31,11 @@ public class BookReservation extends BaseEntity {
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
+
+    /**
+     * Place in the book's waitlist, taken from a database sequence so that it grows across instances.
+     * Only the order matters: cancellations leave gaps and positions are counted, never stored.
+     */
+    @Column(name = "queue_sequence", updatable = false)
+    private Long queueSequence;
 }
\ No newline at end of file
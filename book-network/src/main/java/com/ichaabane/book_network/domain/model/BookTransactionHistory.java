@@ -1,11 +1,18 @@
 package com.ichaabane.book_network.domain.model;
 
+import com.ichaabane.book_network.domain.enums.LoanStatus;
+import com.ichaabane.book_network.domain.exception.OperationNotPermittedException;
 import com.ichaabane.book_network.domain.model.Book;
 import com.ichaabane.book_network.domain.model.common.BaseEntity;
 import com.ichaabane.book_network.domain.model.User;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -18,15 +25,34 @@ import lombok.experimental.SuperBuilder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_history_user_created_date_id", columnList = "user_id, created_date, id"),
+        @Index(name = "idx_history_book_created_date_id", columnList = "book_id, created_date, id")
+})
 public class BookTransactionHistory extends BaseEntity {
 
+    /**
+     * Partial unique index on book_id WHERE status = 'ACTIVE', created by db/schema.sql
+     */
+    public static final String ACTIVE_LOAN_INDEX = "uk_history_active_book";
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
     @ManyToOne
     @JoinColumn(name = "book_id")
     private Book book;
-    private boolean returned;
-    private boolean returnedApproved;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private LoanStatus status;
 
+    /**
+     * Move the loan one step forward, a loan never goes back to a previous status
+     */
+    public void moveTo(LoanStatus next) {
+        if (status == null || !status.canMoveTo(next)) {
+            throw new OperationNotPermittedException("A loan cannot go from " + status + " to " + next);
+        }
+        status = next;
+    }
 }
@@ -0,0 +1,72 @@
+package com.ichaabane.book_network.domain.model;
+
+import com.ichaabane.book_network.infrastructure.email.EmailTemplateName;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email waiting to be sent through Brevo by the email dispatcher, written in the transaction that needs it.
+ * Sent and abandoned jobs stay for a while without a next attempt, so that their idempotency key
+ * still rejects a duplicate of the same email.
+ * Not a BaseEntity: registration emails are queued without an authenticated user.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_email_job_next_attempt_id", columnList = "next_attempt_at, id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_email_job_idempotency_key", columnNames = "idempotency_key"))
+public class EmailJob {
+
+    @Id
+    @GeneratedValue
+    private Integer id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 400)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    private String recipientName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private EmailTemplateName template;
+
+    private String confirmationUrl;
+
+    private String activationCode;
+
+    private String subject;
+
+    private int attempts;
+
+    // Null once the email is sent or given up
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime sentAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -15,6 +15,7 @@ import lombok.experimental.SuperBuilder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_feedback_book_created_date_id", columnList = "book_id, created_date, id"))
 public class Feedback extends BaseEntity {
 
     private Double note;
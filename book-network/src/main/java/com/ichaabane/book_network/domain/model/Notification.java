@@ -1,6 +1,6 @@
 package com.ichaabane.book_network.domain.model;
 
-import com.ichaabane.book_network.domain.enums.NotificationStatus;
+import com.ichaabane.book_network.domain.enums.NotificationTemplate;
 import com.ichaabane.book_network.domain.model.common.BaseEntity;
 import com.ichaabane.book_network.domain.model.User;
 import jakarta.persistence.*;
@@ -17,6 +17,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
+@Table(indexes = @Index(name = "idx_notification_user_created_at_id", columnList = "user_id, created_at DESC, id DESC"))
 @EntityListeners(AuditingEntityListener.class)
 public class Notification extends BaseEntity {
 
@@ -24,12 +25,10 @@ public class Notification extends BaseEntity {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Enumerated(EnumType.STRING)
-    private NotificationStatus status;
+    // The message is rendered from the template, with the title of the book and the username of created_by
+    private NotificationTemplate template;
 
-    private String message;
-
-    private String bookTitle;
+    private Integer bookId;
 
     private boolean read;
 
@@ -0,0 +1,52 @@
+package com.ichaabane.book_network.domain.model;
+
+import com.ichaabane.book_network.domain.enums.NotificationTemplate;
+import com.ichaabane.book_network.domain.model.common.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification written in the same transaction as the business change that caused it,
+ * and delivered later by the notification dispatcher.
+ * The row is removed once the notification has been stored and pushed to the user.
+ */
+@Getter
+@Setter
+@SuperBuilder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_notification_outbox_next_attempt_id", columnList = "next_attempt_at, id"))
+public class NotificationOutbox extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    private NotificationTemplate template;
+
+    private Integer bookId;
+
+    // Set once the notification row exists, a retry then only pushes it again
+    private Integer notificationId;
+
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+}
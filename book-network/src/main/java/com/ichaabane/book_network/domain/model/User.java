@@ -7,6 +7,7 @@ import com.ichaabane.book_network.domain.model.BookReservation;
 import com.ichaabane.book_network.domain.model.Role;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -58,6 +59,18 @@ public class User implements UserDetails, Principal {
     @OneToMany(mappedBy = "user")
     private List<Notification> notifications;
 
+    // Keyset position of the newest notification read by "read all", everything up to it counts as read.
+    // These columns are only written by the UserRepository updates: saving a user loaded earlier in a request
+    // must not move the read mark back or reset the badge
+    @Column(updatable = false)
+    private LocalDateTime lastReadNotificationAt;
+    @Column(updatable = false)
+    private Integer lastReadNotificationId;
+    // Persisted copy of the unread badge, kept by UnreadNotificationCounter
+    @ColumnDefault("0")
+    @Column(updatable = false)
+    private int unreadNotifications;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdDate;
@@ -0,0 +1,22 @@
+package com.ichaabane.book_network.domain.model.common;
+
+import com.ichaabane.book_network.domain.enums.NotificationTemplate;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a notification template as its two bytes code
+ */
+@Converter(autoApply = true)
+public class NotificationTemplateConverter implements AttributeConverter<NotificationTemplate, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(NotificationTemplate template) {
+        return template == null ? null : template.getCode();
+    }
+
+    @Override
+    public NotificationTemplate convertToEntityAttribute(Short code) {
+        return code == null ? null : NotificationTemplate.fromCode(code);
+    }
+}
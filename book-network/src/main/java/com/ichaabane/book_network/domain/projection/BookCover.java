@@ -0,0 +1,15 @@
+package com.ichaabane.book_network.domain.projection;
+
+/**
+ * Cover file of a book, with the columns that decide who may read it
+ */
+public interface BookCover {
+
+    Integer getId();
+
+    String getPath();
+
+    boolean isShareable();
+
+    boolean isArchived();
+}
@@ -0,0 +1,31 @@
+package com.ichaabane.book_network.domain.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of an owner's catalog export
+ */
+public interface BookExportRow {
+
+    Integer getId();
+
+    String getTitle();
+
+    String getAuthorName();
+
+    String getIsbn();
+
+    String getSynopsis();
+
+    boolean isShareable();
+
+    boolean isArchived();
+
+    double getRatingSum();
+
+    int getRatingCount();
+
+    LocalDateTime getCreatedDate();
+
+    LocalDateTime getLastModifiedDate();
+}
@@ -0,0 +1,23 @@
+package com.ichaabane.book_network.domain.projection;
+
+/**
+ * Searchable columns of a book, streamed to build the in-memory search index
+ */
+public interface BookIndexEntry {
+
+    Integer getId();
+
+    Integer getOwnerId();
+
+    boolean isArchived();
+
+    boolean isShareable();
+
+    String getTitle();
+
+    String getAuthorName();
+
+    String getIsbn();
+
+    String getSynopsis();
+}
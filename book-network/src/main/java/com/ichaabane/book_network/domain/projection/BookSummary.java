@@ -0,0 +1,33 @@
+package com.ichaabane.book_network.domain.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Listing columns of a book, fetched together with the owner name in a single query
+ */
+public interface BookSummary {
+
+    Integer getId();
+
+    LocalDateTime getCreatedDate();
+
+    String getTitle();
+
+    String getAuthorName();
+
+    String getIsbn();
+
+    String getSynopsis();
+
+    String getBookCover();
+
+    String getOwner();
+
+    boolean isArchived();
+
+    boolean isShareable();
+
+    double getRatingSum();
+
+    int getRatingCount();
+}
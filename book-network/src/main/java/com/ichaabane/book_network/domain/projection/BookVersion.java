@@ -0,0 +1,19 @@
+package com.ichaabane.book_network.domain.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns that change whenever the representation of a book changes, read without loading the entity
+ */
+public interface BookVersion {
+
+    Integer getId();
+
+    LocalDateTime getCreatedDate();
+
+    LocalDateTime getLastModifiedDate();
+
+    double getRatingSum();
+
+    int getRatingCount();
+}
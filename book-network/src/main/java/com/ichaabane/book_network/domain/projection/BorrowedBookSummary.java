@@ -0,0 +1,29 @@
+package com.ichaabane.book_network.domain.projection;
+
+import com.ichaabane.book_network.domain.enums.LoanStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Listing columns of a borrow transaction, fetched together with its book in a single query
+ */
+public interface BorrowedBookSummary {
+
+    Integer getHistoryId();
+
+    LocalDateTime getCreatedDate();
+
+    Integer getId();
+
+    String getTitle();
+
+    String getAuthorName();
+
+    String getIsbn();
+
+    double getRatingSum();
+
+    int getRatingCount();
+
+    LoanStatus getStatus();
+}
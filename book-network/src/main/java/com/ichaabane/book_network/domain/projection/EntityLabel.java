@@ -0,0 +1,11 @@
+package com.ichaabane.book_network.domain.projection;
+
+/**
+ * Id and display text of a row, read in bulk to render notifications
+ */
+public interface EntityLabel {
+
+    Integer getId();
+
+    String getLabel();
+}
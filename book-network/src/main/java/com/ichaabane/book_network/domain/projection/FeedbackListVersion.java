@@ -0,0 +1,15 @@
+package com.ichaabane.book_network.domain.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregate that changes whenever a feedback of a book is added or removed (feedbacks are never edited)
+ */
+public interface FeedbackListVersion {
+
+    long getCount();
+
+    Integer getMaxId();
+
+    LocalDateTime getLastCreatedDate();
+}
@@ -0,0 +1,29 @@
+package com.ichaabane.book_network.domain.projection;
+
+import com.ichaabane.book_network.domain.enums.LoanStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a lending history export
+ */
+public interface HistoryExportRow {
+
+    Integer getId();
+
+    Integer getBookId();
+
+    String getTitle();
+
+    String getIsbn();
+
+    Integer getOwnerId();
+
+    Integer getBorrowerId();
+
+    LocalDateTime getBorrowedDate();
+
+    LoanStatus getStatus();
+
+    LocalDateTime getLastModifiedDate();
+}
@@ -1,22 +1,244 @@
 package com.ichaabane.book_network.domain.repository;
 
 import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.projection.BookCover;
+import com.ichaabane.book_network.domain.projection.BookExportRow;
+import com.ichaabane.book_network.domain.projection.BookIndexEntry;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import com.ichaabane.book_network.domain.projection.BookVersion;
+import com.ichaabane.book_network.domain.projection.EntityLabel;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book> {
 
+    @Query(value = """
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND owner.id != :userId
+            """,
+            countQuery = """
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND book.owner.id != :userId
+            """)
+    Page<BookSummary> findAllDisplayableBookSummaries(Pageable pageable, Integer userId);
+
+    @Query(value = """
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE owner.id = :ownerId
+            """,
+            countQuery = """
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            """)
+    Page<BookSummary> findAllBookSummariesByOwner(Pageable pageable, Integer ownerId);
+
+    @Query("""
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND owner.id != :userId
+            """)
+    Slice<BookSummary> findDisplayableBookSummarySlice(Pageable pageable, Integer userId);
+
     @Query("""
-            SELECT book
+            SELECT COUNT(book)
             FROM Book book
             WHERE book.archived = false
             AND book.shareable = true
             AND book.owner.id != :userId
             """)
-    Page<Book> findAllDisplayableBooks(Pageable pageable, Integer userId);
+    long countDisplayableBooks(Integer userId);
+
+    @Query("""
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE owner.id = :ownerId
+            """)
+    Slice<BookSummary> findBookSummarySliceByOwner(Pageable pageable, Integer ownerId);
+
+    @Query("""
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            """)
+    long countBooksByOwner(Integer ownerId);
+
+    @Query("""
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND owner.id != :userId
+            AND (book.createdDate, book.id) < (:createdDate, :id)
+            ORDER BY book.createdDate DESC, book.id DESC
+            """)
+    List<BookSummary> findDisplayableBookSummariesBefore(Integer userId, LocalDateTime createdDate, Integer id, Limit limit);
+
+    @Query("""
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE owner.id = :ownerId
+            AND (book.createdDate, book.id) < (:createdDate, :id)
+            ORDER BY book.createdDate DESC, book.id DESC
+            """)
+    List<BookSummary> findBookSummariesByOwnerBefore(Integer ownerId, LocalDateTime createdDate, Integer id, Limit limit);
+
+    @Query("""
+            SELECT book.id AS id, book.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM Book book
+            JOIN book.owner owner
+            WHERE book.id IN :ids
+            """)
+    List<BookSummary> findBookSummariesByIds(Collection<Integer> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT book.id AS id, book.owner.id AS ownerId, book.archived AS archived, book.shareable AS shareable,
+                   book.title AS title, book.authorName AS authorName, book.isbn AS isbn, book.synopsis AS synopsis
+            FROM Book book
+            """)
+    Stream<BookIndexEntry> streamAllIndexEntries();
+
+    @Query("""
+            SELECT book.id AS id, book.owner.id AS ownerId, book.archived AS archived, book.shareable AS shareable,
+                   book.title AS title, book.authorName AS authorName, book.isbn AS isbn, book.synopsis AS synopsis
+            FROM Book book
+            WHERE book.id = :bookId
+            """)
+    Optional<BookIndexEntry> findIndexEntryById(Integer bookId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT book.id AS id, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.shareable AS shareable, book.archived AS archived,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount,
+                   book.createdDate AS createdDate, book.lastModifiedDate AS lastModifiedDate
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            ORDER BY book.createdDate, book.id
+            """)
+    Stream<BookExportRow> streamExportRowsByOwner(Integer ownerId);
+
+    @Query("""
+            SELECT book.id AS id,
+                   book.bookCover AS path,
+                   book.shareable AS shareable,
+                   book.archived AS archived
+            FROM Book book
+            WHERE book.id = :bookId
+            """)
+    Optional<BookCover> findCoverById(Integer bookId);
+
+    // Keyset pages of the books that have a cover, in id order
+    @Query("""
+            SELECT book.id AS id,
+                   book.bookCover AS path,
+                   book.shareable AS shareable,
+                   book.archived AS archived
+            FROM Book book
+            WHERE book.id > :afterId
+              AND book.bookCover IS NOT NULL
+            ORDER BY book.id
+            """)
+    List<BookCover> findCoversAfter(Integer afterId, Limit limit);
+
+    long countByBookCover(String bookCover);
+
+    @Query("SELECT book.id AS id, book.title AS label FROM Book book WHERE book.id IN :ids")
+    List<EntityLabel> findTitlesByIds(Collection<Integer> ids);
+
+    @Query("""
+            SELECT book.id AS id,
+                   book.createdDate AS createdDate,
+                   book.lastModifiedDate AS lastModifiedDate,
+                   book.ratingSum AS ratingSum,
+                   book.ratingCount AS ratingCount
+            FROM Book book
+            WHERE book.id = :bookId
+            """)
+    Optional<BookVersion> findVersionById(Integer bookId);
+
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.ratingSum = book.ratingSum + :note,
+                book.ratingCount = book.ratingCount + 1,
+                book.lastModifiedDate = LOCAL DATETIME
+            WHERE book.id = :bookId
+            """)
+    int addRating(Integer bookId, double note);
+
+    // Recompute the aggregate only for books whose stored count or sum drifted from the feedback table.
+    // The sum is a double built one rating at a time, so it is compared with a tolerance
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.ratingSum = COALESCE((SELECT SUM(feedback.note) FROM Feedback feedback WHERE feedback.book.id = book.id AND feedback.note IS NOT NULL), 0),
+                book.ratingCount = (SELECT COUNT(feedback) FROM Feedback feedback WHERE feedback.book.id = book.id AND feedback.note IS NOT NULL),
+                book.lastModifiedDate = LOCAL DATETIME
+            WHERE book.ratingCount <> (SELECT COUNT(feedback) FROM Feedback feedback WHERE feedback.book.id = book.id AND feedback.note IS NOT NULL)
+               OR ABS(book.ratingSum - COALESCE((SELECT SUM(feedback.note) FROM Feedback feedback WHERE feedback.book.id = book.id AND feedback.note IS NOT NULL), 0)) > 0.001
+            """)
+    int reconcileRatings();
 }
@@ -3,10 +3,18 @@ package com.ichaabane.book_network.domain.repository;
 import com.ichaabane.book_network.domain.model.Book;
 import com.ichaabane.book_network.domain.model.BookReservation;
 import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +22,77 @@ public interface BookReservationRepository extends JpaRepository<BookReservation
 
     boolean existsByBookAndUser(Book book, User user);
 
+    @Transactional
+    @Query(value = "SELECT nextval('book_reservation_queue_seq')", nativeQuery = true)
+    long nextQueueSequence();
+
+    // Number of readers ahead of the user, an index-only range count on (book_id, queue_sequence)
+    @Query("""
+            SELECT COUNT(ahead.id)
+            FROM BookReservation mine
+            LEFT JOIN BookReservation ahead
+                ON ahead.book.id = mine.book.id
+                AND ahead.queueSequence < mine.queueSequence
+            WHERE mine.book.id = :bookId
+            AND mine.user.id = :userId
+            GROUP BY mine.id
+            """)
+    Optional<Long> countReadersAhead(Integer bookId, Integer userId);
+
+    // Locks the head of the waitlist so that it cannot be cancelled while the book is handed to it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<BookReservation> findFirstByBookIdOrderByQueueSequenceAsc(Integer bookId);
+
     Optional<BookReservation> findByBookIdAndUserId(Integer bookId, Integer userId);
 
     Page<BookReservation> findAllByUserId(Integer userId, Pageable pageable);
+
+    @Query(value = """
+            SELECT book.id AS id, reservation.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM BookReservation reservation
+            JOIN reservation.book book
+            JOIN book.owner owner
+            WHERE reservation.user.id = :userId
+            """,
+            countQuery = """
+            SELECT COUNT(reservation)
+            FROM BookReservation reservation
+            WHERE reservation.user.id = :userId
+            """)
+    Page<BookSummary> findAllReservedBookSummaries(Integer userId, Pageable pageable);
+
+    @Query("""
+            SELECT book.id AS id, reservation.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM BookReservation reservation
+            JOIN reservation.book book
+            JOIN book.owner owner
+            WHERE reservation.user.id = :userId
+            """)
+    Slice<BookSummary> findReservedBookSummarySlice(Integer userId, Pageable pageable);
+
+    long countByUserId(Integer userId);
+
+    // A user reserves a book at most once, so the book id breaks ties between reservations of the same instant
+    @Query("""
+            SELECT book.id AS id, reservation.createdDate AS createdDate, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.synopsis AS synopsis, book.bookCover AS bookCover,
+                   CONCAT(owner.firstName, ' ', owner.lastName) AS owner,
+                   book.archived AS archived, book.shareable AS shareable,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount
+            FROM BookReservation reservation
+            JOIN reservation.book book
+            JOIN book.owner owner
+            WHERE reservation.user.id = :userId
+            AND (reservation.createdDate, book.id) < (:createdDate, :id)
+            ORDER BY reservation.createdDate DESC, book.id DESC
+            """)
+    List<BookSummary> findReservedBookSummariesBefore(Integer userId, LocalDateTime createdDate, Integer id, Limit limit);
 }
@@ -1,14 +1,42 @@
 package com.ichaabane.book_network.domain.repository;
 
+import com.ichaabane.book_network.domain.enums.LoanStatus;
 import com.ichaabane.book_network.domain.model.BookTransactionHistory;
+import com.ichaabane.book_network.domain.projection.BorrowedBookSummary;
+import com.ichaabane.book_network.domain.projection.HistoryExportRow;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface BookTransactionHistoryRepository extends JpaRepository<BookTransactionHistory, Integer> {
+
+    // Every loan the user took part in, as borrower or as owner of the book
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT history.id AS id, book.id AS bookId, book.title AS title, book.isbn AS isbn,
+                   book.owner.id AS ownerId, history.user.id AS borrowerId, history.createdDate AS borrowedDate,
+                   history.status AS status,
+                   history.lastModifiedDate AS lastModifiedDate
+            FROM BookTransactionHistory history
+            JOIN history.book book
+            WHERE history.user.id = :userId OR book.owner.id = :userId
+            ORDER BY history.createdDate, history.id
+            """)
+    Stream<HistoryExportRow> streamExportRowsByUser(Integer userId);
+
     @Query("""
             SELECT history
             FROM BookTransactionHistory history
@@ -23,13 +51,67 @@ public interface BookTransactionHistoryRepository extends JpaRepository<BookTran
             """)
     Page<BookTransactionHistory> findAllReturnedBooks(Pageable pageable, Integer userId);
 
+    @Query("""
+            SELECT history
+            FROM BookTransactionHistory history
+            where history.user.id = :userId
+            """)
+    Slice<BookTransactionHistory> findBorrowedBookSlice(Pageable pageable, Integer userId);
+
+    @Query("""
+            SELECT COUNT(history)
+            FROM BookTransactionHistory history
+            where history.user.id = :userId
+            """)
+    long countBorrowedBooks(Integer userId);
+
+    @Query("""
+            SELECT history
+            FROM BookTransactionHistory history
+            where history.book.owner.id = :userId
+            """)
+    Slice<BookTransactionHistory> findReturnedBookSlice(Pageable pageable, Integer userId);
+
+    @Query("""
+            SELECT COUNT(history)
+            FROM BookTransactionHistory history
+            where history.book.owner.id = :userId
+            """)
+    long countReturnedBooks(Integer userId);
+
+    @Query("""
+            SELECT history.id AS historyId, history.createdDate AS createdDate,
+                   book.id AS id, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount,
+                   history.status AS status
+            FROM BookTransactionHistory history
+            JOIN history.book book
+            WHERE history.user.id = :userId
+            AND (history.createdDate, history.id) < (:createdDate, :id)
+            ORDER BY history.createdDate DESC, history.id DESC
+            """)
+    List<BorrowedBookSummary> findBorrowedBookSummariesBefore(Integer userId, LocalDateTime createdDate, Integer id, Limit limit);
+
+    @Query("""
+            SELECT history.id AS historyId, history.createdDate AS createdDate,
+                   book.id AS id, book.title AS title, book.authorName AS authorName, book.isbn AS isbn,
+                   book.ratingSum AS ratingSum, book.ratingCount AS ratingCount,
+                   history.status AS status
+            FROM BookTransactionHistory history
+            JOIN history.book book
+            WHERE book.owner.id = :userId
+            AND (history.createdDate, history.id) < (:createdDate, :id)
+            ORDER BY history.createdDate DESC, history.id DESC
+            """)
+    List<BorrowedBookSummary> findReturnedBookSummariesBefore(Integer userId, LocalDateTime createdDate, Integer id, Limit limit);
+
     @Query("""
             SELECT
             (COUNT(*) > 0) AS isBorrowed
             FROM BookTransactionHistory history
             where history.user.id = :userId
             AND history.book.id = :bookId
-            AND history.returnedApproved = false
+            AND history.status <> APPROVED
             """)
     boolean isAlreadyBorrowedByUser(Integer bookId, Integer userId);
 
@@ -38,8 +120,7 @@ public interface BookTransactionHistoryRepository extends JpaRepository<BookTran
             FROM BookTransactionHistory history
             WHERE history.user.id = :userId
             AND history.book.id = :bookId
-            AND history.returned = false
-            AND history.returnedApproved = false
+            AND history.status = ACTIVE
             """)
     Optional<BookTransactionHistory> findByBookIdAndUserId(Integer bookId, Integer userId);
 
@@ -48,10 +129,47 @@ public interface BookTransactionHistoryRepository extends JpaRepository<BookTran
             FROM BookTransactionHistory history
             where history.book.owner.id = :userId
             AND history.book.id = :bookId
-            AND history.returned = true
-            AND history.returnedApproved = false
+            AND history.status = RETURNED
             """)
     Optional<BookTransactionHistory> findByBookIdAndOwnerId(Integer bookId, Integer userId);
 
-    boolean existsByBookIdAndReturnedFalse(Integer bookId);
+    boolean existsByBookIdAndStatus(Integer bookId, LoanStatus status);
+
+    /**
+     * Borrow in one statement: the row is only inserted when the user has no unapproved loan of the book,
+     * and the partial unique index {@link BookTransactionHistory#ACTIVE_LOAN_INDEX} rejects a second active loan.
+     * The id is taken straight from the sequence; with the pooled optimizer Hibernate treats every sequence value
+     * as the top of its own block, so such an id never collides with the ones Hibernate hands out.
+     *
+     * @return the id of the new loan, empty when the user already borrowed the book
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO book_transaction_history (id, book_id, user_id, status, created_date, created_by)
+            SELECT nextval('book_transaction_history_seq'), :bookId, :userId, 'ACTIVE', LOCALTIMESTAMP, :userId
+            WHERE NOT EXISTS (
+                SELECT 1
+                FROM book_transaction_history
+                WHERE book_id = :bookId
+                AND user_id = :userId
+                AND status <> 'APPROVED'
+            )
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Integer> insertActiveLoan(Integer bookId, Integer userId);
+
+    /**
+     * Give the book to a reader from its waitlist. Runs inside the approval transaction,
+     * so a conflict on the active loan index yields no row instead of aborting the transaction.
+     *
+     * @return the id of the new loan, empty when the book is already borrowed again
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO book_transaction_history (id, book_id, user_id, status, created_date, created_by)
+            VALUES (nextval('book_transaction_history_seq'), :bookId, :userId, 'ACTIVE', LOCALTIMESTAMP, :ownerId)
+            ON CONFLICT (book_id) WHERE status = 'ACTIVE' DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Integer> insertHandOffLoan(Integer bookId, Integer userId, Integer ownerId);
 }
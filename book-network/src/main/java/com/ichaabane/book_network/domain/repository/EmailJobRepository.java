@@ -0,0 +1,66 @@
+package com.ichaabane.book_network.domain.repository;
+
+import com.ichaabane.book_network.domain.model.EmailJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface EmailJobRepository extends JpaRepository<EmailJob, Integer> {
+
+    /**
+     * Queue an email unless a job with the same idempotency key exists, sent or not
+     *
+     * @return the id of the new job, empty for a duplicate
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO email_job (id, idempotency_key, recipient, recipient_name, template, confirmation_url,
+                                   activation_code, subject, attempts, next_attempt_at, created_at)
+            VALUES (nextval('email_job_seq'), :idempotencyKey, :recipient, :recipientName, :template, :confirmationUrl,
+                    :activationCode, :subject, 0, LOCALTIMESTAMP, LOCALTIMESTAMP)
+            ON CONFLICT (idempotency_key) DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Integer> enqueue(String idempotencyKey, String recipient, String recipientName, String template,
+                              String confirmationUrl, String activationCode, String subject);
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): several dispatchers drain the queue without waiting on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT job
+            FROM EmailJob job
+            WHERE job.nextAttemptAt <= :now
+            ORDER BY job.nextAttemptAt, job.id
+            """)
+    List<EmailJob> findDueForUpdate(LocalDateTime now, Limit limit);
+
+    long countByNextAttemptAtIsNotNull();
+
+    @Query("""
+            SELECT MIN(job.createdAt)
+            FROM EmailJob job
+            WHERE job.nextAttemptAt IS NOT NULL
+            """)
+    Optional<LocalDateTime> findOldestPendingCreatedAt();
+
+    // Finished jobs only keep duplicates out, and they hold activation codes
+    @Transactional
+    @Modifying
+    @Query("""
+            DELETE FROM EmailJob job
+            WHERE job.nextAttemptAt IS NULL
+            AND job.createdAt < :before
+            """)
+    int deleteFinishedBefore(LocalDateTime before);
+}
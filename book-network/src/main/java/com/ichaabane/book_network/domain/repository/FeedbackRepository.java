@@ -1,11 +1,17 @@
 package com.ichaabane.book_network.domain.repository;
 
 import com.ichaabane.book_network.domain.model.Feedback;
+import com.ichaabane.book_network.domain.projection.FeedbackListVersion;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 public interface FeedbackRepository extends JpaRepository<Feedback, Integer> {
 
     @Query("""
@@ -14,4 +20,31 @@ public interface FeedbackRepository extends JpaRepository<Feedback, Integer> {
             WHERE feedback.book.id = :bookId
             """)
     Page<Feedback> findAllByBookId(Integer bookId, Pageable pageable);
+
+    @Query("""
+            SELECT feedback
+            FROM Feedback feedback
+            WHERE feedback.book.id = :bookId
+            """)
+    Slice<Feedback> findSliceByBookId(Integer bookId, Pageable pageable);
+
+    long countByBookId(Integer bookId);
+
+    @Query("""
+            SELECT COUNT(feedback) AS count,
+                   MAX(feedback.id) AS maxId,
+                   MAX(feedback.createdDate) AS lastCreatedDate
+            FROM Feedback feedback
+            WHERE feedback.book.id = :bookId
+            """)
+    FeedbackListVersion findListVersionByBookId(Integer bookId);
+
+    @Query("""
+            SELECT feedback
+            FROM Feedback feedback
+            WHERE feedback.book.id = :bookId
+            AND (feedback.createdDate, feedback.id) < (:createdDate, :id)
+            ORDER BY feedback.createdDate DESC, feedback.id DESC
+            """)
+    List<Feedback> findAllByBookIdBefore(Integer bookId, LocalDateTime createdDate, Integer id, Limit limit);
 }
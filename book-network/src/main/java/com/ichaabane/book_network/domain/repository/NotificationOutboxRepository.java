@@ -0,0 +1,34 @@
+package com.ichaabane.book_network.domain.repository;
+
+import com.ichaabane.book_network.domain.model.NotificationOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Integer> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): several dispatchers drain the outbox without waiting on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT outbox
+            FROM NotificationOutbox outbox
+            WHERE outbox.nextAttemptAt <= :now
+            ORDER BY outbox.nextAttemptAt, outbox.id
+            """)
+    List<NotificationOutbox> findDueForUpdate(LocalDateTime now, Limit limit);
+
+    @Query("""
+            SELECT MIN(outbox.createdDate)
+            FROM NotificationOutbox outbox
+            """)
+    Optional<LocalDateTime> findOldestCreatedDate();
+}
@@ -1,12 +1,91 @@
 package com.ichaabane.book_network.domain.repository;
 
 import com.ichaabane.book_network.domain.model.Notification;
-import com.ichaabane.book_network.domain.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Integer> {
 
-    List<Notification> findAllByUserOrderByCreatedAtDesc(User user);
+    // Keyset page over idx_notification_user_created_at_id, the id breaks ties between notifications of the same instant
+    @Query("""
+            SELECT notification
+            FROM Notification notification
+            WHERE notification.user.id = :userId
+            AND (notification.createdAt, notification.id) < (:createdAt, :id)
+            ORDER BY notification.createdAt DESC, notification.id DESC
+            """)
+    List<Notification> findPageBefore(Integer userId, LocalDateTime createdAt, Integer id, Limit limit);
+
+    // Unread means above the user's read mark and not read one by one; served by the partial index on unread rows
+    @Query("""
+            SELECT notification
+            FROM Notification notification
+            WHERE notification.user.id = :userId
+            AND notification.read = false
+            AND (notification.createdAt, notification.id) < (:createdAt, :id)
+            AND (notification.createdAt, notification.id) > (:readAt, :readId)
+            ORDER BY notification.createdAt DESC, notification.id DESC
+            """)
+    List<Notification> findUnreadPageBefore(Integer userId, LocalDateTime createdAt, Integer id,
+                                            LocalDateTime readAt, Integer readId, Limit limit);
+
+    // Scans the partial index down to the read mark only, so the cost follows what arrived since the last "read all"
+    @Query("""
+            SELECT count(notification)
+            FROM Notification notification
+            WHERE notification.user.id = :userId
+            AND notification.read = false
+            AND (notification.createdAt, notification.id) > (:readAt, :readId)
+            """)
+    long countUnreadAfter(Integer userId, LocalDateTime readAt, Integer readId);
+
+    /**
+     * Create the monthly partitions that are missing, up to monthsAhead months from now
+     *
+     * @return the number of partitions created
+     */
+    @Transactional
+    @Query(value = "SELECT notification_ensure_partitions(:monthsAhead)", nativeQuery = true)
+    int ensurePartitions(int monthsAhead);
+
+    /**
+     * Drop the partitions holding only notifications created before the cutoff, without any DELETE
+     *
+     * @return the names of the dropped partitions
+     */
+    @Transactional
+    @Query(value = "SELECT notification_drop_partitions(:cutoff)", nativeQuery = true)
+    List<String> dropPartitionsBefore(LocalDateTime cutoff);
+
+    /**
+     * Delete, in the partitions from hotSince on, what is beyond the latest keep notifications of each user.
+     * At most batchSize rows go per call so that no transaction holds locks for long.
+     *
+     * @return the owner of every deleted notification, once per row
+     */
+    @Transactional
+    @Query(value = """
+            WITH extra AS (
+                SELECT id, created_at
+                FROM (SELECT id, created_at,
+                             row_number() OVER (PARTITION BY user_id ORDER BY created_at DESC, id DESC) AS position
+                      FROM notification
+                      WHERE created_at >= :hotSince) ranked
+                WHERE position > :keep
+                LIMIT :batchSize
+            ), removed AS (
+                DELETE FROM notification
+                USING extra
+                WHERE notification.id = extra.id
+                AND notification.created_at = extra.created_at
+                RETURNING notification.user_id
+            )
+            SELECT user_id FROM removed
+            """, nativeQuery = true)
+    List<Integer> compactSince(LocalDateTime hotSince, int keep, int batchSize);
 }
@@ -1,8 +1,14 @@
 package com.ichaabane.book_network.domain.repository;
 
 import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.EntityLabel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
@@ -10,4 +16,68 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
 
     boolean existsByEmail(String email);
+
+    // Only moves forward, a late "read all" from another tab cannot bring older notifications back as unread
+    @Modifying
+    @Query("""
+            UPDATE User user
+            SET user.lastReadNotificationAt = :createdAt, user.lastReadNotificationId = :id
+            WHERE user.id = :userId
+            AND (user.lastReadNotificationAt IS NULL
+                OR (user.lastReadNotificationAt, user.lastReadNotificationId) < (:createdAt, :id))
+            """)
+    int advanceNotificationReadMark(Integer userId, LocalDateTime createdAt, Integer id);
+
+    // The username the notifications used to embed in their message
+    @Query("SELECT user.id AS id, user.email AS label FROM User user WHERE user.id IN :ids")
+    List<EntityLabel> findUsernamesByIds(Collection<Integer> ids);
+
+    @Query("SELECT user.unreadNotifications FROM User user WHERE user.id = :userId")
+    Optional<Integer> findUnreadNotificationsById(Integer userId);
+
+    // Atomic in the database, concurrent dispatchers and reads never lose an update; never goes below zero
+    @Modifying
+    @Query("""
+            UPDATE User user
+            SET user.unreadNotifications = CASE
+                WHEN user.unreadNotifications + :delta < 0 THEN 0
+                ELSE user.unreadNotifications + :delta
+            END
+            WHERE user.id = :userId
+            """)
+    int addUnreadNotifications(Integer userId, int delta);
+
+    @Modifying
+    @Query("UPDATE User user SET user.unreadNotifications = :count WHERE user.id = :userId")
+    int setUnreadNotifications(Integer userId, int count);
+
+    // Counts again from the notifications, after some of them were deleted in bulk
+    @Modifying
+    @Query(value = """
+            UPDATE _user account
+            SET unread_notifications = (SELECT count(*)
+                                        FROM notification
+                                        WHERE notification.user_id = account.id
+                                        AND notification.read = false
+                                        AND (notification.created_at, notification.id)
+                                            > (COALESCE(account.last_read_notification_at, '-infinity'),
+                                               COALESCE(account.last_read_notification_id, 0)))
+            WHERE account.id IN (:userIds)
+            """, nativeQuery = true)
+    int recountUnreadNotifications(Collection<Integer> userIds);
+
+    // Only users with unread notifications can have lost some
+    @Modifying
+    @Query(value = """
+            UPDATE _user account
+            SET unread_notifications = (SELECT count(*)
+                                        FROM notification
+                                        WHERE notification.user_id = account.id
+                                        AND notification.read = false
+                                        AND (notification.created_at, notification.id)
+                                            > (COALESCE(account.last_read_notification_at, '-infinity'),
+                                               COALESCE(account.last_read_notification_id, 0)))
+            WHERE account.unread_notifications > 0
+            """, nativeQuery = true)
+    int recountAllUnreadNotifications();
 }
@@ -0,0 +1,55 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Short lived totals of listing queries, keyed by query name and scope (user or book id).
+ * A total may lag behind the table by up to the TTL, which is acceptable for page counters.
+ * The number of totals kept is bounded, the least used ones are evicted first.
+ */
+@Component
+public class ApproximateCountCache {
+
+    private static final String CACHE_NAME = "page-counts";
+
+    private final Cache<CountKey, Long> counts;
+
+    @Autowired
+    public ApproximateCountCache(MeterRegistry meterRegistry,
+                                 @Value("${application.pagination.count-ttl:30s}") Duration ttl,
+                                 @Value("${application.pagination.count-max-size:10000}") long maxSize) {
+        this(meterRegistry, ttl, maxSize, Ticker.systemTicker());
+    }
+
+    ApproximateCountCache(MeterRegistry meterRegistry, Duration ttl, long maxSize, Ticker ticker) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, CACHE_NAME);
+    }
+
+    public long get(String query, Integer scopeId, LongSupplier counter) {
+        return counts.get(new CountKey(query, scopeId), key -> counter.getAsLong());
+    }
+
+    long size() {
+        counts.cleanUp();
+        return counts.estimatedSize();
+    }
+
+    private record CountKey(String query, Integer scopeId) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ichaabane.book_network.application.dto.response.BookResponse;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Book details served by id, bounded by an estimate of their heap size (W-TinyLFU eviction).
+ * Hits, misses, evictions and invalidations are published as cache metrics under the name "books".
+ * Evictions are relayed to the other instances once the change commits.
+ */
+@Component
+public class BookResponseCache {
+
+    static final String CHANNEL = "book_cache_eviction";
+    private static final String CACHE_NAME = "books";
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Cache<Integer, BookResponse> cache;
+    private final Counter invalidations;
+    private final ClusterMessageBus bus;
+
+    public BookResponseCache(MeterRegistry meterRegistry,
+                             ClusterMessageBus bus,
+                             @Value("${application.cache.books.max-size:16MB}") DataSize maxSize) {
+        this.bus = bus;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Integer id, BookResponse book) -> weigh(book))
+                .recordStats()
+                .build();
+        this.invalidations = Counter.builder("cache.invalidations")
+                .tag("cache", CACHE_NAME)
+                .description("Entries removed because the book changed")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        bus.subscribe(CHANNEL, message -> {
+            JsonNode bookId = message.get("bookId");
+            if (bookId == null || bookId.isNull()) {
+                invalidateAll();
+            } else {
+                invalidate(bookId.asInt());
+            }
+        });
+    }
+
+    public BookResponse get(Integer bookId, Function<Integer, BookResponse> loader) {
+        return cache.get(bookId, loader);
+    }
+
+    /**
+     * Drop a book now and, inside a transaction, again after commit so a concurrent read cannot cache the old row
+     */
+    public void evict(Integer bookId) {
+        evictNowAndAfterCommit(() -> invalidate(bookId), new Eviction(bookId));
+    }
+
+    /**
+     * Drop every book, with the same after-commit handling as {@link #evict(Integer)}
+     */
+    public void evictAll() {
+        evictNowAndAfterCommit(this::invalidateAll, new Eviction(null));
+    }
+
+    private void evictNowAndAfterCommit(Runnable invalidation, Eviction eviction) {
+        invalidation.run();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bus.publish(CHANNEL, eviction);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidation.run();
+                bus.publish(CHANNEL, eviction);
+            }
+        });
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private void invalidate(Integer bookId) {
+        if (cache.asMap().remove(bookId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    private void invalidateAll() {
+        invalidations.increment(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    private static int weigh(BookResponse book) {
+        int chars = Stream.of(book.getTitle(), book.getAuthorName(), book.getIsbn(), book.getSynopsis(),
+                        book.getOwner(), book.getCoverUrl())
+                .mapToInt(value -> value == null ? 0 : value.length())
+                .sum();
+        return ENTRY_OVERHEAD + 2 * chars;
+    }
+
+    // A null book id evicts every book
+    private record Eviction(Integer bookId) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ichaabane.book_network.domain.projection.EntityLabel;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.domain.repository.UserRepository;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Book titles and usernames shown in notifications, which only store the ids.
+ * Missing entries are loaded with one query per batch of notifications. A book is evicted when it is saved,
+ * on every instance once the change commits. A changed email shows up once its entry expires.
+ */
+@Component
+public class NotificationLabelCache {
+
+    static final String CHANNEL = "notification_label_eviction";
+
+    private final Cache<Integer, String> bookTitles;
+    private final Cache<Integer, String> usernames;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final ClusterMessageBus bus;
+
+    public NotificationLabelCache(BookRepository bookRepository,
+                                  UserRepository userRepository,
+                                  ClusterMessageBus bus,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.notification.labels.max-size:100000}") long maxSize,
+                                  @Value("${application.notification.labels.expire-after-write:1h}") Duration expireAfterWrite) {
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.bus = bus;
+        this.bookTitles = build(maxSize, expireAfterWrite);
+        this.usernames = build(maxSize, expireAfterWrite);
+        CaffeineCacheMetrics.monitor(meterRegistry, bookTitles, "notification-book-titles");
+        CaffeineCacheMetrics.monitor(meterRegistry, usernames, "notification-usernames");
+        bus.subscribe(CHANNEL, message -> bookTitles.invalidate(message.asInt()));
+    }
+
+    /**
+     * @return the title of each book that still exists, deleted books are left out
+     */
+    public Map<Integer, String> bookTitles(Collection<Integer> bookIds) {
+        return lookup(bookTitles, bookIds, bookRepository::findTitlesByIds);
+    }
+
+    public Map<Integer, String> usernames(Collection<Integer> userIds) {
+        return lookup(usernames, userIds, userRepository::findUsernamesByIds);
+    }
+
+    /**
+     * Drop a title now and, inside a transaction, again after commit so a concurrent read cannot cache the old one
+     */
+    public void evictBook(Integer bookId) {
+        bookTitles.invalidate(bookId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bus.publish(CHANNEL, bookId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bookTitles.invalidate(bookId);
+                bus.publish(CHANNEL, bookId);
+            }
+        });
+    }
+
+    private static Map<Integer, String> lookup(Cache<Integer, String> cache, Collection<Integer> ids,
+                                               Function<Collection<Integer>, List<EntityLabel>> loader) {
+        List<Integer> keys = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        return cache.getAll(keys, missing -> loader.apply(List.copyOf(missing)).stream()
+                .filter(label -> label.getLabel() != null)
+                .collect(Collectors.toMap(EntityLabel::getId, EntityLabel::getLabel)));
+    }
+
+    private static Cache<Integer, String> build(long maxSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.repository.UserRepository;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import com.ichaabane.book_network.infrastructure.messaging.UserMessageFanout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessagingException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unread notification badge per user, kept in memory and in the _user row.
+ * The row is changed in the caller's transaction, the memory copy and the WebSocket push
+ * on "/user/{id}/notifications/count" follow once it commits, so reading the badge never queries the database.
+ * The other instances drop their copy of the changed badges then, and read the row again on the next access.
+ */
+@Component
+@Slf4j
+public class UnreadNotificationCounter {
+
+    public static final String DESTINATION = "/notifications/count";
+    static final String CHANNEL = "unread_count_eviction";
+    private static final String CACHE_NAME = "unread-notifications";
+    private static final int MAX_IDS_PER_MESSAGE = 500;
+
+    // LongAdder stripes the increments of a user flooded with notifications across cells
+    private final Cache<Integer, LongAdder> counts;
+    private final UserRepository userRepository;
+    private final UserMessageFanout messagingFanout;
+    private final ClusterMessageBus bus;
+
+    public UnreadNotificationCounter(UserRepository userRepository,
+                                     UserMessageFanout messagingFanout,
+                                     ClusterMessageBus bus,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${application.notification.unread-counter.max-users:100000}") long maxUsers) {
+        this.userRepository = userRepository;
+        this.messagingFanout = messagingFanout;
+        this.bus = bus;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, CACHE_NAME);
+        bus.subscribe(CHANNEL, message -> {
+            JsonNode userIds = message.get("userIds");
+            if (userIds == null || userIds.isNull()) {
+                counts.invalidateAll();
+            } else {
+                userIds.forEach(userId -> counts.invalidate(userId.asInt()));
+            }
+        });
+    }
+
+    /**
+     * @param user the authenticated user, loaded for the current request, seeds the memory copy on a miss
+     */
+    public long get(User user) {
+        return value(counts.get(user.getId(), id -> adder(user.getUnreadNotifications())));
+    }
+
+    public void add(Integer userId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        userRepository.addUnreadNotifications(userId, delta);
+        afterCommit(() -> {
+            LongAdder adder = counts.getIfPresent(userId);
+            if (adder == null) {
+                // Loaded after the commit, the row already holds the delta
+                adder = counts.get(userId, this::load);
+            } else {
+                adder.add(delta);
+            }
+            push(userId, value(adder));
+            bus.publish(CHANNEL, new Eviction(List.of(userId)));
+        });
+    }
+
+    public void set(Integer userId, int count) {
+        userRepository.setUnreadNotifications(userId, count);
+        afterCommit(() -> {
+            counts.put(userId, adder(count));
+            push(userId, count);
+            bus.publish(CHANNEL, new Eviction(List.of(userId)));
+        });
+    }
+
+    /**
+     * Count again the badges of users who lost notifications in bulk, they reload from their row once it commits
+     */
+    public void recount(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        userRepository.recountUnreadNotifications(userIds);
+        afterCommit(() -> {
+            counts.invalidateAll(userIds);
+            // Kept well under the NOTIFY payload limit
+            List<Integer> ids = List.copyOf(userIds);
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_MESSAGE) {
+                bus.publish(CHANNEL, new Eviction(ids.subList(from, Math.min(from + MAX_IDS_PER_MESSAGE, ids.size()))));
+            }
+        });
+    }
+
+    public void recountAll() {
+        userRepository.recountAllUnreadNotifications();
+        afterCommit(() -> {
+            counts.invalidateAll();
+            bus.publish(CHANNEL, new Eviction(null));
+        });
+    }
+
+    long size() {
+        counts.cleanUp();
+        return counts.estimatedSize();
+    }
+
+    private LongAdder load(Integer userId) {
+        return adder(userRepository.findUnreadNotificationsById(userId).orElse(0));
+    }
+
+    private void push(Integer userId, long count) {
+        try {
+            messagingFanout.convertAndSendToUser(userId.toString(), DESTINATION, Map.of("count", count));
+        } catch (MessagingException e) {
+            // The badge is read again with the next page load, a missed push is not retried
+            log.debug("Could not push the unread count of user {}", userId, e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static LongAdder adder(long initial) {
+        LongAdder adder = new LongAdder();
+        adder.add(initial);
+        return adder;
+    }
+
+    // A decrement racing a reset can go below zero in memory for a moment
+    private static long value(LongAdder adder) {
+        return Math.max(0, adder.sum());
+    }
+
+    // Null user ids drop every badge
+    private record Eviction(List<Integer> userIds) {
+    }
+}
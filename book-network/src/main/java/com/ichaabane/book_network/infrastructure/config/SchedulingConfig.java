@@ -0,0 +1,20 @@
+package com.ichaabane.book_network.infrastructure.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    /*
+     * The STOMP broker registers its own TaskScheduler, so Spring Boot does not create the default one:
+     * without this bean the @Scheduled jobs would share the broker's heartbeat threads and ignore
+     * spring.task.scheduling. With two schedulers, @Scheduled picks the one named taskScheduler.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -1,20 +1,28 @@
 package com.ichaabane.book_network.infrastructure.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.ichaabane.book_network.infrastructure.messaging.SessionOutboundQueue;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.messaging.converter.DefaultContentTypeResolver;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.messaging.context.AuthenticationPrincipalArgumentResolver;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -22,12 +30,40 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 @Configuration
 @EnableWebSocketMessageBroker
 @Order(Ordered.HIGHEST_PRECEDENCE + 99)
-@RequiredArgsConstructor
 public class WebsocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final TaskScheduler messageBrokerTaskScheduler;
+    private final SessionOutboundQueue sessionOutboundQueue;
+    private final Duration heartbeat;
+    private final Duration sendTimeLimit;
+    private final DataSize sendBufferSizeLimit;
+    private final DataSize messageSizeLimit;
+    private final Duration timeToFirstMessage;
+
+    public WebsocketConfig(
+            // Created by this configuration itself, hence lazy
+            @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler,
+            SessionOutboundQueue sessionOutboundQueue,
+            @Value("${application.websocket.heartbeat:10s}") Duration heartbeat,
+            @Value("${application.websocket.send-time-limit:10s}") Duration sendTimeLimit,
+            @Value("${application.websocket.send-buffer-size-limit:512KB}") DataSize sendBufferSizeLimit,
+            @Value("${application.websocket.message-size-limit:64KB}") DataSize messageSizeLimit,
+            @Value("${application.websocket.time-to-first-message:30s}") Duration timeToFirstMessage) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+        this.sessionOutboundQueue = sessionOutboundQueue;
+        this.heartbeat = heartbeat;
+        this.sendTimeLimit = sendTimeLimit;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+        this.timeToFirstMessage = timeToFirstMessage;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/user");
+        // Sessions that stop sending heartbeats are closed by the broker, dead mobile connections do not linger
+        registry.enableSimpleBroker("/user")
+                .setHeartbeatValue(new long[]{heartbeat.toMillis(), heartbeat.toMillis()})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
     }
@@ -37,6 +73,23 @@ public class WebsocketConfig implements WebSocketMessageBrokerConfigurer {
         argumentResolvers.add(new AuthenticationPrincipalArgumentResolver());
     }
 
+    /*
+     * A session that cannot take its frames within send-time-limit, or falls send-buffer-size-limit behind,
+     * is closed instead of holding memory for a client that is gone.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit((int) sendTimeLimit.toMillis())
+                .setSendBufferSizeLimit((int) sendBufferSizeLimit.toBytes())
+                .setMessageSizeLimit((int) messageSizeLimit.toBytes())
+                .setTimeToFirstMessage((int) timeToFirstMessage.toMillis());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(sessionOutboundQueue);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
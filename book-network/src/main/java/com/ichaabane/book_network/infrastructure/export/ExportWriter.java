@@ -0,0 +1,116 @@
+package com.ichaabane.book_network.infrastructure.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvFactory;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.ichaabane.book_network.domain.enums.DataFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes rows one at a time with a Jackson streaming generator, so an export never holds more than one row.
+ * NDJSON rows are objects keyed by column name, CSV rows start with a header line.
+ */
+public class ExportWriter implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder()
+            .rootValueSeparator("\n")
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private static final CsvFactory CSV_FACTORY = CsvFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final JsonGenerator generator;
+    private final List<String> columns;
+    private final boolean csv;
+    private long rows;
+
+    private ExportWriter(JsonGenerator generator, List<String> columns, boolean csv) {
+        this.generator = generator;
+        this.columns = columns;
+        this.csv = csv;
+    }
+
+    public static ExportWriter open(DataFormat format, OutputStream output, List<String> columns) throws IOException {
+        if (format == DataFormat.CSV) {
+            CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+            columns.forEach(schema::addColumn);
+            JsonGenerator generator = CSV_FACTORY.createGenerator(output);
+            generator.setSchema(schema.build());
+            return new ExportWriter(generator, columns, true);
+        }
+        return new ExportWriter(JSON_FACTORY.createGenerator(output), columns, false);
+    }
+
+    /**
+     * @param values one value per column, in column order
+     */
+    public void write(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values, got " + values.length);
+        }
+        if (csv) {
+            generator.writeStartArray();
+        } else {
+            generator.writeStartObject();
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!csv) {
+                generator.writeFieldName(columns.get(i));
+            }
+            writeValue(values[i]);
+        }
+        if (csv) {
+            generator.writeEndArray();
+        } else {
+            generator.writeEndObject();
+        }
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null && csv) {
+            // CsvGenerator buffers nulls out of column order inside a row array, an empty cell is the same thing
+            generator.writeString("");
+        } else if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else {
+            // Dates are written with toString, which is ISO-8601 for java.time types
+            generator.writeString(value.toString());
+        }
+    }
+
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * Flushes the generator, the underlying stream is left open for its owner to close
+     */
+    @Override
+    public void close() throws IOException {
+        if (!csv && rows > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+}
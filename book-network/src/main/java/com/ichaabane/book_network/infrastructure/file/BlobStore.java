@@ -0,0 +1,35 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Storage backend for uploaded files. Keys are the locations persisted on the entities (e.g. Book.bookCover).
+ */
+public interface BlobStore {
+
+    boolean exists(String key);
+
+    /**
+     * Store the content of a local temporary file under the key, replacing any previous content.
+     * The source file is consumed: moved or deleted once stored.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * @return the stored content, or null if nothing is stored under the key
+     */
+    Resource load(String key);
+
+    boolean delete(String key) throws IOException;
+
+    /**
+     * @return when the content was last stored or touched, or null if nothing is stored under the key
+     */
+    Instant lastModified(String key);
+
+    void touch(String key) throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import lombok.Getter;
+
+/**
+ * Downscaled JPEG copies of a cover, bounded by their largest side in pixels
+ */
+@Getter
+public enum CoverRendition {
+    SMALL(64),
+    MEDIUM(256),
+    LARGE(1024);
+
+    private final int pixels;
+
+    CoverRendition(int pixels) {
+        this.pixels = pixels;
+    }
+
+    public String versionOf(String originalVersion) {
+        return originalVersion + "_" + pixels;
+    }
+
+    /**
+     * Smallest rendition at least as large as the requested size, the largest one beyond it
+     */
+    public static CoverRendition forSize(int requestedPixels) {
+        for (CoverRendition rendition : values()) {
+            if (rendition.pixels >= requestedPixels) {
+                return rendition;
+            }
+        }
+        return LARGE;
+    }
+}
@@ -2,6 +2,8 @@ package com.ichaabane.book_network.infrastructure.file;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 
 import java.io.File;
 import java.io.IOException;
@@ -28,4 +30,38 @@ public class FileUtils {
         }
         return new byte[0];
     }
+
+    public static Resource loadFileAsResource(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+        Resource resource = new FileSystemResource(fileUrl);
+        if (!resource.isReadable()) {
+            log.warn("No file found at {}", fileUrl);
+            return null;
+        }
+        return resource;
+    }
+
+    /**
+     * Version of a stored file, derived from its name so it can be computed without touching the disk.
+     */
+    public static String getFileVersion(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+        return StringUtils.substringBeforeLast(new File(fileUrl).getName(), ".");
+    }
+
+    /**
+     * Location of a rendition, next to the original: {version}_{pixels}.jpg
+     */
+    public static String getRenditionPath(String fileUrl, CoverRendition rendition) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+        File original = new File(fileUrl);
+        String name = rendition.versionOf(getFileVersion(fileUrl)) + ".jpg";
+        return original.getParent() == null ? name : original.getParent() + File.separator + name;
+    }
 }
@@ -0,0 +1,111 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class ImageRenditions {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private ImageRenditions() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Decode the original once and write every rendition to a temporary JPEG in the directory, largest first
+     * so each one is scaled from the previous. Returns the written files, or an empty map if the content is
+     * not a readable image.
+     */
+    public static Map<CoverRendition, Path> writeRenditions(InputStream original, Path directory) throws IOException {
+        BufferedImage image = decode(original, CoverRendition.LARGE.getPixels());
+        if (image == null) {
+            return Map.of();
+        }
+        Map<CoverRendition, Path> written = new EnumMap<>(CoverRendition.class);
+        CoverRendition[] renditions = CoverRendition.values();
+        for (int i = renditions.length - 1; i >= 0; i--) {
+            image = scale(image, renditions[i].getPixels());
+            written.put(renditions[i], writeJpeg(image, directory));
+        }
+        return written;
+    }
+
+    // Subsample while decoding so a huge upload never materializes at full resolution
+    private static BufferedImage decode(InputStream original, int targetPixels) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, largestSide / (targetPixels * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxPixels) {
+        int largestSide = Math.max(source.getWidth(), source.getHeight());
+        double ratio = Math.min(1.0, (double) maxPixels / largestSide);
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        // JPEG has no alpha channel, transparent covers are flattened on white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static Path writeJpeg(BufferedImage image, Path directory) throws IOException {
+        Path target = Files.createTempFile(directory, "rendition", ".jpg");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        return target;
+    }
+}
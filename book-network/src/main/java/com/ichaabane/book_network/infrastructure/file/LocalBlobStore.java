@@ -0,0 +1,63 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+/**
+ * One file per key, the key being the file path.
+ */
+@Component
+@ConditionalOnProperty(name = "application.file.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    @Override
+    public boolean exists(String key) {
+        return StringUtils.isNotBlank(key) && Files.exists(Paths.get(key));
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = Paths.get(key);
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Resource load(String key) {
+        return FileUtils.loadFileAsResource(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return StringUtils.isNotBlank(key) && Files.deleteIfExists(Paths.get(key));
+    }
+
+    @Override
+    public Instant lastModified(String key) {
+        if (!exists(key)) {
+            return null;
+        }
+        try {
+            return Files.getLastModifiedTime(Paths.get(key)).toInstant();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        Files.setLastModifiedTime(Paths.get(key), FileTime.from(Instant.now()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view over a slice of a memory-mapped pack segment.
+ */
+public class MappedBlobResource extends AbstractResource {
+
+    private final ByteBuffer content;
+    private final String key;
+    private final long lastModified;
+
+    public MappedBlobResource(ByteBuffer content, String key, long lastModified) {
+        this.content = content.asReadOnlyBuffer();
+        this.key = key;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+        int separator = Math.max(key.lastIndexOf('/'), key.lastIndexOf('\\'));
+        return key.substring(separator + 1);
+    }
+
+    @Override
+    public long contentLength() {
+        return content.remaining();
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer buffer = content.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+                buffer.position(buffer.position() + count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+
+    @Override
+    public String getDescription() {
+        return "Pack blob [" + key + "]";
+    }
+}
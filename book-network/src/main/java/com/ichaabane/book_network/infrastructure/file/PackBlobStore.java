@@ -0,0 +1,381 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only pack files: small blobs are appended to large segment files instead of living in one file each.
+ * <p>
+ * Record layout: magic, flags, key length, data length, timestamp, CRC32 of key and data, key, data.
+ * The offset index (key to segment, offset, length) is kept in memory and rebuilt at startup by scanning
+ * the segments in order, later records overriding earlier ones. Reads are slices of a read-only
+ * {@link MappedByteBuffer}, so serving a cover costs no open() and no copy to the heap.
+ * <p>
+ * Deletes and overwrites only append; the bytes they make unreachable are counted per segment and
+ * a scheduled compaction copies the live records of mostly-dead sealed segments forward, then drops them.
+ */
+@Component
+@ConditionalOnProperty(name = "application.file.storage.type", havingValue = "pack")
+@Slf4j
+public class PackBlobStore implements BlobStore {
+
+    private static final int MAGIC = 0x424C4F42;
+    private static final byte LIVE = 0;
+    private static final byte DELETED = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 8 + 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final double compactionThreshold;
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile Segment active;
+
+    public PackBlobStore(
+            @Value("${application.file.upload.photos-output-path}") String uploadPath,
+            @Value("${application.file.storage.pack.segment-size:256MB}") DataSize segmentSize,
+            @Value("${application.file.storage.pack.compaction-threshold:0.5}") double compactionThreshold
+    ) {
+        this(Paths.get(uploadPath, "packs"), segmentSize.toBytes(), compactionThreshold);
+    }
+
+    PackBlobStore(Path directory, long segmentSize, double compactionThreshold) {
+        // Offsets are ints so that records can be sliced from a single mapping
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Segment size must be between 1 byte and 1GB");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open pack store at " + directory, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return key != null && index.containsKey(key);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            synchronized (writeLock) {
+                Entry entry = append(key, LIVE, data, System.currentTimeMillis());
+                markDead(index.put(key, entry));
+            }
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public Resource load(String key) {
+        Entry entry = key == null ? null : index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return new MappedBlobResource(entry.segment().slice(entry.dataOffset(), entry.length()), key, entry.timestamp());
+        } catch (IOException e) {
+            log.warn("Could not read {} from {} {}", key, entry.segment().path, String.valueOf(e));
+            return null;
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        synchronized (writeLock) {
+            Entry previous = index.remove(key);
+            if (previous == null) {
+                return false;
+            }
+            Entry tombstone = append(key, DELETED, ByteBuffer.allocate(0), System.currentTimeMillis());
+            markDead(previous);
+            markDead(tombstone);
+            return true;
+        }
+    }
+
+    @Override
+    public Instant lastModified(String key) {
+        Entry entry = key == null ? null : index.get(key);
+        return entry == null ? null : Instant.ofEpochMilli(entry.timestamp());
+    }
+
+    /**
+     * Only refreshes the in-memory timestamp: after a restart the time of the last write is used again.
+     */
+    @Override
+    public void touch(String key) {
+        index.computeIfPresent(key, (k, entry) -> entry.withTimestamp(System.currentTimeMillis()));
+    }
+
+    @Scheduled(fixedDelayString = "${application.file.storage.pack.compaction-interval:10m}")
+    public void compact() {
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment != active && segment.deadBytes.get() >= segment.size * compactionThreshold) {
+                try {
+                    compact(segment);
+                } catch (IOException e) {
+                    log.error("Could not compact {}", segment.path, e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private void compact(Segment segment) throws IOException {
+        ByteBuffer map = segment.mapFully();
+        boolean oldest = segments.firstKey() == segment.id;
+        long copied = 0;
+        int position = 0;
+        while (position < segment.size) {
+            Record record = Record.read(map, position);
+            synchronized (writeLock) {
+                Entry current = index.get(record.key());
+                if (record.flags() == LIVE) {
+                    if (current != null && current.segment() == segment && current.dataOffset() == record.dataOffset()) {
+                        ByteBuffer data = map.slice(record.dataOffset(), record.dataLength());
+                        index.put(record.key(), append(record.key(), LIVE, data, current.timestamp()));
+                        copied++;
+                    }
+                } else if (!oldest && current == null) {
+                    // An older segment may still hold a record for this key, keep it shadowed
+                    markDead(append(record.key(), DELETED, ByteBuffer.allocate(0), record.timestamp()));
+                }
+            }
+            position = record.end();
+        }
+        synchronized (writeLock) {
+            active.channel.force(false);
+            segments.remove(segment.id);
+            segment.channel.close();
+        }
+        // Readers that resolved an entry before the copy still hold the mapping, which outlives the file
+        Files.delete(segment.path);
+        log.info("Compacted {}: {} live records moved, {} bytes reclaimed", segment.path, copied, segment.size);
+    }
+
+    private Entry append(String key, byte flags, ByteBuffer data, long timestamp) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int dataLength = data.remaining();
+        long recordLength = (long) HEADER_SIZE + keyBytes.length + dataLength;
+        Segment segment = active;
+        if (segment.size > 0 && segment.size + recordLength > segmentSize) {
+            segment.channel.force(false);
+            segment = openSegment(segment.id + 1);
+            active = segment;
+        }
+        if (segment.size + recordLength > Integer.MAX_VALUE) {
+            throw new IOException("Blob of " + dataLength + " bytes does not fit in a pack segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(data.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length)
+                .putInt(MAGIC)
+                .put(flags)
+                .putInt(keyBytes.length)
+                .putInt(dataLength)
+                .putLong(timestamp)
+                .putInt((int) crc.getValue())
+                .put(keyBytes)
+                .flip();
+        long position = segment.size;
+        writeFully(segment.channel, header, position);
+        writeFully(segment.channel, data.duplicate(), position + HEADER_SIZE + keyBytes.length);
+        if (flags == LIVE) {
+            segment.channel.force(false);
+        }
+        segment.size = position + recordLength;
+        return new Entry(segment, (int) (position + HEADER_SIZE + keyBytes.length), dataLength, (int) recordLength, timestamp);
+    }
+
+    private void markDead(Entry entry) {
+        if (entry != null) {
+            entry.segment().deadBytes.addAndGet(entry.recordLength());
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> ids.add(Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        ids.sort(null);
+        for (int i = 0; i < ids.size(); i++) {
+            scan(openSegment(ids.get(i)), i == ids.size() - 1);
+        }
+        active = segments.isEmpty() ? openSegment(1) : segments.lastEntry().getValue();
+        log.info("Pack store {} opened: {} segments, {} blobs", directory, segments.size(), index.size());
+    }
+
+    // Only the last segment can end with a torn write, its records are checked against their CRC
+    private void scan(Segment segment, boolean verify) throws IOException {
+        long fileSize = segment.channel.size();
+        ByteBuffer map = fileSize == 0 ? ByteBuffer.allocate(0) : segment.mapFully();
+        int position = 0;
+        while (position < fileSize) {
+            Record record = Record.read(map, position);
+            if (record == null || (verify && !record.isValid(map))) {
+                break;
+            }
+            Entry entry = new Entry(segment, record.dataOffset(), record.dataLength(), record.end() - position, record.timestamp());
+            if (record.flags() == LIVE) {
+                markDead(index.put(record.key(), entry));
+            } else {
+                markDead(index.remove(record.key()));
+                markDead(entry);
+            }
+            position = record.end();
+        }
+        if (position < fileSize) {
+            log.warn("Truncating {} at {}: {} trailing bytes are not a complete record", segment.path, position, fileSize - position);
+            segment.channel.truncate(position);
+        }
+        segment.size = position;
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%06d", id) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private record Entry(Segment segment, int dataOffset, int length, int recordLength, long timestamp) {
+
+        Entry withTimestamp(long timestamp) {
+            return new Entry(segment, dataOffset, length, recordLength, timestamp);
+        }
+    }
+
+    private record Record(byte flags, String key, int keyOffset, int dataOffset, int dataLength, long timestamp, int crc) {
+
+        int end() {
+            return dataOffset + dataLength;
+        }
+
+        boolean isValid(ByteBuffer map) {
+            CRC32 check = new CRC32();
+            check.update(map.slice(keyOffset, dataOffset - keyOffset));
+            check.update(map.slice(dataOffset, dataLength));
+            return (int) check.getValue() == crc;
+        }
+
+        /**
+         * @return the record at the position, or null if the bytes there are not a complete record
+         */
+        static Record read(ByteBuffer map, int position) {
+            if ((long) position + HEADER_SIZE > map.limit() || map.getInt(position) != MAGIC) {
+                return null;
+            }
+            byte flags = map.get(position + 4);
+            int keyLength = map.getInt(position + 5);
+            int dataLength = map.getInt(position + 9);
+            long timestamp = map.getLong(position + 13);
+            int crc = map.getInt(position + 21);
+            int keyOffset = position + HEADER_SIZE;
+            if (keyLength < 0 || dataLength < 0 || (long) keyOffset + keyLength + dataLength > map.limit()) {
+                return null;
+            }
+            byte[] key = new byte[keyLength];
+            map.get(keyOffset, key);
+            return new Record(flags, new String(key, StandardCharsets.UTF_8), keyOffset, keyOffset + keyLength, dataLength, timestamp, crc);
+        }
+    }
+
+    private static final class Segment {
+
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong deadBytes = new AtomicLong();
+        // Guarded by writeLock once the store is open
+        private long size;
+        private volatile MappedByteBuffer map;
+
+        private Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        ByteBuffer slice(int offset, int length) throws IOException {
+            MappedByteBuffer current = map;
+            if (current == null || (long) offset + length > current.capacity()) {
+                current = remap((long) offset + length);
+            }
+            return current.slice(offset, length);
+        }
+
+        ByteBuffer mapFully() throws IOException {
+            return remap(channel.size());
+        }
+
+        // The active segment grows after it has been mapped, a larger mapping replaces the old one
+        private synchronized MappedByteBuffer remap(long minimumSize) throws IOException {
+            MappedByteBuffer current = map;
+            if (current == null || minimumSize > current.capacity()) {
+                current = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                map = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ichaabane.book_network.presentation.handler.ExceptionResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Rejects multipart requests whose declared Content-Length is over the limit
+ * before the body is read, parsed or authenticated.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class UploadSizeLimitFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+    private final long maxRequestSize;
+
+    public UploadSizeLimitFilter(
+            ObjectMapper objectMapper,
+            @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize
+    ) {
+        this.objectMapper = objectMapper;
+        this.maxRequestSize = maxRequestSize.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null || !contentType.toLowerCase().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        long contentLength = request.getContentLengthLong();
+        if (maxRequestSize >= 0 && contentLength > maxRequestSize) {
+            log.warn("Rejected upload of {} bytes on {}", contentLength, request.getRequestURI());
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            // Without this the container would try to drain the whole body to keep the connection alive
+            response.setHeader("Connection", "close");
+            objectMapper.writeValue(response.getOutputStream(), ExceptionResponse.builder()
+                    .error("Upload exceeds the maximum size of " + maxRequestSize + " bytes")
+                    .build());
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,330 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Messages between the instances of the application, over Postgres LISTEN/NOTIFY.
+ * <p>
+ * Publishing only queues the message: a publisher thread sends the queue in batches on a connection it keeps,
+ * and a listener thread receives the other instances' messages on another one. The bus therefore holds two
+ * connections of the pool for good, whatever the traffic, and callers never wait for the database.
+ * An instance does not receive its own messages.
+ * <p>
+ * Delivery is best effort: a message is dropped when the queue is full, and an instance that is reconnecting
+ * misses what was published meanwhile.
+ */
+@Component
+@Slf4j
+public class ClusterMessageBus implements SmartLifecycle {
+
+    // Postgres rejects NOTIFY payloads of 8000 bytes or more
+    static final int MAX_PAYLOAD_BYTES = 7999;
+    private static final int MAX_BATCH = 100;
+    // One statement per batch, in auto-commit: the batch is a single transaction, so Postgres delivers it in order
+    // and collapses identical messages to the same channel into one
+    private static final String NOTIFY_BATCH =
+            "SELECT pg_notify(m.channel, m.payload) FROM unnest(?::text[], ?::text[]) AS m(channel, payload)";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final Duration reconnectDelay;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<Outgoing> outgoing;
+    private final Map<String, List<Consumer<JsonNode>>> handlers = new ConcurrentHashMap<>();
+    // Only touched by the publisher thread
+    private final List<Outgoing> pending = new ArrayList<>();
+    private Connection publisherConnection;
+
+    private volatile boolean running;
+    private Thread listener;
+    private Thread publisher;
+
+    public ClusterMessageBus(DataSource dataSource,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.cluster.bus.enabled:true}") boolean enabled,
+                             @Value("${application.cluster.bus.poll-interval:1s}") Duration pollInterval,
+                             @Value("${application.cluster.bus.reconnect-delay:5s}") Duration reconnectDelay,
+                             @Value("${application.cluster.bus.queue-size:10000}") int queueSize) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+        this.reconnectDelay = reconnectDelay;
+        this.outgoing = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Handle the messages other instances publish on a channel. Subscribe while the application starts,
+     * the listener only listens to the channels known when it connects.
+     */
+    public void subscribe(String channel, Consumer<JsonNode> handler) {
+        handlers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * Queue a message for the other instances, never throws
+     *
+     * @return whether the message was queued
+     */
+    public boolean publish(String channel, Object payload) {
+        if (!enabled) {
+            return false;
+        }
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(new Envelope(nodeId, objectMapper.valueToTree(payload)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.warn("Could not serialize a message for channel {}", channel, e);
+            return false;
+        }
+        if (message.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            count("cluster.bus.oversized", channel);
+            log.warn("Message for channel {} is too large to reach the other instances", channel);
+            return false;
+        }
+        if (!outgoing.offer(new Outgoing(channel, message))) {
+            count("cluster.bus.dropped", channel);
+            log.debug("Cluster bus queue is full, dropping a message for channel {}", channel);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Send the queued messages on the calling thread
+     *
+     * @return false when the database could not take them, they are sent again on the next flush
+     */
+    boolean flush() {
+        outgoing.drainTo(pending, MAX_BATCH - pending.size());
+        if (pending.isEmpty()) {
+            return true;
+        }
+        try {
+            send(pending);
+            pending.forEach(message -> count("cluster.bus.published", message.channel()));
+            pending.clear();
+            return true;
+        } catch (SQLException e) {
+            count("cluster.bus.failures", pending.get(0).channel());
+            log.warn("Could not publish {} messages to the other instances, retrying in {}", pending.size(), reconnectDelay, e);
+            closePublisherConnection();
+            return false;
+        }
+    }
+
+    private void send(List<Outgoing> batch) throws SQLException {
+        if (publisherConnection == null) {
+            publisherConnection = dataSource.getConnection();
+            publisherConnection.setAutoCommit(true);
+        }
+        try (PreparedStatement statement = publisherConnection.prepareStatement(NOTIFY_BATCH)) {
+            statement.setArray(1, publisherConnection.createArrayOf("text",
+                    batch.stream().map(Outgoing::channel).toArray()));
+            statement.setArray(2, publisherConnection.createArrayOf("text",
+                    batch.stream().map(Outgoing::message).toArray()));
+            statement.execute();
+        }
+    }
+
+    void receive(String channel, String message) {
+        List<Consumer<JsonNode>> channelHandlers = handlers.get(channel);
+        if (channelHandlers == null) {
+            return;
+        }
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(message, Envelope.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed message on channel {}", channel, e);
+            return;
+        }
+        if (nodeId.equals(envelope.node())) {
+            return;
+        }
+        count("cluster.bus.received", channel);
+        for (Consumer<JsonNode> handler : channelHandlers) {
+            try {
+                handler.accept(envelope.payload());
+            } catch (RuntimeException e) {
+                log.warn("Could not handle a message on channel {}", channel, e);
+            }
+        }
+    }
+
+    private void publishLoop() {
+        while (running) {
+            try {
+                if (pending.isEmpty()) {
+                    Outgoing next = outgoing.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        continue;
+                    }
+                    pending.add(next);
+                }
+                if (!flush()) {
+                    pause(reconnectDelay);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+        closePublisherConnection();
+    }
+
+    /*
+     * Holds one pooled connection for as long as it listens. The listener waits at most poll-interval
+     * for notifications, which bounds how long stopping takes.
+     */
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : handlers.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                log.info("Listening for messages from the other instances on {}", handlers.keySet());
+                try {
+                    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications((int) pollInterval.toMillis());
+                        if (notifications != null) {
+                            for (PGNotification notification : notifications) {
+                                receive(notification.getName(), notification.getParameter());
+                            }
+                        }
+                    }
+                } finally {
+                    unlisten(connection);
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the cluster bus listener connection, reconnecting in {}", reconnectDelay, e);
+                    pause(reconnectDelay);
+                }
+            }
+        }
+    }
+
+    // The connection goes back to the pool, it must not keep receiving notifications there
+    private static void unlisten(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UNLISTEN *");
+        } catch (SQLException e) {
+            log.debug("Could not unlisten a closing connection", e);
+        }
+    }
+
+    private void closePublisherConnection() {
+        if (publisherConnection == null) {
+            return;
+        }
+        try {
+            publisherConnection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close the publisher connection", e);
+        }
+        publisherConnection = null;
+    }
+
+    private void pause(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void count(String name, String channel) {
+        meterRegistry.counter(name, "channel", channel).increment();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listener = daemon(this::listen, "cluster-bus-listener");
+        publisher = daemon(this::publishLoop, "cluster-bus-publisher");
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        join(listener);
+        join(publisher);
+        listener = null;
+        publisher = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(pollInterval.multipliedBy(2).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Envelope(String node, JsonNode payload) {
+    }
+
+    private record Outgoing(String channel, String message) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the bytes waiting in the client outbound channel, per STOMP session.
+ * A session whose backlog is over max-queued-bytes is a slow consumer: its new frames are dropped
+ * until it catches up, instead of piling up in the channel's executor queue for everyone.
+ * Dropped notifications are still in the inbox.
+ */
+@Component
+@Slf4j
+public class SessionOutboundQueue implements ExecutorChannelInterceptor {
+
+    private final Map<String, Long> queuedBytes = new ConcurrentHashMap<>();
+    private final AtomicLong totalQueuedBytes = new AtomicLong();
+    private final long maxQueuedBytes;
+    private final DistributionSummary sessionQueue;
+    private final Counter dropped;
+
+    public SessionOutboundQueue(MeterRegistry meterRegistry,
+                                @Value("${application.websocket.max-queued-bytes:1MB}") DataSize maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes.toBytes();
+        this.sessionQueue = DistributionSummary.builder("websocket.session.queued")
+                .description("Bytes waiting for a session when one more frame is queued for it")
+                .baseUnit("bytes")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.dropped = Counter.builder("websocket.session.dropped")
+                .description("Frames dropped because their session was too far behind")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queued", totalQueuedBytes, AtomicLong::get)
+                .description("Bytes waiting in the client outbound channel, all sessions together")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.sessions", queuedBytes, Map::size)
+                .description("Sessions with frames waiting in the client outbound channel")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        int size = size(message);
+        if (sessionId == null || size == 0) {
+            return message;
+        }
+        boolean[] full = {false};
+        Long backlog = queuedBytes.compute(sessionId, (id, queued) -> {
+            long current = queued == null ? 0 : queued;
+            // A frame alone always goes through, even one larger than the limit
+            if (current > 0 && current + size > maxQueuedBytes) {
+                full[0] = true;
+                return queued;
+            }
+            return current + size;
+        });
+        if (full[0]) {
+            dropped.increment();
+            log.debug("Dropping a {} bytes frame for slow session {}", size, sessionId);
+            return null;
+        }
+        sessionQueue.record(backlog);
+        totalQueuedBytes.addAndGet(size);
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        int size = size(message);
+        if (sessionId == null || size == 0) {
+            return;
+        }
+        totalQueuedBytes.addAndGet(-size);
+        // Drop the entry once the session has nothing left, closed sessions leave nothing behind
+        queuedBytes.computeIfPresent(sessionId, (id, queued) -> queued - size <= 0 ? null : queued - size);
+    }
+
+    long queuedBytes(String sessionId) {
+        return queuedBytes.getOrDefault(sessionId, 0L);
+    }
+
+    private static int size(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+    }
+}
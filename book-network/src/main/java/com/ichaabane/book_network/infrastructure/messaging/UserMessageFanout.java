@@ -0,0 +1,77 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends user-destination messages to every instance of the application.
+ * The message goes to the sessions connected here, then through the {@link ClusterMessageBus} to the other
+ * instances, which each hand it to their own simple broker. A broker only knows its local sessions,
+ * so every session receives the message exactly once.
+ * <p>
+ * Relaying is best effort, like the simple broker: once the local delivery succeeded, a message the bus
+ * cannot take is only counted, the caller is not asked to send it again. Notifications stay in the inbox either way.
+ */
+@Component
+@Slf4j
+public class UserMessageFanout {
+
+    static final String CHANNEL = "user_message_fanout";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final ClusterMessageBus bus;
+
+    public UserMessageFanout(SimpMessagingTemplate messagingTemplate,
+                             ObjectMapper objectMapper,
+                             ClusterMessageBus bus) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.bus = bus;
+        bus.subscribe(CHANNEL, this::receive);
+    }
+
+    /**
+     * Same contract as {@link SimpMessagingTemplate#convertAndSendToUser(String, String, Object)}, for every instance
+     *
+     * @throws MessagingException when the payload cannot be serialized or the local broker cannot take the message,
+     *                            in both cases before any instance received it
+     */
+    public void convertAndSendToUser(String user, String destination, Object payload) {
+        JsonNode tree = null;
+        if (bus.isEnabled()) {
+            try {
+                tree = objectMapper.valueToTree(payload);
+            } catch (IllegalArgumentException e) {
+                throw new MessagingException("Could not serialize the message for " + destination, e);
+            }
+        }
+        messagingTemplate.convertAndSendToUser(user, destination, payload);
+        if (tree != null) {
+            bus.publish(CHANNEL, new FanoutMessage(user, destination, tree));
+        }
+    }
+
+    void receive(JsonNode message) {
+        FanoutMessage fanout;
+        try {
+            fanout = objectMapper.treeToValue(message, FanoutMessage.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed fan-out message", e);
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(fanout.user(), fanout.destination(), fanout.payload());
+        } catch (MessagingException e) {
+            log.debug("Could not deliver a fan-out message to {}", fanout.destination(), e);
+        }
+    }
+
+    private record FanoutMessage(String user, String destination, JsonNode payload) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.ichaabane.book_network.infrastructure.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index of the catalog, ranked with BM25.
+ * Title and author terms weigh more than synopsis terms.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TITLE_BOOST = 2.0;
+    private static final double AUTHOR_BOOST = 1.5;
+    private static final double ISBN_BOOST = 2.0;
+    private static final double SYNOPSIS_BOOST = 1.0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Replaced as a whole when the index is rebuilt, guarded by the lock
+    private Segment segment = new Segment();
+    // Changes made while a rebuild streams the catalog, replayed on the new segment before it is swapped in
+    private Map<Integer, Optional<Document>> changedDuringRebuild;
+
+    public record Document(Integer id, Integer ownerId, boolean archived, boolean shareable,
+                           String title, String authorName, String isbn, String synopsis) {
+    }
+
+    public record IndexedBook(Integer id, Integer ownerId, boolean archived, boolean shareable,
+                              double length, Set<String> terms) {
+    }
+
+    public void index(Document document) {
+        Entry entry = analyze(document);
+        lock.writeLock().lock();
+        try {
+            segment.put(entry);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(document.id(), Optional.of(document));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer bookId) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(bookId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(bookId, Optional.empty());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Build a new index from the documents and swap it in at once. Searches keep using the previous index meanwhile,
+     * and books indexed or removed during the rebuild win over the streamed rows, which may be older.
+     */
+    public synchronized void rebuild(Stream<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Segment fresh = new Segment();
+        try {
+            documents.map(BookSearchIndex::analyze).forEach(fresh::put);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild.forEach((bookId, document) -> document.ifPresentOrElse(
+                    changed -> fresh.put(analyze(changed)),
+                    () -> fresh.remove(bookId)));
+            changedDuringRebuild = null;
+            segment = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the books matching at least one query term, best match first
+     */
+    public List<Integer> search(String query, Predicate<IndexedBook> filter) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Map<Integer, IndexedBook> books = segment.books;
+            int documentCount = books.size();
+            double averageLength = documentCount == 0 ? 0 : segment.totalLength / documentCount;
+            for (String term : queryTerms) {
+                Map<Integer, Double> matches = segment.postings.get(term);
+                if (matches == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - matches.size() + 0.5) / (matches.size() + 0.5));
+                matches.forEach((bookId, frequency) -> {
+                    IndexedBook book = books.get(bookId);
+                    if (!filter.test(book)) {
+                        return;
+                    }
+                    double norm = K1 * (1 - B + B * book.length() / averageLength);
+                    scores.merge(bookId, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Entry analyze(Document document) {
+        Map<String, Double> frequencies = new HashMap<>();
+        addTerms(frequencies, document.title(), TITLE_BOOST);
+        addTerms(frequencies, document.authorName(), AUTHOR_BOOST);
+        addTerms(frequencies, document.isbn(), ISBN_BOOST);
+        addTerms(frequencies, document.synopsis(), SYNOPSIS_BOOST);
+        double length = frequencies.values().stream().mapToDouble(Double::doubleValue).sum();
+        return new Entry(new IndexedBook(document.id(), document.ownerId(), document.archived(),
+                document.shareable(), length, frequencies.keySet()), frequencies);
+    }
+
+    private static void addTerms(Map<String, Double> frequencies, String text, double boost) {
+        for (String term : TextAnalyzer.analyze(text)) {
+            frequencies.merge(term, boost, Double::sum);
+        }
+    }
+
+    private record Entry(IndexedBook book, Map<String, Double> frequencies) {
+    }
+
+    // Postings and books of one generation of the index, not thread-safe on its own
+    private static final class Segment {
+
+        private final Map<String, Map<Integer, Double>> postings = new HashMap<>();
+        private final Map<Integer, IndexedBook> books = new HashMap<>();
+        private double totalLength;
+
+        void put(Entry entry) {
+            Integer bookId = entry.book().id();
+            remove(bookId);
+            entry.frequencies().forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(bookId, frequency));
+            books.put(bookId, entry.book());
+            totalLength += entry.book().length();
+        }
+
+        void remove(Integer bookId) {
+            IndexedBook previous = books.remove(bookId);
+            if (previous == null) {
+                return;
+            }
+            for (String term : previous.terms()) {
+                Map<Integer, Double> matches = postings.get(term);
+                if (matches != null) {
+                    matches.remove(bookId);
+                    if (matches.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= previous.length();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ichaabane.book_network.infrastructure.search;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Turns catalog text into search terms: accent folding, lower casing, stop words and a light English/French stemmer.
+ */
+public final class TextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    // Keeps ISBNs like 978-0-13-235088-4 as a single term
+    private static final Pattern DIGIT_HYPHEN = Pattern.compile("(?<=\\d)-(?=[\\dx])");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "the", "to", "with",
+            "au", "aux", "ce", "d", "dans", "de", "des", "du", "en", "est", "et", "l", "la", "le", "les", "ou",
+            "par", "pour", "sur", "un", "une"
+    );
+
+    private TextAnalyzer() {
+        // Utility class - prevent instantiation
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (StringUtils.isBlank(text)) {
+            return terms;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(DIGIT_HYPHEN.matcher(folded).replaceAll(""))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String token) {
+        if (token.length() <= MIN_STEM_LENGTH || !Character.isLetter(token.charAt(0))) {
+            return token;
+        }
+        String stem = token;
+        // Plurals: stories -> story, chevaux -> cheval, jeux -> jeu, books -> book
+        if (stem.endsWith("ies")) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("aux")) {
+            stem = stem.substring(0, stem.length() - 3) + "al";
+        } else if (stem.endsWith("eux")) {
+            stem = stem.substring(0, stem.length() - 1);
+        } else if (stem.endsWith("sses")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us") && !stem.endsWith("is")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        // Verb and adverb endings: reading -> read, loved -> lov, rapidement -> rapid
+        stem = stripSuffix(stem, "ement");
+        stem = stripSuffix(stem, "ing");
+        stem = stripSuffix(stem, "ed");
+        // Silent or feminine final e: grande -> grand, love -> lov
+        stem = stripSuffix(stem, "e");
+        // Double final consonant: running -> run, grosse -> gros
+        int length = stem.length();
+        if (length > MIN_STEM_LENGTH && stem.charAt(length - 1) == stem.charAt(length - 2)
+                && "aeiouy".indexOf(stem.charAt(length - 1)) < 0) {
+            stem = stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+
+    private static String stripSuffix(String token, String suffix) {
+        if (token.endsWith(suffix) && token.length() - suffix.length() >= MIN_STEM_LENGTH) {
+            return token.substring(0, token.length() - suffix.length());
+        }
+        return token;
+    }
+}
@@ -3,6 +3,7 @@ package com.ichaabane.book_network.infrastructure.security;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -46,6 +47,8 @@ public class SecurityConfig {
                                 "/webjars/**",
                                 "/ws/**"
                         ).permitAll()
+                                // Loaded by img tags, which send no token: BookService.findBookCover decides who may read a cover
+                                .requestMatchers(HttpMethod.GET, "/books/*/cover").permitAll()
                                 .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
@@ -1,20 +1,42 @@
 package com.ichaabane.book_network.presentation.controller;
 
 import com.ichaabane.book_network.application.dto.request.BookRequest;
+import com.ichaabane.book_network.application.dto.response.BookImportResponse;
 import com.ichaabane.book_network.application.dto.response.BookResponse;
 import com.ichaabane.book_network.application.dto.response.BorrowedBookResponse;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.dto.response.ResourceVersion;
+import com.ichaabane.book_network.application.service.BookExportService;
+import com.ichaabane.book_network.application.service.BookImportService;
+import com.ichaabane.book_network.application.service.BookSearchService;
 import com.ichaabane.book_network.application.service.BookService;
+import com.ichaabane.book_network.domain.enums.CountMode;
+import com.ichaabane.book_network.domain.enums.DataFormat;
+import com.ichaabane.book_network.infrastructure.file.CoverRendition;
+import com.ichaabane.book_network.infrastructure.file.FileUtils;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("books")
@@ -23,6 +45,9 @@ import java.util.Map;
 public class BookController {
 
     private final BookService service;
+    private final BookSearchService searchService;
+    private final BookImportService importService;
+    private final BookExportService exportService;
 
     @PostMapping
     public ResponseEntity<Integer> saveBook(
@@ -31,42 +56,127 @@ public class BookController {
         return ResponseEntity.ok(service.save(request, connectedUser));
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<BookImportResponse> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body,
+            Authentication connectedUser) {
+        // The body is read as it arrives, never buffered as a whole
+        return ResponseEntity.ok(importService.importBooks(body, DataFormat.fromContentType(contentType), connectedUser));
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerCatalog(
+            @RequestParam(name = "format", defaultValue = "NDJSON", required = false) DataFormat format,
+            Authentication connectedUser) {
+        return export("books", format, output -> exportService.exportOwnerCatalog(format, connectedUser, output));
+    }
+
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(name = "format", defaultValue = "NDJSON", required = false) DataFormat format,
+            Authentication connectedUser) {
+        return export("history", format, output -> exportService.exportHistory(format, connectedUser, output));
+    }
+
+    // Written from an async thread after the handler returns, the export opens its own read-only transaction there
+    private static ResponseEntity<StreamingResponseBody> export(String name, DataFormat format, StreamingResponseBody body) {
+        String extension = format == DataFormat.CSV ? ".csv" : ".ndjson";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(name + extension).build().toString())
+                .body(body);
+    }
+
     @GetMapping("{book-id}")
     public ResponseEntity<BookResponse> findBookById(
-            @PathVariable("book-id") Integer bookId) {
-        return ResponseEntity.ok(service.findBookById(bookId));
+            @PathVariable("book-id") Integer bookId,
+            WebRequest request) {
+        // Answered from the version columns alone: no entity load, mapping or serialization on a 304
+        ResourceVersion version = service.findBookVersion(bookId);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (request.checkNotModified(version.eTag(), version.lastModifiedMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(service.findBookById(bookId));
     }
 
     @GetMapping
     public ResponseEntity<PageResponse<BookResponse>> findAllBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "count", defaultValue = "EXACT", required = false) CountMode count,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.findAllBooks(page, size, count, connectedUser));
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponse<BookResponse>> findAllBooksByCursor(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
             Authentication connectedUser) {
-        return ResponseEntity.ok(service.findAllBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBooks(after, size, connectedUser));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<PageResponse<BookResponse>> searchBooks(
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(searchService.search(query, page, size, connectedUser));
     }
 
     @GetMapping("/owner")
     public ResponseEntity<PageResponse<BookResponse>> findAllBooksByOwner(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "count", defaultValue = "EXACT", required = false) CountMode count,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.findAllBooksByOwner(page, size, count, connectedUser));
+    }
+
+    @GetMapping("/owner/cursor")
+    public ResponseEntity<CursorPageResponse<BookResponse>> findAllBooksByOwnerByCursor(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
             Authentication connectedUser) {
-        return ResponseEntity.ok(service.findAllBooksByOwner(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBooksByOwner(after, size, connectedUser));
     }
 
     @GetMapping("/borrowed")
     public ResponseEntity<PageResponse<BorrowedBookResponse>> findAllBorrowedBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "count", defaultValue = "EXACT", required = false) CountMode count,
             Authentication connectedUser) {
-        return ResponseEntity.ok(service.findAllBorrowedBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBorrowedBooks(page, size, count, connectedUser));
+    }
+
+    @GetMapping("/borrowed/cursor")
+    public ResponseEntity<CursorPageResponse<BorrowedBookResponse>> findAllBorrowedBooksByCursor(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.findAllBorrowedBooks(after, size, connectedUser));
     }
 
     @GetMapping("/returned")
     public ResponseEntity<PageResponse<BorrowedBookResponse>> findAllReturnedBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "count", defaultValue = "EXACT", required = false) CountMode count,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.findAllReturnedBooks(page, size, count, connectedUser));
+    }
+
+    @GetMapping("/returned/cursor")
+    public ResponseEntity<CursorPageResponse<BorrowedBookResponse>> findAllReturnedBooksByCursor(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
             Authentication connectedUser) {
-        return ResponseEntity.ok(service.findAllReturnedBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllReturnedBooks(after, size, connectedUser));
     }
 
     @PatchMapping("/shareable/{book-id}")
@@ -113,6 +223,28 @@ public class BookController {
         return ResponseEntity.accepted().build();
     }
 
+    @GetMapping("{book-id}/cover")
+    public ResponseEntity<Resource> findBookCover(
+            @PathVariable("book-id") Integer bookId,
+            @RequestParam(name = "v", required = false) String version,
+            @RequestParam(name = "size", required = false) Integer size) {
+        Resource cover = service.findBookCover(bookId, version, size);
+        String currentVersion = FileUtils.getFileVersion(cover.getFilename());
+        String requestedVersion = version == null || size == null
+                ? version
+                : CoverRendition.forSize(size).versionOf(version);
+        // Versioned URLs never change content, unversioned ones (or an original served while its rendition
+        // is still being generated) must be revalidated with the ETag
+        CacheControl cacheControl = Objects.equals(requestedVersion, currentVersion)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(cover).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .cacheControl(cacheControl)
+                .eTag(currentVersion)
+                .body(cover);
+    }
+
     @PostMapping("/reservations/{book-id}")
     public ResponseEntity<Map<String, String>> reserveBook(
             @PathVariable("book-id") Integer bookId,
@@ -129,13 +261,29 @@ public class BookController {
         return ResponseEntity.ok(Map.of("message", "Reservation cancelled successfully"));
     }
 
+    @GetMapping("/reservations/{book-id}/position")
+    public ResponseEntity<Map<String, Long>> getReservationPosition(
+            @PathVariable("book-id") Integer bookId,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(Map.of("position", service.getReservationPosition(bookId, connectedUser)));
+    }
+
     @GetMapping("/reservations")
     public ResponseEntity<PageResponse<BookResponse>> getMyReservations(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "count", defaultValue = "EXACT", required = false) CountMode count,
             Authentication connectedUser) {
 
-        PageResponse<BookResponse> reservations = service.getUserReservations(page, size, connectedUser);
+        PageResponse<BookResponse> reservations = service.getUserReservations(page, size, count, connectedUser);
         return ResponseEntity.ok(reservations);
     }
+
+    @GetMapping("/reservations/cursor")
+    public ResponseEntity<CursorPageResponse<BookResponse>> getMyReservationsByCursor(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.getUserReservations(after, size, connectedUser));
+    }
 }
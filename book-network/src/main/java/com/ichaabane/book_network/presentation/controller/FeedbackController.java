@@ -1,15 +1,21 @@
 package com.ichaabane.book_network.presentation.controller;
 
 import com.ichaabane.book_network.application.dto.request.FeedbackRequest;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.FeedbackResponse;
 import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.dto.response.ResourceVersion;
 import com.ichaabane.book_network.application.service.FeedbackService;
+import com.ichaabane.book_network.domain.enums.CountMode;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("feedbacks")
@@ -17,6 +23,8 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "FeedBack")
 public class FeedbackController {
 
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final FeedbackService service;
 
     @PostMapping
@@ -32,8 +40,35 @@ public class FeedbackController {
             @PathVariable("book-id") Integer bookId,
             @RequestParam(name = "page", defaultValue = "10", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
-            Authentication connectedUser
+            @RequestParam(name = "count", defaultValue = "EXACT", required = false) CountMode count,
+            Authentication connectedUser,
+            WebRequest request
     ) {
-        return ResponseEntity.ok(service.findAllFeedbackByBook(bookId, page, size, connectedUser));
+        if (isNotModified(bookId, connectedUser, request)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).build();
+        }
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL)
+                .body(service.findAllFeedbackByBook(bookId, page, size, count, connectedUser));
+    }
+
+    @GetMapping("/books/{book-id}/cursor")
+    public ResponseEntity<CursorPageResponse<FeedbackResponse>> findAllFeedbackByBookByCursor(
+            @PathVariable("book-id") Integer bookId,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser,
+            WebRequest request
+    ) {
+        if (isNotModified(bookId, connectedUser, request)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).build();
+        }
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL)
+                .body(service.findAllFeedbackByBook(bookId, after, size, connectedUser));
+    }
+
+    // Every page of a book's feedbacks shares the list version, the URL keeps the pages apart in caches
+    private boolean isNotModified(Integer bookId, Authentication connectedUser, WebRequest request) {
+        ResourceVersion version = service.findFeedbackVersion(bookId, connectedUser);
+        return request.checkNotModified(version.eTag(), version.lastModifiedMillis());
     }
 }
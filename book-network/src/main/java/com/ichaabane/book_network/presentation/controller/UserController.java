@@ -2,6 +2,7 @@ package com.ichaabane.book_network.presentation.controller;
 
 import com.ichaabane.book_network.application.dto.request.ChangePasswordRequest;
 import com.ichaabane.book_network.application.dto.request.UserRequest;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.service.AuthenticationService;
 import com.ichaabane.book_network.application.dto.response.NotificationResponse;
 import com.ichaabane.book_network.application.service.NotificationService;
@@ -16,7 +17,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
-import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("users")
@@ -44,10 +45,19 @@ public class UserController {
     }
 
     @GetMapping("/me/notifications")
-    public ResponseEntity<List<NotificationResponse>> getUserNotifications(Authentication authentication) {
+    public ResponseEntity<CursorPageResponse<NotificationResponse>> getUserNotifications(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "20", required = false) int size,
+            @RequestParam(name = "unread", defaultValue = "false", required = false) boolean unreadOnly,
+            Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<NotificationResponse> notifications = notificationService.getUserNotifications(user);
-        return ResponseEntity.ok(notifications);
+        return ResponseEntity.ok(notificationService.getUserNotifications(user, after, size, unreadOnly));
+    }
+
+    @GetMapping("/me/notifications/unread-count")
+    public ResponseEntity<Map<String, Long>> countUnreadNotifications(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(Map.of("count", notificationService.countUnread(user)));
     }
 
     @PutMapping("/me/notifications/{id}/read")
@@ -0,0 +1,207 @@
+-- Runs after Hibernate has updated the schema (spring.jpa.defer-datasource-initialization).
+-- Every statement is idempotent, the script runs at each startup. Statements are separated by @@
+-- so that PL/pgSQL blocks can keep their own semicolons.
+
+-- Loans used to be tracked with two booleans, fold them into the status column once
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1
+               FROM information_schema.columns
+               WHERE table_name = 'book_transaction_history'
+               AND column_name = 'returned_approved') THEN
+        UPDATE book_transaction_history
+        SET status = CASE
+                         WHEN returned_approved THEN 'APPROVED'
+                         WHEN returned THEN 'RETURNED'
+                         ELSE 'ACTIVE'
+                     END
+        WHERE status IS NULL;
+        ALTER TABLE book_transaction_history DROP COLUMN returned, DROP COLUMN returned_approved;
+    END IF;
+END
+$$
+@@
+ALTER TABLE book_transaction_history ALTER COLUMN status SET NOT NULL
+@@
+-- At most one active loan per book, the borrow insert relies on it to settle concurrent requests
+CREATE UNIQUE INDEX IF NOT EXISTS uk_history_active_book
+    ON book_transaction_history (book_id)
+    WHERE status = 'ACTIVE'
+@@
+-- Waitlist order; existing reservations are queued by the time they were made
+CREATE SEQUENCE IF NOT EXISTS book_reservation_queue_seq
+@@
+UPDATE book_reservation reservation
+SET queue_sequence = queued.queue_sequence
+FROM (SELECT pending.id, nextval('book_reservation_queue_seq') AS queue_sequence
+      FROM (SELECT id
+            FROM book_reservation
+            WHERE queue_sequence IS NULL
+            ORDER BY created_date, id) pending) queued
+WHERE reservation.id = queued.id
+@@
+ALTER TABLE book_reservation ALTER COLUMN queue_sequence SET NOT NULL
+@@
+-- Unread inbox pages and the unread count only touch unread rows
+CREATE INDEX IF NOT EXISTS idx_notification_user_unread_created_at_id
+    ON notification (user_id, created_at DESC, id DESC)
+    WHERE read = false
+@@
+-- Unread badge counters start at 0 when the column is added; a zero with unread notifications
+-- above the read mark is wrong whatever its cause, so recount those users
+UPDATE _user account
+SET unread_notifications = (SELECT count(*)
+                            FROM notification
+                            WHERE notification.user_id = account.id
+                            AND notification.read = false
+                            AND (notification.created_at, notification.id)
+                                > (COALESCE(account.last_read_notification_at, '-infinity'),
+                                   COALESCE(account.last_read_notification_id, 0)))
+WHERE account.unread_notifications = 0
+AND EXISTS (SELECT 1
+            FROM notification
+            WHERE notification.user_id = account.id
+            AND notification.read = false
+            AND (notification.created_at, notification.id)
+                > (COALESCE(account.last_read_notification_at, '-infinity'),
+                   COALESCE(account.last_read_notification_id, 0)))
+@@
+-- Notifications are range partitioned by month on created_at, in partitions named notification_pYYYYMM.
+-- Creates the missing partitions from the previous month to months_ahead months from now.
+-- The previous month covers application clocks that run behind the database around the turn of a month.
+CREATE OR REPLACE FUNCTION notification_ensure_partitions(months_ahead integer) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    month_start timestamp := date_trunc('month', LOCALTIMESTAMP) - interval '1 month';
+    partition_name text;
+    created integer := 0;
+BEGIN
+    -- Every instance runs this at startup, one at a time
+    PERFORM pg_advisory_xact_lock(hashtext('notification_partitions'));
+    FOR i IN -1..months_ahead LOOP
+        partition_name := 'notification_p' || to_char(month_start, 'YYYYMM');
+        IF to_regclass(partition_name) IS NULL THEN
+            BEGIN
+                EXECUTE format('CREATE TABLE %I PARTITION OF notification FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, month_start + interval '1 month');
+                created := created + 1;
+            EXCEPTION WHEN invalid_object_definition THEN
+                -- Already covered by the partition of the rows from before partitioning
+                NULL;
+            END;
+        END IF;
+        month_start := month_start + interval '1 month';
+    END LOOP;
+    RETURN created;
+END
+$$
+@@
+-- Drops every partition holding only notifications created before cutoff, returns their names
+CREATE OR REPLACE FUNCTION notification_drop_partitions(cutoff timestamp) RETURNS SETOF text
+LANGUAGE plpgsql AS $$
+DECLARE
+    old_partition record;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('notification_partitions'));
+    FOR old_partition IN
+        SELECT child.relname AS name,
+               substring(pg_get_expr(child.relpartbound, child.oid) FROM 'TO \(''([^'']+)''\)')::timestamp AS upper_bound
+        FROM pg_inherits
+        JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+        JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+        WHERE parent.relname = 'notification'
+    LOOP
+        IF old_partition.upper_bound <= cutoff THEN
+            EXECUTE format('DROP TABLE %I', old_partition.name);
+            RETURN NEXT old_partition.name;
+        END IF;
+    END LOOP;
+END
+$$
+@@
+-- Hibernate creates notification as a plain table, turn it into a partitioned one once.
+-- Existing rows stay in the old table, attached as the partition of everything up to the end of its last month.
+-- The primary key has to include the partition column, Hibernate keeps addressing rows by id alone.
+DO $$
+DECLARE
+    legacy_end timestamp;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'notification'::regclass) THEN
+        RETURN;
+    END IF;
+    ALTER TABLE notification RENAME TO notification_legacy;
+    ALTER TABLE notification_legacy RENAME CONSTRAINT notification_pkey TO notification_legacy_pkey;
+    -- Same name as the Hibernate foreign key, so the schema update finds it on the new table
+    ALTER TABLE notification_legacy DROP CONSTRAINT IF EXISTS fkedaeaogcqu9a9xk5oped1hnlo;
+    ALTER INDEX IF EXISTS idx_notification_user_created_at_id RENAME TO notification_legacy_user_created_at_id_idx;
+    ALTER INDEX IF EXISTS idx_notification_user_unread_created_at_id RENAME TO notification_legacy_user_unread_idx;
+
+    CREATE TABLE notification (LIKE notification_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+        PARTITION BY RANGE (created_at);
+    ALTER TABLE notification ADD CONSTRAINT notification_pkey PRIMARY KEY (id, created_at);
+    ALTER TABLE notification ADD CONSTRAINT fkedaeaogcqu9a9xk5oped1hnlo FOREIGN KEY (user_id) REFERENCES _user;
+    CREATE INDEX idx_notification_user_created_at_id ON notification (user_id, created_at DESC, id DESC);
+    CREATE INDEX idx_notification_user_unread_created_at_id ON notification (user_id, created_at DESC, id DESC)
+        WHERE read = false;
+
+    SELECT date_trunc('month', max(created_at)) + interval '1 month' INTO legacy_end FROM notification_legacy;
+    IF legacy_end IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE notification ATTACH PARTITION notification_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                       legacy_end);
+    ELSE
+        DROP TABLE notification_legacy;
+    END IF;
+END
+$$
+@@
+SELECT notification_ensure_partitions(2)
+@@
+-- Notifications used to store their rendered message and a copy of the book title on every row.
+-- Map them to the template code and the book once, then drop the text columns (status comes from the template).
+-- A title shared by several books resolves to the one owned by the recipient, then to the oldest.
+DO $$
+DECLARE
+    target text;
+BEGIN
+    FOREACH target IN ARRAY ARRAY['notification', 'notification_outbox'] LOOP
+        IF EXISTS (SELECT 1
+                   FROM information_schema.columns
+                   WHERE table_name = target
+                   AND column_name = 'message') THEN
+            EXECUTE format($sql$
+                UPDATE %1$I row
+                SET template = CASE
+                                   WHEN row.message = 'Your book has been borrowed' THEN 1
+                                   WHEN row.message = 'Your book has been returned' THEN 2
+                                   WHEN row.message = 'You book return has been approved' THEN 3
+                                   WHEN row.message = 'The book you reserved is now yours' THEN 4
+                                   WHEN row.message = 'Your book has been handed to the next reader on the waiting list' THEN 5
+                                   WHEN row.message LIKE '%% has reserved your book' THEN 6
+                                   WHEN row.message LIKE '%% has cancelled the reservation for your book' THEN 7
+                                   WHEN row.status = 'RETURNED' THEN 2
+                                   WHEN row.status = 'RETURN_APPROVED' THEN 3
+                                   WHEN row.status = 'RESERVED' THEN 6
+                                   WHEN row.status = 'CANCELLED' THEN 7
+                                   ELSE 1
+                               END,
+                    book_id = (SELECT book.id
+                               FROM book
+                               WHERE book.title = row.book_title
+                               ORDER BY book.owner_id = row.user_id DESC, book.id
+                               LIMIT 1)
+                WHERE row.template IS NULL
+                $sql$, target);
+            EXECUTE format('ALTER TABLE %I DROP COLUMN message, DROP COLUMN book_title, DROP COLUMN status', target);
+        END IF;
+    END LOOP;
+END
+$$
+@@
+ALTER TABLE notification ALTER COLUMN template SET NOT NULL
+@@
+ALTER TABLE notification_outbox ALTER COLUMN template SET NOT NULL
+@@
+-- Hibernate checks converted enums against their ordinals, the template codes are not ordinals
+ALTER TABLE notification DROP CONSTRAINT IF EXISTS notification_template_check
+@@
+ALTER TABLE notification_outbox DROP CONSTRAINT IF EXISTS notification_outbox_template_check
@@ -0,0 +1,89 @@
+package com.ichaabane.book_network.application.mapper;
+
+import com.ichaabane.book_network.application.dto.response.NotificationResponse;
+import com.ichaabane.book_network.domain.enums.NotificationTemplate;
+import com.ichaabane.book_network.domain.model.Notification;
+import com.ichaabane.book_network.infrastructure.cache.NotificationLabelCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.ichaabane.book_network.domain.enums.NotificationStatus.BORROWED;
+import static com.ichaabane.book_network.domain.enums.NotificationStatus.RESERVED;
+import static com.ichaabane.book_network.domain.enums.NotificationTemplate.BOOK_BORROWED;
+import static com.ichaabane.book_network.domain.enums.NotificationTemplate.BOOK_RESERVED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NotificationMapper - Tests unitaires")
+class NotificationMapperTest {
+
+    @Mock
+    private NotificationLabelCache labelCache;
+
+    @InjectMocks
+    private NotificationMapper notificationMapper;
+
+    private static Notification notification(int id, NotificationTemplate template, Integer bookId, int actorId) {
+        return Notification.builder()
+                .id(id)
+                .template(template)
+                .bookId(bookId)
+                .createdBy(actorId)
+                .createdAt(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Devrait rendre le message du modèle avec le titre du livre et l'auteur")
+    void shouldRenderTemplateWithLabels() {
+        // Given
+        Notification reserved = notification(1, BOOK_RESERVED, 10, 5);
+        Notification borrowed = notification(2, BOOK_BORROWED, 11, 6);
+        given(labelCache.bookTitles(List.of(10, 11))).willReturn(Map.of(10, "Dune", 11, "Neuromancer"));
+        given(labelCache.usernames(List.of(5))).willReturn(Map.of(5, "jane@test.com"));
+
+        // When
+        Function<Notification, NotificationResponse> render = notificationMapper.renderer(List.of(reserved, borrowed),
+                Notification::isRead);
+
+        // Then
+        NotificationResponse first = render.apply(reserved);
+        assertThat(first.status()).isEqualTo(RESERVED);
+        assertThat(first.message()).isEqualTo("jane@test.com has reserved your book");
+        assertThat(first.bookId()).isEqualTo(10);
+        assertThat(first.bookTitle()).isEqualTo("Dune");
+        assertThat(first.createdAt()).isEqualTo("2024-05-01T10:00");
+        NotificationResponse second = render.apply(borrowed);
+        assertThat(second.status()).isEqualTo(BORROWED);
+        assertThat(second.message()).isEqualTo("Your book has been borrowed");
+        assertThat(second.bookTitle()).isEqualTo("Neuromancer");
+    }
+
+    @Test
+    @DisplayName("Devrait rendre une notification dont le livre ou l'auteur n'existe plus")
+    void shouldRenderWithoutLabels() {
+        // Given
+        Notification reserved = notification(1, BOOK_RESERVED, null, 5);
+        given(labelCache.bookTitles(anyList())).willReturn(Map.of());
+        given(labelCache.usernames(anyList())).willReturn(Map.of());
+
+        // When
+        NotificationResponse response = notificationMapper.toNotificationResponse(reserved, true);
+
+        // Then
+        assertThat(response.message()).isEqualTo("Someone has reserved your book");
+        assertThat(response.bookTitle()).isNull();
+        assertThat(response.read()).isTrue();
+    }
+}
@@ -0,0 +1,109 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.enums.DataFormat;
+import com.ichaabane.book_network.domain.enums.LoanStatus;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.BookExportRow;
+import com.ichaabane.book_network.domain.projection.HistoryExportRow;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.domain.repository.BookTransactionHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BookExportService - Tests unitaires")
+class BookExportServiceTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookTransactionHistoryRepository transactionHistoryRepository;
+
+    @Mock
+    private Authentication authentication;
+
+    @InjectMocks
+    private BookExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        User user = User.builder().id(1).build();
+        given(authentication.getPrincipal()).willReturn(user);
+    }
+
+    @Test
+    @DisplayName("Devrait exporter le catalogue en CSV et fermer le curseur")
+    void shouldExportCatalogAsCsv() throws IOException {
+        // Given
+        BookExportRow row = mock(BookExportRow.class);
+        given(row.getId()).willReturn(10);
+        given(row.getTitle()).willReturn("Dune");
+        given(row.getAuthorName()).willReturn("Frank Herbert");
+        given(row.getIsbn()).willReturn("978-0441172719");
+        given(row.getSynopsis()).willReturn("Spice, sand and worms");
+        given(row.isShareable()).willReturn(true);
+        given(row.getRatingSum()).willReturn(9.0);
+        given(row.getRatingCount()).willReturn(2);
+        given(row.getCreatedDate()).willReturn(DATE);
+        AtomicBoolean closed = new AtomicBoolean();
+        given(bookRepository.streamExportRowsByOwner(1)).willReturn(Stream.of(row).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long exported = exportService.exportOwnerCatalog(DataFormat.CSV, authentication, output);
+
+        // Then
+        assertThat(exported).isEqualTo(1);
+        assertThat(closed).isTrue();
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,title,authorName,isbn,synopsis,shareable,archived,rate,ratingCount,createdDate,lastModifiedDate
+                10,Dune,"Frank Herbert",978-0441172719,"Spice, sand and worms",true,false,4.5,2,2024-03-01T10:15:30,
+                """);
+    }
+
+    @Test
+    @DisplayName("Devrait exporter l'historique en NDJSON")
+    void shouldExportHistoryAsNdjson() throws IOException {
+        // Given
+        HistoryExportRow first = mock(HistoryExportRow.class);
+        given(first.getId()).willReturn(1);
+        given(first.getBookId()).willReturn(10);
+        given(first.getOwnerId()).willReturn(2);
+        given(first.getBorrowerId()).willReturn(1);
+        given(first.getBorrowedDate()).willReturn(DATE);
+        HistoryExportRow second = mock(HistoryExportRow.class);
+        given(second.getId()).willReturn(2);
+        given(second.getStatus()).willReturn(LoanStatus.RETURNED);
+        given(transactionHistoryRepository.streamExportRowsByUser(1)).willReturn(Stream.of(first, second));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long exported = exportService.exportHistory(DataFormat.NDJSON, authentication, output);
+
+        // Then
+        assertThat(exported).isEqualTo(2);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":1,\"bookId\":10,").contains("\"borrowedDate\":\"2024-03-01T10:15:30\"");
+        assertThat(lines[1]).startsWith("{\"id\":2,").contains("\"status\":\"RETURNED\"");
+    }
+}
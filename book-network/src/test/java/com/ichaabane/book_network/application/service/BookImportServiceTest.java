@@ -0,0 +1,280 @@
+package com.ichaabane.book_network.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ichaabane.book_network.application.dto.response.BookImportResponse;
+import com.ichaabane.book_network.application.mapper.BookMapper;
+import com.ichaabane.book_network.domain.enums.DataFormat;
+import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BookImportService - Tests unitaires")
+class BookImportServiceTest {
+
+    private static final jakarta.validation.ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookSearchService bookSearchService;
+
+    @Mock
+    private Authentication authentication;
+
+    private BookImportService importService;
+    private User owner;
+
+    @AfterAll
+    static void closeValidator() {
+        VALIDATOR_FACTORY.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        Validator validator = VALIDATOR_FACTORY.getValidator();
+        importService = new BookImportService(bookRepository, new BookMapper(), bookSearchService, validator, new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 10);
+        owner = User.builder().id(1).firstName("Owner").lastName("User").build();
+        given(authentication.getPrincipal()).willReturn(owner);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void saveAllAssigningIds() {
+        AtomicInteger ids = new AtomicInteger();
+        given(bookRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(ids.incrementAndGet()));
+            return List.copyOf(books);
+        });
+    }
+
+    @Nested
+    @DisplayName("CSV")
+    class CsvTests {
+
+        @Test
+        @DisplayName("Devrait importer les lignes par lots et rattacher le propriétaire")
+        void shouldImportRowsInChunks() {
+            // Given
+            saveAllAssigningIds();
+            String csv = """
+                    title,authorName,isbn,synopsis,shareable
+                    Dune,Frank Herbert,978-0441172719,"Spice, sand and worms",true
+                    Emma,Jane Austen,978-0141439587,Matchmaking,false
+                    Ubik,Philip K. Dick,978-0547572291,Half-life,
+                    """;
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(csv), DataFormat.CSV, authentication);
+
+            // Then
+            assertThat(report.getReceived()).isEqualTo(3);
+            assertThat(report.getImported()).isEqualTo(3);
+            assertThat(report.getFailed()).isZero();
+            assertThat(report.getErrors()).isEmpty();
+            assertThat(report.getRowsPerSecond()).isPositive();
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Book>> chunks = ArgumentCaptor.forClass(List.class);
+            then(bookRepository).should(times(2)).saveAll(chunks.capture());
+            then(bookSearchService).should(times(3)).index(any(Book.class));
+            Book dune = chunks.getAllValues().get(0).get(0);
+            assertThat(dune.getSynopsis()).isEqualTo("Spice, sand and worms");
+            assertThat(dune.isShareable()).isTrue();
+            assertThat(dune.getOwner()).isEqualTo(owner);
+        }
+
+        @Test
+        @DisplayName("Devrait rejeter les lignes invalides sans bloquer les autres")
+        void shouldReportInvalidRows() {
+            // Given
+            saveAllAssigningIds();
+            String csv = """
+                    title,authorName,isbn,synopsis,shareable
+                    ,Frank Herbert,978-0441172719,Spice,true
+                    Emma,Jane Austen,978-0141439587,Matchmaking,false
+                    """;
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(csv), DataFormat.CSV, authentication);
+
+            // Then
+            assertThat(report.getImported()).isEqualTo(1);
+            assertThat(report.getFailed()).isEqualTo(1);
+            assertThat(report.getErrors()).singleElement().satisfies(error -> {
+                assertThat(error.row()).isEqualTo(1);
+                assertThat(error.errors()).containsExactly("title: 100");
+            });
+        }
+
+        @Test
+        @DisplayName("Devrait s'arrêter sur un CSV mal formé en gardant les lignes déjà lues")
+        void shouldStopOnMalformedCsv() {
+            // Given
+            saveAllAssigningIds();
+            String csv = """
+                    title,authorName,isbn,synopsis,shareable
+                    Emma,Jane Austen,978-0141439587,Matchmaking,false
+                    "Dune,Frank Herbert,978-0441172719,Spice,true
+                    """;
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(csv), DataFormat.CSV, authentication);
+
+            // Then
+            assertThat(report.getImported()).isEqualTo(1);
+            assertThat(report.getErrors()).singleElement().satisfies(error -> {
+                assertThat(error.row()).isEqualTo(2);
+                assertThat(error.errors().get(0)).startsWith("Malformed CSV");
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("NDJSON")
+    class NdjsonTests {
+
+        @Test
+        @DisplayName("Devrait continuer après une ligne JSON invalide et ignorer les identifiants fournis")
+        void shouldContinueAfterMalformedLine() {
+            // Given
+            saveAllAssigningIds();
+            String ndjson = """
+                    {"id":42,"title":"Dune","authorName":"Frank Herbert","isbn":"978-0441172719","synopsis":"Spice","shareable":true}
+                    {"title": broken
+
+                    {"title":"Emma","authorName":"Jane Austen","isbn":"978-0141439587","synopsis":"Matchmaking"}
+                    """;
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(ndjson), DataFormat.NDJSON, authentication);
+
+            // Then
+            assertThat(report.getReceived()).isEqualTo(3);
+            assertThat(report.getImported()).isEqualTo(2);
+            assertThat(report.getErrors()).singleElement().satisfies(error -> {
+                assertThat(error.row()).isEqualTo(2);
+                assertThat(error.errors().get(0)).startsWith("Malformed JSON");
+            });
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Book>> chunk = ArgumentCaptor.forClass(List.class);
+            then(bookRepository).should().saveAll(chunk.capture());
+            assertThat(chunk.getValue()).allMatch(book -> book.getId() != null && book.getId() <= 2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Rapport d'erreurs")
+    class ReportTests {
+
+        // The database rejects every insert of the book titled "B"
+        private void rejectingBookB() {
+            given(bookRepository.saveAll(anyList())).willAnswer(invocation -> {
+                List<Book> books = invocation.getArgument(0);
+                if (books.stream().anyMatch(book -> book.getTitle().equals("B"))) {
+                    books.forEach(book -> book.setId(99));
+                    throw new DataIntegrityViolationException("constraint", new RuntimeException("duplicate key"));
+                }
+                return List.copyOf(books);
+            });
+        }
+
+        @Test
+        @DisplayName("Devrait n'écarter que les lignes refusées d'un lot dont l'enregistrement échoue")
+        void shouldIsolateRejectedRowsOfFailedChunk() {
+            // Given
+            rejectingBookB();
+            String ndjson = """
+                    {"title":"A","authorName":"a","isbn":"1","synopsis":"s"}
+                    {"title":"B","authorName":"b","isbn":"2","synopsis":"s"}
+                    {"title":"C","authorName":"c","isbn":"3","synopsis":"s"}
+                    """;
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(ndjson), DataFormat.NDJSON, authentication);
+
+            // Then
+            assertThat(report.getImported()).isEqualTo(2);
+            assertThat(report.getFailed()).isEqualTo(1);
+            assertThat(report.getErrors()).singleElement().satisfies(error -> {
+                assertThat(error.row()).isEqualTo(2L);
+                assertThat(error.errors()).containsExactly("Could not be saved: duplicate key");
+            });
+            ArgumentCaptor<Book> indexed = ArgumentCaptor.forClass(Book.class);
+            then(bookSearchService).should(times(2)).index(indexed.capture());
+            assertThat(indexed.getAllValues()).extracting(Book::getTitle).containsExactly("A", "C");
+            assertThat(indexed.getAllValues().get(0).getId()).isNull();
+        }
+
+        @Test
+        @DisplayName("Devrait réessayer un lot refusé par moitiés jusqu'aux lignes fautives")
+        void shouldSplitFailedChunkInHalves() {
+            // Given
+            ReflectionTestUtils.setField(importService, "chunkSize", 4);
+            rejectingBookB();
+            String ndjson = """
+                    {"title":"A","authorName":"a","isbn":"1","synopsis":"s"}
+                    {"title":"B","authorName":"b","isbn":"2","synopsis":"s"}
+                    {"title":"C","authorName":"c","isbn":"3","synopsis":"s"}
+                    {"title":"D","authorName":"d","isbn":"4","synopsis":"s"}
+                    """;
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(ndjson), DataFormat.NDJSON, authentication);
+
+            // Then
+            assertThat(report.getImported()).isEqualTo(3);
+            assertThat(report.getErrors()).extracting(BookImportResponse.RowError::row).containsExactly(2L);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Book>> attempts = ArgumentCaptor.forClass(List.class);
+            then(bookRepository).should(times(5)).saveAll(attempts.capture());
+            assertThat(attempts.getAllValues()).extracting(List::size).containsExactly(4, 2, 1, 1, 2);
+        }
+
+        @Test
+        @DisplayName("Devrait tronquer le rapport au-delà du nombre maximal d'erreurs")
+        void shouldTruncateReport() {
+            // Given
+            String ndjson = "{}\n".repeat(15);
+
+            // When
+            BookImportResponse report = importService.importBooks(stream(ndjson), DataFormat.NDJSON, authentication);
+
+            // Then
+            assertThat(report.getFailed()).isEqualTo(15);
+            assertThat(report.getErrors()).hasSize(10);
+            assertThat(report.isErrorsTruncated()).isTrue();
+            then(bookRepository).should(never()).saveAll(anyList());
+        }
+    }
+}
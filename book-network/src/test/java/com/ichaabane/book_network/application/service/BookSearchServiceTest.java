@@ -0,0 +1,287 @@
+package com.ichaabane.book_network.application.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.ichaabane.book_network.application.dto.response.BookResponse;
+import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.mapper.BookMapper;
+import com.ichaabane.book_network.domain.exception.InvalidPageRequestException;
+import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.BookIndexEntry;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import com.ichaabane.book_network.infrastructure.search.BookSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BookSearchService - Tests unitaires")
+class BookSearchServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Spy
+    private BookSearchIndex searchIndex = new BookSearchIndex();
+
+    @Mock
+    private BookMapper bookMapper;
+
+    @Mock
+    private Authentication authentication;
+
+    @Mock
+    private ClusterMessageBus bus;
+
+    @InjectMocks
+    private BookSearchService bookSearchService;
+
+    private User owner;
+    private User reader;
+
+    @BeforeEach
+    void setUp() {
+        owner = User.builder().id(1).firstName("Owner").lastName("User").build();
+        reader = User.builder().id(2).firstName("Reader").lastName("User").build();
+    }
+
+    private Book book(Integer id, String title, boolean archived) {
+        return Book.builder()
+                .id(id)
+                .title(title)
+                .authorName("Author")
+                .shareable(true)
+                .archived(archived)
+                .owner(owner)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private BookSummary summary(Integer id) {
+        BookSummary summary = mock(BookSummary.class);
+        given(summary.getId()).willReturn(id);
+        return summary;
+    }
+
+    @Nested
+    @DisplayName("rebuildIndex() - Construction au démarrage")
+    class RebuildIndexTests {
+
+        @Test
+        @DisplayName("Devrait indexer chaque livre du flux")
+        void shouldIndexStreamedBooks() {
+            // Given
+            BookIndexEntry entry = mock(BookIndexEntry.class);
+            given(entry.getId()).willReturn(7);
+            given(entry.getOwnerId()).willReturn(1);
+            given(entry.isShareable()).willReturn(true);
+            given(entry.getTitle()).willReturn("Domain Driven Design");
+            given(bookRepository.streamAllIndexEntries()).willReturn(Stream.of(entry));
+
+            // When
+            bookSearchService.rebuildIndex();
+
+            // Then
+            assertThat(searchIndex.size()).isEqualTo(1);
+            assertThat(searchIndex.search("domain", book -> true)).containsExactly(7);
+        }
+    }
+
+    @Nested
+    @DisplayName("index() - Mise à jour après une modification")
+    class IndexTests {
+
+        @Test
+        @DisplayName("Devrait indexer le livre seulement après le commit de la transaction")
+        void shouldIndexAfterCommit() {
+            // Given
+            TransactionSynchronizationManager.initSynchronization();
+
+            // When
+            bookSearchService.index(book(1, "Java", false));
+
+            // Then
+            assertThat(searchIndex.size()).isZero();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(searchIndex.search("java", book -> true)).containsExactly(1);
+        }
+
+        @Test
+        @DisplayName("Devrait prévenir les autres instances du livre modifié")
+        void shouldRelayIndexedBook() {
+            // When
+            bookSearchService.index(book(1, "Java", false));
+
+            // Then
+            then(bus).should().publish(BookSearchService.CHANNEL, 1);
+        }
+
+        @Test
+        @DisplayName("Devrait relire un livre modifié sur une autre instance, ou le retirer s'il n'existe plus")
+        @SuppressWarnings("unchecked")
+        void shouldReindexBookChangedOnOtherNode() {
+            // Given
+            ArgumentCaptor<Consumer<JsonNode>> handler = ArgumentCaptor.forClass(Consumer.class);
+            then(bus).should().subscribe(eq(BookSearchService.CHANNEL), handler.capture());
+            bookSearchService.index(book(1, "Java", false));
+            bookSearchService.index(book(2, "Java", false));
+            BookIndexEntry entry = mock(BookIndexEntry.class);
+            given(entry.getId()).willReturn(1);
+            given(entry.getTitle()).willReturn("Kotlin");
+            given(bookRepository.findIndexEntryById(1)).willReturn(Optional.of(entry));
+            given(bookRepository.findIndexEntryById(2)).willReturn(Optional.empty());
+
+            // When
+            handler.getValue().accept(IntNode.valueOf(1));
+            handler.getValue().accept(IntNode.valueOf(2));
+
+            // Then
+            assertThat(searchIndex.search("kotlin", book -> true)).containsExactly(1);
+            assertThat(searchIndex.search("java", book -> true)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas indexer un livre dont la transaction est annulée")
+        void shouldNotIndexOnRollback() {
+            // Given
+            TransactionSynchronizationManager.initSynchronization();
+
+            // When
+            bookSearchService.index(book(1, "Java", false));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            // Then
+            assertThat(searchIndex.size()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("search() - Recherche classée")
+    class SearchTests {
+
+        @Test
+        @DisplayName("Devrait refuser une page ou une taille invalide")
+        void shouldRejectInvalidPageRequest() {
+            // When / Then
+            assertThatThrownBy(() -> bookSearchService.search("java", -1, 10, authentication))
+                    .isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> bookSearchService.search("java", 0, 0, authentication))
+                    .isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> bookSearchService.search("java", 0, -5, authentication))
+                    .isInstanceOf(InvalidPageRequestException.class);
+        }
+
+        @Test
+        @DisplayName("Devrait renvoyer une page vide au-delà des résultats, sans débordement")
+        void shouldReturnEmptyPageBeyondResults() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reader);
+            bookSearchService.index(book(1, "Java", false));
+
+            // When
+            PageResponse<BookResponse> result = bookSearchService.search("java", Integer.MAX_VALUE, Integer.MAX_VALUE, authentication);
+
+            // Then
+            assertThat(result.getContent()).isEmpty();
+            assertThat(result.getTotalElements()).isEqualTo(1L);
+            assertThat(result.isLast()).isTrue();
+            then(bookRepository).should(never()).findBookSummariesByIds(anyCollection());
+        }
+
+        @Test
+        @DisplayName("Devrait charger la page dans l'ordre de pertinence en une seule requête")
+        void shouldLoadPageInRankOrder() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reader);
+            bookSearchService.index(book(1, "Java", false));
+            bookSearchService.index(book(2, "Java Java Concurrency", false));
+            BookSummary first = summary(1);
+            BookSummary second = summary(2);
+            given(bookRepository.findBookSummariesByIds(anyCollection())).willReturn(List.of(first, second));
+            given(bookMapper.toBookResponse(first)).willReturn(BookResponse.builder().id(1).build());
+            given(bookMapper.toBookResponse(second)).willReturn(BookResponse.builder().id(2).build());
+
+            // When
+            PageResponse<BookResponse> result = bookSearchService.search("java", 0, 10, authentication);
+
+            // Then
+            assertThat(result.getContent()).extracting(BookResponse::getId).containsExactly(2, 1);
+            assertThat(result.getTotalElements()).isEqualTo(2L);
+            assertThat(result.isLast()).isTrue();
+            then(bookRepository).should(times(1)).findBookSummariesByIds(List.of(2, 1));
+        }
+
+        @Test
+        @DisplayName("Devrait exclure les livres archivés et ceux de l'utilisateur")
+        void shouldExcludeArchivedAndOwnBooks() {
+            // Given
+            bookSearchService.index(book(1, "Java", true));
+            bookSearchService.index(book(2, "Java", false));
+
+            // When
+            given(authentication.getPrincipal()).willReturn(owner);
+            PageResponse<BookResponse> ownerResult = bookSearchService.search("java", 0, 10, authentication);
+
+            // Then
+            assertThat(ownerResult.getContent()).isEmpty();
+            assertThat(ownerResult.getTotalElements()).isZero();
+            then(bookRepository).should(never()).findBookSummariesByIds(anyCollection());
+        }
+
+        @Test
+        @DisplayName("Devrait paginer les résultats")
+        void shouldPageResults() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reader);
+            bookSearchService.index(book(1, "Java", false));
+            bookSearchService.index(book(2, "Java", false));
+            bookSearchService.index(book(3, "Java", false));
+            BookSummary third = summary(3);
+            given(bookRepository.findBookSummariesByIds(anyCollection())).willReturn(List.of(third));
+            given(bookMapper.toBookResponse(any(BookSummary.class))).willReturn(BookResponse.builder().id(3).build());
+
+            // When
+            PageResponse<BookResponse> result = bookSearchService.search("java", 1, 2, authentication);
+
+            // Then
+            assertThat(result.getContent()).hasSize(1);
+            assertThat(result.getTotalPages()).isEqualTo(2);
+            assertThat(result.isFirst()).isFalse();
+            assertThat(result.isLast()).isTrue();
+            then(bookRepository).should().findBookSummariesByIds(List.of(3));
+        }
+    }
+}
@@ -1,34 +1,72 @@
 package com.ichaabane.book_network.application.service;
 
 import com.ichaabane.book_network.application.dto.request.BookRequest;
+import com.ichaabane.book_network.application.dto.request.PageCursor;
 import com.ichaabane.book_network.application.dto.response.BookResponse;
 import com.ichaabane.book_network.application.dto.response.BorrowedBookResponse;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.dto.response.ResourceVersion;
 import com.ichaabane.book_network.application.mapper.BookMapper;
+import com.ichaabane.book_network.domain.enums.CountMode;
+import com.ichaabane.book_network.domain.enums.LoanStatus;
+import com.ichaabane.book_network.domain.exception.InvalidCursorException;
 import com.ichaabane.book_network.domain.exception.OperationNotPermittedException;
 import com.ichaabane.book_network.domain.model.*;
+import com.ichaabane.book_network.domain.projection.BookCover;
+import com.ichaabane.book_network.domain.projection.BookSummary;
+import com.ichaabane.book_network.domain.projection.BookVersion;
+import com.ichaabane.book_network.domain.projection.BorrowedBookSummary;
 import com.ichaabane.book_network.domain.repository.*;
+import com.ichaabane.book_network.infrastructure.cache.ApproximateCountCache;
+import com.ichaabane.book_network.infrastructure.cache.BookResponseCache;
+import com.ichaabane.book_network.infrastructure.cache.NotificationLabelCache;
+import com.ichaabane.book_network.infrastructure.file.FileUtils;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
-import static com.ichaabane.book_network.domain.enums.NotificationStatus.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ichaabane.book_network.domain.enums.NotificationTemplate.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.*;
@@ -62,6 +100,21 @@ class BookServiceTest {
     @Mock
     private BookReservationRepository reservationRepository;
 
+    @Mock
+    private ApproximateCountCache countCache;
+
+    @Mock
+    private BookSearchService bookSearchService;
+
+    @Mock
+    private CoverRenditionService coverRenditionService;
+
+    @Mock
+    private NotificationLabelCache notificationLabelCache;
+
+    @Spy
+    private BookResponseCache bookResponseCache = new BookResponseCache(new SimpleMeterRegistry(), mock(ClusterMessageBus.class), DataSize.ofMegabytes(1));
+
     @Mock
     private Authentication authentication;
 
@@ -72,6 +125,7 @@ class BookServiceTest {
     private User borrower;
     private Book testBook;
     private BookResponse bookResponse;
+    private BookSummary bookSummary;
 
     @BeforeEach
     void setUp() {
@@ -100,6 +154,8 @@ class BookServiceTest {
                 .owner(owner)
                 .build();
 
+        bookSummary = mock(BookSummary.class);
+
         bookResponse = BookResponse.builder()
                 .id(1)
                 .title("Test Book")
@@ -142,6 +198,7 @@ class BookServiceTest {
             ArgumentCaptor<Book> bookCaptor = ArgumentCaptor.forClass(Book.class);
             then(bookRepository).should().save(bookCaptor.capture());
             assertThat(bookCaptor.getValue().getOwner()).isEqualTo(owner);
+            then(bookSearchService).should().index(bookCaptor.getValue());
         }
 
         @Test
@@ -164,6 +221,8 @@ class BookServiceTest {
             assertThat(testBook.getTitle()).isEqualTo("Updated Title");
             assertThat(testBook.getAuthorName()).isEqualTo("Updated Author");
             assertThat(testBook.isShareable()).isFalse();
+            then(bookSearchService).should().index(testBook);
+            then(notificationLabelCache).should().evictBook(1);
         }
 
         @Test
@@ -215,6 +274,131 @@ class BookServiceTest {
                     .isInstanceOf(EntityNotFoundException.class)
                     .hasMessageContaining("No book found with the ID : 999");
         }
+
+        @Test
+        @DisplayName("Devrait servir les lectures suivantes depuis le cache")
+        void shouldServeRepeatedReadsFromCache() {
+            // Given
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(bookMapper.toBookResponse(testBook)).willReturn(bookResponse);
+
+            // When
+            bookService.findBookById(1);
+            BookResponse result = bookService.findBookById(1);
+
+            // Then
+            assertThat(result).isSameAs(bookResponse);
+            then(bookRepository).should(times(1)).findById(1);
+        }
+
+        @Test
+        @DisplayName("Devrait recharger le livre après une modification")
+        void shouldReloadAfterMutation() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(owner);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(bookMapper.toBookResponse(testBook)).willReturn(bookResponse);
+            given(bookRepository.save(any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+            bookService.findBookById(1);
+
+            // When
+            bookService.updateShareableStatus(1, authentication);
+            bookService.findBookById(1);
+
+            // Then
+            then(bookResponseCache).should().evict(1);
+            then(bookMapper).should(times(2)).toBookResponse(testBook);
+        }
+
+        @Test
+        @DisplayName("Devrait ne pas mettre en cache un livre introuvable")
+        void shouldNotCacheMissingBook() {
+            // Given
+            given(bookRepository.findById(999)).willReturn(Optional.empty());
+
+            // When
+            assertThatThrownBy(() -> bookService.findBookById(999)).isInstanceOf(EntityNotFoundException.class);
+            assertThatThrownBy(() -> bookService.findBookById(999)).isInstanceOf(EntityNotFoundException.class);
+
+            // Then
+            then(bookRepository).should(times(2)).findById(999);
+            assertThat(bookResponseCache.size()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("findBookVersion() - Version d'un livre")
+    class FindBookVersionTests {
+
+        private BookVersion version(LocalDateTime lastModified, int ratingCount, double ratingSum) {
+            BookVersion version = mock(BookVersion.class);
+            given(version.getId()).willReturn(1);
+            given(version.getCreatedDate()).willReturn(LocalDateTime.of(2024, 1, 1, 10, 0));
+            given(version.getLastModifiedDate()).willReturn(lastModified);
+            given(version.getRatingCount()).willReturn(ratingCount);
+            given(version.getRatingSum()).willReturn(ratingSum);
+            return version;
+        }
+
+        @Test
+        @DisplayName("Devrait calculer la version sans charger l'entité")
+        void shouldComputeVersionWithoutLoadingEntity() {
+            // Given
+            LocalDateTime modified = LocalDateTime.of(2024, 2, 1, 10, 0);
+            BookVersion version = version(modified, 2, 9.0);
+            given(bookRepository.findVersionById(1)).willReturn(Optional.of(version));
+
+            // When
+            ResourceVersion result = bookService.findBookVersion(1);
+
+            // Then
+            assertThat(result.lastModified()).isEqualTo(modified.atZone(ZoneId.systemDefault()).toInstant());
+            assertThat(result.eTag()).startsWith("book-1-").endsWith("-2-9.0");
+            then(bookRepository).should(never()).findById(anyInt());
+        }
+
+        @Test
+        @DisplayName("Devrait utiliser la date de création d'un livre jamais modifié")
+        void shouldFallBackToCreatedDate() {
+            // Given
+            BookVersion version = version(null, 0, 0.0);
+            given(bookRepository.findVersionById(1)).willReturn(Optional.of(version));
+
+            // When
+            ResourceVersion result = bookService.findBookVersion(1);
+
+            // Then
+            assertThat(result.lastModified())
+                    .isEqualTo(LocalDateTime.of(2024, 1, 1, 10, 0).atZone(ZoneId.systemDefault()).toInstant());
+        }
+
+        @Test
+        @DisplayName("Devrait changer de version quand une note est ajoutée")
+        void shouldChangeVersionWhenRated() {
+            // Given
+            LocalDateTime modified = LocalDateTime.of(2024, 2, 1, 10, 0);
+            BookVersion before = version(modified, 2, 9.0);
+            BookVersion after = version(modified, 3, 13.0);
+            given(bookRepository.findVersionById(1)).willReturn(Optional.of(before), Optional.of(after));
+
+            // When
+            ResourceVersion first = bookService.findBookVersion(1);
+            ResourceVersion second = bookService.findBookVersion(1);
+
+            // Then
+            assertThat(first.eTag()).isNotEqualTo(second.eTag());
+        }
+
+        @Test
+        @DisplayName("Devrait échouer si le livre n'existe pas")
+        void shouldFailWhenBookNotFound() {
+            // Given
+            given(bookRepository.findVersionById(999)).willReturn(Optional.empty());
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.findBookVersion(999))
+                    .isInstanceOf(EntityNotFoundException.class);
+        }
     }
 
     @Nested
@@ -227,10 +411,10 @@ class BookServiceTest {
             // Given
             given(authentication.getPrincipal()).willReturn(borrower);
             
-            Page<Book> bookPage = new PageImpl<>(List.of(testBook), PageRequest.of(0, 10), 1);
-            given(bookRepository.findAllDisplayableBooks(any(Pageable.class), eq(2)))
+            Page<BookSummary> bookPage = new PageImpl<>(List.of(bookSummary), PageRequest.of(0, 10), 1);
+            given(bookRepository.findAllDisplayableBookSummaries(any(Pageable.class), eq(2)))
                     .willReturn(bookPage);
-            given(bookMapper.toBookResponse(testBook)).willReturn(bookResponse);
+            given(bookMapper.toBookResponse(bookSummary)).willReturn(bookResponse);
 
             // When
             PageResponse<BookResponse> result = bookService.findAllBooks(0, 10, authentication);
@@ -243,14 +427,36 @@ class BookServiceTest {
             assertThat(result.isLast()).isTrue();
         }
 
+        @Test
+        @DisplayName("Devrait charger une page avec une seule requête de projection")
+        void shouldLoadPageWithSingleProjectionQuery() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+
+            Page<BookSummary> bookPage = new PageImpl<>(List.of(bookSummary, bookSummary), PageRequest.of(0, 10), 2);
+            given(bookRepository.findAllDisplayableBookSummaries(any(Pageable.class), eq(2)))
+                    .willReturn(bookPage);
+            given(bookMapper.toBookResponse(bookSummary)).willReturn(bookResponse);
+
+            // When
+            bookService.findAllBooks(0, 10, authentication);
+
+            // Then - aucune requête supplémentaire par ligne (propriétaire, feedbacks, entité)
+            then(bookRepository).should(times(1)).findAllDisplayableBookSummaries(any(Pageable.class), eq(2));
+            then(bookRepository).shouldHaveNoMoreInteractions();
+            then(transactionHistoryRepository).shouldHaveNoInteractions();
+            then(reservationRepository).shouldHaveNoInteractions();
+            then(bookMapper).should(never()).toBookResponse(any(Book.class));
+        }
+
         @Test
         @DisplayName("Devrait retourner une page vide si aucun livre")
         void shouldReturnEmptyPageWhenNoBooks() {
             // Given
             given(authentication.getPrincipal()).willReturn(borrower);
             
-            Page<Book> emptyPage = new PageImpl<>(List.of(), PageRequest.of(0, 10), 0);
-            given(bookRepository.findAllDisplayableBooks(any(Pageable.class), eq(2)))
+            Page<BookSummary> emptyPage = new PageImpl<>(List.of(), PageRequest.of(0, 10), 0);
+            given(bookRepository.findAllDisplayableBookSummaries(any(Pageable.class), eq(2)))
                     .willReturn(emptyPage);
 
             // When
@@ -273,10 +479,10 @@ class BookServiceTest {
             // Given
             given(authentication.getPrincipal()).willReturn(owner);
             
-            Page<Book> bookPage = new PageImpl<>(List.of(testBook), PageRequest.of(0, 10), 1);
-            given(bookRepository.findAll(any(Specification.class), any(Pageable.class)))
+            Page<BookSummary> bookPage = new PageImpl<>(List.of(bookSummary), PageRequest.of(0, 10), 1);
+            given(bookRepository.findAllBookSummariesByOwner(any(Pageable.class), eq(1)))
                     .willReturn(bookPage);
-            given(bookMapper.toBookResponse(testBook)).willReturn(bookResponse);
+            given(bookMapper.toBookResponse(bookSummary)).willReturn(bookResponse);
 
             // When
             PageResponse<BookResponse> result = bookService.findAllBooksByOwner(0, 10, authentication);
@@ -284,6 +490,8 @@ class BookServiceTest {
             // Then
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(1);
+            then(bookRepository).should(times(1)).findAllBookSummariesByOwner(any(Pageable.class), eq(1));
+            then(bookRepository).shouldHaveNoMoreInteractions();
         }
     }
 
@@ -301,7 +509,7 @@ class BookServiceTest {
                     .id(1)
                     .book(testBook)
                     .user(borrower)
-                    .returned(false)
+                    .status(LoanStatus.ACTIVE)
                     .build();
             
             BorrowedBookResponse borrowedResponse = BorrowedBookResponse.builder()
@@ -337,7 +545,7 @@ class BookServiceTest {
                     .id(1)
                     .book(testBook)
                     .user(borrower)
-                    .returned(true)
+                    .status(LoanStatus.RETURNED)
                     .build();
             
             BorrowedBookResponse borrowedResponse = BorrowedBookResponse.builder()
@@ -359,6 +567,218 @@ class BookServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Modes de comptage - Slice et totaux approximatifs")
+    class CountModeTests {
+
+        @Test
+        @DisplayName("Devrait retourner une slice sans requête COUNT")
+        void shouldReturnSliceWithoutCount() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            Slice<BookSummary> slice = new SliceImpl<>(List.of(bookSummary), PageRequest.of(0, 10), true);
+            given(bookRepository.findDisplayableBookSummarySlice(any(Pageable.class), eq(2))).willReturn(slice);
+            given(bookMapper.toBookResponse(bookSummary)).willReturn(bookResponse);
+
+            // When
+            PageResponse<BookResponse> result = bookService.findAllBooks(0, 10, CountMode.NONE, authentication);
+
+            // Then
+            assertThat(result.getContent()).hasSize(1);
+            assertThat(result.isLast()).isFalse();
+            assertThat(result.getTotalElements()).isNull();
+            assertThat(result.getTotalPages()).isNull();
+            then(bookRepository).should(never()).countDisplayableBooks(anyInt());
+            then(bookRepository).should(never()).findAllDisplayableBookSummaries(any(Pageable.class), anyInt());
+            then(countCache).shouldHaveNoInteractions();
+        }
+
+        @Test
+        @DisplayName("Devrait lire le total approximatif depuis le cache")
+        void shouldReadApproximateTotalFromCache() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(owner);
+            Slice<BookSummary> slice = new SliceImpl<>(List.of(bookSummary), PageRequest.of(0, 10), true);
+            given(bookRepository.findBookSummarySliceByOwner(any(Pageable.class), eq(1))).willReturn(slice);
+            given(countCache.get(eq("owner-books"), eq(1), any())).willReturn(25L);
+
+            // When
+            PageResponse<BookResponse> result = bookService.findAllBooksByOwner(0, 10, CountMode.APPROXIMATE, authentication);
+
+            // Then
+            assertThat(result.getTotalElements()).isEqualTo(25L);
+            assertThat(result.getTotalPages()).isEqualTo(3);
+            then(bookRepository).should(never()).findAllBookSummariesByOwner(any(Pageable.class), anyInt());
+        }
+
+        @Test
+        @DisplayName("Devrait garder la page exacte par défaut")
+        void shouldKeepExactPageByDefault() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            Page<BookTransactionHistory> page = new PageImpl<>(List.of());
+            given(transactionHistoryRepository.findAllBorrowedBooks(any(Pageable.class), eq(2))).willReturn(page);
+
+            // When
+            PageResponse<BorrowedBookResponse> result = bookService.findAllBorrowedBooks(0, 10, CountMode.EXACT, authentication);
+
+            // Then
+            assertThat(result.getTotalElements()).isZero();
+            then(transactionHistoryRepository).should(never()).findBorrowedBookSlice(any(Pageable.class), anyInt());
+            then(countCache).shouldHaveNoInteractions();
+        }
+
+        @Test
+        @DisplayName("Devrait paginer retours et réservations en mode slice")
+        void shouldSliceReturnedBooksAndReservations() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(owner);
+            given(transactionHistoryRepository.findReturnedBookSlice(any(Pageable.class), eq(1)))
+                    .willReturn(new SliceImpl<>(List.of()));
+            given(reservationRepository.findReservedBookSummarySlice(eq(1), any(Pageable.class)))
+                    .willReturn(new SliceImpl<>(List.of()));
+
+            // When
+            PageResponse<BorrowedBookResponse> returned = bookService.findAllReturnedBooks(0, 10, CountMode.NONE, authentication);
+            PageResponse<BookResponse> reservations = bookService.getUserReservations(0, 10, CountMode.NONE, authentication);
+
+            // Then
+            assertThat(returned.isLast()).isTrue();
+            assertThat(reservations.getTotalElements()).isNull();
+            then(transactionHistoryRepository).should(never()).countReturnedBooks(anyInt());
+            then(reservationRepository).should(never()).countByUserId(anyInt());
+        }
+    }
+
+    @Nested
+    @DisplayName("Pagination par curseur - Listes sans OFFSET ni COUNT")
+    class CursorPaginationTests {
+
+        private final LocalDateTime newest = LocalDateTime.of(2024, 5, 3, 10, 0);
+        private final LocalDateTime older = LocalDateTime.of(2024, 5, 2, 10, 0);
+
+        private BookSummary summary(Integer id, LocalDateTime createdDate) {
+            BookSummary summary = mock(BookSummary.class);
+            given(summary.getId()).willReturn(id);
+            given(summary.getCreatedDate()).willReturn(createdDate);
+            return summary;
+        }
+
+        @Test
+        @DisplayName("Devrait démarrer au début de l'index sans curseur")
+        void shouldStartFromFirstCursorWhenNoCursor() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            given(bookRepository.findDisplayableBookSummariesBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of());
+
+            // When
+            bookService.findAllBooks(null, 10, authentication);
+
+            // Then - une seule requête bornée, pas de requête COUNT
+            then(bookRepository).should().findDisplayableBookSummariesBefore(
+                    2, PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(), Limit.of(11));
+            then(bookRepository).shouldHaveNoMoreInteractions();
+        }
+
+        @Test
+        @DisplayName("Devrait retourner le curseur suivant quand une ligne de plus existe")
+        void shouldReturnNextCursorWhenMoreRows() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            BookSummary first = summary(9, newest);
+            BookSummary second = summary(7, older);
+            BookSummary extra = summary(5, older);
+            given(bookRepository.findDisplayableBookSummariesBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of(first, second, extra));
+            given(bookMapper.toBookResponse(any(BookSummary.class))).willReturn(bookResponse);
+
+            // When
+            CursorPageResponse<BookResponse> result = bookService.findAllBooks(null, 2, authentication);
+
+            // Then
+            assertThat(result.getContent()).hasSize(2);
+            assertThat(result.isLast()).isFalse();
+            assertThat(PageCursor.decode(result.getNextCursor())).isEqualTo(new PageCursor(older, 7));
+            then(bookMapper).should(never()).toBookResponse(extra);
+        }
+
+        @Test
+        @DisplayName("Devrait reprendre après la position du curseur")
+        void shouldResumeAfterCursor() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(owner);
+            String after = new PageCursor(older, 7).encode();
+            BookSummary next = summary(5, older);
+            given(bookRepository.findBookSummariesByOwnerBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of(next));
+            given(bookMapper.toBookResponse(any(BookSummary.class))).willReturn(bookResponse);
+
+            // When
+            CursorPageResponse<BookResponse> result = bookService.findAllBooksByOwner(after, 2, authentication);
+
+            // Then
+            then(bookRepository).should().findBookSummariesByOwnerBefore(1, older, 7, Limit.of(3));
+            assertThat(result.getContent()).hasSize(1);
+            assertThat(result.isLast()).isTrue();
+            assertThat(result.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Devrait utiliser l'id de la transaction comme départage pour les emprunts")
+        void shouldUseHistoryIdInBorrowedCursor() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            BorrowedBookSummary history = mock(BorrowedBookSummary.class);
+            given(history.getHistoryId()).willReturn(42);
+            given(history.getId()).willReturn(1);
+            given(history.getCreatedDate()).willReturn(newest);
+            given(transactionHistoryRepository.findBorrowedBookSummariesBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of(history, history));
+            given(bookMapper.toBorrowedBookResponse(history)).willReturn(BorrowedBookResponse.builder().id(1).build());
+
+            // When
+            CursorPageResponse<BorrowedBookResponse> result = bookService.findAllBorrowedBooks(null, 1, authentication);
+
+            // Then
+            assertThat(PageCursor.decode(result.getNextCursor())).isEqualTo(new PageCursor(newest, 42));
+            then(transactionHistoryRepository).should(never()).findAllBorrowedBooks(any(Pageable.class), anyInt());
+        }
+
+        @Test
+        @DisplayName("Devrait paginer les retours et réservations par curseur")
+        void shouldPageReturnedBooksAndReservations() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(owner);
+            given(transactionHistoryRepository.findReturnedBookSummariesBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of());
+            given(reservationRepository.findReservedBookSummariesBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of());
+
+            // When
+            CursorPageResponse<BorrowedBookResponse> returned = bookService.findAllReturnedBooks(null, 10, authentication);
+            CursorPageResponse<BookResponse> reservations = bookService.getUserReservations(null, 10, authentication);
+
+            // Then
+            assertThat(returned.getContent()).isEmpty();
+            assertThat(returned.isLast()).isTrue();
+            assertThat(reservations.getContent()).isEmpty();
+            assertThat(reservations.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Devrait rejeter un curseur invalide")
+        void shouldRejectInvalidCursor() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+
+            // When & Then
+            assertThatThrownBy(() -> bookService.findAllBooks("not-a-cursor", 10, authentication))
+                    .isInstanceOf(InvalidCursorException.class);
+            then(bookRepository).shouldHaveNoInteractions();
+        }
+    }
+
     @Nested
     @DisplayName("updateShareableStatus() - Mise à jour du statut partageable")
     class UpdateShareableStatusTests {
@@ -379,6 +799,7 @@ class BookServiceTest {
             // Then
             assertThat(result).isEqualTo(1);
             assertThat(testBook.isShareable()).isNotEqualTo(initialStatus);
+            then(bookSearchService).should().index(testBook);
         }
 
         @Test
@@ -392,6 +813,7 @@ class BookServiceTest {
             assertThatThrownBy(() -> bookService.updateShareableStatus(1, authentication))
                     .isInstanceOf(OperationNotPermittedException.class)
                     .hasMessageContaining("cannot update others book shareable status");
+            then(bookSearchService).shouldHaveNoInteractions();
         }
 
         @Test
@@ -427,6 +849,7 @@ class BookServiceTest {
             // Then
             assertThat(result).isEqualTo(1);
             assertThat(testBook.isArchived()).isNotEqualTo(initialStatus);
+            then(bookSearchService).should().index(testBook);
         }
 
         @Test
@@ -453,34 +876,22 @@ class BookServiceTest {
             // Given
             given(authentication.getPrincipal()).willReturn(borrower);
             given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
-            given(transactionHistoryRepository.isAlreadyBorrowedByUser(1, 2)).willReturn(false);
-            given(transactionHistoryRepository.existsByBookIdAndReturnedFalse(1)).willReturn(false);
-            given(transactionHistoryRepository.save(any(BookTransactionHistory.class))).willAnswer(invocation -> {
-                BookTransactionHistory history = invocation.getArgument(0);
-                history.setId(100);
-                return history;
-            });
-            willDoNothing().given(notificationService).sendNotification(any(), any(), anyString(), anyString());
+            given(transactionHistoryRepository.insertActiveLoan(1, 2)).willReturn(Optional.of(100));
+            willDoNothing().given(notificationService).sendNotification(any(), any(), any());
 
             // When
             Integer transactionId = bookService.borrowBook(1, authentication);
 
             // Then
             assertThat(transactionId).isEqualTo(100);
-            
-            ArgumentCaptor<BookTransactionHistory> historyCaptor = ArgumentCaptor.forClass(BookTransactionHistory.class);
-            then(transactionHistoryRepository).should().save(historyCaptor.capture());
-            
-            BookTransactionHistory saved = historyCaptor.getValue();
-            assertThat(saved.getBook()).isEqualTo(testBook);
-            assertThat(saved.getUser()).isEqualTo(borrower);
-            assertThat(saved.isReturned()).isFalse();
+            then(transactionHistoryRepository).should().insertActiveLoan(1, 2);
+            then(transactionHistoryRepository).should(never()).isAlreadyBorrowedByUser(anyInt(), anyInt());
+            then(transactionHistoryRepository).should(never()).save(any(BookTransactionHistory.class));
 
             then(notificationService).should().sendNotification(
                     eq(owner),
-                    eq(BORROWED),
-                    eq("Your book has been borrowed"),
-                    eq("Test Book")
+                    eq(BOOK_BORROWED),
+                    eq(1)
             );
         }
 
@@ -531,12 +942,13 @@ class BookServiceTest {
             // Given
             given(authentication.getPrincipal()).willReturn(borrower);
             given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
-            given(transactionHistoryRepository.isAlreadyBorrowedByUser(1, 2)).willReturn(true);
+            given(transactionHistoryRepository.insertActiveLoan(1, 2)).willReturn(Optional.empty());
 
             // When / Then
             assertThatThrownBy(() -> bookService.borrowBook(1, authentication))
                     .isInstanceOf(OperationNotPermittedException.class)
                     .hasMessageContaining("already borrowed");
+            then(notificationService).shouldHaveNoInteractions();
         }
 
         @Test
@@ -545,14 +957,90 @@ class BookServiceTest {
             // Given
             given(authentication.getPrincipal()).willReturn(borrower);
             given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
-            given(transactionHistoryRepository.isAlreadyBorrowedByUser(1, 2)).willReturn(false);
-            given(transactionHistoryRepository.existsByBookIdAndReturnedFalse(1)).willReturn(true);
+            given(transactionHistoryRepository.insertActiveLoan(1, 2)).willThrow(activeLoanConflict());
 
             // When / Then
             assertThatThrownBy(() -> bookService.borrowBook(1, authentication))
                     .isInstanceOf(OperationNotPermittedException.class)
                     .hasMessageContaining("borrowed by another user");
         }
+
+        @Test
+        @DisplayName("Devrait propager les autres violations de contrainte")
+        void shouldRethrowOtherConstraintViolations() {
+            // Given
+            DataIntegrityViolationException foreignKey = new DataIntegrityViolationException("fk",
+                    new ConstraintViolationException("fk", null, "fk_history_user"));
+            given(authentication.getPrincipal()).willReturn(borrower);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(transactionHistoryRepository.insertActiveLoan(1, 2)).willThrow(foreignKey);
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.borrowBook(1, authentication)).isSameAs(foreignKey);
+        }
+
+        @Test
+        @DisplayName("Devrait n'accorder qu'un seul emprunt quand plusieurs lecteurs empruntent en même temps")
+        void shouldGrantOneLoanUnderConcurrentBorrows() throws Exception {
+            // Given: the repository behaves like the partial unique index, one active loan per book
+            int borrowers = 32;
+            Map<Integer, Integer> activeLoans = new ConcurrentHashMap<>();
+            AtomicInteger ids = new AtomicInteger(100);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(transactionHistoryRepository.insertActiveLoan(eq(1), anyInt())).willAnswer(invocation -> {
+                Integer userId = invocation.getArgument(1);
+                if (activeLoans.putIfAbsent(1, userId) != null) {
+                    throw activeLoanConflict();
+                }
+                return Optional.of(ids.incrementAndGet());
+            });
+            List<Authentication> authentications = new ArrayList<>();
+            for (int i = 0; i < borrowers; i++) {
+                Authentication auth = mock(Authentication.class);
+                User user = User.builder().id(1_000 + i).firstName("Reader").lastName(String.valueOf(i)).build();
+                given(auth.getPrincipal()).willReturn(user);
+                authentications.add(auth);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            CountDownLatch start = new CountDownLatch(1);
+
+            // When
+            List<Future<Integer>> results = new ArrayList<>();
+            try {
+                for (Authentication auth : authentications) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return bookService.borrowBook(1, auth);
+                    }));
+                }
+                start.countDown();
+                int granted = 0;
+                int refused = 0;
+                for (Future<Integer> result : results) {
+                    try {
+                        result.get(10, TimeUnit.SECONDS);
+                        granted++;
+                    } catch (ExecutionException e) {
+                        assertThat(e.getCause())
+                                .isInstanceOf(OperationNotPermittedException.class)
+                                .hasMessageContaining("borrowed by another user");
+                        refused++;
+                    }
+                }
+
+                // Then
+                assertThat(granted).isEqualTo(1);
+                assertThat(refused).isEqualTo(borrowers - 1);
+                then(notificationService).should(times(1)).sendNotification(any(), eq(BOOK_BORROWED), any());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private DataIntegrityViolationException activeLoanConflict() {
+            return new DataIntegrityViolationException("duplicate key",
+                    new ConstraintViolationException("duplicate key", null, BookTransactionHistory.ACTIVE_LOAN_INDEX));
+        }
     }
 
     @Nested
@@ -567,7 +1055,7 @@ class BookServiceTest {
                     .id(100)
                     .book(testBook)
                     .user(borrower)
-                    .returned(false)
+                    .status(LoanStatus.ACTIVE)
                     .build();
 
             given(authentication.getPrincipal()).willReturn(borrower);
@@ -576,20 +1064,19 @@ class BookServiceTest {
                     .willReturn(Optional.of(transaction));
             given(transactionHistoryRepository.save(any(BookTransactionHistory.class)))
                     .willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(notificationService).sendNotification(any(), any(), anyString(), anyString());
+            willDoNothing().given(notificationService).sendNotification(any(), any(), any());
 
             // When
             Integer result = bookService.returnBorrowBook(1, authentication);
 
             // Then
             assertThat(result).isEqualTo(100);
-            assertThat(transaction.isReturned()).isTrue();
+            assertThat(transaction.getStatus()).isEqualTo(LoanStatus.RETURNED);
 
             then(notificationService).should().sendNotification(
                     eq(owner),
-                    eq(RETURNED),
-                    eq("Your book has been returned"),
-                    eq("Test Book")
+                    eq(BOOK_RETURNED),
+                    eq(1)
             );
         }
 
@@ -608,6 +1095,27 @@ class BookServiceTest {
                     .hasMessageContaining("You did not borrow this book");
         }
 
+        @Test
+        @DisplayName("Devrait refuser de revenir en arrière dans le cycle de vie d'un emprunt")
+        void shouldRejectBackwardTransition() {
+            // Given
+            BookTransactionHistory transaction = BookTransactionHistory.builder()
+                    .id(100)
+                    .book(testBook)
+                    .user(borrower)
+                    .status(LoanStatus.APPROVED)
+                    .build();
+            given(authentication.getPrincipal()).willReturn(borrower);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(transactionHistoryRepository.findByBookIdAndUserId(1, 2)).willReturn(Optional.of(transaction));
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.returnBorrowBook(1, authentication))
+                    .isInstanceOf(OperationNotPermittedException.class)
+                    .hasMessage("A loan cannot go from APPROVED to RETURNED");
+            then(transactionHistoryRepository).should(never()).save(any(BookTransactionHistory.class));
+        }
+
         @Test
         @DisplayName("Devrait échouer si l'utilisateur est le propriétaire")
         void shouldFailWhenUserIsOwner() {
@@ -634,8 +1142,7 @@ class BookServiceTest {
                     .id(100)
                     .book(testBook)
                     .user(borrower)
-                    .returned(true)
-                    .returnedApproved(false)
+                    .status(LoanStatus.RETURNED)
                     .build();
 
             given(authentication.getPrincipal()).willReturn(owner);
@@ -644,20 +1151,19 @@ class BookServiceTest {
                     .willReturn(Optional.of(transaction));
             given(transactionHistoryRepository.save(any(BookTransactionHistory.class)))
                     .willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(notificationService).sendNotification(any(), any(), anyString(), anyString());
+            willDoNothing().given(notificationService).sendNotification(any(), any(), any());
 
             // When
             Integer result = bookService.approveReturnBorrowBook(1, authentication);
 
             // Then
             assertThat(result).isEqualTo(100);
-            assertThat(transaction.isReturnedApproved()).isTrue();
+            assertThat(transaction.getStatus()).isEqualTo(LoanStatus.APPROVED);
 
             then(notificationService).should().sendNotification(
                     eq(borrower),
                     eq(RETURN_APPROVED),
-                    eq("You book return has been approved"),
-                    eq("Test Book")
+                    eq(1)
             );
         }
 
@@ -688,6 +1194,78 @@ class BookServiceTest {
                     .isInstanceOf(OperationNotPermittedException.class)
                     .hasMessageContaining("not returned yet");
         }
+
+        @Test
+        @DisplayName("Devrait confier le livre au premier lecteur de la file d'attente")
+        void shouldHandOffToHeadOfWaitlist() {
+            // Given
+            User reader = User.builder().id(3).firstName("Next").lastName("Reader").build();
+            BookReservation head = BookReservation.builder().id(9).book(testBook).user(reader).queueSequence(5L).build();
+            givenReturnedLoan();
+            given(reservationRepository.findFirstByBookIdOrderByQueueSequenceAsc(1)).willReturn(Optional.of(head));
+            given(transactionHistoryRepository.insertHandOffLoan(1, 3, 1)).willReturn(Optional.of(200));
+
+            // When
+            bookService.approveReturnBorrowBook(1, authentication);
+
+            // Then
+            InOrder inOrder = inOrder(transactionHistoryRepository, reservationRepository);
+            inOrder.verify(transactionHistoryRepository).save(any(BookTransactionHistory.class));
+            inOrder.verify(transactionHistoryRepository).insertHandOffLoan(1, 3, 1);
+            inOrder.verify(reservationRepository).delete(head);
+            then(notificationService).should().sendNotification(
+                    eq(reader),
+                    eq(RESERVATION_FULFILLED),
+                    eq(1)
+            );
+        }
+
+        @Test
+        @DisplayName("Ne devrait rien confier quand personne n'attend le livre")
+        void shouldNotHandOffWithoutWaitlist() {
+            // Given
+            givenReturnedLoan();
+            given(reservationRepository.findFirstByBookIdOrderByQueueSequenceAsc(1)).willReturn(Optional.empty());
+
+            // When
+            bookService.approveReturnBorrowBook(1, authentication);
+
+            // Then
+            then(transactionHistoryRepository).should(never()).insertHandOffLoan(anyInt(), anyInt(), anyInt());
+            then(reservationRepository).should(never()).delete(any(BookReservation.class));
+        }
+
+        @Test
+        @DisplayName("Devrait garder la réservation si le livre a déjà été ré-emprunté")
+        void shouldKeepReservationWhenBookTakenAgain() {
+            // Given
+            User reader = User.builder().id(3).build();
+            BookReservation head = BookReservation.builder().id(9).book(testBook).user(reader).queueSequence(5L).build();
+            givenReturnedLoan();
+            given(reservationRepository.findFirstByBookIdOrderByQueueSequenceAsc(1)).willReturn(Optional.of(head));
+            given(transactionHistoryRepository.insertHandOffLoan(1, 3, 1)).willReturn(Optional.empty());
+
+            // When
+            bookService.approveReturnBorrowBook(1, authentication);
+
+            // Then
+            then(reservationRepository).should(never()).delete(any(BookReservation.class));
+            then(notificationService).should(never()).sendNotification(eq(reader), any(), any());
+        }
+
+        private void givenReturnedLoan() {
+            BookTransactionHistory transaction = BookTransactionHistory.builder()
+                    .id(100)
+                    .book(testBook)
+                    .user(borrower)
+                    .status(LoanStatus.RETURNED)
+                    .build();
+            given(authentication.getPrincipal()).willReturn(owner);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(transactionHistoryRepository.findByBookIdAndOwnerId(1, 1)).willReturn(Optional.of(transaction));
+            given(transactionHistoryRepository.save(any(BookTransactionHistory.class)))
+                    .willAnswer(invocation -> invocation.getArgument(0));
+        }
     }
 
     @Nested
@@ -704,7 +1282,7 @@ class BookServiceTest {
             given(authentication.getPrincipal()).willReturn(owner);
             given(mockFile.isEmpty()).willReturn(false);
             given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
-            given(fileStorageService.saveFile(mockFile, 1)).willReturn("/path/to/cover.jpg");
+            given(fileStorageService.saveFile(mockFile)).willReturn("/path/to/cover.jpg");
             given(bookRepository.save(any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
 
             // When
@@ -713,6 +1291,60 @@ class BookServiceTest {
             // Then
             assertThat(testBook.getBookCover()).isEqualTo("/path/to/cover.jpg");
             then(bookRepository).should().save(testBook);
+            then(coverRenditionService).should().generateRenditions("/path/to/cover.jpg");
+        }
+
+        @Test
+        @DisplayName("Devrait libérer l'ancienne couverture après remplacement")
+        void shouldReleasePreviousCover() {
+            // Given
+            testBook.setBookCover("/path/to/old.jpg");
+            given(mockFile.isEmpty()).willReturn(false);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(fileStorageService.saveFile(mockFile)).willReturn("/path/to/new.jpg");
+            given(bookRepository.save(any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+            // When
+            bookService.uploadCover(mockFile, authentication, 1);
+
+            // Then
+            InOrder inOrder = inOrder(bookRepository, fileStorageService);
+            inOrder.verify(bookRepository).save(testBook);
+            inOrder.verify(fileStorageService).releaseFile("/path/to/old.jpg");
+        }
+
+        @Test
+        @DisplayName("Ne devrait toucher ni au livre ni à l'ancienne couverture si l'envoi échoue")
+        void shouldKeepPreviousCoverWhenSaveFails() {
+            // Given
+            testBook.setBookCover("/path/to/old.jpg");
+            given(mockFile.isEmpty()).willReturn(false);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(fileStorageService.saveFile(mockFile)).willThrow(new UncheckedIOException(new IOException("Disk full")));
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.uploadCover(mockFile, authentication, 1))
+                    .isInstanceOf(UncheckedIOException.class);
+            assertThat(testBook.getBookCover()).isEqualTo("/path/to/old.jpg");
+            then(bookRepository).should(never()).save(any(Book.class));
+            then(fileStorageService).should(never()).releaseFile(any());
+            then(coverRenditionService).shouldHaveNoInteractions();
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas libérer la couverture si le contenu envoyé est identique")
+        void shouldNotReleaseWhenSameContentIsUploaded() {
+            // Given
+            testBook.setBookCover("/path/to/cover.jpg");
+            given(mockFile.isEmpty()).willReturn(false);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(fileStorageService.saveFile(mockFile)).willReturn("/path/to/cover.jpg");
+
+            // When
+            bookService.uploadCover(mockFile, authentication, 1);
+
+            // Then
+            then(fileStorageService).should(never()).releaseFile(any());
         }
 
         @Test
@@ -723,7 +1355,7 @@ class BookServiceTest {
 
             // Then
             then(bookRepository).should(never()).findById(anyInt());
-            then(fileStorageService).should(never()).saveFile(any(), anyInt());
+            then(fileStorageService).should(never()).saveFile(any());
         }
 
         @Test
@@ -737,7 +1369,7 @@ class BookServiceTest {
 
             // Then
             then(bookRepository).should(never()).findById(anyInt());
-            then(fileStorageService).should(never()).saveFile(any(), anyInt());
+            then(fileStorageService).should(never()).saveFile(any());
         }
 
         @Test
@@ -754,6 +1386,128 @@ class BookServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("findBookCover() - Lire la couverture d'un livre")
+    class FindBookCoverTests {
+
+        @TempDir
+        Path tempDir;
+
+        @BeforeEach
+        void setUp() {
+            lenient().when(fileStorageService.loadFile(any()))
+                    .thenAnswer(invocation -> FileUtils.loadFileAsResource(invocation.getArgument(0)));
+        }
+
+        private void stored(Integer bookId, Path path, boolean shareable, boolean archived) {
+            BookCover cover = mock(BookCover.class);
+            lenient().when(cover.getPath()).thenReturn(path.toString());
+            lenient().when(cover.isShareable()).thenReturn(shareable);
+            lenient().when(cover.isArchived()).thenReturn(archived);
+            given(bookRepository.findCoverById(bookId)).willReturn(Optional.of(cover));
+        }
+
+        @Test
+        @DisplayName("Devrait retourner la couverture d'un livre partagé sans charger le livre")
+        void shouldReturnCoverWithoutLoadingBook() throws IOException {
+            // Given
+            Path cover = Files.writeString(tempDir.resolve("cover.jpg"), "image");
+            stored(1, cover, true, false);
+
+            // When
+            Resource result = bookService.findBookCover(1, null, null);
+
+            // Then
+            assertThat(result.getFilename()).isEqualTo("cover.jpg");
+            assertThat(result.contentLength()).isEqualTo(5);
+            then(bookRepository).should(never()).findById(anyInt());
+        }
+
+        @Test
+        @DisplayName("Devrait échouer si le livre n'existe pas")
+        void shouldFailWhenBookNotFound() {
+            // Given
+            given(bookRepository.findCoverById(999)).willReturn(Optional.empty());
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.findBookCover(999, null, null))
+                    .isInstanceOf(EntityNotFoundException.class);
+        }
+
+        @Test
+        @DisplayName("Devrait échouer si le fichier de couverture est introuvable")
+        void shouldFailWhenCoverFileIsMissing() {
+            // Given
+            stored(1, tempDir.resolve("missing.jpg"), true, false);
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.findBookCover(1, null, null))
+                    .isInstanceOf(EntityNotFoundException.class)
+                    .hasMessageContaining("No cover found");
+        }
+
+        @Test
+        @DisplayName("Devrait servir la couverture d'un livre privé ou archivé à qui connaît sa version")
+        void shouldServePrivateCoverWithItsVersion() throws IOException {
+            // Given
+            Path cover = Files.writeString(tempDir.resolve("1700.png"), "original");
+            stored(1, cover, false, false);
+            stored(2, cover, true, true);
+
+            // When / Then
+            assertThat(bookService.findBookCover(1, "1700", null).getFilename()).isEqualTo("1700.png");
+            assertThat(bookService.findBookCover(2, "1700", null).getFilename()).isEqualTo("1700.png");
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas servir la couverture d'un livre privé ou archivé sans sa version")
+        void shouldHidePrivateCoverWithoutItsVersion() throws IOException {
+            // Given
+            Path cover = Files.writeString(tempDir.resolve("1700.png"), "original");
+            stored(1, cover, false, false);
+            stored(2, cover, true, true);
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.findBookCover(1, null, 256))
+                    .isInstanceOf(EntityNotFoundException.class)
+                    .hasMessageContaining("No cover found");
+            assertThatThrownBy(() -> bookService.findBookCover(2, "1699", null))
+                    .isInstanceOf(EntityNotFoundException.class);
+            then(fileStorageService).should(never()).loadFile(any());
+        }
+
+        @Test
+        @DisplayName("Devrait servir la miniature demandée si elle existe")
+        void shouldServeRequestedRendition() throws IOException {
+            // Given
+            Path cover = Files.writeString(tempDir.resolve("1700.png"), "original");
+            Files.writeString(tempDir.resolve("1700_256.jpg"), "small");
+            stored(1, cover, true, false);
+
+            // When
+            Resource result = bookService.findBookCover(1, "1700", 200);
+
+            // Then
+            assertThat(result.getFilename()).isEqualTo("1700_256.jpg");
+            then(coverRenditionService).shouldHaveNoInteractions();
+        }
+
+        @Test
+        @DisplayName("Devrait servir l'original et relancer la génération tant que la miniature n'existe pas")
+        void shouldFallBackToOriginalWhileRenditionIsPending() throws IOException {
+            // Given
+            Path cover = Files.writeString(tempDir.resolve("1700.png"), "original");
+            stored(1, cover, true, false);
+
+            // When
+            Resource result = bookService.findBookCover(1, null, 64);
+
+            // Then
+            assertThat(result.getFilename()).isEqualTo("1700.png");
+            then(coverRenditionService).should().generateRenditions(cover.toString());
+        }
+    }
+
     @Nested
     @DisplayName("addReservation() - Ajouter une réservation")
     class AddReservationTests {
@@ -766,9 +1520,10 @@ class BookServiceTest {
             given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
             given(transactionHistoryRepository.isAlreadyBorrowedByUser(1, 2)).willReturn(false);
             given(reservationRepository.existsByBookAndUser(testBook, borrower)).willReturn(false);
-            given(transactionHistoryRepository.existsByBookIdAndReturnedFalse(1)).willReturn(true);
+            given(transactionHistoryRepository.existsByBookIdAndStatus(1, LoanStatus.ACTIVE)).willReturn(true);
+            given(reservationRepository.nextQueueSequence()).willReturn(77L);
             given(reservationRepository.save(any(BookReservation.class))).willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(notificationService).sendNotification(any(), any(), anyString(), anyString());
+            willDoNothing().given(notificationService).sendNotification(any(), any(), any());
 
             // When
             bookService.addReservation(1, authentication);
@@ -780,12 +1535,12 @@ class BookServiceTest {
             BookReservation saved = reservationCaptor.getValue();
             assertThat(saved.getBook()).isEqualTo(testBook);
             assertThat(saved.getUser()).isEqualTo(borrower);
+            assertThat(saved.getQueueSequence()).isEqualTo(77L);
 
             then(notificationService).should().sendNotification(
                     eq(owner),
-                    eq(RESERVED),
-                    anyString(),
-                    eq("Test Book")
+                    eq(BOOK_RESERVED),
+                    eq(1)
             );
         }
 
@@ -853,7 +1608,7 @@ class BookServiceTest {
             given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
             given(transactionHistoryRepository.isAlreadyBorrowedByUser(1, 2)).willReturn(false);
             given(reservationRepository.existsByBookAndUser(testBook, borrower)).willReturn(false);
-            given(transactionHistoryRepository.existsByBookIdAndReturnedFalse(1)).willReturn(false);
+            given(transactionHistoryRepository.existsByBookIdAndStatus(1, LoanStatus.ACTIVE)).willReturn(false);
 
             // When / Then
             assertThatThrownBy(() -> bookService.addReservation(1, authentication))
@@ -862,6 +1617,38 @@ class BookServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getReservationPosition() - Position dans la file d'attente")
+    class ReservationPositionTests {
+
+        @Test
+        @DisplayName("Devrait compter les lecteurs placés avant l'utilisateur")
+        void shouldCountReadersAhead() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            given(reservationRepository.countReadersAhead(1, 2)).willReturn(Optional.of(3L));
+
+            // When
+            long position = bookService.getReservationPosition(1, authentication);
+
+            // Then
+            assertThat(position).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("Devrait échouer si l'utilisateur n'a pas réservé le livre")
+        void shouldFailWithoutReservation() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(borrower);
+            given(reservationRepository.countReadersAhead(1, 2)).willReturn(Optional.empty());
+
+            // When / Then
+            assertThatThrownBy(() -> bookService.getReservationPosition(1, authentication))
+                    .isInstanceOf(EntityNotFoundException.class)
+                    .hasMessageContaining("No reservation found");
+        }
+    }
+
     @Nested
     @DisplayName("removeReservation() - Supprimer une réservation")
     class RemoveReservationTests {
@@ -879,7 +1666,7 @@ class BookServiceTest {
             given(authentication.getPrincipal()).willReturn(borrower);
             given(reservationRepository.findByBookIdAndUserId(1, 2)).willReturn(Optional.of(reservation));
             willDoNothing().given(reservationRepository).delete(reservation);
-            willDoNothing().given(notificationService).sendNotification(any(), any(), anyString(), anyString());
+            willDoNothing().given(notificationService).sendNotification(any(), any(), any());
 
             // When
             bookService.removeReservation(1, authentication);
@@ -888,9 +1675,8 @@ class BookServiceTest {
             then(reservationRepository).should().delete(reservation);
             then(notificationService).should().sendNotification(
                     eq(owner),
-                    eq(CANCELLED),
-                    anyString(),
-                    eq("Test Book")
+                    eq(RESERVATION_CANCELLED),
+                    eq(1)
             );
         }
 
@@ -916,18 +1702,12 @@ class BookServiceTest {
         @DisplayName("Devrait retourner les réservations de l'utilisateur")
         void shouldReturnUserReservations() {
             // Given
-            BookReservation reservation = BookReservation.builder()
-                    .id(1)
-                    .book(testBook)
-                    .user(borrower)
-                    .build();
-
             given(authentication.getPrincipal()).willReturn(borrower);
             
-            Page<BookReservation> reservationPage = new PageImpl<>(List.of(reservation));
-            given(reservationRepository.findAllByUserId(eq(2), any(Pageable.class)))
+            Page<BookSummary> reservationPage = new PageImpl<>(List.of(bookSummary));
+            given(reservationRepository.findAllReservedBookSummaries(eq(2), any(Pageable.class)))
                     .willReturn(reservationPage);
-            given(bookMapper.toReservationBookResponse(reservation)).willReturn(bookResponse);
+            given(bookMapper.toBookResponse(bookSummary)).willReturn(bookResponse);
 
             // When
             PageResponse<BookResponse> result = bookService.getUserReservations(0, 10, authentication);
@@ -936,6 +1716,9 @@ class BookServiceTest {
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(1);
             assertThat(result.getTotalElements()).isEqualTo(1);
+            then(reservationRepository).should(times(1)).findAllReservedBookSummaries(eq(2), any(Pageable.class));
+            then(reservationRepository).shouldHaveNoMoreInteractions();
+            then(bookRepository).shouldHaveNoInteractions();
         }
 
         @Test
@@ -944,8 +1727,8 @@ class BookServiceTest {
             // Given
             given(authentication.getPrincipal()).willReturn(borrower);
             
-            Page<BookReservation> emptyPage = new PageImpl<>(List.of());
-            given(reservationRepository.findAllByUserId(eq(2), any(Pageable.class)))
+            Page<BookSummary> emptyPage = new PageImpl<>(List.of());
+            given(reservationRepository.findAllReservedBookSummaries(eq(2), any(Pageable.class)))
                     .willReturn(emptyPage);
 
             // When
@@ -0,0 +1,97 @@
+package com.ichaabane.book_network.application.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serveur HTTP local qui imite POST /v3/smtp/email de Brevo.
+ * Il répond avec les statuts programmés (201 ensuite), garde les requêtes reçues
+ * et compte les envois simultanés.
+ */
+class BrevoStub implements AutoCloseable {
+
+    static final String PATH = "/v3/smtp/email";
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile Duration delay = Duration.ZERO;
+
+    record Request(String apiKey, JsonNode body) {
+    }
+
+    BrevoStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    void respondWith(int... codes) {
+        for (int code : codes) {
+            statuses.add(code);
+        }
+    }
+
+    void delayResponses(Duration delay) {
+        this.delay = delay;
+    }
+
+    List<Request> requests() {
+        return List.copyOf(requests);
+    }
+
+    int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            requests.add(new Request(exchange.getRequestHeaders().getFirst("api-key"),
+                    objectMapper.readTree(exchange.getRequestBody())));
+            Thread.sleep(delay.toMillis());
+            Integer status = statuses.poll();
+            int code = status == null ? 201 : status;
+            byte[] body = (code == 201 ? "{\"messageId\":\"<stub@brevo>\"}" : "{\"code\":\"error\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.projection.BookCover;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.file.CoverRendition;
+import com.ichaabane.book_network.infrastructure.file.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CoverRenditionService - Tests unitaires")
+class CoverRenditionServiceTest {
+
+    private static final int RENDITIONS = CoverRendition.values().length;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private CoverRenditionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new CoverRenditionService(fileStorageService, bookRepository, 1, 10, Duration.ofMinutes(10));
+        lenient().when(fileStorageService.getTempDirectory()).thenReturn(tempDir);
+        lenient().when(fileStorageService.loadFile(anyString()))
+                .thenAnswer(invocation -> new FileSystemResource(invocation.<String>getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private String image(String name) throws IOException {
+        Path path = tempDir.resolve(name);
+        ImageIO.write(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+        return path.toString();
+    }
+
+    private static BookCover cover(Integer id, String path) {
+        BookCover cover = mock(BookCover.class);
+        given(cover.getPath()).willReturn(path);
+        lenient().when(cover.getId()).thenReturn(id);
+        return cover;
+    }
+
+    @Nested
+    @DisplayName("generateRenditions() - Générer les miniatures d'une couverture")
+    class GenerateTests {
+
+        @Test
+        @DisplayName("Devrait générer chaque miniature hors du thread appelant")
+        void shouldGenerateEveryRendition() throws IOException {
+            // Given
+            String cover = image("1700.png");
+
+            // When
+            service.generateRenditions(cover);
+
+            // Then
+            for (CoverRendition rendition : CoverRendition.values()) {
+                then(fileStorageService).should(timeout(5000))
+                        .storeFile(eq(FileUtils.getRenditionPath(cover, rendition)), any());
+            }
+        }
+
+        @Test
+        @DisplayName("Ne devrait mettre une couverture en file qu'une fois par délai de relance")
+        void shouldQueueCoverOncePerRetryDelay() throws IOException {
+            // Given
+            String cover = image("1700.png");
+
+            // When
+            service.generateRenditions(cover);
+            service.generateRenditions(cover);
+            service.generateRenditions(cover);
+
+            // Then
+            then(fileStorageService).should(timeout(5000).times(RENDITIONS)).storeFile(anyString(), any());
+            then(fileStorageService).should(times(1)).loadFile(cover);
+        }
+
+        @Test
+        @DisplayName("Ne devrait rien générer si les miniatures existent déjà")
+        void shouldSkipCoverWithRenditions() throws IOException {
+            // Given
+            given(fileStorageService.exists(anyString())).willReturn(true);
+
+            // When
+            service.generateRenditions(image("1700.png"));
+
+            // Then
+            then(fileStorageService).should(never()).loadFile(anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("backfill() - Rattraper les couvertures existantes")
+    class BackfillTests {
+
+        @Test
+        @DisplayName("Devrait générer les miniatures manquantes des couvertures existantes")
+        void shouldGenerateMissingRenditions() throws IOException {
+            // Given
+            String done = image("1600.png");
+            String missing = image("1700.png");
+            given(fileStorageService.exists(anyString()))
+                    .willAnswer(invocation -> invocation.<String>getArgument(0).contains("1600_"));
+            List<BookCover> covers = List.of(cover(1, done), cover(2, missing));
+            given(bookRepository.findCoversAfter(eq(0), any())).willReturn(covers);
+
+            // When
+            service.backfill();
+
+            // Then
+            then(fileStorageService).should(times(RENDITIONS)).storeFile(startsWith(tempDir.resolve("1700_").toString()), any());
+            then(fileStorageService).should(never()).loadFile(done);
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas générer deux fois une couverture partagée par plusieurs livres")
+        void shouldGenerateSharedCoverOnce() throws IOException {
+            // Given
+            String shared = image("1700.png");
+            List<BookCover> covers = List.of(cover(1, shared), cover(2, shared));
+            given(bookRepository.findCoversAfter(eq(0), any())).willReturn(covers);
+
+            // When
+            service.backfill();
+
+            // Then
+            then(fileStorageService).should(times(1)).loadFile(shared);
+        }
+    }
+}
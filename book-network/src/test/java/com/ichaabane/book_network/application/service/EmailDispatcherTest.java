@@ -0,0 +1,312 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.model.EmailJob;
+import com.ichaabane.book_network.domain.repository.EmailJobRepository;
+import com.ichaabane.book_network.infrastructure.email.EmailTemplateName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * L'EmailDispatcher envoie à travers un vrai EmailService, contre un serveur local qui imite l'API Brevo.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("EmailDispatcher - Tests unitaires")
+class EmailDispatcherTest {
+
+    private static final int BATCH_SIZE = 4;
+    private static final int THREADS = 2;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private EmailJobRepository emailJobRepository;
+
+    @Mock
+    private SpringTemplateEngine templateEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BrevoStub brevo;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        brevo = new BrevoStub();
+        meterRegistry = new SimpleMeterRegistry();
+        EmailService emailService = new EmailService(templateEngine, emailJobRepository, brevo.url(), "key",
+                "noreply@test.com", "Book Network", Duration.ofSeconds(1), Duration.ofSeconds(2));
+        dispatcher = new EmailDispatcher(emailJobRepository, emailService, transactionManager, meterRegistry,
+                BATCH_SIZE, THREADS, MAX_ATTEMPTS, Duration.ofMinutes(2), Duration.ofSeconds(30),
+                Duration.ofMinutes(5), Duration.ofDays(7));
+        lenient().when(templateEngine.process(anyString(), any(Context.class))).thenReturn("<html>Code</html>");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        brevo.close();
+    }
+
+    private static EmailJob job(int id, int attempts) {
+        return EmailJob.builder()
+                .id(id)
+                .idempotencyKey("ACTIVATE_ACCOUNT:user" + id + "@test.com:" + id)
+                .recipient("user" + id + "@test.com")
+                .recipientName("User " + id)
+                .template(EmailTemplateName.ACTIVATE_ACCOUNT)
+                .activationCode(String.valueOf(id))
+                .subject("Account activation")
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .createdAt(LocalDateTime.now().minusSeconds(5))
+                .build();
+    }
+
+    // The jobs are claimed, then looked up again by id to record the outcome
+    private void queued(EmailJob... jobs) {
+        given(emailJobRepository.findDueForUpdate(any(), eq(Limit.of(BATCH_SIZE)))).willReturn(List.of(jobs), List.of());
+        given(emailJobRepository.findAllById(anyCollection())).willAnswer(invocation -> {
+            Collection<Integer> ids = invocation.getArgument(0);
+            return new ArrayList<>(List.of(jobs).stream().filter(job -> ids.contains(job.getId())).toList());
+        });
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Nested
+    @DisplayName("dispatch() - Envoyer les emails dus")
+    class DispatchTests {
+
+        @Test
+        @DisplayName("Devrait envoyer les emails dus et les marquer envoyés")
+        void shouldSendDueEmails() {
+            // Given
+            EmailJob first = job(1, 0);
+            EmailJob second = job(2, 0);
+            queued(first, second);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(brevo.requests()).hasSize(2);
+            assertThat(List.of(first, second)).allSatisfy(job -> {
+                assertThat(job.getSentAt()).isNotNull();
+                assertThat(job.getNextAttemptAt()).isNull();
+                assertThat(job.getAttempts()).isEqualTo(1);
+            });
+            assertThat(counter("email.queue.sent")).isEqualTo(2);
+            assertThat(meterRegistry.get("email.send.latency").tag("outcome", "sent").timer().count()).isEqualTo(2);
+            assertThat(meterRegistry.get("email.queue.lag").timer().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Devrait reprogrammer un email après une erreur de Brevo")
+        void shouldRetryAfterServerError() {
+            // Given
+            EmailJob job = job(1, 0);
+            queued(job);
+            brevo.respondWith(503);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(job.getSentAt()).isNull();
+            assertThat(job.getAttempts()).isEqualTo(1);
+            assertThat(job.getLastError()).contains("503");
+            assertThat(job.getNextAttemptAt()).isCloseTo(LocalDateTime.now().plusSeconds(30), within(5, ChronoUnit.SECONDS));
+            assertThat(counter("email.queue.failures")).isEqualTo(1);
+            assertThat(meterRegistry.get("email.send.latency").tag("outcome", "failed").timer().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait renvoyer un email en échec au passage suivant")
+        void shouldSendOnLaterAttempt() {
+            // Given
+            EmailJob job = job(1, 0);
+            brevo.respondWith(500);
+            queued(job);
+            dispatcher.dispatch();
+
+            // When
+            job.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            given(emailJobRepository.findDueForUpdate(any(), any())).willReturn(List.of(job), List.of());
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(brevo.requests()).hasSize(2);
+            assertThat(brevo.requests()).extracting(request -> request.body().get("headers").get("idempotencyKey").asText())
+                    .containsOnly(job.getIdempotencyKey());
+            assertThat(job.getSentAt()).isNotNull();
+            assertThat(job.getAttempts()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Devrait abandonner un email refusé par Brevo sans réessayer")
+        void shouldGiveUpOnRefusedEmail() {
+            // Given
+            EmailJob job = job(1, 0);
+            queued(job);
+            brevo.respondWith(400);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(job.getNextAttemptAt()).isNull();
+            assertThat(job.getSentAt()).isNull();
+            assertThat(counter("email.queue.abandoned")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait abandonner un email que Brevo ne peut pas traiter")
+        void shouldGiveUpOnUnprocessableEmail() {
+            // Given
+            EmailJob job = job(1, 0);
+            queued(job);
+            brevo.respondWith(422);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(job.getNextAttemptAt()).isNull();
+            assertThat(counter("email.queue.abandoned")).isEqualTo(1);
+        }
+
+        @ParameterizedTest
+        @ValueSource(ints = {401, 403})
+        @DisplayName("Devrait réessayer avec backoff quand Brevo refuse la clé d'API, même après la dernière tentative")
+        void shouldRetryWhenUnauthorized(int status) {
+            // Given
+            EmailJob job = job(1, MAX_ATTEMPTS - 1);
+            queued(job);
+            brevo.respondWith(status);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(job.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+            assertThat(job.getNextAttemptAt()).isCloseTo(LocalDateTime.now().plus(dispatcher.retryDelay(MAX_ATTEMPTS)),
+                    within(5, ChronoUnit.SECONDS));
+            assertThat(counter("email.queue.abandoned")).isZero();
+        }
+
+        @Test
+        @DisplayName("Devrait réessayer quand Brevo limite le débit")
+        void shouldRetryWhenRateLimited() {
+            // Given
+            EmailJob job = job(1, 0);
+            queued(job);
+            brevo.respondWith(429);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(job.getNextAttemptAt()).isNotNull();
+            assertThat(counter("email.queue.abandoned")).isZero();
+        }
+
+        @Test
+        @DisplayName("Devrait abandonner après la dernière tentative")
+        void shouldGiveUpAfterLastAttempt() {
+            // Given
+            EmailJob job = job(1, MAX_ATTEMPTS - 1);
+            queued(job);
+            brevo.respondWith(500);
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(job.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+            assertThat(job.getNextAttemptAt()).isNull();
+            assertThat(counter("email.queue.abandoned")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait limiter les envois simultanés à la taille du pool")
+        void shouldBoundConcurrentSends() {
+            // Given
+            EmailJob[] jobs = IntStream.rangeClosed(1, BATCH_SIZE).mapToObj(id -> job(id, 0)).toArray(EmailJob[]::new);
+            queued(jobs);
+            brevo.delayResponses(Duration.ofMillis(200));
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(brevo.requests()).hasSize(BATCH_SIZE);
+            assertThat(brevo.maxInFlight()).isBetween(1, THREADS);
+        }
+
+        @Test
+        @DisplayName("Devrait réessayer au prochain passage si la base est indisponible")
+        void shouldSkipPollWhenDatabaseIsDown() {
+            // Given
+            given(emailJobRepository.findDueForUpdate(any(), any()))
+                    .willThrow(new DataAccessResourceFailureException("connection refused"));
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            assertThat(brevo.requests()).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Devrait doubler le délai entre les tentatives jusqu'au plafond")
+    void shouldBackOffExponentially() {
+        assertThat(dispatcher.retryDelay(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(dispatcher.retryDelay(2)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(dispatcher.retryDelay(3)).isEqualTo(Duration.ofMinutes(2));
+        assertThat(dispatcher.retryDelay(10)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Devrait supprimer les emails terminés au-delà de la rétention")
+    void shouldPurgeFinishedJobs() {
+        // When
+        dispatcher.purgeFinished();
+
+        // Then
+        then(emailJobRepository).should().deleteFinishedBefore(argThat(before ->
+                before.isBefore(LocalDateTime.now().minusDays(7).plusMinutes(1))
+                        && before.isAfter(LocalDateTime.now().minusDays(7).minusMinutes(1))));
+    }
+}
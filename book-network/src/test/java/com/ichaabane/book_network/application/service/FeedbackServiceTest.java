@@ -1,15 +1,22 @@
 package com.ichaabane.book_network.application.service;
 
 import com.ichaabane.book_network.application.dto.request.FeedbackRequest;
+import com.ichaabane.book_network.application.dto.request.PageCursor;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.FeedbackResponse;
 import com.ichaabane.book_network.application.dto.response.PageResponse;
+import com.ichaabane.book_network.application.dto.response.ResourceVersion;
 import com.ichaabane.book_network.application.mapper.FeedbackMapper;
+import com.ichaabane.book_network.domain.enums.CountMode;
 import com.ichaabane.book_network.domain.exception.OperationNotPermittedException;
 import com.ichaabane.book_network.domain.model.Book;
 import com.ichaabane.book_network.domain.model.Feedback;
 import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.projection.FeedbackListVersion;
 import com.ichaabane.book_network.domain.repository.BookRepository;
 import com.ichaabane.book_network.domain.repository.FeedbackRepository;
+import com.ichaabane.book_network.infrastructure.cache.ApproximateCountCache;
+import com.ichaabane.book_network.infrastructure.cache.BookResponseCache;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,16 +26,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.core.Authentication;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.*;
@@ -49,6 +62,12 @@ class FeedbackServiceTest {
     @Mock
     private FeedbackMapper mapper;
 
+    @Mock
+    private ApproximateCountCache countCache;
+
+    @Mock
+    private BookResponseCache bookResponseCache;
+
     @Mock
     private Authentication authentication;
 
@@ -134,6 +153,44 @@ class FeedbackServiceTest {
             then(mapper).should().toFeedback(request);
         }
 
+        @Test
+        @DisplayName("Devrait mettre à jour l'agrégat de notes du livre")
+        void shouldUpdateBookRatingAggregate() {
+            // Given
+            FeedbackRequest request = new FeedbackRequest(4.5, "Excellent book!", 1);
+
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(mapper.toFeedback(request)).willReturn(testFeedback);
+            given(feedbackRepository.save(any(Feedback.class))).willReturn(testFeedback);
+
+            // When
+            feedbackService.saveFeedback(request, authentication);
+
+            // Then
+            then(bookRepository).should().addRating(1, 4.5);
+            then(bookResponseCache).should().evict(1);
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas mettre à jour l'agrégat pour un feedback sans note")
+        void shouldNotUpdateAggregateWhenNoteIsNull() {
+            // Given
+            FeedbackRequest request = new FeedbackRequest(null, "No rating", 1);
+
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            given(bookRepository.findById(1)).willReturn(Optional.of(testBook));
+            given(mapper.toFeedback(request)).willReturn(testFeedback);
+            given(feedbackRepository.save(any(Feedback.class))).willReturn(testFeedback);
+
+            // When
+            feedbackService.saveFeedback(request, authentication);
+
+            // Then
+            then(bookRepository).should(never()).addRating(anyInt(), anyDouble());
+            then(bookResponseCache).shouldHaveNoInteractions();
+        }
+
         @Test
         @DisplayName("Devrait échouer si le livre n'existe pas")
         void shouldFailWhenBookNotFound() {
@@ -219,6 +276,26 @@ class FeedbackServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("reconcileRatings() - Réconcilier les agrégats de notes")
+    class ReconcileRatingsTests {
+
+        @Test
+        @DisplayName("Devrait recalculer les agrégats en une seule requête")
+        void shouldReconcileRatingsInSingleStatement() {
+            // Given
+            given(bookRepository.reconcileRatings()).willReturn(3);
+
+            // When
+            feedbackService.reconcileRatings();
+
+            // Then
+            then(bookRepository).should().reconcileRatings();
+            then(feedbackRepository).shouldHaveNoInteractions();
+            then(bookResponseCache).should().evictAll();
+        }
+    }
+
     @Nested
     @DisplayName("findAllFeedbackByBook() - Récupérer feedbacks d'un livre")
     class FindAllFeedbackByBookTests {
@@ -389,4 +466,145 @@ class FeedbackServiceTest {
                     .isInstanceOf(EntityNotFoundException.class);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("findAllFeedbackByBook() - Modes de comptage")
+    class FindAllFeedbackByBookCountModeTests {
+
+        @Test
+        @DisplayName("Devrait retourner une slice avec le total approximatif du livre")
+        void shouldReturnSliceWithApproximateTotal() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            given(feedbackRepository.findSliceByBookId(eq(1), any(Pageable.class)))
+                    .willReturn(new SliceImpl<>(List.of(testFeedback), PageRequest.of(0, 10), false));
+            given(mapper.toFeedbackResponse(any(Feedback.class), anyInt())).willReturn(feedbackResponse);
+            given(countCache.get(eq("book-feedbacks"), eq(1), any())).willReturn(1L);
+
+            // When
+            PageResponse<FeedbackResponse> result = feedbackService.findAllFeedbackByBook(1, 0, 10, CountMode.APPROXIMATE, authentication);
+
+            // Then
+            assertThat(result.getContent()).hasSize(1);
+            assertThat(result.getTotalElements()).isEqualTo(1L);
+            assertThat(result.getTotalPages()).isEqualTo(1);
+            then(feedbackRepository).should(never()).findAllByBookId(anyInt(), any(Pageable.class));
+            then(feedbackRepository).should(never()).countByBookId(anyInt());
+        }
+
+        @Test
+        @DisplayName("Devrait ignorer le total en mode NONE")
+        void shouldSkipTotalInNoneMode() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            given(feedbackRepository.findSliceByBookId(eq(1), any(Pageable.class)))
+                    .willReturn(new SliceImpl<>(List.of()));
+
+            // When
+            PageResponse<FeedbackResponse> result = feedbackService.findAllFeedbackByBook(1, 0, 10, CountMode.NONE, authentication);
+
+            // Then
+            assertThat(result.getTotalElements()).isNull();
+            then(countCache).shouldHaveNoInteractions();
+        }
+    }
+
+    @Nested
+    @DisplayName("findAllFeedbackByBook() - Pagination par curseur")
+    class FindAllFeedbackByBookCursorTests {
+
+        @Test
+        @DisplayName("Devrait retourner le curseur du dernier feedback de la page")
+        void shouldReturnCursorOfLastFeedback() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            LocalDateTime createdDate = LocalDateTime.of(2024, 5, 2, 10, 0);
+            testFeedback.setCreatedDate(createdDate);
+            Feedback extra = Feedback.builder().id(0).createdDate(createdDate).build();
+            given(feedbackRepository.findAllByBookIdBefore(eq(1), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of(testFeedback, extra));
+            given(mapper.toFeedbackResponse(any(Feedback.class), anyInt())).willReturn(feedbackResponse);
+
+            // When
+            CursorPageResponse<FeedbackResponse> result = feedbackService.findAllFeedbackByBook(1, null, 1, authentication);
+
+            // Then
+            then(feedbackRepository).should().findAllByBookIdBefore(
+                    1, PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(), Limit.of(2));
+            then(feedbackRepository).shouldHaveNoMoreInteractions();
+            assertThat(result.getContent()).hasSize(1);
+            assertThat(result.isLast()).isFalse();
+            assertThat(PageCursor.decode(result.getNextCursor())).isEqualTo(new PageCursor(createdDate, 1));
+        }
+
+        @Test
+        @DisplayName("Devrait terminer la pagination sur la dernière page")
+        void shouldEndOnLastPage() {
+            // Given
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            String after = new PageCursor(LocalDateTime.of(2024, 5, 2, 10, 0), 1).encode();
+            given(feedbackRepository.findAllByBookIdBefore(eq(1), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of());
+
+            // When
+            CursorPageResponse<FeedbackResponse> result = feedbackService.findAllFeedbackByBook(1, after, 10, authentication);
+
+            // Then
+            assertThat(result.getContent()).isEmpty();
+            assertThat(result.isLast()).isTrue();
+            assertThat(result.getNextCursor()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("findFeedbackVersion() - Version des avis d'un livre")
+    class FindFeedbackVersionTests {
+
+        private FeedbackListVersion version(long count, Integer maxId, LocalDateTime lastCreated) {
+            FeedbackListVersion version = mock(FeedbackListVersion.class);
+            given(version.getCount()).willReturn(count);
+            given(version.getMaxId()).willReturn(maxId);
+            given(version.getLastCreatedDate()).willReturn(lastCreated);
+            return version;
+        }
+
+        @Test
+        @DisplayName("Devrait dépendre de l'utilisateur connecté")
+        void shouldDependOnConnectedUser() {
+            // Given
+            FeedbackListVersion version = version(3, 12, LocalDateTime.of(2024, 3, 1, 9, 0));
+            given(feedbackRepository.findListVersionByBookId(1)).willReturn(version);
+            Authentication other = mock(Authentication.class);
+            given(authentication.getPrincipal()).willReturn(reviewer);
+            given(other.getPrincipal()).willReturn(owner);
+
+            // When
+            ResourceVersion forReviewer = feedbackService.findFeedbackVersion(1, authentication);
+            ResourceVersion forOwner = feedbackService.findFeedbackVersion(1, other);
+
+            // Then
+            assertThat(forReviewer.eTag()).isEqualTo("feedbacks-1-3-12-2");
+            assertThat(forOwner.eTag()).isNotEqualTo(forReviewer.eTag());
+            assertThat(forReviewer.lastModified())
+                    .isEqualTo(LocalDateTime.of(2024, 3, 1, 9, 0).atZone(ZoneId.systemDefault()).toInstant());
+            then(feedbackRepository).should(never()).findAllByBookId(anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("Devrait gérer un livre sans avis")
+        void shouldHandleBookWithoutFeedback() {
+            // Given
+            FeedbackListVersion version = version(0, null, null);
+            given(feedbackRepository.findListVersionByBookId(1)).willReturn(version);
+            given(authentication.getPrincipal()).willReturn(reviewer);
+
+            // When
+            ResourceVersion result = feedbackService.findFeedbackVersion(1, authentication);
+
+            // Then
+            assertThat(result.eTag()).isEqualTo("feedbacks-1-0-null-2");
+            assertThat(result.lastModified()).isNull();
+            assertThat(result.lastModifiedMillis()).isEqualTo(-1);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.file.LocalBlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Micro-benchmark de l'upload en flux : des envois parallèles de fichiers volumineux
+ * ne doivent allouer qu'un tampon de copie par envoi, quelle que soit la taille du fichier.
+ * <p>
+ * L'allocation est mesurée par thread (com.sun.management.ThreadMXBean), ce qui reste
+ * déterministe contrairement à l'occupation du tas qui dépend du ramasse-miettes.
+ * <p>
+ * Exclu du build par défaut : {@code mvn test -Dgroups=benchmark -DexcludedGroups=} pour le lancer.
+ */
+@Tag("benchmark")
+@Slf4j
+@DisplayName("FileStorageService - Benchmark upload en flux")
+class FileStorageServiceBenchmarkTest {
+
+    private static final int PARALLEL_UPLOADS = 4;
+    private static final long FILE_SIZE = 8L * 1024 * 1024;
+    // Copy buffer, digest state, paths and logging; far below the file size
+    private static final long MAX_ALLOCATION_PER_UPLOAD = 2L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Devrait garder une allocation constante sous des envois parallèles")
+    void shouldKeepAllocationFlatUnderParallelUploads() throws Exception {
+        // Given
+        FileStorageService service = new FileStorageService(mock(BookRepository.class), new LocalBlobStore(),
+                mock(TaskScheduler.class));
+        ReflectionTestUtils.setField(service, "fileUploadPath", tempDir.toString());
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_UPLOADS);
+
+        // When
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < PARALLEL_UPLOADS; i++) {
+            int seed = i;
+            results.add(executor.submit(() -> {
+                service.saveFile(new GeneratedUpload(seed));
+                long before = threads.getCurrentThreadAllocatedBytes();
+                String path = service.saveFile(new GeneratedUpload(seed + PARALLEL_UPLOADS));
+                long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+                return new long[]{allocated, Files.size(Paths.get(path))};
+            }));
+        }
+        long maxAllocated = 0;
+        for (Future<long[]> result : results) {
+            long[] measure = result.get();
+            assertThat(measure[1]).isEqualTo(FILE_SIZE);
+            maxAllocated = Math.max(maxAllocated, measure[0]);
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Then
+        log.info("{} x {} MB uploads in {}s ({} MB/s), max {} KB allocated per upload",
+                2 * PARALLEL_UPLOADS, FILE_SIZE >> 20, String.format("%.2f", seconds),
+                Math.round(2 * PARALLEL_UPLOADS * (FILE_SIZE >> 20) / seconds), maxAllocated >> 10);
+        assertThat(maxAllocated).isLessThan(MAX_ALLOCATION_PER_UPLOAD);
+        try (var files = Files.list(tempDir.resolve("covers").resolve(".tmp"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    /**
+     * Fichier généré à la volée : getBytes() échoue pour garantir qu'aucun chemin ne charge tout le contenu.
+     */
+    private record GeneratedUpload(int seed) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "cover-" + seed + ".jpg";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+
+        @Override
+        public long getSize() {
+            return FILE_SIZE;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("Upload must be streamed");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long remaining = FILE_SIZE;
+
+                @Override
+                public int read() {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    remaining--;
+                    return seed & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(length, remaining);
+                    Arrays.fill(buffer, offset, offset + count, (byte) seed);
+                    remaining -= count;
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
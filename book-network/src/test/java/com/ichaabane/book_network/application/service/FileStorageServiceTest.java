@@ -6,15 +6,27 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
+import com.ichaabane.book_network.domain.repository.BookRepository;
+import com.ichaabane.book_network.infrastructure.file.BlobStore;
+import com.ichaabane.book_network.infrastructure.file.LocalBlobStore;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
@@ -29,6 +41,15 @@ import static org.mockito.BDDMockito.*;
 @DisplayName("FileStorageService - Tests unitaires")
 class FileStorageServiceTest {
 
+    @Mock
+    private BookRepository bookRepository;
+
+    @Spy
+    private BlobStore blobStore = new LocalBlobStore();
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
     @InjectMocks
     private FileStorageService fileStorageService;
 
@@ -51,15 +72,15 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("test-image.jpg");
-            given(mockFile.getBytes()).willReturn("test content".getBytes());
-
-            Integer userId = 1;
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("test content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, userId);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
-            assertThat(filePath).isNotNull().contains("users").contains(userId.toString()).endsWith(".jpg");
+            // sha256("test content")
+            assertThat(filePath).isNotNull().contains("covers")
+                    .endsWith("6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72.jpg");
 
             // Vérifier que le fichier existe
             Path savedPath = Paths.get(filePath);
@@ -73,19 +94,18 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("profile.png");
-            given(mockFile.getBytes()).willReturn("image data".getBytes());
-
-            Integer userId = 99;
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("image data".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, userId);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).isNotNull();
-            
-            Path userDirectory = tempDir.resolve("users").resolve(userId.toString());
-            assertThat(Files.exists(userDirectory)).isTrue();
-            assertThat(Files.isDirectory(userDirectory)).isTrue();
+
+            String hash = Paths.get(filePath).getFileName().toString().replace(".png", "");
+            Path shardDirectory = tempDir.resolve("covers").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4));
+            assertThat(Files.isDirectory(shardDirectory)).isTrue();
+            assertThat(Paths.get(filePath).getParent()).isEqualTo(shardDirectory);
         }
 
         @Test
@@ -97,10 +117,10 @@ class FileStorageServiceTest {
             for (String ext : extensions) {
                 MultipartFile mockFile = mock(MultipartFile.class);
                 given(mockFile.getOriginalFilename()).willReturn("file." + ext);
-                given(mockFile.getBytes()).willReturn("content".getBytes());
+                given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
                 // When
-                String filePath = fileStorageService.saveFile(mockFile, 1);
+                String filePath = fileStorageService.saveFile(mockFile);
 
                 // Then
                 assertThat(filePath).endsWith("." + ext.toLowerCase());
@@ -113,10 +133,10 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("filename");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             // Le fichier est sauvegardé sans extension
@@ -129,10 +149,10 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn(null);
-            given(mockFile.getBytes()).willReturn("content".getBytes());
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).isNotNull();
@@ -144,10 +164,10 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).isNotNull();
@@ -159,20 +179,15 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile1 = mock(MultipartFile.class);
             given(mockFile1.getOriginalFilename()).willReturn("test.jpg");
-            given(mockFile1.getBytes()).willReturn("content1".getBytes());
+            given(mockFile1.getInputStream()).willReturn(new ByteArrayInputStream("content1".getBytes()));
 
             MultipartFile mockFile2 = mock(MultipartFile.class);
             given(mockFile2.getOriginalFilename()).willReturn("test.jpg");
-            given(mockFile2.getBytes()).willReturn("content2".getBytes());
+            given(mockFile2.getInputStream()).willReturn(new ByteArrayInputStream("content2".getBytes()));
 
             // When
-            String filePath1 = fileStorageService.saveFile(mockFile1, 1);
-            // Busy wait to ensure different timestamp (alternative to Thread.sleep)
-            long timestamp1 = System.currentTimeMillis();
-            while (System.currentTimeMillis() == timestamp1) {
-                // Busy wait until time advances
-            }
-            String filePath2 = fileStorageService.saveFile(mockFile2, 1);
+            String filePath1 = fileStorageService.saveFile(mockFile1);
+            String filePath2 = fileStorageService.saveFile(mockFile2);
 
             // Then
             assertThat(filePath1).isNotNull();
@@ -185,42 +200,66 @@ class FileStorageServiceTest {
         }
 
         @Test
-        @DisplayName("Devrait retourner null en cas d'IOException")
-        void shouldReturnNullOnIOException() throws IOException {
+        @DisplayName("Devrait échouer en cas d'IOException sans laisser de fichier temporaire")
+        void shouldFailOnIOException() throws IOException {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("test.jpg");
-            given(mockFile.getBytes()).willThrow(new IOException("Disk full"));
+            given(mockFile.getInputStream()).willThrow(new IOException("Disk full"));
+
+            // When / Then
+            assertThatThrownBy(() -> fileStorageService.saveFile(mockFile))
+                    .isInstanceOf(UncheckedIOException.class)
+                    .hasRootCauseMessage("Disk full");
+            try (var files = Files.list(fileStorageService.getTempDirectory())) {
+                assertThat(files).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Devrait stocker une seule fois un contenu identique")
+        void shouldDeduplicateIdenticalContent() throws IOException {
+            // Given
+            MultipartFile mockFile1 = mock(MultipartFile.class);
+            given(mockFile1.getOriginalFilename()).willReturn("user1.jpg");
+            given(mockFile1.getInputStream()).willReturn(new ByteArrayInputStream("same content".getBytes()));
+
+            MultipartFile mockFile2 = mock(MultipartFile.class);
+            given(mockFile2.getOriginalFilename()).willReturn("user2.jpg");
+            given(mockFile2.getInputStream()).willReturn(new ByteArrayInputStream("same content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath1 = fileStorageService.saveFile(mockFile1);
+            String filePath2 = fileStorageService.saveFile(mockFile2);
 
             // Then
-            assertThat(filePath).isNull();
+            assertThat(filePath1).isEqualTo(filePath2);
+            assertThat(Files.readAllBytes(Paths.get(filePath1))).isEqualTo("same content".getBytes());
+            try (var files = Files.list(Paths.get(filePath1).getParent())) {
+                assertThat(files).hasSize(1);
+            }
         }
 
         @Test
-        @DisplayName("Devrait gérer plusieurs utilisateurs différents")
-        void shouldHandleMultipleUsers() throws IOException {
+        @DisplayName("Ne devrait laisser aucun fichier temporaire, même pour un contenu déjà stocké")
+        void shouldLeaveNoTemporaryFiles() throws IOException {
             // Given
             MultipartFile mockFile1 = mock(MultipartFile.class);
-            given(mockFile1.getOriginalFilename()).willReturn("user1.jpg");
-            given(mockFile1.getBytes()).willReturn("user1 content".getBytes());
-
+            given(mockFile1.getOriginalFilename()).willReturn("a.jpg");
+            given(mockFile1.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
             MultipartFile mockFile2 = mock(MultipartFile.class);
-            given(mockFile2.getOriginalFilename()).willReturn("user2.jpg");
-            given(mockFile2.getBytes()).willReturn("user2 content".getBytes());
+            given(mockFile2.getOriginalFilename()).willReturn("b.jpg");
+            given(mockFile2.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath1 = fileStorageService.saveFile(mockFile1, 1);
-            String filePath2 = fileStorageService.saveFile(mockFile2, 2);
+            fileStorageService.saveFile(mockFile1);
+            fileStorageService.saveFile(mockFile2);
 
             // Then
-            assertThat(filePath1).contains("users" + java.io.File.separator + "1");
-            assertThat(filePath2).contains("users" + java.io.File.separator + "2");
-            
-            assertThat(Files.exists(Paths.get(filePath1))).isTrue();
-            assertThat(Files.exists(Paths.get(filePath2))).isTrue();
+            try (var files = Files.list(tempDir.resolve("covers").resolve(".tmp"))) {
+                assertThat(files).isEmpty();
+            }
+            then(mockFile1).should(never()).getBytes();
         }
 
         @Test
@@ -229,10 +268,10 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("FILE.JPG");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).endsWith(".jpg").doesNotContain(".JPG");
@@ -244,10 +283,10 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("my.file.name.jpg");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).endsWith(".jpg");
@@ -259,10 +298,10 @@ class FileStorageServiceTest {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("file@#$%^&*.jpg");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("content".getBytes()));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).isNotNull().endsWith(".jpg");
@@ -273,46 +312,16 @@ class FileStorageServiceTest {
     @DisplayName("Cas limites et validations")
     class EdgeCaseTests {
 
-        @Test
-        @DisplayName("Devrait gérer userId null")
-        void shouldHandleNullUserId() throws IOException {
-            // Given
-            MultipartFile mockFile = mock(MultipartFile.class);
-            given(mockFile.getOriginalFilename()).willReturn("test.jpg");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
-
-            // When
-            String filePath = fileStorageService.saveFile(mockFile, null);
-
-            // Then
-            assertThat(filePath).isNotNull().contains("null"); // Le userId null est converti en "null"
-        }
-
-        @Test
-        @DisplayName("Devrait gérer userId négatif")
-        void shouldHandleNegativeUserId() throws IOException {
-            // Given
-            MultipartFile mockFile = mock(MultipartFile.class);
-            given(mockFile.getOriginalFilename()).willReturn("test.jpg");
-            given(mockFile.getBytes()).willReturn("content".getBytes());
-
-            // When
-            String filePath = fileStorageService.saveFile(mockFile, -1);
-
-            // Then
-            assertThat(filePath).isNotNull().contains("-1");
-        }
-
         @Test
         @DisplayName("Devrait gérer un fichier vide")
         void shouldHandleEmptyFile() throws IOException {
             // Given
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("empty.txt");
-            given(mockFile.getBytes()).willReturn(new byte[0]);
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream(new byte[0]));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).isNotNull();
@@ -329,10 +338,10 @@ class FileStorageServiceTest {
             MultipartFile mockFile = mock(MultipartFile.class);
             given(mockFile.getOriginalFilename()).willReturn("large.dat");
             byte[] largeContent = new byte[1024 * 1024]; // 1 MB
-            given(mockFile.getBytes()).willReturn(largeContent);
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream(largeContent));
 
             // When
-            String filePath = fileStorageService.saveFile(mockFile, 1);
+            String filePath = fileStorageService.saveFile(mockFile);
 
             // Then
             assertThat(filePath).isNotNull();
@@ -343,13 +352,97 @@ class FileStorageServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("releaseFile() - Libérer un fichier")
+    class ReleaseFileTests {
+
+        private String storeCover() throws IOException {
+            MultipartFile mockFile = mock(MultipartFile.class);
+            given(mockFile.getOriginalFilename()).willReturn("cover.jpg");
+            given(mockFile.getInputStream()).willReturn(new ByteArrayInputStream("cover content".getBytes()));
+            String filePath = fileStorageService.saveFile(mockFile);
+            Files.setLastModifiedTime(Paths.get(filePath), FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+            return filePath;
+        }
+
+        @Test
+        @DisplayName("Devrait supprimer le fichier et ses miniatures quand plus aucun livre ne le référence")
+        void shouldDeleteUnreferencedFileAndRenditions() throws IOException {
+            // Given
+            String filePath = storeCover();
+            Path rendition = Paths.get(filePath.replace(".jpg", "_256.jpg"));
+            Files.write(rendition, "thumb".getBytes());
+            given(bookRepository.countByBookCover(filePath)).willReturn(0L);
+
+            // When
+            fileStorageService.releaseFile(filePath);
+
+            // Then
+            assertThat(Files.exists(Paths.get(filePath))).isFalse();
+            assertThat(Files.exists(rendition)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Devrait conserver un fichier encore référencé par un livre")
+        void shouldKeepReferencedFile() throws IOException {
+            // Given
+            String filePath = storeCover();
+            given(bookRepository.countByBookCover(filePath)).willReturn(1L);
+
+            // When
+            fileStorageService.releaseFile(filePath);
+
+            // Then
+            assertThat(Files.exists(Paths.get(filePath))).isTrue();
+        }
+
+        @Test
+        @DisplayName("Devrait conserver un fichier tout juste réutilisé et le réexaminer après le délai de grâce")
+        void shouldDeferReleaseOfRecentlyReusedFile() throws IOException {
+            // Given
+            String filePath = storeCover();
+            MultipartFile sameContent = mock(MultipartFile.class);
+            given(sameContent.getOriginalFilename()).willReturn("other.jpg");
+            given(sameContent.getInputStream()).willReturn(new ByteArrayInputStream("cover content".getBytes()));
+            fileStorageService.saveFile(sameContent);
+            given(bookRepository.countByBookCover(filePath)).willReturn(0L);
+
+            // When
+            fileStorageService.releaseFile(filePath);
+
+            // Then
+            assertThat(Files.exists(Paths.get(filePath))).isTrue();
+            ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+            ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+            then(taskScheduler).should().schedule(retry.capture(), at.capture());
+            assertThat(at.getValue()).isBetween(Instant.now().plusSeconds(30), Instant.now().plusSeconds(90));
+
+            // When the grace is over
+            Files.setLastModifiedTime(Paths.get(filePath), FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+            retry.getValue().run();
+
+            // Then
+            assertThat(Files.exists(Paths.get(filePath))).isFalse();
+        }
+
+        @Test
+        @DisplayName("Devrait ignorer un chemin vide")
+        void shouldIgnoreBlankPath() {
+            // When
+            fileStorageService.releaseFile(" ");
+
+            // Then
+            then(bookRepository).shouldHaveNoInteractions();
+        }
+    }
+
     /**
      * Notes sur la couverture:
      * - La méthode saveFile() utilise le système de fichiers, qui est une dépendance externe.
      * - Nous utilisons @TempDir pour créer un environnement isolé et reproductible.
      * - Les tests couvrent tous les chemins logiques de la méthode.
      * - getFileExtension() est une méthode privée testée indirectement via saveFile().
-     * - uploadFile() est une méthode privée testée indirectement via saveFile().
+     * - getContentPath() est une méthode privée testée indirectement via saveFile().
      * - Couverture: 100% de la logique métier.
      * 
      * Exclusions:
@@ -0,0 +1,282 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.application.dto.response.NotificationResponse;
+import com.ichaabane.book_network.application.mapper.NotificationMapper;
+import com.ichaabane.book_network.domain.model.Notification;
+import com.ichaabane.book_network.domain.model.NotificationOutbox;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.repository.NotificationOutboxRepository;
+import com.ichaabane.book_network.domain.repository.NotificationRepository;
+import com.ichaabane.book_network.infrastructure.cache.NotificationLabelCache;
+import com.ichaabane.book_network.infrastructure.cache.UnreadNotificationCounter;
+import com.ichaabane.book_network.infrastructure.messaging.UserMessageFanout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ichaabane.book_network.domain.enums.NotificationTemplate.BOOK_BORROWED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NotificationDispatcher - Tests unitaires")
+class NotificationDispatcherTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private NotificationOutboxRepository outboxRepository;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private UserMessageFanout messagingFanout;
+
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
+    @Mock
+    private NotificationLabelCache labelCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationDispatcher dispatcher;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new NotificationDispatcher(outboxRepository, notificationRepository, messagingFanout, unreadCounter,
+                new NotificationMapper(labelCache), transactionManager, meterRegistry, BATCH_SIZE, 3,
+                Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofSeconds(5));
+        user = User.builder().id(7).build();
+    }
+
+    private NotificationOutbox row(int id) {
+        return NotificationOutbox.builder()
+                .id(id)
+                .user(user)
+                .template(BOOK_BORROWED)
+                .bookId(10)
+                .createdDate(LocalDateTime.now().minusSeconds(2))
+                .createdBy(3)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+    }
+
+    private void storeAssigningIds() {
+        AtomicInteger ids = new AtomicInteger(100);
+        given(notificationRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            notifications.forEach(notification -> notification.setId(ids.incrementAndGet()));
+            return new ArrayList<>(notifications);
+        });
+    }
+
+    @Nested
+    @DisplayName("dispatchBatch() - Vider un lot de l'outbox")
+    class DispatchBatchTests {
+
+        @Test
+        @DisplayName("Devrait enregistrer les notifications en un lot, les pousser puis supprimer les lignes")
+        void shouldStorePushAndDelete() {
+            // Given
+            NotificationOutbox first = row(1);
+            NotificationOutbox second = row(2);
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), eq(Limit.of(BATCH_SIZE))))
+                    .willReturn(List.of(first, second));
+            storeAssigningIds();
+
+            // When
+            int claimed = dispatcher.dispatchBatch();
+
+            // Then
+            assertThat(claimed).isEqualTo(2);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Notification>> stored = ArgumentCaptor.forClass(List.class);
+            then(notificationRepository).should().saveAll(stored.capture());
+            assertThat(stored.getValue()).hasSize(2).allSatisfy(notification -> {
+                assertThat(notification.getUser()).isEqualTo(user);
+                assertThat(notification.getCreatedBy()).isEqualTo(3);
+                assertThat(notification.isRead()).isFalse();
+            });
+            assertThat(first.getNotificationId()).isEqualTo(101);
+            then(unreadCounter).should().add(7, 2);
+
+            ArgumentCaptor<Object> pushed = ArgumentCaptor.forClass(Object.class);
+            then(messagingFanout).should().convertAndSendToUser(eq("7"), eq(NotificationDispatcher.DESTINATION), pushed.capture());
+            assertThat((List<?>) pushed.getValue()).extracting("id").containsExactly(101, 102);
+            then(outboxRepository).should().deleteAllByIdInBatch(List.of(1, 2));
+
+            assertThat(meterRegistry.get("notifications.outbox.dispatched").counter().count()).isEqualTo(2);
+            assertThat(meterRegistry.get("notifications.outbox.lag").timer().count()).isEqualTo(2);
+            then(transactionManager).should(times(2)).commit(any());
+        }
+
+        @Test
+        @DisplayName("Devrait envoyer une trame par utilisateur et garder l'objet seul pour une notification unique")
+        void shouldSendOneFramePerUser() {
+            // Given
+            User other = User.builder().id(8).build();
+            NotificationOutbox first = row(1);
+            NotificationOutbox second = row(2);
+            second.setUser(other);
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any(Limit.class))).willReturn(List.of(first, second));
+            storeAssigningIds();
+            willAnswer(invocation -> {
+                if ("8".equals(invocation.getArgument(0))) {
+                    throw new MessageDeliveryException("session closed");
+                }
+                return null;
+            }).given(messagingFanout).convertAndSendToUser(anyString(), anyString(), any());
+            given(outboxRepository.findAllById(any())).willReturn(List.of(second));
+
+            // When
+            dispatcher.dispatchBatch();
+
+            // Then
+            then(messagingFanout).should().convertAndSendToUser(eq("7"), eq(NotificationDispatcher.DESTINATION), any(NotificationResponse.class));
+            then(outboxRepository).should().deleteAllByIdInBatch(List.of(1));
+            assertThat(second.getAttempts()).isEqualTo(1);
+            assertThat(first.getAttempts()).isZero();
+        }
+
+        @Test
+        @DisplayName("Devrait reprogrammer avec un délai croissant une notification dont l'envoi échoue")
+        void shouldRescheduleFailedPush() {
+            // Given
+            NotificationOutbox failing = row(1);
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any(Limit.class))).willReturn(List.of(failing));
+            storeAssigningIds();
+            willThrow(new MessageDeliveryException("broker unavailable"))
+                    .given(messagingFanout).convertAndSendToUser(anyString(), anyString(), any());
+            given(outboxRepository.findAllById(any())).willReturn(List.of(failing));
+            LocalDateTime before = LocalDateTime.now();
+
+            // When
+            dispatcher.dispatchBatch();
+
+            // Then
+            assertThat(failing.getAttempts()).isEqualTo(1);
+            assertThat(failing.getLastError()).isEqualTo("broker unavailable");
+            assertThat(failing.getNextAttemptAt()).isBetween(before.plusSeconds(1), LocalDateTime.now().plusSeconds(1));
+            assertThat(failing.getNotificationId()).isEqualTo(101);
+            then(outboxRepository).should(never()).deleteAllByIdInBatch(any());
+            assertThat(meterRegistry.get("notifications.outbox.failures").tag("stage", "push").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait seulement renvoyer une notification déjà enregistrée")
+        void shouldOnlyPushAlreadyStoredNotification() {
+            // Given
+            NotificationOutbox retried = row(1);
+            retried.setNotificationId(55);
+            retried.setAttempts(1);
+            Notification notification = Notification.builder()
+                    .id(55).user(user).template(BOOK_BORROWED).createdAt(LocalDateTime.now()).build();
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any(Limit.class))).willReturn(List.of(retried));
+            given(notificationRepository.saveAll(anyList())).willReturn(List.of());
+            given(notificationRepository.findAllById(List.of(55))).willReturn(List.of(notification));
+
+            // When
+            dispatcher.dispatchBatch();
+
+            // Then
+            then(messagingFanout).should().convertAndSendToUser(eq("7"), anyString(), any(NotificationResponse.class));
+            then(outboxRepository).should().deleteAllByIdInBatch(List.of(1));
+        }
+
+        @Test
+        @DisplayName("Devrait abandonner l'envoi après le dernier essai")
+        void shouldGiveUpAfterMaxAttempts() {
+            // Given
+            NotificationOutbox failing = row(1);
+            failing.setNotificationId(55);
+            failing.setAttempts(2);
+            Notification notification = Notification.builder()
+                    .id(55).user(user).template(BOOK_BORROWED).createdAt(LocalDateTime.now()).build();
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any(Limit.class))).willReturn(List.of(failing));
+            given(notificationRepository.saveAll(anyList())).willReturn(List.of());
+            given(notificationRepository.findAllById(List.of(55))).willReturn(List.of(notification));
+            willThrow(new MessageDeliveryException("broker unavailable"))
+                    .given(messagingFanout).convertAndSendToUser(anyString(), anyString(), any());
+            given(outboxRepository.findAllById(any())).willReturn(List.of(failing));
+
+            // When
+            dispatcher.dispatchBatch();
+
+            // Then
+            then(outboxRepository).should().delete(failing);
+            assertThat(meterRegistry.get("notifications.outbox.abandoned").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait laisser le lot dans l'outbox si l'enregistrement échoue")
+        void shouldLeaveBatchWhenStoreFails() {
+            // Given
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any(Limit.class))).willReturn(List.of(row(1)));
+            given(notificationRepository.saveAll(anyList())).willThrow(new DataAccessResourceFailureException("down"));
+
+            // When
+            int claimed = dispatcher.dispatchBatch();
+
+            // Then
+            assertThat(claimed).isZero();
+            then(messagingFanout).shouldHaveNoInteractions();
+            then(transactionManager).should().rollback(any());
+            assertThat(meterRegistry.get("notifications.outbox.failures").tag("stage", "store").counter().count()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("dispatch() - Boucle de vidage")
+    class DispatchTests {
+
+        @Test
+        @DisplayName("Devrait enchaîner les lots tant qu'ils sont pleins")
+        void shouldDrainFullBatches() {
+            // Given
+            given(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any(Limit.class)))
+                    .willReturn(List.of(row(1), row(2)))
+                    .willReturn(List.of(row(3)));
+            storeAssigningIds();
+
+            // When
+            dispatcher.dispatch();
+
+            // Then
+            then(outboxRepository).should(times(2)).findDueForUpdate(any(LocalDateTime.class), any(Limit.class));
+            // Both notifications of the first batch share a frame
+            then(messagingFanout).should(times(2)).convertAndSendToUser(anyString(), anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Devrait doubler le délai entre les essais jusqu'au plafond")
+        void shouldBackOffExponentially() {
+            assertThat(dispatcher.retryDelay(1)).isEqualTo(Duration.ofSeconds(1));
+            assertThat(dispatcher.retryDelay(2)).isEqualTo(Duration.ofSeconds(2));
+            assertThat(dispatcher.retryDelay(3)).isEqualTo(Duration.ofSeconds(4));
+            assertThat(dispatcher.retryDelay(10)).isEqualTo(Duration.ofSeconds(5));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ichaabane.book_network.application.service;
+
+import com.ichaabane.book_network.domain.repository.NotificationRepository;
+import com.ichaabane.book_network.infrastructure.cache.UnreadNotificationCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NotificationRetentionService - Tests unitaires")
+class NotificationRetentionServiceTest {
+
+    private static final int KEEP = 500;
+    private static final int BATCH_SIZE = 3;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retentionService = new NotificationRetentionService(notificationRepository, unreadCounter, transactionManager,
+                meterRegistry, 12, 2, KEEP, BATCH_SIZE);
+    }
+
+    private static LocalDateTime startOfMonth() {
+        return LocalDate.now().withDayOfMonth(1).atStartOfDay();
+    }
+
+    @Nested
+    @DisplayName("maintainPartitions() - Partitions mensuelles")
+    class MaintainPartitionsTests {
+
+        @Test
+        @DisplayName("Devrait créer les partitions à venir et supprimer celles au-delà de la rétention")
+        void shouldCreateAheadAndDropExpired() {
+            // Given
+            given(notificationRepository.dropPartitionsBefore(any())).willReturn(List.of("notification_p202409"));
+
+            // When
+            retentionService.maintainPartitions();
+
+            // Then
+            then(notificationRepository).should().ensurePartitions(2);
+            then(notificationRepository).should().dropPartitionsBefore(startOfMonth().minusMonths(12));
+            then(unreadCounter).should().recountAll();
+            assertThat(meterRegistry.get("notifications.retention.dropped.partitions").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait laisser les compteurs tranquilles si rien n'a expiré")
+        void shouldNotRecountWhenNothingDropped() {
+            // Given
+            given(notificationRepository.dropPartitionsBefore(any())).willReturn(List.of());
+
+            // When
+            retentionService.maintainPartitions();
+
+            // Then
+            then(unreadCounter).shouldHaveNoInteractions();
+        }
+    }
+
+    @Nested
+    @DisplayName("compact() - Compaction du mois en cours")
+    class CompactTests {
+
+        @Test
+        @DisplayName("Devrait supprimer par lots jusqu'au dernier lot incomplet")
+        void shouldCompactInBatches() {
+            // Given
+            given(notificationRepository.compactSince(startOfMonth(), KEEP, BATCH_SIZE))
+                    .willReturn(List.of(7, 7, 8))
+                    .willReturn(List.of(8));
+
+            // When
+            retentionService.compact();
+
+            // Then
+            then(notificationRepository).should(times(2)).compactSince(startOfMonth(), KEEP, BATCH_SIZE);
+            assertThat(meterRegistry.get("notifications.retention.compacted").counter().count()).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("Devrait recompter les notifs non lues des utilisateurs compactés")
+        void shouldRecountCompactedUsers() {
+            // Given
+            given(notificationRepository.compactSince(any(), anyInt(), anyInt())).willReturn(List.of(7, 7, 8), List.of());
+
+            // When
+            retentionService.compact();
+
+            // Then
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Collection<Integer>> users = ArgumentCaptor.forClass(Collection.class);
+            then(unreadCounter).should(times(2)).recount(users.capture());
+            assertThat(users.getAllValues().get(0)).containsExactlyInAnyOrderElementsOf(Set.of(7, 8));
+            assertThat(users.getAllValues().get(1)).isEmpty();
+        }
+    }
+}
@@ -1,27 +1,34 @@
 package com.ichaabane.book_network.application.service;
 
+import com.ichaabane.book_network.application.dto.request.PageCursor;
+import com.ichaabane.book_network.application.dto.response.CursorPageResponse;
 import com.ichaabane.book_network.application.dto.response.NotificationResponse;
-import com.ichaabane.book_network.domain.enums.NotificationStatus;
+import com.ichaabane.book_network.application.mapper.NotificationMapper;
+import com.ichaabane.book_network.domain.enums.NotificationTemplate;
 import com.ichaabane.book_network.domain.model.Notification;
+import com.ichaabane.book_network.domain.model.NotificationOutbox;
 import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.repository.NotificationOutboxRepository;
 import com.ichaabane.book_network.domain.repository.NotificationRepository;
+import com.ichaabane.book_network.domain.repository.UserRepository;
+import com.ichaabane.book_network.infrastructure.cache.NotificationLabelCache;
+import com.ichaabane.book_network.infrastructure.cache.UnreadNotificationCounter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
-import static com.ichaabane.book_network.domain.enums.NotificationStatus.*;
+import static com.ichaabane.book_network.domain.enums.NotificationTemplate.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.*;
@@ -37,9 +44,17 @@ class NotificationServiceTest {
     private NotificationRepository notificationRepository;
 
     @Mock
-    private SimpMessagingTemplate messagingTemplate;
+    private NotificationOutboxRepository outboxRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
+    @Mock
+    private NotificationLabelCache labelCache;
 
-    @InjectMocks
     private NotificationService notificationService;
 
     private User testUser;
@@ -47,6 +62,8 @@ class NotificationServiceTest {
 
     @BeforeEach
     void setUp() {
+        notificationService = new NotificationService(notificationRepository, outboxRepository, userRepository,
+                unreadCounter, new NotificationMapper(labelCache));
         testUser = User.builder()
                 .id(1)
                 .firstName("John")
@@ -57,9 +74,8 @@ class NotificationServiceTest {
         testNotification = Notification.builder()
                 .id(1)
                 .user(testUser)
-                .status(BORROWED)
-                .message("Your book has been borrowed")
-                .bookTitle("Test Book")
+                .template(BOOK_BORROWED)
+                .bookId(10)
                 .read(false)
                 .createdAt(LocalDateTime.now())
                 .build();
@@ -70,218 +86,167 @@ class NotificationServiceTest {
     class SendNotificationTests {
 
         @Test
-        @DisplayName("Devrait créer et envoyer une notification via WebSocket")
-        void shouldCreateAndSendNotification() {
-            // Given
-            String message = "Your book has been borrowed";
-            String bookTitle = "The Great Book";
-            
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> {
-                Notification notif = invocation.getArgument(0);
-                notif.setId(10);
-                return notif;
-            });
-            willDoNothing().given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
-
+        @DisplayName("Devrait seulement écrire la notification dans l'outbox")
+        void shouldOnlyWriteToOutbox() {
             // When
-            notificationService.sendNotification(testUser, BORROWED, message, bookTitle);
+            notificationService.sendNotification(testUser, BOOK_BORROWED, 10);
 
             // Then
-            ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
-            then(notificationRepository).should().save(notificationCaptor.capture());
-
-            Notification savedNotification = notificationCaptor.getValue();
-            assertThat(savedNotification.getUser()).isEqualTo(testUser);
-            assertThat(savedNotification.getStatus()).isEqualTo(BORROWED);
-            assertThat(savedNotification.getMessage()).isEqualTo(message);
-            assertThat(savedNotification.getBookTitle()).isEqualTo(bookTitle);
-            assertThat(savedNotification.isRead()).isFalse();
-            assertThat(savedNotification.getCreatedAt()).isNotNull();
-
-            then(messagingTemplate).should().convertAndSendToUser(
-                    eq("1"),
-                    eq("/notifications"),
-                    any(NotificationResponse.class)
-            );
-        }
-
-        @Test
-        @DisplayName("Devrait gérer différents statuts de notification")
-        void shouldHandleDifferentNotificationStatuses() {
-            // Given
-            NotificationStatus[] statuses = {BORROWED, RETURNED, RETURN_APPROVED, RESERVED, CANCELLED};
-            
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
-
-            // When/Then
-            for (NotificationStatus status : statuses) {
-                notificationService.sendNotification(testUser, status, "Test message", "Book");
-                
-                ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
-                then(notificationRepository).should(atLeast(1)).save(captor.capture());
-                
-                Notification saved = captor.getValue();
-                assertThat(saved.getStatus()).isEqualTo(status);
-            }
+            ArgumentCaptor<NotificationOutbox> captor = ArgumentCaptor.forClass(NotificationOutbox.class);
+            then(outboxRepository).should().save(captor.capture());
+
+            NotificationOutbox queued = captor.getValue();
+            assertThat(queued.getUser()).isEqualTo(testUser);
+            assertThat(queued.getTemplate()).isEqualTo(BOOK_BORROWED);
+            assertThat(queued.getBookId()).isEqualTo(10);
+            assertThat(queued.getNotificationId()).isNull();
+            assertThat(queued.getAttempts()).isZero();
+            assertThat(queued.getNextAttemptAt()).isBeforeOrEqualTo(LocalDateTime.now());
+
+            then(notificationRepository).shouldHaveNoInteractions();
         }
 
         @Test
-        @DisplayName("Devrait envoyer au bon utilisateur via WebSocket")
-        void shouldSendToCorrectUserViaWebSocket() {
+        @DisplayName("Devrait gérer tous les modèles de notification")
+        void shouldHandleEveryTemplate() {
             // Given
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
+            NotificationTemplate[] templates = NotificationTemplate.values();
 
             // When
-            notificationService.sendNotification(testUser, BORROWED, "Message", "Book");
+            for (NotificationTemplate template : templates) {
+                notificationService.sendNotification(testUser, template, 10);
+            }
 
             // Then
-            then(messagingTemplate).should().convertAndSendToUser(
-                    eq("1"), // userId converti en String
-                    eq("/notifications"),
-                    any(NotificationResponse.class)
-            );
+            ArgumentCaptor<NotificationOutbox> captor = ArgumentCaptor.forClass(NotificationOutbox.class);
+            then(outboxRepository).should(times(templates.length)).save(captor.capture());
+            assertThat(captor.getAllValues()).extracting(NotificationOutbox::getTemplate).containsExactly(templates);
+        }
+    }
+
+    @Nested
+    @DisplayName("getUserNotifications() - Récupérer les notifications d'un utilisateur")
+    class GetUserNotificationsTests {
+
+        private Notification notification(int id, LocalDateTime createdAt, boolean read) {
+            return Notification.builder()
+                    .id(id)
+                    .user(testUser)
+                    .template(BOOK_BORROWED)
+                    .bookId(10)
+                    .read(read)
+                    .createdAt(createdAt)
+                    .build();
         }
 
         @Test
-        @DisplayName("Devrait créer une notification non lue par défaut")
-        void shouldCreateUnreadNotificationByDefault() {
+        @DisplayName("Devrait retourner la première page en demandant une ligne de plus que la taille")
+        void shouldReturnFirstPage() {
             // Given
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
+            LocalDateTime now = LocalDateTime.now();
+            Notification recent = notification(3, now, false);
+            Notification older = notification(2, now.minusHours(1), true);
+            Notification oldest = notification(1, now.minusDays(1), true);
+            given(notificationRepository.findPageBefore(1, PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(), Limit.of(3)))
+                    .willReturn(List.of(recent, older, oldest));
 
             // When
-            notificationService.sendNotification(testUser, BORROWED, "Message", "Book");
+            CursorPageResponse<NotificationResponse> result = notificationService.getUserNotifications(testUser, null, 2, false);
 
             // Then
-            ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
-            then(notificationRepository).should().save(captor.capture());
-            assertThat(captor.getValue().isRead()).isFalse();
+            assertThat(result.getContent()).extracting(NotificationResponse::id).containsExactly(3, 2);
+            assertThat(result.isLast()).isFalse();
+            assertThat(PageCursor.decode(result.getNextCursor())).isEqualTo(new PageCursor(older.getCreatedAt(), 2));
+            then(notificationRepository).should(never()).findUnreadPageBefore(anyInt(), any(), anyInt(), any(), anyInt(), any(Limit.class));
         }
 
         @Test
-        @DisplayName("Devrait gérer un titre de livre null")
-        void shouldHandleNullBookTitle() {
+        @DisplayName("Devrait reprendre après le curseur et marquer la dernière page")
+        void shouldContinueAfterCursor() {
             // Given
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
+            LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+            Notification oldest = notification(1, createdAt.minusDays(1), true);
+            given(notificationRepository.findPageBefore(1, createdAt, 2, Limit.of(3))).willReturn(List.of(oldest));
 
             // When
-            notificationService.sendNotification(testUser, BORROWED, "Message", null);
+            CursorPageResponse<NotificationResponse> result = notificationService.getUserNotifications(
+                    testUser, new PageCursor(createdAt, 2).encode(), 2, false);
 
             // Then
-            ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
-            then(notificationRepository).should().save(captor.capture());
-            assertThat(captor.getValue().getBookTitle()).isNull();
+            assertThat(result.getContent()).hasSize(1);
+            assertThat(result.isLast()).isTrue();
+            assertThat(result.getNextCursor()).isNull();
         }
 
         @Test
-        @DisplayName("Devrait gérer un message null")
-        void shouldHandleNullMessage() {
+        @DisplayName("Devrait ne lire que les notifications non lues si demandé")
+        void shouldFilterUnread() {
             // Given
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> invocation.getArgument(0));
-            willDoNothing().given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
+            given(notificationRepository.findUnreadPageBefore(anyInt(), any(), anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(Collections.emptyList());
 
             // When
-            notificationService.sendNotification(testUser, BORROWED, null, "Book");
+            CursorPageResponse<NotificationResponse> result = notificationService.getUserNotifications(testUser, null, 20, true);
 
             // Then
-            ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
-            then(notificationRepository).should().save(captor.capture());
-            assertThat(captor.getValue().getMessage()).isNull();
+            assertThat(result.getContent()).isEmpty();
+            assertThat(result.isLast()).isTrue();
+            then(notificationRepository).should().findUnreadPageBefore(1, PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(),
+                    NotificationService.NOTHING_READ.createdDate(), NotificationService.NOTHING_READ.id(), Limit.of(21));
+            then(notificationRepository).should(never()).findPageBefore(anyInt(), any(), anyInt(), any(Limit.class));
         }
-    }
-
-    @Nested
-    @DisplayName("getUserNotifications() - Récupérer les notifications d'un utilisateur")
-    class GetUserNotificationsTests {
 
         @Test
-        @DisplayName("Devrait retourner toutes les notifications d'un utilisateur")
-        void shouldReturnAllUserNotifications() {
+        @DisplayName("Devrait considérer comme lues les notifications sous le marqueur de lecture")
+        void shouldResolveReadStateFromMark() {
             // Given
-            Notification notif1 = Notification.builder()
-                    .id(1)
-                    .user(testUser)
-                    .status(BORROWED)
-                    .message("Message 1")
-                    .bookTitle("Book 1")
-                    .read(false)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            Notification notif2 = Notification.builder()
-                    .id(2)
-                    .user(testUser)
-                    .status(RETURNED)
-                    .message("Message 2")
-                    .bookTitle("Book 2")
-                    .read(true)
-                    .createdAt(LocalDateTime.now().minusHours(1))
-                    .build();
-
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
-                    .willReturn(List.of(notif1, notif2));
+            LocalDateTime now = LocalDateTime.now();
+            Notification aboveMark = notification(4, now, false);
+            Notification readAboveMark = notification(3, now.minusMinutes(1), true);
+            Notification atMark = notification(2, now.minusHours(1), false);
+            Notification belowMark = notification(1, now.minusDays(1), false);
+            testUser.setLastReadNotificationAt(atMark.getCreatedAt());
+            testUser.setLastReadNotificationId(2);
+            given(notificationRepository.findPageBefore(anyInt(), any(), anyInt(), any(Limit.class)))
+                    .willReturn(List.of(aboveMark, readAboveMark, atMark, belowMark));
 
             // When
-            List<NotificationResponse> result = notificationService.getUserNotifications(testUser);
+            CursorPageResponse<NotificationResponse> result = notificationService.getUserNotifications(testUser, null, 20, false);
 
             // Then
-            assertThat(result).hasSize(2);
-            assertThat(result.get(0).message()).isEqualTo("Message 1");
-            assertThat(result.get(1).message()).isEqualTo("Message 2");
+            assertThat(result.getContent()).extracting(NotificationResponse::read).containsExactly(false, true, true, true);
         }
 
         @Test
-        @DisplayName("Devrait retourner une liste vide si aucune notification")
-        void shouldReturnEmptyListWhenNoNotifications() {
+        @DisplayName("Devrait filtrer les non lues au-dessus du marqueur de lecture")
+        void shouldFilterUnreadAboveMark() {
             // Given
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
+            LocalDateTime readAt = LocalDateTime.now().minusHours(1);
+            testUser.setLastReadNotificationAt(readAt);
+            testUser.setLastReadNotificationId(7);
+            given(notificationRepository.findUnreadPageBefore(anyInt(), any(), anyInt(), any(), anyInt(), any(Limit.class)))
                     .willReturn(Collections.emptyList());
 
             // When
-            List<NotificationResponse> result = notificationService.getUserNotifications(testUser);
+            notificationService.getUserNotifications(testUser, null, 20, true);
 
             // Then
-            assertThat(result).isEmpty();
+            then(notificationRepository).should().findUnreadPageBefore(1, PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(),
+                    readAt, 7, Limit.of(21));
         }
 
         @Test
-        @DisplayName("Devrait retourner les notifications triées par date décroissante")
-        void shouldReturnNotificationsSortedByCreatedAtDesc() {
+        @DisplayName("Devrait lire le nombre de non lues dans le compteur sans requête")
+        void shouldCountUnreadFromCounter() {
             // Given
-            LocalDateTime now = LocalDateTime.now();
-            Notification recent = Notification.builder()
-                    .id(1)
-                    .user(testUser)
-                    .status(BORROWED)
-                    .message("Recent")
-                    .bookTitle("Book")
-                    .read(false)
-                    .createdAt(now)
-                    .build();
-
-            Notification old = Notification.builder()
-                    .id(2)
-                    .user(testUser)
-                    .status(RETURNED)
-                    .message("Old")
-                    .bookTitle("Book")
-                    .read(true)
-                    .createdAt(now.minusDays(1))
-                    .build();
-
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
-                    .willReturn(List.of(recent, old));
+            given(unreadCounter.get(testUser)).willReturn(4L);
 
             // When
-            List<NotificationResponse> result = notificationService.getUserNotifications(testUser);
+            long unread = notificationService.countUnread(testUser);
 
             // Then
-            assertThat(result).hasSize(2);
-            assertThat(result.get(0).message()).isEqualTo("Recent");
-            assertThat(result.get(1).message()).isEqualTo("Old");
+            assertThat(unread).isEqualTo(4);
+            then(notificationRepository).shouldHaveNoInteractions();
         }
     }
 
@@ -306,6 +271,7 @@ class NotificationServiceTest {
             assertThat(result).isNotNull();
             
             then(notificationRepository).should().save(testNotification);
+            then(unreadCounter).should().add(1, -1);
         }
 
         @Test
@@ -350,160 +316,92 @@ class NotificationServiceTest {
             testNotification.setRead(true);
             
             given(notificationRepository.findById(1)).willReturn(Optional.of(testNotification));
-            given(notificationRepository.save(any(Notification.class))).willAnswer(invocation -> invocation.getArgument(0));
 
             // When
             NotificationResponse result = notificationService.markAsRead(1, testUser);
 
             // Then
-            assertThat(testNotification.isRead()).isTrue();
-            assertThat(result).isNotNull();
+            assertThat(result.read()).isTrue();
+            then(notificationRepository).should(never()).save(any());
+            then(unreadCounter).shouldHaveNoInteractions();
         }
-    }
-
-    @Nested
-    @DisplayName("markAllAsRead() - Marquer toutes les notifications comme lues")
-    class MarkAllAsReadTests {
 
         @Test
-        @DisplayName("Devrait marquer toutes les notifications non lues comme lues")
-        void shouldMarkAllUnreadNotificationsAsRead() {
+        @DisplayName("Devrait ne rien écrire pour une notification sous le marqueur de lecture")
+        void shouldNotWriteBelowReadMark() {
             // Given
-            Notification unread1 = Notification.builder()
-                    .id(1)
-                    .user(testUser)
-                    .status(BORROWED)
-                    .message("Message 1")
-                    .bookTitle("Book 1")
-                    .read(false)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            Notification unread2 = Notification.builder()
-                    .id(2)
-                    .user(testUser)
-                    .status(RETURNED)
-                    .message("Message 2")
-                    .bookTitle("Book 2")
-                    .read(false)
-                    .createdAt(LocalDateTime.now().minusHours(1))
-                    .build();
-
-            Notification alreadyRead = Notification.builder()
-                    .id(3)
-                    .user(testUser)
-                    .status(RESERVED)
-                    .message("Message 3")
-                    .bookTitle("Book 3")
-                    .read(true)
-                    .createdAt(LocalDateTime.now().minusDays(1))
-                    .build();
-
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
-                    .willReturn(List.of(unread1, unread2, alreadyRead));
+            testUser.setLastReadNotificationAt(testNotification.getCreatedAt().plusMinutes(1));
+            testUser.setLastReadNotificationId(5);
+            given(notificationRepository.findById(1)).willReturn(Optional.of(testNotification));
 
             // When
-            notificationService.markAllAsRead(testUser);
+            NotificationResponse result = notificationService.markAsRead(1, testUser);
 
             // Then
-            assertThat(unread1.isRead()).isTrue();
-            assertThat(unread2.isRead()).isTrue();
-            assertThat(alreadyRead.isRead()).isTrue();
+            assertThat(result.read()).isTrue();
+            assertThat(testNotification.isRead()).isFalse();
+            then(notificationRepository).should(never()).save(any());
         }
+    }
+
+    @Nested
+    @DisplayName("markAllAsRead() - Marquer toutes les notifications comme lues")
+    class MarkAllAsReadTests {
 
         @Test
-        @DisplayName("Ne devrait rien faire si aucune notification")
-        void shouldDoNothingWhenNoNotifications() {
+        @DisplayName("Devrait avancer le marqueur de lecture jusqu'à la notification la plus récente")
+        void shouldAdvanceReadMarkToNewest() {
             // Given
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
-                    .willReturn(Collections.emptyList());
+            given(notificationRepository.findPageBefore(1, PageCursor.FIRST.createdDate(), PageCursor.FIRST.id(), Limit.of(1)))
+                    .willReturn(List.of(testNotification));
+            given(userRepository.advanceNotificationReadMark(1, testNotification.getCreatedAt(), 1)).willReturn(1);
+            given(notificationRepository.countUnreadAfter(1, testNotification.getCreatedAt(), 1)).willReturn(0L);
 
             // When
             notificationService.markAllAsRead(testUser);
 
             // Then
-            then(notificationRepository).should().findAllByUserOrderByCreatedAtDesc(testUser);
+            assertThat(testUser.getLastReadNotificationAt()).isEqualTo(testNotification.getCreatedAt());
+            assertThat(testUser.getLastReadNotificationId()).isEqualTo(1);
             then(notificationRepository).should(never()).save(any());
+            then(notificationRepository).should(never()).saveAll(anyList());
+            then(unreadCounter).should().set(1, 0);
         }
 
         @Test
-        @DisplayName("Ne devrait rien faire si toutes les notifications sont déjà lues")
-        void shouldDoNothingWhenAllNotificationsAlreadyRead() {
+        @DisplayName("Devrait garder le compteur si un autre onglet a déjà avancé le marqueur")
+        void shouldKeepCounterWhenMarkAlreadyAhead() {
             // Given
-            Notification read1 = Notification.builder()
-                    .id(1)
-                    .user(testUser)
-                    .status(BORROWED)
-                    .message("Message 1")
-                    .bookTitle("Book 1")
-                    .read(true)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            Notification read2 = Notification.builder()
-                    .id(2)
-                    .user(testUser)
-                    .status(RETURNED)
-                    .message("Message 2")
-                    .bookTitle("Book 2")
-                    .read(true)
-                    .createdAt(LocalDateTime.now().minusHours(1))
-                    .build();
-
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
-                    .willReturn(List.of(read1, read2));
+            given(notificationRepository.findPageBefore(anyInt(), any(), anyInt(), any(Limit.class))).willReturn(List.of(testNotification));
+            given(userRepository.advanceNotificationReadMark(anyInt(), any(), anyInt())).willReturn(0);
 
             // When
             notificationService.markAllAsRead(testUser);
 
             // Then
-            assertThat(read1.isRead()).isTrue();
-            assertThat(read2.isRead()).isTrue();
+            assertThat(testUser.getLastReadNotificationAt()).isNull();
+            then(unreadCounter).shouldHaveNoInteractions();
         }
 
         @Test
-        @DisplayName("Devrait marquer uniquement les notifications non lues")
-        void shouldMarkOnlyUnreadNotifications() {
+        @DisplayName("Devrait ne rien faire sans notification")
+        void shouldDoNothingWithoutNotifications() {
             // Given
-            Notification unread = Notification.builder()
-                    .id(1)
-                    .user(testUser)
-                    .status(BORROWED)
-                    .message("Unread")
-                    .bookTitle("Book")
-                    .read(false)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            Notification read = Notification.builder()
-                    .id(2)
-                    .user(testUser)
-                    .status(RETURNED)
-                    .message("Read")
-                    .bookTitle("Book")
-                    .read(true)
-                    .createdAt(LocalDateTime.now().minusHours(1))
-                    .build();
-
-            given(notificationRepository.findAllByUserOrderByCreatedAtDesc(testUser))
-                    .willReturn(List.of(unread, read));
+            given(notificationRepository.findPageBefore(anyInt(), any(), anyInt(), any(Limit.class))).willReturn(List.of());
 
             // When
             notificationService.markAllAsRead(testUser);
 
             // Then
-            assertThat(unread.isRead()).isTrue();
-            assertThat(read.isRead()).isTrue();
+            then(userRepository).shouldHaveNoInteractions();
+            then(unreadCounter).shouldHaveNoInteractions();
         }
     }
 
     /**
      * Notes sur la couverture:
-     * - SimpMessagingTemplate est un framework externe (WebSocket) et est mocké.
-     * - La méthode sendNotification() utilise NotificationResponse.fromEntity() qui est
-     *   une méthode statique du DTO (pas testée ici car c'est un mapping trivial).
-     * - La transaction @Transactional sur markAllAsRead() n'a pas d'effet dans les tests
-     *   unitaires sans contexte Spring.
+     * - sendNotification() n'écrit que dans l'outbox, l'envoi WebSocket est testé dans NotificationDispatcherTest.
+     * - markAllAsRead() est un UPDATE d'une seule ligne de _user, son effet en base n'est pas testé ici.
      * - Couverture: 100% de la logique métier du service.
      */
 }
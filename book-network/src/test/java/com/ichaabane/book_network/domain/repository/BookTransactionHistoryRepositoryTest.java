@@ -0,0 +1,163 @@
+package com.ichaabane.book_network.domain.repository;
+
+import com.ichaabane.book_network.domain.model.Book;
+import com.ichaabane.book_network.domain.model.BookTransactionHistory;
+import com.ichaabane.book_network.domain.model.User;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Emprunts concurrents contre une vraie base Postgres, avec le schéma de l'application et db/schema.sql.
+ * Chaque insertion tourne dans sa propre transaction, c'est l'index partiel des emprunts actifs qui tranche.
+ * Lancé seulement si FANOUT_TEST_DATABASE_URL (et FANOUT_TEST_DATABASE_USERNAME / PASSWORD) pointe vers une base.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfEnvironmentVariable(named = "FANOUT_TEST_DATABASE_URL", matches = ".+")
+@DisplayName("BookTransactionHistoryRepository - Test d'intégration sur Postgres")
+class BookTransactionHistoryRepositoryTest {
+
+    private static final int BORROWERS = 16;
+
+    @Autowired
+    private BookTransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Book book;
+    private final List<User> users = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("FANOUT_TEST_DATABASE_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("FANOUT_TEST_DATABASE_USERNAME"));
+        registry.add("spring.datasource.password", () -> System.getenv("FANOUT_TEST_DATABASE_PASSWORD"));
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> BORROWERS);
+    }
+
+    @BeforeEach
+    void setUp() {
+        User owner = user("owner");
+        book = bookRepository.save(Book.builder()
+                .title("Clean Code")
+                .authorName("Robert C. Martin")
+                .isbn("978-0132350884")
+                .shareable(true)
+                .owner(owner)
+                .build());
+        for (int i = 0; i < BORROWERS; i++) {
+            user("reader" + i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM book_transaction_history WHERE book_id = ?", book.getId());
+        bookRepository.deleteById(book.getId());
+        userRepository.deleteAll(users);
+    }
+
+    private User user(String name) {
+        User user = userRepository.save(User.builder()
+                .firstName(name)
+                .lastName("Test")
+                .email(name + "-" + UUID.randomUUID() + "@test.com")
+                .password("password")
+                .enabled(true)
+                .build());
+        users.add(user);
+        return user;
+    }
+
+    @Test
+    @DisplayName("Devrait n'accorder qu'un seul emprunt quand plusieurs lecteurs empruntent en même temps")
+    void shouldGrantOneLoanUnderConcurrentBorrows() throws Exception {
+        // Given
+        List<User> readers = users.subList(1, users.size());
+        ExecutorService executor = Executors.newFixedThreadPool(BORROWERS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Optional<Integer>>> results = new ArrayList<>();
+        int granted = 0;
+        int refused = 0;
+        try {
+            for (User reader : readers) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return transactionHistoryRepository.insertActiveLoan(book.getId(), reader.getId());
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<Integer>> result : results) {
+                try {
+                    assertThat(result.get(30, TimeUnit.SECONDS)).isPresent();
+                    granted++;
+                } catch (ExecutionException e) {
+                    // The losers hit the active loan index, the way BookService recognises them
+                    assertThat(e.getCause()).isInstanceOf(DataIntegrityViolationException.class);
+                    assertThat(e.getCause().getCause()).isInstanceOfSatisfying(ConstraintViolationException.class,
+                            violation -> assertThat(violation.getConstraintName())
+                                    .isEqualTo(BookTransactionHistory.ACTIVE_LOAN_INDEX));
+                    refused++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(granted).isEqualTo(1);
+        assertThat(refused).isEqualTo(BORROWERS - 1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM book_transaction_history WHERE book_id = ? AND status = 'ACTIVE'",
+                Integer.class, book.getId())).isEqualTo(1);
+    }
+
+    // BeansConfig is outside the JPA slice, and its auditor needs a signed-in user anyway
+    @TestConfiguration
+    static class AuditConfig {
+
+        @Bean
+        AuditorAware<Integer> auditorAware() {
+            return () -> Optional.of(0);
+        }
+    }
+}
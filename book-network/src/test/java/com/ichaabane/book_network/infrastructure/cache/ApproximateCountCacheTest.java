@@ -0,0 +1,110 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ApproximateCountCache - Tests unitaires")
+class ApproximateCountCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private ApproximateCountCache cache;
+    private AtomicInteger countQueries;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = cache(100);
+        countQueries = new AtomicInteger();
+    }
+
+    private ApproximateCountCache cache(long maxSize) {
+        return new ApproximateCountCache(meterRegistry, Duration.ofSeconds(30), maxSize, nanos::get);
+    }
+
+    private void elapse(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private long count() {
+        countQueries.incrementAndGet();
+        return 42L;
+    }
+
+    @Test
+    @DisplayName("Devrait réutiliser le total tant que le TTL n'est pas écoulé")
+    void shouldReuseTotalWithinTtl() {
+        // When
+        long first = cache.get("owner-books", 1, this::count);
+        elapse(Duration.ofSeconds(29));
+        long second = cache.get("owner-books", 1, this::count);
+
+        // Then
+        assertThat(first).isEqualTo(42L);
+        assertThat(second).isEqualTo(42L);
+        assertThat(countQueries).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Devrait recompter après expiration du TTL")
+    void shouldRecountAfterTtl() {
+        // When
+        cache.get("owner-books", 1, this::count);
+        elapse(Duration.ofSeconds(30));
+        cache.get("owner-books", 1, this::count);
+
+        // Then
+        assertThat(countQueries).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Devrait séparer les totaux par requête et par utilisateur")
+    void shouldKeepTotalsPerQueryAndScope() {
+        // When
+        cache.get("owner-books", 1, this::count);
+        cache.get("owner-books", 2, this::count);
+        cache.get("borrowed-books", 1, this::count);
+
+        // Then
+        assertThat(countQueries).hasValue(3);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Devrait purger les totaux expirés")
+    void shouldEvictExpiredTotals() {
+        // Given
+        cache.get("owner-books", 1, this::count);
+        elapse(Duration.ofSeconds(20));
+        cache.get("owner-books", 2, this::count);
+
+        // When
+        elapse(Duration.ofSeconds(20));
+
+        // Then
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Devrait borner le nombre de totaux gardés")
+    void shouldBoundNumberOfTotals() {
+        // Given
+        ApproximateCountCache small = cache(2);
+
+        // When
+        for (int userId = 1; userId <= 10; userId++) {
+            small.get("owner-books", userId, this::count);
+        }
+
+        // Then
+        assertThat(small.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,202 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ichaabane.book_network.application.dto.response.BookResponse;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@DisplayName("BookResponseCache - Tests unitaires")
+class BookResponseCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private ClusterMessageBus bus;
+    private BookResponseCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bus = mock(ClusterMessageBus.class);
+        cache = new BookResponseCache(meterRegistry, bus, DataSize.ofMegabytes(1));
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private BookResponse load(Integer id) {
+        loads.incrementAndGet();
+        return BookResponse.builder().id(id).title("Book " + id).build();
+    }
+
+    private double meter(String name, String tag, String value) {
+        return meterRegistry.get(name).tag("cache", "books").tag(tag, value).functionCounter().count();
+    }
+
+    @Test
+    @DisplayName("Devrait compter les succès et les échecs du cache")
+    void shouldRecordHitsAndMisses() {
+        // When
+        cache.get(1, this::load);
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+
+        // Then
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Devrait recharger et compter une invalidation après evict")
+    void shouldReloadAfterEvict() {
+        // Given
+        cache.get(1, this::load);
+
+        // When
+        cache.evict(1);
+        cache.evict(1);
+        cache.get(1, this::load);
+
+        // Then
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("cache.invalidations").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Devrait invalider à nouveau après le commit de la transaction")
+    void shouldEvictAgainAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        cache.get(1, this::load);
+        cache.evict(1);
+        // Lecture concurrente avant le commit, qui remet l'ancienne valeur en cache
+        cache.get(1, this::load);
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        cache.get(1, this::load);
+
+        // Then
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Devrait prévenir les autres instances seulement après le commit")
+    void shouldRelayEvictionAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        cache.evict(1);
+
+        // Then
+        then(bus).should(never()).publish(anyString(), any());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        then(bus).should().publish(eq(BookResponseCache.CHANNEL), message.capture());
+        assertThat(new ObjectMapper().valueToTree(message.getValue()).get("bookId").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Devrait invalider le livre modifié sur une autre instance")
+    @SuppressWarnings("unchecked")
+    void shouldEvictBookChangedOnOtherNode() throws Exception {
+        // Given
+        ArgumentCaptor<Consumer<JsonNode>> handler = ArgumentCaptor.forClass(Consumer.class);
+        then(bus).should().subscribe(eq(BookResponseCache.CHANNEL), handler.capture());
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        // When
+        handler.getValue().accept(objectMapper.valueToTree(Map.of("bookId", 1)));
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+
+        // Then
+        assertThat(loads).hasValue(3);
+
+        // When
+        handler.getValue().accept(objectMapper.readTree("{\"bookId\":null}"));
+        cache.get(2, this::load);
+
+        // Then
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    @DisplayName("Devrait borner le cache selon la taille estimée des entrées")
+    void shouldBoundCacheBySize() {
+        // Given
+        BookResponseCache smallCache = new BookResponseCache(new SimpleMeterRegistry(), bus, DataSize.ofKilobytes(2));
+
+        // When
+        for (int id = 0; id < 100; id++) {
+            smallCache.get(id, this::load);
+        }
+        smallCache.get(-1, this::load);
+
+        // Then
+        assertThat(smallCache.size()).isLessThan(100);
+    }
+
+    @Test
+    @DisplayName("Devrait tout invalider")
+    void shouldEvictAll() {
+        // Given
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+
+        // When
+        cache.evictAll();
+
+        // Then
+        assertThat(cache.size()).isZero();
+        assertThat(meterRegistry.get("cache.invalidations").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Devrait tout invalider à nouveau et prévenir les autres instances après le commit")
+    void shouldEvictAllAgainAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        cache.get(1, this::load);
+        cache.evictAll();
+        // Lecture concurrente avant le commit, qui remet l'ancienne valeur en cache
+        cache.get(1, this::load);
+        then(bus).should(never()).publish(anyString(), any());
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        cache.get(1, this::load);
+
+        // Then
+        assertThat(loads).hasValue(3);
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        then(bus).should().publish(eq(BookResponseCache.CHANNEL), message.capture());
+        assertThat(new ObjectMapper().valueToTree(message.getValue()).get("bookId").isNull()).isTrue();
+    }
+}
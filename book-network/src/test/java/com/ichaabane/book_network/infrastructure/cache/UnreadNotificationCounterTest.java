@@ -0,0 +1,244 @@
+package com.ichaabane.book_network.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ichaabane.book_network.domain.model.User;
+import com.ichaabane.book_network.domain.repository.UserRepository;
+import com.ichaabane.book_network.infrastructure.messaging.ClusterMessageBus;
+import com.ichaabane.book_network.infrastructure.messaging.UserMessageFanout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UnreadNotificationCounter - Tests unitaires")
+class UnreadNotificationCounterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserMessageFanout messagingFanout;
+
+    @Mock
+    private ClusterMessageBus bus;
+
+    private UnreadNotificationCounter counter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        counter = new UnreadNotificationCounter(userRepository, messagingFanout, bus, new SimpleMeterRegistry(), 100);
+        user = User.builder().id(7).unreadNotifications(3).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Devrait amorcer le compteur depuis l'utilisateur connecté sans requête")
+    void shouldSeedFromAuthenticatedUser() {
+        // When
+        long count = counter.get(user);
+
+        // Then
+        assertThat(count).isEqualTo(3);
+        then(userRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Devrait persister l'incrément puis pousser la nouvelle valeur")
+    void shouldPersistAndPushIncrement() {
+        // Given
+        counter.get(user);
+
+        // When
+        counter.add(7, 2);
+
+        // Then
+        then(userRepository).should().addUnreadNotifications(7, 2);
+        then(messagingFanout).should().convertAndSendToUser("7", UnreadNotificationCounter.DESTINATION, Map.of("count", 5L));
+        assertThat(counter.get(user)).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Devrait relire la ligne après le commit pour un utilisateur absent de la mémoire")
+    void shouldLoadMissingUserAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        given(userRepository.findUnreadNotificationsById(7)).willReturn(Optional.of(4));
+
+        // When
+        counter.add(7, 1);
+
+        // Then
+        then(messagingFanout).shouldHaveNoInteractions();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        then(messagingFanout).should().convertAndSendToUser("7", UnreadNotificationCounter.DESTINATION, Map.of("count", 4L));
+        assertThat(counter.get(user)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Devrait prévenir les autres instances après le commit")
+    void shouldRelayChangeAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        given(userRepository.findUnreadNotificationsById(7)).willReturn(Optional.of(4));
+
+        // When
+        counter.add(7, 1);
+
+        // Then
+        then(bus).should(never()).publish(anyString(), any());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        then(bus).should().publish(eq(UnreadNotificationCounter.CHANNEL), message.capture());
+        assertThat(new ObjectMapper().valueToTree(message.getValue()).get("userIds")).extracting(JsonNode::asInt).containsExactly(7);
+    }
+
+    @Test
+    @DisplayName("Devrait relire la ligne d'un compteur changé sur une autre instance")
+    @SuppressWarnings("unchecked")
+    void shouldReloadCountChangedOnOtherNode() {
+        // Given
+        ArgumentCaptor<Consumer<JsonNode>> handler = ArgumentCaptor.forClass(Consumer.class);
+        then(bus).should().subscribe(eq(UnreadNotificationCounter.CHANNEL), handler.capture());
+        counter.get(user);
+        user.setUnreadNotifications(6);
+
+        // When
+        handler.getValue().accept(new ObjectMapper().valueToTree(Map.of("userIds", List.of(7))));
+
+        // Then
+        assertThat(counter.get(user)).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Devrait découper un recomptage massif en plusieurs messages")
+    void shouldSplitLargeRecountEviction() {
+        // Given
+        List<Integer> userIds = IntStream.rangeClosed(1, 1200).boxed().toList();
+
+        // When
+        counter.recount(userIds);
+
+        // Then
+        then(userRepository).should().recountUnreadNotifications(userIds);
+        then(bus).should(times(3)).publish(eq(UnreadNotificationCounter.CHANNEL), any());
+    }
+
+    @Test
+    @DisplayName("Devrait ignorer la mémoire si la transaction est annulée")
+    void shouldIgnoreRolledBackChange() {
+        // Given
+        counter.get(user);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        counter.set(7, 0);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        assertThat(counter.get(user)).isEqualTo(3);
+        then(messagingFanout).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Devrait remettre le compteur à la valeur donnée")
+    void shouldResetCount() {
+        // Given
+        counter.get(user);
+
+        // When
+        counter.set(7, 0);
+
+        // Then
+        then(userRepository).should().setUnreadNotifications(7, 0);
+        assertThat(counter.get(user)).isZero();
+    }
+
+    @Test
+    @DisplayName("Devrait ne jamais afficher un nombre négatif")
+    void shouldNeverGoBelowZero() {
+        // Given
+        user.setUnreadNotifications(0);
+        counter.get(user);
+
+        // When
+        counter.add(7, -1);
+
+        // Then
+        assertThat(counter.get(user)).isZero();
+    }
+
+    @Test
+    @DisplayName("Devrait garder la valeur en mémoire si l'envoi WebSocket échoue")
+    void shouldSurvivePushFailure() {
+        // Given
+        counter.get(user);
+        willThrow(new MessageDeliveryException("broker unavailable"))
+                .given(messagingFanout).convertAndSendToUser(anyString(), anyString(), any());
+
+        // When
+        counter.add(7, 1);
+
+        // Then
+        assertThat(counter.get(user)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Devrait compter sans perte des incréments concurrents")
+    void shouldNotLoseConcurrentIncrements() throws InterruptedException {
+        // Given
+        counter.get(user);
+        int threads = 16;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < perThread; j++) {
+                    counter.add(7, 1);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        assertThat(counter.get(user)).isEqualTo(3 + threads * perThread);
+    }
+}
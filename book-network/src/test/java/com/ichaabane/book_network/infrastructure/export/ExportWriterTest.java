@@ -0,0 +1,86 @@
+package com.ichaabane.book_network.infrastructure.export;
+
+import com.ichaabane.book_network.domain.enums.DataFormat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ExportWriter - Tests unitaires")
+class ExportWriterTest {
+
+    private static final List<String> COLUMNS = List.of("id", "title", "shareable", "createdDate");
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+
+    @Test
+    @DisplayName("Devrait écrire un en-tête CSV puis une ligne par appel, avec échappement")
+    void shouldWriteCsv() throws IOException {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        try (ExportWriter writer = ExportWriter.open(DataFormat.CSV, output, COLUMNS)) {
+            writer.write(1, "Spice, sand \"and\" worms", true, DATE);
+            writer.write(2, null, false, null);
+        }
+
+        // Then
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,title,shareable,createdDate
+                1,"Spice, sand ""and"" worms",true,2024-03-01T10:15:30
+                2,,false,
+                """);
+    }
+
+    @Test
+    @DisplayName("Devrait écrire un objet JSON par ligne")
+    void shouldWriteNdjson() throws IOException {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        try (ExportWriter writer = ExportWriter.open(DataFormat.NDJSON, output, COLUMNS)) {
+            writer.write(1, "Dune", true, DATE);
+            writer.write(2L, null, false, null);
+            assertThat(writer.getRows()).isEqualTo(2);
+        }
+
+        // Then
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                {"id":1,"title":"Dune","shareable":true,"createdDate":"2024-03-01T10:15:30"}
+                {"id":2,"title":null,"shareable":false,"createdDate":null}
+                """);
+    }
+
+    @Test
+    @DisplayName("Devrait produire un fichier NDJSON vide sans ligne")
+    void shouldWriteEmptyNdjson() throws IOException {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        ExportWriter.open(DataFormat.NDJSON, output, COLUMNS).close();
+
+        // Then
+        assertThat(output.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Devrait refuser une ligne dont le nombre de valeurs ne correspond pas aux colonnes")
+    void shouldRejectWrongArity() throws IOException {
+        // Given
+        try (ExportWriter writer = ExportWriter.open(DataFormat.NDJSON, new ByteArrayOutputStream(), COLUMNS)) {
+            // When & Then
+            assertThatThrownBy(() -> writer.write(1, "Dune"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Expected 4 values, got 2");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.Resource;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -99,4 +100,90 @@ class FileUtilsTest {
             assertThat(result).isEmpty();
         }
     }
+
+    @Nested
+    @DisplayName("loadFileAsResource() - Chargement d'un fichier en ressource")
+    class LoadFileAsResourceTests {
+
+        @Test
+        @DisplayName("Devrait retourner une ressource lisible sans lire son contenu")
+        void devraitRetournerRessourceLisible(@TempDir Path tempDir) throws IOException {
+            // Given
+            Path testFile = Files.writeString(tempDir.resolve("cover.jpg"), "image");
+
+            // When
+            Resource result = FileUtils.loadFileAsResource(testFile.toString());
+
+            // Then
+            assertThat(result).isNotNull();
+            assertThat(result.contentLength()).isEqualTo(5);
+        }
+
+        @ParameterizedTest(name = "Devrait retourner null pour: \"{0}\"")
+        @NullAndEmptySource
+        @ValueSource(strings = {"   ", "/chemin/inexistant/fichier.txt"})
+        @DisplayName("Devrait retourner null pour des entrées invalides")
+        void devraitRetournerNullPourEntreesInvalides(String fileUrl) {
+            assertThat(FileUtils.loadFileAsResource(fileUrl)).isNull();
+        }
+
+        @Test
+        @DisplayName("Devrait retourner null pour un répertoire")
+        void devraitRetournerNullPourRepertoire(@TempDir Path tempDir) {
+            assertThat(FileUtils.loadFileAsResource(tempDir.toString())).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getFileVersion() - Version d'un fichier")
+    class GetFileVersionTests {
+
+        @ParameterizedTest(name = "{0} -> {1}")
+        @CsvSource({
+            "./uploads/users/1/1700000000000.jpg, 1700000000000",
+            "cover, cover",
+            "archive.tar.gz, archive.tar"
+        })
+        @DisplayName("Devrait extraire le nom du fichier sans extension")
+        void devraitExtraireNomSansExtension(String fileUrl, String expected) {
+            assertThat(FileUtils.getFileVersion(fileUrl)).isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @NullAndEmptySource
+        @DisplayName("Devrait retourner null pour un chemin vide")
+        void devraitRetournerNullPourCheminVide(String fileUrl) {
+            assertThat(FileUtils.getFileVersion(fileUrl)).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getRenditionPath() - Chemin des miniatures")
+    class GetRenditionPathTests {
+
+        @ParameterizedTest(name = "{0} en {1} -> {2}")
+        @CsvSource({
+            "./uploads/users/1/1700000000000.png, SMALL, ./uploads/users/1/1700000000000_64.jpg",
+            "./uploads/users/1/1700000000000.jpg, LARGE, ./uploads/users/1/1700000000000_1024.jpg",
+            "cover.gif, MEDIUM, cover_256.jpg"
+        })
+        @DisplayName("Devrait placer la miniature JPEG à côté de l'original")
+        void devraitPlacerMiniatureACoteDeOriginal(String fileUrl, CoverRendition rendition, String expected) {
+            assertThat(FileUtils.getRenditionPath(fileUrl, rendition)).isEqualTo(expected);
+        }
+
+        @ParameterizedTest(name = "{0}px -> {1}")
+        @CsvSource({"1, SMALL", "64, SMALL", "65, MEDIUM", "256, MEDIUM", "800, LARGE", "4000, LARGE"})
+        @DisplayName("Devrait choisir la plus petite miniature suffisante")
+        void devraitChoisirPlusPetiteMiniatureSuffisante(int size, CoverRendition expected) {
+            assertThat(CoverRendition.forSize(size)).isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @NullAndEmptySource
+        @DisplayName("Devrait retourner null pour un chemin vide")
+        void devraitRetournerNullPourCheminVide(String fileUrl) {
+            assertThat(FileUtils.getRenditionPath(fileUrl, CoverRendition.SMALL)).isNull();
+        }
+    }
 }
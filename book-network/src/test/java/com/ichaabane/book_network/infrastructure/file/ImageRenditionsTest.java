@@ -0,0 +1,83 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ImageRenditions - Tests unitaires")
+class ImageRenditionsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Devrait écrire les trois miniatures JPEG dans le dossier temporaire")
+    void devraitEcrireLesTroisMiniatures() throws IOException {
+        // Given - une couverture portrait 2000x3000 avec transparence
+        InputStream original = image(new BufferedImage(2000, 3000, BufferedImage.TYPE_INT_ARGB), "png");
+
+        // When
+        Map<CoverRendition, Path> renditions = ImageRenditions.writeRenditions(original, tempDir);
+
+        // Then
+        assertThat(renditions).containsOnlyKeys(CoverRendition.values());
+        assertThat(renditions.values()).allMatch(path -> path.getParent().equals(tempDir));
+        assertDimensions(renditions.get(CoverRendition.LARGE), 683, 1024);
+        assertDimensions(renditions.get(CoverRendition.MEDIUM), 171, 256);
+        assertDimensions(renditions.get(CoverRendition.SMALL), 43, 64);
+        assertThat(Files.size(renditions.get(CoverRendition.SMALL)))
+                .isLessThan(Files.size(renditions.get(CoverRendition.LARGE)));
+    }
+
+    @Test
+    @DisplayName("Ne devrait pas agrandir une petite couverture")
+    void neDevraitPasAgrandirPetiteCouverture() throws IOException {
+        // Given
+        InputStream original = image(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        // When
+        Map<CoverRendition, Path> renditions = ImageRenditions.writeRenditions(original, tempDir);
+
+        // Then
+        assertDimensions(renditions.get(CoverRendition.LARGE), 100, 50);
+        assertDimensions(renditions.get(CoverRendition.SMALL), 64, 32);
+    }
+
+    @Test
+    @DisplayName("Devrait ignorer un contenu qui n'est pas une image")
+    void devraitIgnorerFichierNonImage() throws IOException {
+        // When
+        Map<CoverRendition, Path> renditions = ImageRenditions.writeRenditions(
+                new ByteArrayInputStream("not an image".getBytes()), tempDir);
+
+        // Then
+        assertThat(renditions).isEmpty();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static InputStream image(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return new ByteArrayInputStream(output.toByteArray());
+    }
+
+    private static void assertDimensions(Path image, int width, int height) throws IOException {
+        BufferedImage decoded = ImageIO.read(image.toFile());
+        assertThat(decoded.getWidth()).isEqualTo(width);
+        assertThat(decoded.getHeight()).isEqualTo(height);
+    }
+}
@@ -0,0 +1,216 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PackBlobStore - Tests unitaires")
+class PackBlobStoreTest {
+
+    private static final long SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private Path packs;
+    private PackBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        packs = tempDir.resolve("packs");
+        store = new PackBlobStore(packs, SEGMENT_SIZE, 0.5);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    private Path source(String content) throws IOException {
+        return Files.writeString(Files.createTempFile(tempDir, "upload", ".tmp"), content);
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream input = resource.getInputStream()) {
+            return new String(input.readAllBytes());
+        }
+    }
+
+    private PackBlobStore reopen() throws IOException {
+        store.close();
+        store = new PackBlobStore(packs, SEGMENT_SIZE, 0.5);
+        return store;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(packs)) {
+            return files.count();
+        }
+    }
+
+    @Nested
+    @DisplayName("put() / load() - Écrire et lire")
+    class PutAndLoadTests {
+
+        @Test
+        @DisplayName("Devrait relire le contenu écrit et consommer le fichier source")
+        void shouldReadBackStoredContent() throws IOException {
+            // Given
+            Path source = source("cover bytes");
+
+            // When
+            store.put("./uploads/covers/ab/cd/abcd.jpg", source);
+
+            // Then
+            Resource resource = store.load("./uploads/covers/ab/cd/abcd.jpg");
+            assertThat(read(resource)).isEqualTo("cover bytes");
+            assertThat(resource.getFilename()).isEqualTo("abcd.jpg");
+            assertThat(resource.contentLength()).isEqualTo(11);
+            assertThat(store.exists("./uploads/covers/ab/cd/abcd.jpg")).isTrue();
+            assertThat(Files.exists(source)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Devrait retourner null pour une clé inconnue")
+        void shouldReturnNullForUnknownKey() {
+            assertThat(store.load("missing.jpg")).isNull();
+            assertThat(store.exists("missing.jpg")).isFalse();
+            assertThat(store.lastModified("missing.jpg")).isNull();
+        }
+
+        @Test
+        @DisplayName("Devrait servir la dernière version d'une clé réécrite")
+        void shouldServeLatestVersion() throws IOException {
+            // Given
+            store.put("a.jpg", source("first"));
+
+            // When
+            store.put("a.jpg", source("second"));
+
+            // Then
+            assertThat(read(store.load("a.jpg"))).isEqualTo("second");
+        }
+
+        @Test
+        @DisplayName("Devrait ouvrir un nouveau segment quand le courant est plein")
+        void shouldRollSegments() throws IOException {
+            // When
+            for (int i = 0; i < 10; i++) {
+                store.put("blob-" + i, source("x".repeat(300)));
+            }
+
+            // Then
+            assertThat(store.segmentCount()).isGreaterThan(1);
+            for (int i = 0; i < 10; i++) {
+                assertThat(read(store.load("blob-" + i))).hasSize(300);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Reprise après redémarrage")
+    class RecoveryTests {
+
+        @Test
+        @DisplayName("Devrait reconstruire l'index en rejouant les segments")
+        void shouldRebuildIndexOnRestart() throws IOException {
+            // Given
+            store.put("kept.jpg", source("kept"));
+            store.put("rewritten.jpg", source("old"));
+            store.put("rewritten.jpg", source("new"));
+            store.put("deleted.jpg", source("gone"));
+            store.delete("deleted.jpg");
+
+            // When
+            reopen();
+
+            // Then
+            assertThat(read(store.load("kept.jpg"))).isEqualTo("kept");
+            assertThat(read(store.load("rewritten.jpg"))).isEqualTo("new");
+            assertThat(store.exists("deleted.jpg")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Devrait tronquer un enregistrement partiellement écrit")
+        void shouldTruncateTornWrite() throws IOException {
+            // Given
+            store.put("complete.jpg", source("complete"));
+            Path segment = packs.resolve("segment-000001.pack");
+            long validSize = Files.size(segment);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x42, 0x4C, 0x4F, 0x42, 0, 0, 0}));
+            }
+
+            // When
+            reopen();
+            store.put("next.jpg", source("next"));
+
+            // Then
+            assertThat(read(store.load("complete.jpg"))).isEqualTo("complete");
+            assertThat(read(store.load("next.jpg"))).isEqualTo("next");
+            reopen();
+            assertThat(read(store.load("next.jpg"))).isEqualTo("next");
+            assertThat(Files.size(segment)).isGreaterThan(validSize);
+        }
+    }
+
+    @Nested
+    @DisplayName("compact() - Compaction")
+    class CompactionTests {
+
+        @Test
+        @DisplayName("Devrait supprimer les segments majoritairement morts en gardant les données vivantes")
+        void shouldCompactDeadSegments() throws IOException {
+            // Given - le premier segment ne garde qu'un blob vivant sur trois
+            store.put("live.jpg", source("l".repeat(300)));
+            store.put("dead-1.jpg", source("d".repeat(300)));
+            store.put("dead-2.jpg", source("d".repeat(300)));
+            store.put("filler.jpg", source("f".repeat(300)));
+            store.delete("dead-1.jpg");
+            store.delete("dead-2.jpg");
+            Resource heldByReader = store.load("live.jpg");
+
+            // When
+            store.compact();
+
+            // Then
+            assertThat(Files.exists(packs.resolve("segment-000001.pack"))).isFalse();
+            assertThat(read(store.load("live.jpg"))).isEqualTo("l".repeat(300));
+            assertThat(read(heldByReader)).isEqualTo("l".repeat(300));
+            reopen();
+            assertThat(read(store.load("live.jpg"))).isEqualTo("l".repeat(300));
+            assertThat(store.exists("dead-1.jpg")).isFalse();
+            assertThat(store.exists("dead-2.jpg")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas toucher aux segments encore majoritairement vivants")
+        void shouldKeepLiveSegments() throws IOException {
+            // Given
+            for (int i = 0; i < 6; i++) {
+                store.put("blob-" + i, source("x".repeat(300)));
+            }
+            long before = segmentFiles();
+
+            // When
+            store.compact();
+
+            // Then
+            assertThat(segmentFiles()).isEqualTo(before);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ichaabane.book_network.infrastructure.file;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("UploadSizeLimitFilter - Tests unitaires")
+class UploadSizeLimitFilterTest {
+
+    private final UploadSizeLimitFilter filter = new UploadSizeLimitFilter(new ObjectMapper(), DataSize.ofBytes(100));
+
+    private MockHttpServletRequest multipartRequest(int contentLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/books/cover/1");
+        request.setContentType("multipart/form-data; boundary=xyz");
+        request.setContent(new byte[contentLength]);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Devrait rejeter un envoi trop volumineux avant de lire le corps")
+    void shouldRejectOversizedUpload() throws Exception {
+        // Given
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest request = multipartRequest(101);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(response.getContentAsString()).contains("maximum size");
+        verify(chain, never()).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("Devrait laisser passer un envoi dans la limite")
+    void shouldAcceptUploadWithinLimit() throws Exception {
+        // Given
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest request = multipartRequest(100);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("Devrait ignorer les requêtes qui ne sont pas multipart")
+    void shouldIgnoreNonMultipartRequests() throws Exception {
+        // Given
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/books");
+        request.setContentType("application/json");
+        request.setContent(new byte[500]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        verify(chain).doFilter(request, response);
+    }
+}
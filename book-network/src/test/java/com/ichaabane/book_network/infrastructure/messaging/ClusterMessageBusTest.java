@@ -0,0 +1,260 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ClusterMessageBus - Tests unitaires")
+class ClusterMessageBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private Array array;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ClusterMessageBus bus;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bus = bus(true, 10);
+    }
+
+    private ClusterMessageBus bus(boolean enabled, int queueSize) {
+        return new ClusterMessageBus(dataSource, objectMapper, meterRegistry,
+                enabled, Duration.ofMillis(100), Duration.ofMillis(100), queueSize);
+    }
+
+    private void databaseAccepts() throws SQLException {
+        given(dataSource.getConnection()).willReturn(connection);
+        given(connection.prepareStatement(anyString())).willReturn(statement);
+        given(connection.createArrayOf(eq("text"), any())).willReturn(array);
+    }
+
+    // Channels then messages of each batch sent, in the order of the NOTIFY statements
+    private List<Object[]> sentArrays() throws SQLException {
+        ArgumentCaptor<Object[]> values = ArgumentCaptor.forClass(Object[].class);
+        then(connection).should(atLeastOnce()).createArrayOf(eq("text"), values.capture());
+        return values.getAllValues();
+    }
+
+    private double counter(String name, String channel) {
+        return meterRegistry.get(name).tag("channel", channel).counter().count();
+    }
+
+    @Nested
+    @DisplayName("publish() / flush() - Publier vers les autres instances")
+    class PublishTests {
+
+        @Test
+        @DisplayName("Devrait mettre en file sans toucher à la base")
+        void shouldQueueWithoutDatabase() {
+            // When
+            boolean queued = bus.publish("books", Map.of("id", 7));
+
+            // Then
+            assertThat(queued).isTrue();
+            then(dataSource).shouldHaveNoInteractions();
+        }
+
+        @Test
+        @DisplayName("Devrait envoyer la file en une requête sur une connexion gardée")
+        void shouldSendQueueInOneStatement() throws Exception {
+            // Given
+            databaseAccepts();
+            bus.publish("books", Map.of("id", 7));
+            bus.publish("counts", Map.of("users", List.of(1, 2)));
+
+            // When
+            boolean sent = bus.flush();
+            bus.publish("books", Map.of("id", 8));
+            bus.flush();
+
+            // Then
+            assertThat(sent).isTrue();
+            then(dataSource).should(times(1)).getConnection();
+            then(connection).should(never()).close();
+            then(statement).should(times(2)).execute();
+            List<Object[]> arrays = sentArrays();
+            assertThat(arrays.get(0)).containsExactly("books", "counts");
+            JsonNode message = objectMapper.readTree((String) arrays.get(1)[0]);
+            assertThat(message.get("node").asText()).isNotBlank();
+            assertThat(message.get("payload").get("id").asInt()).isEqualTo(7);
+            assertThat(counter("cluster.bus.published", "books")).isEqualTo(2);
+            assertThat(counter("cluster.bus.published", "counts")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait garder les messages et se reconnecter après une erreur de la base")
+        void shouldKeepMessagesWhenDatabaseFails() throws Exception {
+            // Given
+            databaseAccepts();
+            willThrow(new SQLException("connection reset")).willReturn(true).given(statement).execute();
+            bus.publish("books", Map.of("id", 7));
+
+            // When
+            boolean first = bus.flush();
+            boolean second = bus.flush();
+
+            // Then
+            assertThat(first).isFalse();
+            assertThat(second).isTrue();
+            then(connection).should().close();
+            then(dataSource).should(times(2)).getConnection();
+            List<Object[]> arrays = sentArrays();
+            assertThat(arrays.get(1)).isEqualTo(arrays.get(3));
+            assertThat(counter("cluster.bus.failures", "books")).isEqualTo(1);
+            assertThat(counter("cluster.bus.published", "books")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait abandonner un message quand la file est pleine")
+        void shouldDropWhenQueueIsFull() {
+            // Given
+            ClusterMessageBus small = bus(true, 1);
+            small.publish("books", Map.of("id", 7));
+
+            // When
+            boolean queued = small.publish("books", Map.of("id", 8));
+
+            // Then
+            assertThat(queued).isFalse();
+            assertThat(counter("cluster.bus.dropped", "books")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait refuser un message trop gros pour NOTIFY")
+        void shouldRejectOversizedMessage() {
+            // When
+            boolean queued = bus.publish("books", Map.of("title", "x".repeat(ClusterMessageBus.MAX_PAYLOAD_BYTES)));
+
+            // Then
+            assertThat(queued).isFalse();
+            assertThat(counter("cluster.bus.oversized", "books")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Ne devrait rien publier si le bus est désactivé")
+        void shouldIgnoreWhenDisabled() {
+            // Given
+            ClusterMessageBus local = bus(false, 10);
+
+            // When
+            boolean queued = local.publish("books", Map.of("id", 7));
+
+            // Then
+            assertThat(queued).isFalse();
+            assertThat(local.flush()).isTrue();
+            then(dataSource).shouldHaveNoInteractions();
+        }
+    }
+
+    @Nested
+    @DisplayName("receive() - Recevoir d'une autre instance")
+    class ReceiveTests {
+
+        private String publishedBy(ClusterMessageBus node, String channel, Object payload) throws SQLException {
+            databaseAccepts();
+            node.publish(channel, payload);
+            node.flush();
+            List<Object[]> arrays = sentArrays();
+            return (String) arrays.get(arrays.size() - 1)[0];
+        }
+
+        @Test
+        @DisplayName("Devrait passer le message d'une autre instance aux abonnés du canal")
+        void shouldHandleMessageFromOtherNode() throws Exception {
+            // Given
+            List<JsonNode> received = new ArrayList<>();
+            bus.subscribe("books", received::add);
+            String message = publishedBy(bus(true, 10), "books", Map.of("id", 7));
+
+            // When
+            bus.receive("books", message);
+
+            // Then
+            assertThat(received).singleElement().satisfies(payload -> assertThat(payload.get("id").asInt()).isEqualTo(7));
+            assertThat(counter("cluster.bus.received", "books")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Devrait ignorer ses propres messages")
+        void shouldIgnoreOwnMessage() throws Exception {
+            // Given
+            List<JsonNode> received = new ArrayList<>();
+            bus.subscribe("books", received::add);
+            String message = publishedBy(bus, "books", Map.of("id", 7));
+
+            // When
+            bus.receive("books", message);
+
+            // Then
+            assertThat(received).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Devrait continuer avec les autres abonnés si l'un échoue")
+        void shouldIsolateFailingHandler() throws Exception {
+            // Given
+            List<JsonNode> received = new ArrayList<>();
+            bus.subscribe("books", payload -> {
+                throw new IllegalStateException("boom");
+            });
+            bus.subscribe("books", received::add);
+            String message = publishedBy(bus(true, 10), "books", Map.of("id", 7));
+
+            // When
+            bus.receive("books", message);
+
+            // Then
+            assertThat(received).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Devrait ignorer un message mal formé")
+        void shouldIgnoreMalformedMessage() {
+            // Given
+            List<JsonNode> received = new ArrayList<>();
+            bus.subscribe("books", received::add);
+
+            // When
+            bus.receive("books", "{not json");
+
+            // Then
+            assertThat(received).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SessionOutboundQueue - Tests unitaires")
+class SessionOutboundQueueTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SessionOutboundQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new SessionOutboundQueue(meterRegistry, DataSize.ofBytes(100));
+    }
+
+    private static Message<byte[]> frame(String sessionId, int size) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[size], headers.getMessageHeaders());
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    @Test
+    @DisplayName("Devrait compter les octets en attente par session jusqu'à leur envoi")
+    void shouldTrackQueuedBytesPerSession() {
+        // Given
+        Message<byte[]> first = frame("a", 40);
+        Message<byte[]> second = frame("a", 30);
+
+        // When
+        queue.preSend(first, null);
+        queue.preSend(second, null);
+        queue.preSend(frame("b", 10), null);
+
+        // Then
+        assertThat(queue.queuedBytes("a")).isEqualTo(70);
+        assertThat(queue.queuedBytes("b")).isEqualTo(10);
+        assertThat(gauge("websocket.outbound.queued")).isEqualTo(80);
+        assertThat(meterRegistry.get("websocket.session.queued").summary().max()).isEqualTo(70);
+
+        // When
+        queue.afterMessageHandled(first, null, null, null);
+
+        // Then
+        assertThat(queue.queuedBytes("a")).isEqualTo(30);
+        assertThat(gauge("websocket.outbound.queued")).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("Devrait écarter les trames d'une session trop en retard sans gêner les autres")
+    void shouldDropFramesOfSlowSession() {
+        // Given
+        queue.preSend(frame("slow", 80), null);
+
+        // When
+        Message<?> dropped = queue.preSend(frame("slow", 30), null);
+        Message<?> other = queue.preSend(frame("fast", 30), null);
+
+        // Then
+        assertThat(dropped).isNull();
+        assertThat(other).isNotNull();
+        assertThat(queue.queuedBytes("slow")).isEqualTo(80);
+        assertThat(meterRegistry.get("websocket.session.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Devrait laisser passer une trame seule plus grande que la limite")
+    void shouldAcceptSingleLargeFrame() {
+        // When
+        Message<?> sent = queue.preSend(frame("a", 500), null);
+
+        // Then
+        assertThat(sent).isNotNull();
+        assertThat(queue.preSend(frame("a", 1), null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Devrait oublier une session dont tout a été envoyé")
+    void shouldForgetDrainedSession() {
+        // Given
+        Message<byte[]> message = frame("a", 20);
+        queue.preSend(message, null);
+
+        // When
+        queue.afterMessageHandled(message, null, null, null);
+
+        // Then
+        assertThat(gauge("websocket.outbound.sessions")).isZero();
+        assertThat(gauge("websocket.outbound.queued")).isZero();
+    }
+
+    @Test
+    @DisplayName("Devrait ignorer les messages sans session ou sans contenu")
+    void shouldIgnoreMessagesWithoutSessionOrPayload() {
+        // Given
+        Message<byte[]> noSession = MessageBuilder.withPayload(new byte[50]).build();
+
+        // When
+        queue.preSend(noSession, null);
+        queue.preSend(frame("a", 0), null);
+
+        // Then
+        assertThat(gauge("websocket.outbound.sessions")).isZero();
+    }
+}
@@ -0,0 +1,137 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Deux contextes Spring, comme deux instances de l'application, reliés par la même base Postgres.
+ * Chaque instance a son propre broker, remplacé ici par une file qui capture ce qu'il reçoit.
+ * Lancé seulement si FANOUT_TEST_DATABASE_URL (et FANOUT_TEST_DATABASE_USERNAME / PASSWORD) pointe vers une base.
+ */
+@EnabledIfEnvironmentVariable(named = "FANOUT_TEST_DATABASE_URL", matches = ".+")
+@DisplayName("UserMessageFanout - Test d'intégration sur deux instances")
+class UserMessageFanoutClusterTest {
+
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = new AnnotationConfigApplicationContext(NodeConfig.class);
+        nodeB = new AnnotationConfigApplicationContext(NodeConfig.class);
+        waitUntilListening();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BlockingQueue<Message<?>> broker(AnnotationConfigApplicationContext node) {
+        return node.getBean("broker", BlockingQueue.class);
+    }
+
+    // The listeners connect in the background, ping until the other node hears it
+    private void waitUntilListening() {
+        await().atMost(Duration.ofSeconds(15)).until(() -> {
+            nodeA.getBean(UserMessageFanout.class).convertAndSendToUser("0", "/ping", Map.of());
+            return broker(nodeB).poll(200, TimeUnit.MILLISECONDS) != null;
+        });
+    }
+
+    // Next message other than the readiness pings, which may still arrive late
+    private static Message<?> next(AnnotationConfigApplicationContext node, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Message<?> message;
+        do {
+            message = broker(node).poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } while (message != null && "/user/0/ping".equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())));
+        return message;
+    }
+
+    @Test
+    @DisplayName("Devrait livrer une seule fois le message sur chaque instance")
+    void shouldDeliverOnceOnEveryNode() throws Exception {
+        // When
+        nodeA.getBean(UserMessageFanout.class).convertAndSendToUser("7", "/notifications", Map.of("count", 3));
+
+        // Then
+        Message<?> remote = next(nodeB, 5000);
+        assertThat(remote).isNotNull();
+        assertThat(SimpMessageHeaderAccessor.getDestination(remote.getHeaders())).isEqualTo("/user/7/notifications");
+        JsonNode payload = new ObjectMapper().readTree((byte[]) remote.getPayload());
+        assertThat(payload.get("count").asInt()).isEqualTo(3);
+
+        Message<?> local = next(nodeA, 1000);
+        assertThat(local).isNotNull();
+        assertThat(SimpMessageHeaderAccessor.getDestination(local.getHeaders())).isEqualTo("/user/7/notifications");
+
+        // No echo on the sending node, no second copy on the other one
+        assertThat(next(nodeA, 500)).isNull();
+        assertThat(next(nodeB, 500)).isNull();
+    }
+
+    @Configuration
+    static class NodeConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new DriverManagerDataSource(
+                    System.getenv("FANOUT_TEST_DATABASE_URL"),
+                    System.getenv("FANOUT_TEST_DATABASE_USERNAME"),
+                    System.getenv("FANOUT_TEST_DATABASE_PASSWORD"));
+        }
+
+        @Bean
+        BlockingQueue<Message<?>> broker() {
+            return new LinkedBlockingQueue<>();
+        }
+
+        @Bean
+        SimpMessagingTemplate messagingTemplate(BlockingQueue<Message<?>> broker) {
+            return new SimpMessagingTemplate((message, timeout) -> broker.add(message));
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ClusterMessageBus clusterMessageBus(DataSource dataSource, MeterRegistry meterRegistry) {
+            return new ClusterMessageBus(dataSource, new ObjectMapper(), meterRegistry,
+                    true, Duration.ofMillis(100), Duration.ofMillis(500), 1000);
+        }
+
+        @Bean
+        UserMessageFanout userMessageFanout(SimpMessagingTemplate messagingTemplate, ClusterMessageBus bus) {
+            return new UserMessageFanout(messagingTemplate, new ObjectMapper(), bus);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ichaabane.book_network.infrastructure.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserMessageFanout - Tests unitaires")
+class UserMessageFanoutTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private ClusterMessageBus bus;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private UserMessageFanout fanout;
+
+    @BeforeEach
+    void setUp() {
+        fanout = new UserMessageFanout(messagingTemplate, objectMapper, bus);
+    }
+
+    private JsonNode publishedMessage() {
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        then(bus).should().publish(eq(UserMessageFanout.CHANNEL), message.capture());
+        return objectMapper.valueToTree(message.getValue());
+    }
+
+    @Nested
+    @DisplayName("convertAndSendToUser() - Envoyer à toutes les instances")
+    class SendTests {
+
+        @Test
+        @DisplayName("Devrait livrer aux sessions locales puis publier sur le bus")
+        void shouldDeliverLocallyAndPublish() {
+            // Given
+            given(bus.isEnabled()).willReturn(true);
+
+            // When
+            fanout.convertAndSendToUser("7", "/notifications", Map.of("message", "Your book has been borrowed"));
+
+            // Then
+            InOrder inOrder = inOrder(messagingTemplate, bus);
+            inOrder.verify(messagingTemplate).convertAndSendToUser("7", "/notifications", Map.of("message", "Your book has been borrowed"));
+            inOrder.verify(bus).publish(eq(UserMessageFanout.CHANNEL), any());
+            JsonNode message = publishedMessage();
+            assertThat(message.get("user").asText()).isEqualTo("7");
+            assertThat(message.get("destination").asText()).isEqualTo("/notifications");
+            assertThat(message.get("payload").get("message").asText()).isEqualTo("Your book has been borrowed");
+        }
+
+        @Test
+        @DisplayName("Devrait rester local si le bus est désactivé")
+        void shouldStayLocalWhenDisabled() {
+            // When
+            fanout.convertAndSendToUser("7", "/notifications", Map.of("count", 1));
+
+            // Then
+            then(messagingTemplate).should().convertAndSendToUser("7", "/notifications", Map.of("count", 1));
+            then(bus).should(never()).publish(anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Ne devrait rien publier si la livraison locale échoue, l'appelant réessaie")
+        void shouldNotPublishWhenLocalDeliveryFails() {
+            // Given
+            given(bus.isEnabled()).willReturn(true);
+            willThrow(new MessagingException("broker unavailable"))
+                    .given(messagingTemplate).convertAndSendToUser(anyString(), anyString(), any());
+
+            // When / Then
+            assertThatThrownBy(() -> fanout.convertAndSendToUser("7", "/notifications", Map.of("count", 1)))
+                    .isInstanceOf(MessagingException.class);
+            then(bus).should(never()).publish(anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Ne devrait pas échouer une fois livré localement, même si le bus refuse le message")
+        void shouldNotFailWhenBusRefuses() {
+            // Given
+            given(bus.isEnabled()).willReturn(true);
+            given(bus.publish(anyString(), any())).willReturn(false);
+
+            // When
+            fanout.convertAndSendToUser("7", "/notifications", Map.of("count", 1));
+
+            // Then
+            then(messagingTemplate).should().convertAndSendToUser("7", "/notifications", Map.of("count", 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("receive() - Recevoir d'une autre instance")
+    class ReceiveTests {
+
+        @Test
+        @DisplayName("Devrait s'abonner au canal et livrer aux sessions locales")
+        @SuppressWarnings("unchecked")
+        void shouldDeliverMessageFromOtherNode() {
+            // Given
+            ArgumentCaptor<Consumer<JsonNode>> handler = ArgumentCaptor.forClass(Consumer.class);
+            then(bus).should().subscribe(eq(UserMessageFanout.CHANNEL), handler.capture());
+            JsonNode message = objectMapper.valueToTree(
+                    Map.of("user", "7", "destination", "/notifications", "payload", Map.of("count", 2)));
+
+            // When
+            handler.getValue().accept(message);
+
+            // Then
+            ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+            then(messagingTemplate).should().convertAndSendToUser(eq("7"), eq("/notifications"), payload.capture());
+            assertThat(((JsonNode) payload.getValue()).get("count").asInt()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Devrait ignorer un message mal formé")
+        void shouldIgnoreMalformedMessage() {
+            // When
+            fanout.receive(objectMapper.valueToTree(Map.of("user", List.of())));
+
+            // Then
+            then(messagingTemplate).shouldHaveNoInteractions();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ichaabane.book_network.infrastructure.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BookSearchIndex - Tests unitaires")
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.index(new BookSearchIndex.Document(1, 10, false, true,
+                "Clean Code", "Robert Martin", "978-0-13-235088-4", "A handbook of agile software craftsmanship"));
+        index.index(new BookSearchIndex.Document(2, 10, false, true,
+                "The Clean Coder", "Robert Martin", "9780137081073", "A code of conduct for professional programmers"));
+        index.index(new BookSearchIndex.Document(3, 20, false, true,
+                "Le Petit Prince", "Antoine de Saint-Exupéry", "9782070612758", "Un aviateur rencontre un petit prince"));
+    }
+
+    @Test
+    @DisplayName("Devrait classer en premier le livre dont le titre correspond le mieux")
+    void shouldRankBestTitleMatchFirst() {
+        assertThat(index.search("clean code", book -> true)).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("Devrait trouver un livre par variante, accent ou ISBN")
+    void shouldMatchVariantsAccentsAndIsbn() {
+        assertThat(index.search("petits princes", book -> true)).containsExactly(3);
+        assertThat(index.search("exupery", book -> true)).containsExactly(3);
+        assertThat(index.search("978-0-13-235088-4", book -> true)).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("Devrait appliquer le filtre de visibilité")
+    void shouldApplyFilter() {
+        assertThat(index.search("robert", book -> book.ownerId() != 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Devrait remplacer les termes d'un livre réindexé")
+    void shouldReplaceTermsOnReindex() {
+        // When
+        index.index(new BookSearchIndex.Document(1, 10, true, true, "Refactoring", "Martin Fowler", null, null));
+
+        // Then
+        assertThat(index.search("clean", book -> true)).containsExactly(2);
+        assertThat(index.search("refactoring", book -> true)).containsExactly(1);
+        assertThat(index.search("refactoring", book -> !book.archived())).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Devrait retirer un livre de l'index")
+    void shouldRemoveBook() {
+        // When
+        index.remove(3);
+
+        // Then
+        assertThat(index.search("prince", book -> true)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Devrait remplacer l'index d'un coup en gardant les changements faits pendant la reconstruction")
+    void shouldSwapRebuiltIndexKeepingConcurrentChanges() {
+        // Given
+        BookSearchIndex.Document staleRow = new BookSearchIndex.Document(1, 10, false, true,
+                "Clean Code", "Robert Martin", null, null);
+        BookSearchIndex.Document deletedRow = new BookSearchIndex.Document(3, 20, false, true,
+                "Le Petit Prince", "Antoine de Saint-Exupéry", null, null);
+        List<Integer> seenDuringRebuild = new ArrayList<>();
+
+        // When
+        index.rebuild(Stream.of(staleRow, deletedRow).peek(row -> {
+            if (row.id() == 1) {
+                // A save and a removal commit while the catalog is streamed
+                index.index(new BookSearchIndex.Document(1, 10, false, true, "Refactoring", "Martin Fowler", null, null));
+                index.remove(3);
+                seenDuringRebuild.addAll(index.search("clean", book -> true));
+            }
+        }));
+
+        // Then
+        // The previous index kept serving searches, with the change already applied
+        assertThat(seenDuringRebuild).containsExactly(2);
+        assertThat(index.search("refactoring", book -> true)).containsExactly(1);
+        assertThat(index.search("clean", book -> true)).isEmpty();
+        assertThat(index.search("prince", book -> true)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ichaabane.book_network.infrastructure.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TextAnalyzer - Tests unitaires")
+class TextAnalyzerTest {
+
+    @Nested
+    @DisplayName("analyze() - Découpage en termes")
+    class AnalyzeTests {
+
+        @Test
+        @DisplayName("Devrait normaliser la casse et les accents et ignorer les mots vides")
+        void shouldFoldCaseAndAccentsAndSkipStopWords() {
+            assertThat(TextAnalyzer.analyze("Les Misérables, de Victor HUGO"))
+                    .containsExactly("miserabl", "victor", "hugo");
+        }
+
+        @Test
+        @DisplayName("Devrait garder un ISBN avec tirets comme un seul terme")
+        void shouldKeepHyphenatedIsbnAsSingleTerm() {
+            assertThat(TextAnalyzer.analyze("978-0-13-235088-4")).containsExactly("9780132350884");
+        }
+
+        @ParameterizedTest(name = "Devrait retourner aucun terme pour: \"{0}\"")
+        @NullAndEmptySource
+        @ValueSource(strings = {"   ", "the of and", "- ; ,"})
+        @DisplayName("Devrait retourner une liste vide sans terme utile")
+        void shouldReturnNoTerms(String text) {
+            assertThat(TextAnalyzer.analyze(text)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("stem() - Racinisation légère anglais/français")
+    class StemTests {
+
+        @ParameterizedTest(name = "{0} et {1} partagent la même racine")
+        @CsvSource({
+                "book, books",
+                "story, stories",
+                "read, reading",
+                "run, running",
+                "loved, loving",
+                "cheval, chevaux",
+                "grand, grande",
+                "rapide, rapidement",
+                "jeu, jeux"
+        })
+        @DisplayName("Devrait ramener les variantes à la même racine")
+        void shouldStemVariantsToSameRoot(String word, String variant) {
+            assertThat(TextAnalyzer.stem(variant)).isEqualTo(TextAnalyzer.stem(word));
+        }
+
+        @Test
+        @DisplayName("Devrait laisser les mots courts et les nombres intacts")
+        void shouldKeepShortWordsAndNumbers() {
+            assertThat(TextAnalyzer.stem("bus")).isEqualTo("bus");
+            assertThat(TextAnalyzer.stem("2024s")).isEqualTo("2024s");
+        }
+    }
+}